@@ -9,8 +9,8 @@ package com.microsoft.azure.batch;
 import com.microsoft.azure.batch.interceptor.DetailLevelInterceptor;
 import com.microsoft.azure.batch.interceptor.RequestInterceptor;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 class BehaviorManager {
@@ -19,13 +19,13 @@ class BehaviorManager {
     private Collection<BatchClientBehavior> baseBehaviors;
 
     BehaviorManager(Collection<BatchClientBehavior> baseBehaviors, Iterable<BatchClientBehavior> perCallBehaviors) {
-        this.baseBehaviors = new LinkedList<BatchClientBehavior>();
+        this.baseBehaviors = new ArrayList<BatchClientBehavior>();
 
         if (null != baseBehaviors) {
             this.baseBehaviors().addAll(baseBehaviors);
         }
 
-        this.perCallBehaviors = new LinkedList<BatchClientBehavior>();
+        this.perCallBehaviors = new ArrayList<BatchClientBehavior>();
 
         if (null != perCallBehaviors) {
             for (BatchClientBehavior bh : perCallBehaviors) {
@@ -35,15 +35,22 @@ class BehaviorManager {
     }
 
     Collection<BatchClientBehavior> getMasterListOfBehaviors() {
-        List<BatchClientBehavior> ml = new LinkedList<BatchClientBehavior>(this.baseBehaviors());
+        List<BatchClientBehavior> ml = new ArrayList<BatchClientBehavior>(this.baseBehaviors().size() + this.perCallBehaviors().size());
 
+        ml.addAll(this.baseBehaviors());
         ml.addAll(this.perCallBehaviors());
 
         return ml;
     }
 
     void applyRequestBehaviors(Object request) {
-        for (BatchClientBehavior bh : getMasterListOfBehaviors()) {
+        // Same order as the master list, without building it for every request
+        applyRequestBehaviors(this.baseBehaviors(), request);
+        applyRequestBehaviors(this.perCallBehaviors(), request);
+    }
+
+    private static void applyRequestBehaviors(Collection<BatchClientBehavior> behaviors, Object request) {
+        for (BatchClientBehavior bh : behaviors) {
             if (bh instanceof RequestInterceptor) {
                 ((RequestInterceptor) bh).handler().modify(request);
             }
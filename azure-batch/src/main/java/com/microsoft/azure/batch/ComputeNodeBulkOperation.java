@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.interceptor.BatchClientParallelOptions;
+import com.microsoft.azure.batch.protocol.models.BatchErrorException;
+import com.microsoft.azure.batch.protocol.models.ComputeNode;
+import com.microsoft.azure.batch.protocol.models.ComputeNodeState;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs an operation on many compute nodes of a pool, up to {@link BatchClientParallelOptions#maxDegreeOfParallelism()}
+ * at a time, and reports the result of each one.
+ *
+ * In rolling mode the compute nodes are processed in batches: the next batch only starts once every compute node of
+ * the previous one went through the operation and came back to the idle or running state, and no batch starts after a
+ * batch in which a compute node failed, so a bad operation never takes down more than one batch of the pool.
+ */
+abstract class ComputeNodeBulkOperation {
+
+    // The interval between two checks of the state of the compute nodes of a batch
+    private static final long POLL_INTERVAL_MILLIS = 10000;
+
+    private static final String SELECT_CLAUSE = "id,state,stateTransitionTime";
+
+    // The most compute node IDs put in one $filter, keeping the query string of a listing to a few KB
+    static final int MAX_IDS_PER_FILTER = 50;
+
+    // Beyond this many filtered listings, listing the whole pool is cheaper
+    static final int MAX_FILTERED_LISTINGS = 4;
+
+    private final ComputeNodeOperations computeNodeOperations;
+    private final String poolId;
+    private final Iterable<BatchClientBehavior> additionalBehaviors;
+
+    // Shortened by tests
+    long pollIntervalMillis = POLL_INTERVAL_MILLIS;
+
+    ComputeNodeBulkOperation(ComputeNodeOperations computeNodeOperations, String poolId, Iterable<BatchClientBehavior> additionalBehaviors) {
+        this.computeNodeOperations = computeNodeOperations;
+        this.poolId = poolId;
+        this.additionalBehaviors = additionalBehaviors;
+    }
+
+    /**
+     * Runs the operation on a compute node.
+     *
+     * @param nodeId The ID of the compute node.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    abstract void apply(String nodeId) throws BatchErrorException, IOException;
+
+    /**
+     * Runs the operation on the compute nodes.
+     *
+     * @param nodeIds The IDs of the compute nodes.
+     * @param batchSize The number of compute nodes per batch in rolling mode, or 0 to run the operation on every compute node at once.
+     * @param batchTimeoutMillis How long to wait for the compute nodes of a batch to come back in rolling mode.
+     * @return The results, in the order of the IDs; in rolling mode, only the batches processed have results.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    List<ComputeNodeOperationResult> run(List<String> nodeIds, int batchSize, long batchTimeoutMillis) throws InterruptedException {
+        BehaviorManager bhMgr = new BehaviorManager(computeNodeOperations.customBehaviors(), additionalBehaviors);
+
+        // Default thread number is 1
+        int parallelism = 1;
+        ExecutorService executor = null;
+
+        for (BatchClientBehavior op : bhMgr.getMasterListOfBehaviors()) {
+            if (op instanceof BatchClientParallelOptions) {
+                parallelism = ((BatchClientParallelOptions) op).maxDegreeOfParallelism();
+                executor = ((BatchClientParallelOptions) op).executorService();
+                break;
+            }
+        }
+
+        boolean ownExecutor = executor == null;
+        if (ownExecutor) {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+
+        try {
+            if (batchSize <= 0) {
+                return runBatch(nodeIds, parallelism, executor);
+            }
+
+            List<ComputeNodeOperationResult> results = new ArrayList<>(nodeIds.size());
+            for (int start = 0; start < nodeIds.size(); start += batchSize) {
+                List<String> batchNodeIds = nodeIds.subList(start, Math.min(nodeIds.size(), start + batchSize));
+                Map<String, DateTime> baseline = readStateTransitionTimes(batchNodeIds);
+                List<ComputeNodeOperationResult> batchResults = runBatch(batchNodeIds, parallelism, executor);
+                batchResults = awaitReturn(batchResults, baseline, batchTimeoutMillis);
+                results.addAll(batchResults);
+
+                for (ComputeNodeOperationResult result : batchResults) {
+                    if (!result.isSuccessful()) {
+                        return results;
+                    }
+                }
+            }
+            return results;
+        } finally {
+            if (ownExecutor) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private List<ComputeNodeOperationResult> runBatch(List<String> nodeIds, int parallelism, Executor executor) throws InterruptedException {
+        CompletionService<ComputeNodeOperationResult> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<ComputeNodeOperationResult>, Integer> inFlight = new HashMap<>();
+        ComputeNodeOperationResult[] results = new ComputeNodeOperationResult[nodeIds.size()];
+        int next = 0;
+
+        try {
+            while (next < nodeIds.size() || !inFlight.isEmpty()) {
+                while (inFlight.size() < parallelism && next < nodeIds.size()) {
+                    inFlight.put(completionService.submit(new Apply(nodeIds.get(next))), next);
+                    next++;
+                }
+
+                // Wait for any compute node to be done
+                Future<ComputeNodeOperationResult> done = completionService.take();
+                int index = inFlight.remove(done);
+
+                try {
+                    results[index] = done.get();
+                } catch (ExecutionException e) {
+                    results[index] = new ComputeNodeOperationResult(nodeIds.get(index), e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+        } finally {
+            for (Future<ComputeNodeOperationResult> future : inFlight.keySet()) {
+                future.cancel(true);
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Reads the time of the latest state transition of the compute nodes, as recorded by the Batch service.
+     *
+     * @return The state transition times by compute node ID, without the compute nodes that could not be read.
+     */
+    private Map<String, DateTime> readStateTransitionTimes(List<String> nodeIds) {
+        Map<String, DateTime> times = new HashMap<>();
+        try {
+            for (ComputeNode node : listComputeNodes(nodeIds)) {
+                if (node.stateTransitionTime() != null) {
+                    times.put(node.id(), node.stateTransitionTime());
+                }
+            }
+        } catch (BatchErrorException | IOException | RuntimeException e) {
+            // Without the time of their latest transition, the compute nodes are only back once seen leaving
+        }
+        return times;
+    }
+
+    /**
+     * Waits for the compute nodes the operation succeeded on to come back to the idle or running state.
+     *
+     * A compute node is back once it is seen in one of these states after being seen in another one, or with a state
+     * transition later than the one read before the operation, in case it came back between two checks. Both times
+     * come from the Batch service, so the clock of the client does not matter.
+     *
+     * @return The results, where the compute nodes that did not come back are failed.
+     */
+    private List<ComputeNodeOperationResult> awaitReturn(List<ComputeNodeOperationResult> results, Map<String, DateTime> baseline, long timeoutMillis) throws InterruptedException {
+        Map<String, Integer> pending = new HashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isSuccessful()) {
+                pending.put(results.get(i).nodeId(), i);
+            }
+        }
+
+        List<ComputeNodeOperationResult> returned = new ArrayList<>(results);
+        Set<String> left = new HashSet<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        while (!pending.isEmpty()) {
+            try {
+                for (ComputeNode node : listComputeNodes(new ArrayList<>(pending.keySet()))) {
+                    Integer index = pending.get(node.id());
+                    if (index == null) {
+                        continue;
+                    }
+
+                    ComputeNodeState state = node.state();
+                    if (state == ComputeNodeState.IDLE || state == ComputeNodeState.RUNNING) {
+                        DateTime before = baseline.get(node.id());
+                        if (left.contains(node.id()) || (before != null && node.stateTransitionTime() != null && node.stateTransitionTime().isAfter(before))) {
+                            pending.remove(node.id());
+                        }
+                    } else if (state == ComputeNodeState.UNUSABLE || state == ComputeNodeState.STARTTASKFAILED) {
+                        returned.set(index, new ComputeNodeOperationResult(node.id(), new IllegalStateException(String.format("The compute node is in the %s state.", state))));
+                        pending.remove(node.id());
+                    } else {
+                        left.add(node.id());
+                    }
+                }
+            } catch (BatchErrorException | IOException | RuntimeException e) {
+                // Check again at the next poll, the compute nodes are given until the deadline either way
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (pending.isEmpty() || remaining <= 0) {
+                break;
+            }
+            Thread.sleep(Math.min(pollIntervalMillis, remaining));
+        }
+
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            returned.set(entry.getValue(), new ComputeNodeOperationResult(entry.getKey(),
+                    new TimeoutException(String.format("The compute node did not return to the idle or running state within %d ms.", timeoutMillis))));
+        }
+        return returned;
+    }
+
+    /**
+     * Lists the state of compute nodes of the pool.
+     *
+     * The compute nodes are filtered on their IDs by the Batch service, {@link #MAX_IDS_PER_FILTER} at a time; for
+     * more than {@link #MAX_FILTERED_LISTINGS} such listings, the whole pool is listed and filtered here instead.
+     *
+     * @param nodeIds The IDs of the compute nodes.
+     * @return The compute nodes, with their id, state and stateTransitionTime properties.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    List<ComputeNode> listComputeNodes(Collection<String> nodeIds) throws BatchErrorException, IOException {
+        List<ComputeNode> nodes = new ArrayList<>(nodeIds.size());
+
+        if (nodeIds.size() > MAX_IDS_PER_FILTER * MAX_FILTERED_LISTINGS) {
+            Set<String> wanted = new HashSet<>(nodeIds);
+            for (ComputeNode node : iterateComputeNodes(new DetailLevel.Builder().withSelectClause(SELECT_CLAUSE).build())) {
+                if (wanted.contains(node.id())) {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        }
+
+        List<String> ids = new ArrayList<>(nodeIds);
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_FILTER) {
+            String filter = idFilter(ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_FILTER)));
+            for (ComputeNode node : iterateComputeNodes(new DetailLevel.Builder().withSelectClause(SELECT_CLAUSE).withFilterClause(filter).build())) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Lists the compute nodes of the pool.
+     *
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @return The compute nodes.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    Iterable<ComputeNode> iterateComputeNodes(DetailLevel detailLevel) throws BatchErrorException, IOException {
+        return computeNodeOperations.iterateComputeNodes(poolId, detailLevel, false, additionalBehaviors);
+    }
+
+    /**
+     * Builds a $filter clause matching the compute nodes with the given IDs.
+     */
+    static String idFilter(Collection<String> nodeIds) {
+        StringBuilder filter = new StringBuilder();
+        for (String nodeId : nodeIds) {
+            if (filter.length() > 0) {
+                filter.append(" or ");
+            }
+            filter.append("id eq '").append(nodeId.replace("'", "''")).append('\'');
+        }
+        return filter.toString();
+    }
+
+    private class Apply implements Callable<ComputeNodeOperationResult> {
+
+        private final String nodeId;
+
+        Apply(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public ComputeNodeOperationResult call() {
+            try {
+                apply(nodeId);
+                return new ComputeNodeOperationResult(nodeId, null);
+            } catch (BatchErrorException | IOException | RuntimeException e) {
+                return new ComputeNodeOperationResult(nodeId, e);
+            }
+        }
+    }
+}
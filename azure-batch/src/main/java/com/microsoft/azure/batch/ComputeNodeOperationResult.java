@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+/**
+ * The result of an operation on one compute node of a bulk operation in {@link ComputeNodeOperations}.
+ */
+public class ComputeNodeOperationResult {
+
+    private final String nodeId;
+
+    private final Exception error;
+
+    ComputeNodeOperationResult(String nodeId, Exception error) {
+        this.nodeId = nodeId;
+        this.error = error;
+    }
+
+    /**
+     * Gets the ID of the compute node.
+     *
+     * @return The ID of the compute node.
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Gets the reason the operation failed on the compute node.
+     *
+     * This is the {@link com.microsoft.azure.batch.protocol.models.BatchErrorException BatchErrorException} or
+     * IOException thrown by the request, or, in rolling mode, a
+     * {@link java.util.concurrent.TimeoutException TimeoutException} or IllegalStateException if the compute node
+     * did not return to the idle or running state.
+     *
+     * @return The exception, or null if the operation succeeded.
+     */
+    public Exception error() {
+        return error;
+    }
+
+    /**
+     * Gets whether the operation succeeded on the compute node.
+     *
+     * @return true if the operation succeeded.
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
@@ -7,6 +7,7 @@
 package com.microsoft.azure.batch;
 
 import com.google.common.io.CharStreams;
+import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.batch.protocol.models.*;
 import com.microsoft.rest.ServiceResponseWithHeaders;
@@ -15,8 +16,10 @@ import org.joda.time.DateTime;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Performs compute node related operations on an Azure Batch account.
@@ -89,6 +92,62 @@ public class ComputeNodeOperations implements IInheritedBehaviors {
         this._parentBatchClient.protocolLayer().computeNodes().addUser(poolId, nodeId, user, options);
     }
 
+    /**
+     * Creates a {@link ComputeNodeUser} user account on each of the specified compute nodes.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param user the user account which to be created
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> addComputeNodeUser(String poolId, Collection<String> nodeIds, ComputeNodeUser user) throws InterruptedException {
+        return addComputeNodeUser(poolId, nodeIds, user, null);
+    }
+
+    /**
+     * Creates a {@link ComputeNodeUser} user account on each of the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param user the user account which to be created
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> addComputeNodeUser(final String poolId, Collection<String> nodeIds, final ComputeNodeUser user, final Iterable<BatchClientBehavior> additionalBehaviors) throws InterruptedException {
+        return new ComputeNodeBulkOperation(this, poolId, additionalBehaviors) {
+            @Override
+            void apply(String nodeId) throws BatchErrorException, IOException {
+                addComputeNodeUser(poolId, nodeId, user, additionalBehaviors);
+            }
+        }.run(new ArrayList<>(nodeIds), 0, 0);
+    }
+
+    /**
+     * Creates a {@link ComputeNodeUser} user account on each of the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeSelection A {@link DetailLevel} whose filter clause selects the compute nodes.
+     * @param user the user account which to be created
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node selected.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> addComputeNodeUser(String poolId, DetailLevel nodeSelection, ComputeNodeUser user, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        return addComputeNodeUser(poolId, listComputeNodeIds(poolId, nodeSelection, additionalBehaviors), user, additionalBehaviors);
+    }
+
     /**
      * Deletes the specified user account from the specified compute node.
      *
@@ -298,6 +357,96 @@ public class ComputeNodeOperations implements IInheritedBehaviors {
         this._parentBatchClient.protocolLayer().computeNodes().reboot(poolId, nodeId, nodeRebootOption, options);
     }
 
+    /**
+     * Reboots the specified compute nodes.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeRebootOption specifies when to reboot the nodes and what to do with currently running tasks.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> rebootComputeNode(String poolId, Collection<String> nodeIds, ComputeNodeRebootOption nodeRebootOption) throws InterruptedException {
+        return rebootComputeNode(poolId, nodeIds, nodeRebootOption, null);
+    }
+
+    /**
+     * Reboots the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeRebootOption specifies when to reboot the nodes and what to do with currently running tasks.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> rebootComputeNode(final String poolId, Collection<String> nodeIds, final ComputeNodeRebootOption nodeRebootOption, final Iterable<BatchClientBehavior> additionalBehaviors) throws InterruptedException {
+        return new ComputeNodeBulkOperation(this, poolId, additionalBehaviors) {
+            @Override
+            void apply(String nodeId) throws BatchErrorException, IOException {
+                rebootComputeNode(poolId, nodeId, nodeRebootOption, additionalBehaviors);
+            }
+        }.run(new ArrayList<>(nodeIds), 0, 0);
+    }
+
+    /**
+     * Reboots the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeSelection A {@link DetailLevel} whose filter clause selects the compute nodes.
+     * @param nodeRebootOption specifies when to reboot the nodes and what to do with currently running tasks.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node selected.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> rebootComputeNode(String poolId, DetailLevel nodeSelection, ComputeNodeRebootOption nodeRebootOption, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        return rebootComputeNode(poolId, listComputeNodeIds(poolId, nodeSelection, additionalBehaviors), nodeRebootOption, additionalBehaviors);
+    }
+
+    /**
+     * Reboots the specified compute nodes in rolling batches.
+     *
+     * The compute nodes are processed in batches of batchSize. The next batch starts once every compute node of the
+     * previous one came back to the idle or running state, and no batch starts after a batch in which a compute node
+     * failed or did not come back within batchTimeout; the compute nodes of the batches not started have no result.
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeRebootOption specifies when to reboot the nodes and what to do with currently running tasks.
+     * @param batchSize The number of compute nodes per batch.
+     * @param batchTimeout How long to wait for the compute nodes of a batch to come back.
+     * @param unit The unit of the batch timeout.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node of the batches processed, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> rebootComputeNode(final String poolId, Collection<String> nodeIds, final ComputeNodeRebootOption nodeRebootOption, int batchSize, long batchTimeout, TimeUnit unit,
+                                                              final Iterable<BatchClientBehavior> additionalBehaviors) throws InterruptedException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+
+        return new ComputeNodeBulkOperation(this, poolId, additionalBehaviors) {
+            @Override
+            void apply(String nodeId) throws BatchErrorException, IOException {
+                rebootComputeNode(poolId, nodeId, nodeRebootOption, additionalBehaviors);
+            }
+        }.run(new ArrayList<>(nodeIds), batchSize, unit.toMillis(batchTimeout));
+    }
+
     /**
      * Reinstalls the operating system on the specified compute node.
      *
@@ -341,6 +490,96 @@ public class ComputeNodeOperations implements IInheritedBehaviors {
         this._parentBatchClient.protocolLayer().computeNodes().reimage(poolId, nodeId, nodeReimageOption, options);
     }
 
+    /**
+     * Reinstalls the operating system on the specified compute nodes.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeReimageOption specifies when to reimage the nodes and what to do with currently running tasks.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> reimageComputeNode(String poolId, Collection<String> nodeIds, ComputeNodeReimageOption nodeReimageOption) throws InterruptedException {
+        return reimageComputeNode(poolId, nodeIds, nodeReimageOption, null);
+    }
+
+    /**
+     * Reinstalls the operating system on the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeReimageOption specifies when to reimage the nodes and what to do with currently running tasks.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> reimageComputeNode(final String poolId, Collection<String> nodeIds, final ComputeNodeReimageOption nodeReimageOption, final Iterable<BatchClientBehavior> additionalBehaviors) throws InterruptedException {
+        return new ComputeNodeBulkOperation(this, poolId, additionalBehaviors) {
+            @Override
+            void apply(String nodeId) throws BatchErrorException, IOException {
+                reimageComputeNode(poolId, nodeId, nodeReimageOption, additionalBehaviors);
+            }
+        }.run(new ArrayList<>(nodeIds), 0, 0);
+    }
+
+    /**
+     * Reinstalls the operating system on the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeSelection A {@link DetailLevel} whose filter clause selects the compute nodes.
+     * @param nodeReimageOption specifies when to reimage the nodes and what to do with currently running tasks.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node selected.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> reimageComputeNode(String poolId, DetailLevel nodeSelection, ComputeNodeReimageOption nodeReimageOption, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        return reimageComputeNode(poolId, listComputeNodeIds(poolId, nodeSelection, additionalBehaviors), nodeReimageOption, additionalBehaviors);
+    }
+
+    /**
+     * Reinstalls the operating system on the specified compute nodes in rolling batches.
+     *
+     * The compute nodes are processed in batches of batchSize. The next batch starts once every compute node of the
+     * previous one came back to the idle or running state, and no batch starts after a batch in which a compute node
+     * failed or did not come back within batchTimeout; the compute nodes of the batches not started have no result.
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeReimageOption specifies when to reimage the nodes and what to do with currently running tasks.
+     * @param batchSize The number of compute nodes per batch.
+     * @param batchTimeout How long to wait for the compute nodes of a batch to come back.
+     * @param unit The unit of the batch timeout.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node of the batches processed, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> reimageComputeNode(final String poolId, Collection<String> nodeIds, final ComputeNodeReimageOption nodeReimageOption, int batchSize, long batchTimeout, TimeUnit unit,
+                                                               final Iterable<BatchClientBehavior> additionalBehaviors) throws InterruptedException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+
+        return new ComputeNodeBulkOperation(this, poolId, additionalBehaviors) {
+            @Override
+            void apply(String nodeId) throws BatchErrorException, IOException {
+                reimageComputeNode(poolId, nodeId, nodeReimageOption, additionalBehaviors);
+            }
+        }.run(new ArrayList<>(nodeIds), batchSize, unit.toMillis(batchTimeout));
+    }
+
     /**
      * Disables task scheduling on the specified compute node.
      *
@@ -384,6 +623,62 @@ public class ComputeNodeOperations implements IInheritedBehaviors {
         this._parentBatchClient.protocolLayer().computeNodes().disableScheduling(poolId, nodeId, nodeDisableSchedulingOption, options);
     }
 
+    /**
+     * Disables task scheduling on the specified compute nodes.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeDisableSchedulingOption specifies what to do with currently running tasks.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> disableComputeNodeScheduling(String poolId, Collection<String> nodeIds, DisableComputeNodeSchedulingOption nodeDisableSchedulingOption) throws InterruptedException {
+        return disableComputeNodeScheduling(poolId, nodeIds, nodeDisableSchedulingOption, null);
+    }
+
+    /**
+     * Disables task scheduling on the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeIds The IDs of the compute nodes.
+     * @param nodeDisableSchedulingOption specifies what to do with currently running tasks.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node, in the order of the IDs.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> disableComputeNodeScheduling(final String poolId, Collection<String> nodeIds, final DisableComputeNodeSchedulingOption nodeDisableSchedulingOption, final Iterable<BatchClientBehavior> additionalBehaviors) throws InterruptedException {
+        return new ComputeNodeBulkOperation(this, poolId, additionalBehaviors) {
+            @Override
+            void apply(String nodeId) throws BatchErrorException, IOException {
+                disableComputeNodeScheduling(poolId, nodeId, nodeDisableSchedulingOption, additionalBehaviors);
+            }
+        }.run(new ArrayList<>(nodeIds), 0, 0);
+    }
+
+    /**
+     * Disables task scheduling on the specified compute nodes.
+     *
+     * Up to {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#maxDegreeOfParallelism() BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions#executorService() BatchClientParallelOptions#executorService()}
+     * if one is set. A failure on a compute node does not stop the operation on the others.
+     *
+     * @param poolId The ID of the pool that contains the compute nodes.
+     * @param nodeSelection A {@link DetailLevel} whose filter clause selects the compute nodes.
+     * @param nodeDisableSchedulingOption specifies what to do with currently running tasks.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link ComputeNodeOperationResult result} of each compute node selected.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public List<ComputeNodeOperationResult> disableComputeNodeScheduling(String poolId, DetailLevel nodeSelection, DisableComputeNodeSchedulingOption nodeDisableSchedulingOption, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        return disableComputeNodeScheduling(poolId, listComputeNodeIds(poolId, nodeSelection, additionalBehaviors), nodeDisableSchedulingOption, additionalBehaviors);
+    }
+
     /**
      * Enables task scheduling on the specified compute node.
      *
@@ -530,4 +825,95 @@ public class ComputeNodeOperations implements IInheritedBehaviors {
         return response.getBody();
     }
 
+    /**
+     * Enumerates the {@link ComputeNode compute nodes} in the specified pool one page at a time.
+     *
+     * Unlike {@link #listComputeNodes(String)}, only the page being enumerated is kept in memory.
+     *
+     * @param poolId The ID of the pool.
+     * @return An {@link Iterable} over the {@link ComputeNode compute nodes}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<ComputeNode> iterateComputeNodes(String poolId) throws BatchErrorException, IOException {
+        return iterateComputeNodes(poolId, null, false, null);
+    }
+
+    /**
+     * Enumerates the {@link ComputeNode compute nodes} in the specified pool one page at a time.
+     *
+     * Unlike {@link #listComputeNodes(String)}, only the page being enumerated is kept in memory.
+     *
+     * @param poolId The ID of the pool.
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @return An {@link Iterable} over the {@link ComputeNode compute nodes}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<ComputeNode> iterateComputeNodes(String poolId, DetailLevel detailLevel) throws BatchErrorException, IOException {
+        return iterateComputeNodes(poolId, detailLevel, false, null);
+    }
+
+    /**
+     * Enumerates the {@link ComputeNode compute nodes} in the specified pool one page at a time.
+     *
+     * Unlike {@link #listComputeNodes(String)}, only the page being enumerated is kept in memory, plus the next page if
+     * it is prefetched. The first page is requested by this method, the following pages as the enumeration reaches them;
+     * a failure to get one of them is thrown by the iterator as a RuntimeException caused by the {@link BatchErrorException}
+     * or IOException. The number of compute nodes per page can be set with a {@link com.microsoft.azure.batch.interceptor.PageSizeInterceptor PageSizeInterceptor}.
+     *
+     * @param poolId The ID of the pool.
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @param prefetch Whether to request the next page while the current one is enumerated. The request runs on the executor service of a
+     *                 {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions BatchClientParallelOptions} behavior if there is one.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @return An {@link Iterable} over the {@link ComputeNode compute nodes}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<ComputeNode> iterateComputeNodes(String poolId, DetailLevel detailLevel, boolean prefetch, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException {
+        BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
+        bhMgr.appendDetailLevelToPerCallBehaviors(detailLevel);
+
+        return newComputeNodeIterable(this._parentBatchClient, poolId, prefetch, bhMgr);
+    }
+
+    /**
+     * Enumerates the {@link ComputeNode} list one page at a time, applying the behaviors of a {@link BehaviorManager} to every request.
+     */
+    static PagedIterable<ComputeNode> newComputeNodeIterable(final BatchClient batchClient, final String poolId, boolean prefetch, final BehaviorManager bhMgr) throws BatchErrorException, IOException {
+        return new PagedIterable<ComputeNode>(prefetch, bhMgr) {
+            @Override
+            Page<ComputeNode> firstPage() throws BatchErrorException, IOException {
+                ComputeNodeListOptions options = new ComputeNodeListOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().computeNodes().list(poolId, options).getBody().currentPage();
+            }
+
+            @Override
+            Page<ComputeNode> nextPage(String nextPageLink) throws BatchErrorException, IOException {
+                ComputeNodeListNextOptions options = new ComputeNodeListNextOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().computeNodes().listNext(nextPageLink, options).getBody();
+            }
+        }.start();
+    }
+
+    /**
+     * Lists the IDs of the compute nodes selected by the filter clause of a {@link DetailLevel}.
+     */
+    private List<String> listComputeNodeIds(String poolId, DetailLevel nodeSelection, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException {
+        DetailLevel.Builder detailLevel = new DetailLevel.Builder().withSelectClause("id");
+        if (nodeSelection != null) {
+            detailLevel.withFilterClause(nodeSelection.filterClause());
+        }
+
+        List<String> nodeIds = new ArrayList<>();
+        for (ComputeNode node : iterateComputeNodes(poolId, detailLevel.build(), true, additionalBehaviors)) {
+            nodeIds.add(node.id());
+        }
+        return nodeIds;
+    }
 }
@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.TaskAddResult;
+
+/**
+ * Receives the results of a CreateTasks operation as each request to the Batch service completes,
+ * rather than once all tasks have been added.
+ */
+public interface CreateTasksResultHandler {
+
+    /**
+     * Called for every task the Batch service returned a final result for, successful or not.
+     * Tasks that failed with a server error are retried and only reported once they succeed or fail with a client error.
+     * Results are reported from the thread that called CreateTasks, one at a time.
+     *
+     * @param result The {@link TaskAddResult} of the task.
+     */
+    void onResult(TaskAddResult result);
+}
@@ -27,6 +27,7 @@ public class CreateTasksTerminatedException extends BatchErrorException {
     public CreateTasksTerminatedException(final String message, List<TaskAddResult> failureTasks, List<TaskAddParameter> pendingList) {
         super(message);
         this.failureTasks = failureTasks;
+        this.pendingTaskList = pendingList;
     }
 
     /**
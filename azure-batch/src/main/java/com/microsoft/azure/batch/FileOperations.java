@@ -7,6 +7,7 @@
 package com.microsoft.azure.batch;
 
 import com.microsoft.azure.PagedList;
+import com.microsoft.azure.batch.interceptor.BatchClientParallelOptions;
 import com.microsoft.azure.batch.protocol.models.BatchErrorException;
 import com.microsoft.azure.batch.protocol.models.FileDeleteFromComputeNodeOptions;
 import com.microsoft.azure.batch.protocol.models.FileDeleteFromTaskOptions;
@@ -25,11 +26,15 @@ import com.microsoft.azure.batch.protocol.models.FileListFromTaskOptions;
 import com.microsoft.azure.batch.protocol.models.FileProperties;
 import com.microsoft.azure.batch.protocol.models.NodeFile;
 import com.microsoft.rest.ServiceResponseWithHeaders;
+import org.joda.time.DateTime;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Performs file related operations on an Azure Batch account.
@@ -333,6 +338,149 @@ public class FileOperations implements IInheritedBehaviors {
         return response.getBody();
     }
 
+    /**
+     * Downloads the specified file from the specified task's directory on its compute node to a local file, over
+     * several connections that each download a range of the file.
+     *
+     * The ranges already written are recorded in a file named after the target with a {@code .progress} suffix, so
+     * calling this method again after a failure or an interruption only downloads the missing ranges, as long as the
+     * file did not change on the compute node in the meantime.
+     *
+     * @param jobId The ID of the job containing the task.
+     * @param taskId The ID of the task.
+     * @param fileName The name of the file to download.
+     * @param target The path of the local file to write.
+     * @param parallelism The maximum number of ranges to download at a time.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization or writing the local file
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public void downloadFileFromTask(String jobId, String taskId, String fileName, Path target, int parallelism) throws BatchErrorException, IOException, InterruptedException {
+        downloadFileFromTask(jobId, taskId, fileName, target, parallelism, null);
+    }
+
+    /**
+     * Downloads the specified file from the specified task's directory on its compute node to a local file, over
+     * several connections that each download a range of the file.
+     *
+     * The ranges already written are recorded in a file named after the target with a {@code .progress} suffix, so
+     * calling this method again after a failure or an interruption only downloads the missing ranges, as long as the
+     * file did not change on the compute node in the meantime. The ranges are requested on
+     * {@link BatchClientParallelOptions#executorService()} if one is set.
+     *
+     * @param jobId The ID of the job containing the task.
+     * @param taskId The ID of the task.
+     * @param fileName The name of the file to download.
+     * @param target The path of the local file to write.
+     * @param parallelism The maximum number of ranges to download at a time.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization or writing the local file
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public void downloadFileFromTask(final String jobId, final String taskId, final String fileName, Path target, int parallelism, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        final BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
+
+        FileProperties properties = getFilePropertiesFromTask(jobId, taskId, fileName, additionalBehaviors);
+
+        download(new RangedFileDownload() {
+            @Override
+            InputStream getRange(String range, DateTime unmodifiedSince) throws BatchErrorException, IOException {
+                FileGetFromTaskOptions options = new FileGetFromTaskOptions()
+                        .withOcpRange(range)
+                        .withIfUnmodifiedSince(unmodifiedSince);
+                bhMgr.applyRequestBehaviors(options);
+
+                return _parentBatchClient.protocolLayer().files().getFromTask(jobId, taskId, fileName, options).getBody();
+            }
+        }, properties, target, parallelism, bhMgr);
+    }
+
+    /**
+     * Downloads the specified file from the specified compute node to a local file, over several connections that
+     * each download a range of the file.
+     *
+     * The ranges already written are recorded in a file named after the target with a {@code .progress} suffix, so
+     * calling this method again after a failure or an interruption only downloads the missing ranges, as long as the
+     * file did not change on the compute node in the meantime.
+     *
+     * @param poolId The ID of the pool that contains the compute node.
+     * @param nodeId The ID of the compute node.
+     * @param fileName The name of the file to download.
+     * @param target The path of the local file to write.
+     * @param parallelism The maximum number of ranges to download at a time.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization or writing the local file
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public void downloadFileFromComputeNode(String poolId, String nodeId, String fileName, Path target, int parallelism) throws BatchErrorException, IOException, InterruptedException {
+        downloadFileFromComputeNode(poolId, nodeId, fileName, target, parallelism, null);
+    }
+
+    /**
+     * Downloads the specified file from the specified compute node to a local file, over several connections that
+     * each download a range of the file.
+     *
+     * The ranges already written are recorded in a file named after the target with a {@code .progress} suffix, so
+     * calling this method again after a failure or an interruption only downloads the missing ranges, as long as the
+     * file did not change on the compute node in the meantime. The ranges are requested on
+     * {@link BatchClientParallelOptions#executorService()} if one is set.
+     *
+     * @param poolId The ID of the pool that contains the compute node.
+     * @param nodeId The ID of the compute node.
+     * @param fileName The name of the file to download.
+     * @param target The path of the local file to write.
+     * @param parallelism The maximum number of ranges to download at a time.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization or writing the local file
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public void downloadFileFromComputeNode(final String poolId, final String nodeId, final String fileName, Path target, int parallelism, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        final BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
+
+        FileProperties properties = getFilePropertiesFromComputeNode(poolId, nodeId, fileName, additionalBehaviors);
+
+        download(new RangedFileDownload() {
+            @Override
+            InputStream getRange(String range, DateTime unmodifiedSince) throws BatchErrorException, IOException {
+                FileGetFromComputeNodeOptions options = new FileGetFromComputeNodeOptions()
+                        .withOcpRange(range)
+                        .withIfUnmodifiedSince(unmodifiedSince);
+                bhMgr.applyRequestBehaviors(options);
+
+                return _parentBatchClient.protocolLayer().files().getFromComputeNode(poolId, nodeId, fileName, options).getBody();
+            }
+        }, properties, target, parallelism, bhMgr);
+    }
+
+    private static void download(RangedFileDownload download, FileProperties properties, Path target, int parallelism, BehaviorManager bhMgr) throws BatchErrorException, IOException, InterruptedException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism");
+        }
+
+        ExecutorService executor = null;
+        for (BatchClientBehavior op : bhMgr.getMasterListOfBehaviors()) {
+            if (op instanceof BatchClientParallelOptions) {
+                executor = ((BatchClientParallelOptions) op).executorService();
+                break;
+            }
+        }
+
+        boolean ownExecutor = executor == null;
+        if (ownExecutor) {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+
+        try {
+            download.run(properties, target, parallelism, executor);
+        } finally {
+            if (ownExecutor) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
     /**
      * Gets information about a file from the specified task's directory on its compute node.
      *
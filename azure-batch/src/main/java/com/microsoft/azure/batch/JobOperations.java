@@ -6,6 +6,7 @@
 
 package com.microsoft.azure.batch;
 
+import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.batch.protocol.models.*;
 import com.microsoft.rest.ServiceResponseWithHeaders;
@@ -13,6 +14,7 @@ import com.microsoft.rest.ServiceResponseWithHeaders;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Performs job related operations on an Azure Batch account.
@@ -173,6 +175,79 @@ public class JobOperations implements IInheritedBehaviors {
         return response.getBody();
     }
 
+    /**
+     * Enumerates the {@link CloudJob jobs} in the Batch account one page at a time.
+     *
+     * Unlike {@link #listJobs()}, only the page being enumerated is kept in memory.
+     *
+     * @return An {@link Iterable} over the {@link CloudJob jobs}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudJob> iterateJobs() throws BatchErrorException, IOException {
+        return iterateJobs(null, false, null);
+    }
+
+    /**
+     * Enumerates the {@link CloudJob jobs} in the Batch account one page at a time.
+     *
+     * Unlike {@link #listJobs()}, only the page being enumerated is kept in memory.
+     *
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @return An {@link Iterable} over the {@link CloudJob jobs}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudJob> iterateJobs(DetailLevel detailLevel) throws BatchErrorException, IOException {
+        return iterateJobs(detailLevel, false, null);
+    }
+
+    /**
+     * Enumerates the {@link CloudJob jobs} in the Batch account one page at a time.
+     *
+     * Unlike {@link #listJobs()}, only the page being enumerated is kept in memory, plus the next page if
+     * it is prefetched. The first page is requested by this method, the following pages as the enumeration reaches them;
+     * a failure to get one of them is thrown by the iterator as a RuntimeException caused by the {@link BatchErrorException}
+     * or IOException. The number of jobs per page can be set with a {@link com.microsoft.azure.batch.interceptor.PageSizeInterceptor PageSizeInterceptor}.
+     *
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @param prefetch Whether to request the next page while the current one is enumerated. The request runs on the executor service of a
+     *                 {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions BatchClientParallelOptions} behavior if there is one.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @return An {@link Iterable} over the {@link CloudJob jobs}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudJob> iterateJobs(DetailLevel detailLevel, boolean prefetch, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException {
+        BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
+        bhMgr.appendDetailLevelToPerCallBehaviors(detailLevel);
+
+        return newJobIterable(this._parentBatchClient, prefetch, bhMgr);
+    }
+
+    /**
+     * Enumerates the {@link CloudJob} list one page at a time, applying the behaviors of a {@link BehaviorManager} to every request.
+     */
+    static PagedIterable<CloudJob> newJobIterable(final BatchClient batchClient, boolean prefetch, final BehaviorManager bhMgr) throws BatchErrorException, IOException {
+        return new PagedIterable<CloudJob>(prefetch, bhMgr) {
+            @Override
+            Page<CloudJob> firstPage() throws BatchErrorException, IOException {
+                JobListOptions options = new JobListOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().jobs().list(options).getBody().currentPage();
+            }
+
+            @Override
+            Page<CloudJob> nextPage(String nextPageLink) throws BatchErrorException, IOException {
+                JobListNextOptions options = new JobListNextOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().jobs().listNext(nextPageLink, options).getBody();
+            }
+        }.start();
+    }
+
     /**
      * Enumerates the {@link CloudJob jobs} in the specified job schedule.
      *
@@ -252,6 +327,82 @@ public class JobOperations implements IInheritedBehaviors {
         return response.getBody();
     }
 
+    /**
+     * Starts watching the state of the {@link CloudTask tasks} of the specified job.
+     *
+     * @param jobId The ID of the job.
+     * @param listener The {@link TaskStateListener} the state changes are reported to.
+     * @return The {@link TaskStateWatcher}, which has to be closed to stop polling.
+     */
+    public TaskStateWatcher watchTasks(String jobId, TaskStateListener listener) {
+        return watchTasks(jobId, listener, null);
+    }
+
+    /**
+     * Starts watching the state of the {@link CloudTask tasks} of the specified job.
+     *
+     * @param jobId The ID of the job.
+     * @param listener The {@link TaskStateListener} the state changes are reported to.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link TaskStateWatcher}, which has to be closed to stop polling.
+     */
+    public TaskStateWatcher watchTasks(String jobId, TaskStateListener listener, Iterable<BatchClientBehavior> additionalBehaviors) {
+        return watchTasks(jobId, listener, TaskStateWatcher.DEFAULT_MIN_POLL_INTERVAL_MILLIS, TaskStateWatcher.DEFAULT_MAX_POLL_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS, additionalBehaviors);
+    }
+
+    /**
+     * Starts watching the state of the {@link CloudTask tasks} of the specified job, listing every task of the job
+     * every five minutes to find the deleted ones.
+     *
+     * @param jobId The ID of the job.
+     * @param listener The {@link TaskStateListener} the state changes are reported to.
+     * @param minPollInterval The minimum interval between polls.
+     * @param maxPollInterval The maximum interval between polls.
+     * @param unit The unit of the poll intervals.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link TaskStateWatcher}, which has to be closed to stop polling.
+     */
+    public TaskStateWatcher watchTasks(String jobId, TaskStateListener listener, long minPollInterval, long maxPollInterval, TimeUnit unit,
+                                       Iterable<BatchClientBehavior> additionalBehaviors) {
+        return startWatcher(jobId, listener, unit.toMillis(minPollInterval), unit.toMillis(maxPollInterval),
+                TaskStateWatcher.DEFAULT_RECONCILE_INTERVAL_MILLIS, additionalBehaviors);
+    }
+
+    /**
+     * Starts watching the state of the {@link CloudTask tasks} of the specified job.
+     *
+     * The first poll lists every task of the job, the following ones only the tasks whose state changed since, so
+     * their cost depends on the number of changes rather than on the number of tasks. The interval between these
+     * polls shortens while tasks change state and lengthens while they do not, between the given minimum and maximum.
+     *
+     * Deleted tasks do not show up in these polls, so at every reconcile interval the watcher lists every task of the
+     * job again, which costs one request per page of tasks: for a job with 100,000 tasks, about 100 requests. A longer
+     * reconcile interval makes watching a large job cheaper, at the cost of reporting deleted tasks later.
+     *
+     * @param jobId The ID of the job.
+     * @param listener The {@link TaskStateListener} the state changes are reported to.
+     * @param minPollInterval The minimum interval between polls.
+     * @param maxPollInterval The maximum interval between polls.
+     * @param reconcileInterval The interval between two listings of every task of the job.
+     * @param unit The unit of the poll and reconcile intervals.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service requests.
+     * @return The {@link TaskStateWatcher}, which has to be closed to stop polling.
+     */
+    public TaskStateWatcher watchTasks(String jobId, TaskStateListener listener, long minPollInterval, long maxPollInterval, long reconcileInterval,
+                                       TimeUnit unit, Iterable<BatchClientBehavior> additionalBehaviors) {
+        return startWatcher(jobId, listener, unit.toMillis(minPollInterval), unit.toMillis(maxPollInterval), unit.toMillis(reconcileInterval),
+                additionalBehaviors);
+    }
+
+    private TaskStateWatcher startWatcher(String jobId, TaskStateListener listener, long minPollIntervalMillis, long maxPollIntervalMillis,
+                                          long reconcileIntervalMillis, Iterable<BatchClientBehavior> additionalBehaviors) {
+        TaskStateWatcher watcher = new TaskStateWatcher(this._parentBatchClient, this.customBehaviors(), additionalBehaviors, jobId, listener,
+                minPollIntervalMillis, maxPollIntervalMillis, reconcileIntervalMillis);
+        watcher.start();
+        return watcher;
+    }
+
     /**
      * Add a job to the specified pool.
      *
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.batch.interceptor.BatchClientParallelOptions;
+import com.microsoft.azure.batch.protocol.models.BatchErrorException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Iterates the items of a list operation one page at a time.
+ *
+ * Unlike {@link com.microsoft.azure.PagedList PagedList}, which keeps every page it loaded, only the page being
+ * iterated is held, plus the next page when it is prefetched, so the memory used by a sweep over a long list is
+ * bounded by the page size. The first page is requested by the list operation, with the page size set by a
+ * {@link com.microsoft.azure.batch.interceptor.PageSizeInterceptor PageSizeInterceptor}; the next page links carry
+ * that page size to the following requests, which are only sent as the iteration reaches them.
+ *
+ * With prefetching, the next page is requested in the background as soon as a page is reached, so the request
+ * overlaps with the processing of the current page. The first iteration starts from the page requested by the list
+ * operation; any later iteration requests it again. A failure to get a page is thrown by the iterator as a
+ * RuntimeException caused by the {@link BatchErrorException} or IOException.
+ */
+abstract class PagedIterable<T> implements Iterable<T> {
+
+    private static final class DefaultExecutor {
+        // Prefetching threads are idle most of the time, let them go
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "batch-page-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private final Executor prefetchExecutor;
+
+    // Handed to the first iterator and released then, so the iterable does not hold on to it
+    private Page<T> initialPage;
+
+    /**
+     * Creates an iterable over the pages of a list.
+     *
+     * @param prefetch Whether to request the next page while the current one is iterated.
+     * @param bhMgr The behaviors of the list operation; prefetching runs on the executor service of a
+     *              {@link BatchClientParallelOptions} if there is one.
+     */
+    PagedIterable(boolean prefetch, BehaviorManager bhMgr) {
+        Executor executor = null;
+        if (prefetch) {
+            for (BatchClientBehavior op : bhMgr.getMasterListOfBehaviors()) {
+                if (op instanceof BatchClientParallelOptions) {
+                    executor = ((BatchClientParallelOptions) op).executorService();
+                    break;
+                }
+            }
+            if (executor == null) {
+                executor = DefaultExecutor.INSTANCE;
+            }
+        }
+        this.prefetchExecutor = executor;
+    }
+
+    /**
+     * Requests the first page, so that errors are thrown by the list operation rather than by the iterator.
+     *
+     * @return This iterable.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    PagedIterable<T> start() throws BatchErrorException, IOException {
+        Page<T> page = firstPage();
+        synchronized (this) {
+            initialPage = page;
+        }
+        return this;
+    }
+
+    /**
+     * Requests the first page.
+     *
+     * Implementations take the current page of the PagedList returned by the list operation of the protocol layer,
+     * which only holds the first page until it is iterated, and drop the PagedList.
+     *
+     * @return The first page.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    abstract Page<T> firstPage() throws BatchErrorException, IOException;
+
+    /**
+     * Requests the page at a next page link.
+     *
+     * @param nextPageLink The next page link of the previous page.
+     * @return The page.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    abstract Page<T> nextPage(String nextPageLink) throws BatchErrorException, IOException;
+
+    @Override
+    public Iterator<T> iterator() {
+        Page<T> page;
+        synchronized (this) {
+            page = initialPage;
+            initialPage = null;
+        }
+
+        if (page == null) {
+            try {
+                page = firstPage();
+            } catch (BatchErrorException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return new PageIterator(page);
+    }
+
+    private class PageIterator implements Iterator<T> {
+
+        private Iterator<T> items;
+        private String nextPageLink;
+        private Future<Page<T>> prefetchedPage;
+
+        PageIterator(Page<T> page) {
+            setPage(page);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!items.hasNext() && nextPageLink != null) {
+                setPage(getNextPage());
+            }
+            return items.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return items.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void setPage(Page<T> page) {
+            List<T> pageItems = page.getItems();
+            items = pageItems == null ? Collections.<T>emptyIterator() : pageItems.iterator();
+            nextPageLink = page.getNextPageLink() == null || page.getNextPageLink().isEmpty() ? null : page.getNextPageLink();
+            prefetchedPage = null;
+
+            if (nextPageLink != null && prefetchExecutor != null) {
+                final String link = nextPageLink;
+                FutureTask<Page<T>> task = new FutureTask<>(new Callable<Page<T>>() {
+                    @Override
+                    public Page<T> call() throws BatchErrorException, IOException {
+                        return nextPage(link);
+                    }
+                });
+                prefetchExecutor.execute(task);
+                prefetchedPage = task;
+            }
+        }
+
+        private Page<T> getNextPage() {
+            if (prefetchedPage == null) {
+                try {
+                    return nextPage(nextPageLink);
+                } catch (BatchErrorException | IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            try {
+                return prefetchedPage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@
 
 package com.microsoft.azure.batch;
 
+import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.batch.protocol.models.*;
 import com.microsoft.rest.ServiceResponseWithHeaders;
@@ -98,6 +99,79 @@ public class PoolOperations implements IInheritedBehaviors {
         return response.getBody();
     }
 
+    /**
+     * Enumerates the {@link CloudPool pools} in the Batch account one page at a time.
+     *
+     * Unlike {@link #listPools()}, only the page being enumerated is kept in memory.
+     *
+     * @return An {@link Iterable} over the {@link CloudPool pools}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudPool> iteratePools() throws BatchErrorException, IOException {
+        return iteratePools(null, false, null);
+    }
+
+    /**
+     * Enumerates the {@link CloudPool pools} in the Batch account one page at a time.
+     *
+     * Unlike {@link #listPools()}, only the page being enumerated is kept in memory.
+     *
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @return An {@link Iterable} over the {@link CloudPool pools}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudPool> iteratePools(DetailLevel detailLevel) throws BatchErrorException, IOException {
+        return iteratePools(detailLevel, false, null);
+    }
+
+    /**
+     * Enumerates the {@link CloudPool pools} in the Batch account one page at a time.
+     *
+     * Unlike {@link #listPools()}, only the page being enumerated is kept in memory, plus the next page if
+     * it is prefetched. The first page is requested by this method, the following pages as the enumeration reaches them;
+     * a failure to get one of them is thrown by the iterator as a RuntimeException caused by the {@link BatchErrorException}
+     * or IOException. The number of pools per page can be set with a {@link com.microsoft.azure.batch.interceptor.PageSizeInterceptor PageSizeInterceptor}.
+     *
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @param prefetch Whether to request the next page while the current one is enumerated. The request runs on the executor service of a
+     *                 {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions BatchClientParallelOptions} behavior if there is one.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @return An {@link Iterable} over the {@link CloudPool pools}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudPool> iteratePools(DetailLevel detailLevel, boolean prefetch, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException {
+        BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
+        bhMgr.appendDetailLevelToPerCallBehaviors(detailLevel);
+
+        return newPoolIterable(this._parentBatchClient, prefetch, bhMgr);
+    }
+
+    /**
+     * Enumerates the {@link CloudPool} list one page at a time, applying the behaviors of a {@link BehaviorManager} to every request.
+     */
+    static PagedIterable<CloudPool> newPoolIterable(final BatchClient batchClient, boolean prefetch, final BehaviorManager bhMgr) throws BatchErrorException, IOException {
+        return new PagedIterable<CloudPool>(prefetch, bhMgr) {
+            @Override
+            Page<CloudPool> firstPage() throws BatchErrorException, IOException {
+                PoolListOptions options = new PoolListOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().pools().list(options).getBody().currentPage();
+            }
+
+            @Override
+            Page<CloudPool> nextPage(String nextPageLink) throws BatchErrorException, IOException {
+                PoolListNextOptions options = new PoolListNextOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().pools().listNext(nextPageLink, options).getBody();
+            }
+        }.start();
+    }
+
     /**
      * Gets the specified {@link CloudPool}.
      *
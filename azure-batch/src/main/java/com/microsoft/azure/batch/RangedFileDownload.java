@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.BatchErrorException;
+import com.microsoft.azure.batch.protocol.models.FileProperties;
+import org.joda.time.DateTime;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads a file from a compute node in ranges over several connections, writing each range at its position in the
+ * target file.
+ *
+ * The ranges written so far are recorded in a progress file next to the target, so a download that failed or was
+ * interrupted resumes with the missing ranges when it is started again. The progress file is deleted once the download
+ * completes. Every range is requested with the file's last modified time as If-Unmodified-Since, so a file that changes
+ * during the download fails it instead of mixing two versions; the next attempt starts over because the file's
+ * properties no longer match the progress file.
+ */
+abstract class RangedFileDownload {
+
+    // The size of the ranges requested from the Batch service
+    static final long RANGE_SIZE = 8L * 1024 * 1024;
+
+    // Appended to the target file name to name the progress file
+    static final String PROGRESS_FILE_SUFFIX = ".progress";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Shortened by tests
+    long rangeSize = RANGE_SIZE;
+
+    /**
+     * Opens a stream over a range of the file.
+     *
+     * @param range The value of the ocp-range header.
+     * @param unmodifiedSince The last modified time of the file, or null.
+     * @return A stream over the bytes of the range.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    abstract InputStream getRange(String range, DateTime unmodifiedSince) throws BatchErrorException, IOException;
+
+    /**
+     * Downloads the file.
+     *
+     * @param properties The properties of the file.
+     * @param target The path of the file to write.
+     * @param parallelism The maximum number of ranges downloaded at a time.
+     * @param executor The executor to run the range requests on.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization or writing the target
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    void run(FileProperties properties, Path target, int parallelism, Executor executor) throws BatchErrorException, IOException, InterruptedException {
+        final long length = properties.contentLength();
+        final DateTime lastModified = properties.lastModified();
+        final int rangeCount = (int) ((length + rangeSize - 1) / rangeSize);
+
+        Path progressFile = target.resolveSibling(target.getFileName() + PROGRESS_FILE_SUFFIX);
+        String header = length + " " + (lastModified == null ? 0 : lastModified.getMillis()) + " " + rangeSize;
+        BitSet completed = readProgress(progressFile, target, header);
+
+        if (completed == null) {
+            completed = new BitSet(rangeCount);
+            Files.write(progressFile, (header + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            Files.deleteIfExists(target);
+        }
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             BufferedWriter progress = Files.newBufferedWriter(progressFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+
+            CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+            Map<Future<Integer>, Integer> inFlight = new HashMap<>();
+            Exception innerException = null;
+            int nextRange = completed.nextClearBit(0);
+
+            try {
+                while (true) {
+                    // Request as many ranges as allowed, unless something went wrong already
+                    while (innerException == null && inFlight.size() < parallelism && nextRange < rangeCount) {
+                        inFlight.put(completionService.submit(new WriteRange(channel, nextRange, length, lastModified)), nextRange);
+                        nextRange = completed.nextClearBit(nextRange + 1);
+                    }
+
+                    if (inFlight.isEmpty()) {
+                        break;
+                    }
+
+                    // Wait for any range to be written
+                    Future<Integer> done = completionService.take();
+                    inFlight.remove(done);
+
+                    try {
+                        int range = done.get();
+
+                        // Only record the range once its bytes are on disk
+                        channel.force(false);
+                        progress.write(Integer.toString(range));
+                        progress.newLine();
+                        progress.flush();
+                    } catch (ExecutionException e) {
+                        if (innerException == null) {
+                            innerException = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                        }
+                    }
+                }
+            } finally {
+                for (Future<Integer> future : inFlight.keySet()) {
+                    future.cancel(true);
+                }
+            }
+
+            if (innerException != null) {
+                if (innerException instanceof BatchErrorException) {
+                    throw (BatchErrorException) innerException;
+                } else if (innerException instanceof IOException) {
+                    throw (IOException) innerException;
+                } else if (innerException instanceof RuntimeException) {
+                    throw (RuntimeException) innerException;
+                } else {
+                    throw new IOException(innerException);
+                }
+            }
+        }
+
+        Files.delete(progressFile);
+    }
+
+    /**
+     * Reads the ranges recorded by an earlier attempt to download the same version of the file.
+     *
+     * @return The ranges written, or null if the download has to start over.
+     */
+    private static BitSet readProgress(Path progressFile, Path target, String header) throws IOException {
+        if (!Files.exists(progressFile) || !Files.exists(target)) {
+            return null;
+        }
+
+        List<String> lines = Files.readAllLines(progressFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(header)) {
+            return null;
+        }
+
+        BitSet completed = new BitSet();
+        for (String line : lines.subList(1, lines.size())) {
+            try {
+                completed.set(Integer.parseInt(line.trim()));
+            } catch (NumberFormatException e) {
+                // A line cut short by a crash, its range is downloaded again
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Downloads a range and writes it at its position in the target file.
+     */
+    private class WriteRange implements Callable<Integer> {
+
+        private final FileChannel channel;
+        private final int range;
+        private final long start;
+        private final long end;
+        private final DateTime lastModified;
+
+        WriteRange(FileChannel channel, int range, long length, DateTime lastModified) {
+            this.channel = channel;
+            this.range = range;
+            this.start = range * rangeSize;
+            this.end = Math.min(start + rangeSize, length);
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public Integer call() throws BatchErrorException, IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = start;
+
+            try (InputStream stream = getRange("bytes=" + start + "-" + (end - 1), lastModified)) {
+                int read;
+                while ((read = stream.read(buffer)) >= 0) {
+                    if (read > end - position) {
+                        throw new IOException(String.format("The Batch service returned more than the %d bytes requested from position %d.", end - start, start));
+                    }
+
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        position += channel.write(bytes, position);
+                    }
+                }
+            }
+
+            if (position != end) {
+                throw new IOException(String.format("The Batch service returned %d of the %d bytes requested from position %d.", position - start, end - start, start));
+            }
+
+            return range;
+        }
+    }
+}
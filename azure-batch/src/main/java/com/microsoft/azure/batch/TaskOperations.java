@@ -6,15 +6,23 @@
 
 package com.microsoft.azure.batch;
 
+import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.batch.interceptor.BatchClientParallelOptions;
 import com.microsoft.azure.batch.protocol.models.*;
 import com.microsoft.rest.ServiceResponseWithHeaders;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Performs task related operations on an Azure Batch account.
@@ -95,193 +103,348 @@ public class TaskOperations implements IInheritedBehaviors {
         createTasks(jobId, taskList, null);
     }
 
-    private static class WorkingThread implements Runnable {
-
-        final int MAX_TASKS_PER_REQUEST = 100;
-
-        private BatchClient client;
-        private BehaviorManager bhMgr;
-        private String jobId;
-        private Queue<TaskAddParameter> pendingList;
-        private List<TaskAddResult> failures;
-        private volatile Exception exception;
-        private final Object lock;
-
-        WorkingThread(BatchClient client, BehaviorManager bhMgr, String jobId, Queue<TaskAddParameter> pendingList, List<TaskAddResult> failures, Object lock) {
-            this.client = client;
-            this.bhMgr = bhMgr;
-            this.jobId = jobId;
-            this.pendingList = pendingList;
-            this.failures = failures;
-            this.exception = null;
-            this.lock = lock;
-        }
-
-        public Exception getException() {
-            return this.exception;
-        }
-
-        @Override
-        public void run() {
-
-            List<TaskAddParameter> taskList = new LinkedList<>();
-
-            // Take the task from the queue up to MAX_TASKS_PER_REQUEST
-            int count = 0;
-            while (count < MAX_TASKS_PER_REQUEST) {
-                TaskAddParameter param = pendingList.poll();
-                if (param != null) {
-                    taskList.add(param);
-                    count++;
-                }
-                else {
-                    break;
-                }
-            }
-
-            if (taskList.size() > 0) {
-                // The option should be different to every server calls (for example, client-request-id)
-                TaskAddCollectionOptions options = new TaskAddCollectionOptions();
-                this.bhMgr.applyRequestBehaviors(options);
-
-                try {
-                    ServiceResponseWithHeaders<TaskAddCollectionResult, TaskAddCollectionHeaders> response = this.client.protocolLayer().tasks().addCollection(this.jobId, taskList, options);
-
-                    if (response.getBody() != null && response.getBody().value() != null) {
-                        for (TaskAddResult result : response.getBody().value()) {
-                            if (result.error() != null) {
-                                if (result.status() == TaskAddStatus.SERVERERROR) {
-                                    // Server error will be retried
-                                    for (TaskAddParameter addParameter : taskList) {
-                                        if (addParameter.id().equals(result.taskId())) {
-                                            pendingList.add(addParameter);
-                                            break;
-                                        }
-                                    }
-                                } else if (result.status() == TaskAddStatus.CLIENTERROR && !result.error().code().equals(BatchErrorCodeStrings.TaskExists)) {
-                                    // Client error will be recorded
-                                    failures.add(result);
-                                }
-                            }
-                        }
-                    }
-                } catch (BatchErrorException | IOException e) {
-                    // Any exception will stop further call
-                    exception = e;
-                    pendingList.addAll(taskList);
-                }
-            }
-
-            synchronized (lock) {
-                // Notify main thread that sub thread finished
-                lock.notify();
-            }
-        }
+    /**
+     * Adds multiple tasks to a job.
+     *
+     * @param jobId The ID of the job to which to add the task.
+     * @param taskList A collection of {@link CloudTask tasks} to add.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public void createTasks(String jobId, List<TaskAddParameter> taskList, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+        createTasks(jobId, taskList, additionalBehaviors, null);
     }
 
     /**
      * Adds multiple tasks to a job.
      *
+     * The tasks are sent in requests of at most 100 tasks, further limited so the serialized request stays within
+     * the Batch service's request body size limit. Up to {@link BatchClientParallelOptions#maxDegreeOfParallelism()}
+     * requests run at a time, on {@link BatchClientParallelOptions#executorService()} if one is set.
+     *
      * @param jobId The ID of the job to which to add the task.
      * @param taskList A collection of {@link CloudTask tasks} to add.
      * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @param resultHandler A {@link CreateTasksResultHandler} that receives the result of each task as soon as its request completes, or null.
      * @throws BatchErrorException Exception thrown from REST call
      * @throws IOException Exception thrown from serialization/deserialization
      * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
      */
-    public void createTasks(String jobId, List<TaskAddParameter> taskList, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException, InterruptedException {
+    public void createTasks(String jobId, List<TaskAddParameter> taskList, Iterable<BatchClientBehavior> additionalBehaviors, CreateTasksResultHandler resultHandler) throws BatchErrorException, IOException, InterruptedException {
 
         BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
 
         // Default thread number is 1
         int threadNumber = 1;
+        ExecutorService executor = null;
 
-        // Get user defined thread number
+        // Get user defined thread number and executor
         for (BatchClientBehavior op : bhMgr.getMasterListOfBehaviors()) {
             if (op instanceof BatchClientParallelOptions) {
-                threadNumber = ((BatchClientParallelOptions)op).maxDegreeOfParallelism();
+                threadNumber = ((BatchClientParallelOptions) op).maxDegreeOfParallelism();
+                executor = ((BatchClientParallelOptions) op).executorService();
                 break;
             }
         }
 
-        final Object lock = new Object();
-        ConcurrentLinkedQueue<TaskAddParameter> pendingList = new ConcurrentLinkedQueue<>(taskList);
-        CopyOnWriteArrayList<TaskAddResult> failures = new CopyOnWriteArrayList<>();
-
-        Map<Thread, WorkingThread> threads = new HashMap<>();
-        Exception innerException = null;
+        if (threadNumber < 1) {
+            // No request could ever be sent
+            throw new IllegalArgumentException("maxDegreeOfParallelism must be at least 1, but was " + threadNumber);
+        }
 
-        while (!pendingList.isEmpty()) {
+        boolean ownExecutor = executor == null;
+        if (ownExecutor) {
+            executor = Executors.newFixedThreadPool(threadNumber);
+        }
 
-            if (threads.size() < threadNumber) {
-                // Kick as many as possible add tasks requests by max allowed threads
-                WorkingThread worker = new WorkingThread(this._parentBatchClient, bhMgr, jobId, pendingList, failures, lock);
-                Thread thread = new Thread(worker);
-                thread.start();
-                threads.put(thread, worker);
+        try {
+            new CreateTasksPipeline(this._parentBatchClient, bhMgr, jobId, taskList, resultHandler, executor, threadNumber).run();
+        } finally {
+            if (ownExecutor) {
+                executor.shutdownNow();
             }
-            else {
-                // Wait any thread finished
-                synchronized (lock) {
-                    lock.wait();
-                }
+        }
+    }
+
+    /**
+     * Sends the tasks of a CreateTasks operation to the Batch service in chunks, keeping a bounded number of requests in flight.
+     * Chunks are built and results are processed on the calling thread; only the service calls run on the executor.
+     */
+    static class CreateTasksPipeline {
+
+        // The Batch service accepts up to 100 tasks per request
+        static final int MAX_TASKS_PER_REQUEST = 100;
+
+        // The Batch service accepts request bodies up to 1MB, leave some room for our estimation error
+        static final int MAX_REQUEST_BODY_SIZE = 1000 * 1000;
+
+        // The {"value":[]} envelope of the request body
+        private static final int REQUEST_BODY_ENVELOPE_SIZE = 12;
 
-                List<Thread> finishedThreads = new ArrayList<>();
-                for (Thread t : threads.keySet()) {
-                    if (t.getState() == Thread.State.TERMINATED) {
-                        finishedThreads.add(t);
-                        // If any exception happened, do not care the left requests
-                        innerException = threads.get(t).getException();
-                        if (innerException != null) {
+        private static final JacksonMapperAdapter MAPPER_ADAPTER = new JacksonMapperAdapter();
+
+        private final BatchClient client;
+        private final BehaviorManager bhMgr;
+        private final String jobId;
+        private final Iterator<TaskAddParameter> remaining;
+        private final CreateTasksResultHandler resultHandler;
+        private final CompletionService<ChunkResult> completionService;
+        private final int maxInFlight;
+
+        private final Deque<List<TaskAddParameter>> retries = new ArrayDeque<>();
+        private final List<TaskAddResult> failures = new ArrayList<>();
+        // The serialized size of each task taken from the task list, so it is serialized only once for the estimates
+        private final Map<TaskAddParameter, Integer> taskSizes = new IdentityHashMap<>();
+        private TaskAddParameter nextTask;
+        private int maxTasksPerRequest = MAX_TASKS_PER_REQUEST;
+        private int maxRequestBodySize = MAX_REQUEST_BODY_SIZE;
+
+        CreateTasksPipeline(BatchClient client, BehaviorManager bhMgr, String jobId, List<TaskAddParameter> taskList, CreateTasksResultHandler resultHandler, Executor executor, int maxInFlight) {
+            this.client = client;
+            this.bhMgr = bhMgr;
+            this.jobId = jobId;
+            this.remaining = taskList.iterator();
+            this.resultHandler = resultHandler;
+            this.completionService = new ExecutorCompletionService<>(executor);
+            this.maxInFlight = maxInFlight;
+        }
+
+        void run() throws BatchErrorException, IOException, InterruptedException {
+            Map<Future<ChunkResult>, List<TaskAddParameter>> inFlight = new HashMap<>();
+            Exception innerException = null;
+
+            try {
+                while (true) {
+                    // Kick as many add tasks requests as allowed, unless something went wrong already
+                    while (innerException == null && failures.isEmpty() && inFlight.size() < maxInFlight) {
+                        List<TaskAddParameter> chunk = nextChunk();
+                        if (chunk == null) {
                             break;
                         }
+                        inFlight.put(completionService.submit(new AddChunk(chunk)), chunk);
+                    }
+
+                    if (inFlight.isEmpty()) {
+                        break;
+                    }
+
+                    // Wait for any request to finish
+                    Future<ChunkResult> done = completionService.take();
+                    inFlight.remove(done);
+                    ChunkResult result = getResult(done);
+
+                    if (result.exception != null) {
+                        if (isRequestBodyTooLarge(result.exception) && result.chunk.size() > 1) {
+                            shrinkAndRetry(result.chunk);
+                        } else if (isRequestBodyTooLarge(result.exception)) {
+                            // A single task can't be sent on its own, report it as failed
+                            reportFailure(new TaskAddResult()
+                                    .withTaskId(result.chunk.get(0).id())
+                                    .withStatus(TaskAddStatus.CLIENTERROR)
+                                    .withError(((BatchErrorException) result.exception).getBody()));
+                        } else if (innerException == null) {
+                            // Any other exception will stop further calls
+                            innerException = result.exception;
+                            retries.addFirst(result.chunk);
+                        } else {
+                            retries.addFirst(result.chunk);
+                        }
+                    } else {
+                        processResponse(result.chunk, result.response);
                     }
                 }
+            } finally {
+                for (Map.Entry<Future<ChunkResult>, List<TaskAddParameter>> entry : inFlight.entrySet()) {
+                    entry.getKey().cancel(true);
+                    retries.add(entry.getValue());
+                }
+            }
 
-                // Free thread pool, so we can start more threads to send the request
-                threads.keySet().removeAll(finishedThreads);
+            if (innerException != null) {
+                // We throw any exception happened in the requests
+                if (innerException instanceof BatchErrorException) {
+                    throw (BatchErrorException) innerException;
+                } else {
+                    throw (IOException) innerException;
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                // Report any client error with leftover request
+                throw new CreateTasksTerminatedException("At least one task failed to be added.", failures, notFinished());
+            }
+
+            // We succeed here
+        }
+
+        /**
+         * Takes the next chunk to send, retried chunks first. Returns null if there is nothing left to send.
+         */
+        private List<TaskAddParameter> nextChunk() throws IOException {
+            if (!retries.isEmpty()) {
+                return retries.poll();
+            }
 
-                // Any errors happened, we stop
-                if (innerException != null || !failures.isEmpty()) {
+            List<TaskAddParameter> chunk = new ArrayList<>();
+            int requestBodySize = REQUEST_BODY_ENVELOPE_SIZE;
+            while (chunk.size() < maxTasksPerRequest) {
+                if (nextTask == null) {
+                    if (!remaining.hasNext()) {
+                        break;
+                    }
+                    nextTask = remaining.next();
+                    // The task and the comma separating it from the next one
+                    taskSizes.put(nextTask, MAPPER_ADAPTER.getObjectMapper().writeValueAsBytes(nextTask).length + 1);
+                }
+                int nextTaskSize = taskSizes.get(nextTask);
+                // Always send at least one task, the service will tell whether it is too large
+                if (!chunk.isEmpty() && requestBodySize + nextTaskSize > maxRequestBodySize) {
                     break;
                 }
+                chunk.add(nextTask);
+                requestBodySize += nextTaskSize;
+                nextTask = null;
             }
+            return chunk.isEmpty() ? null : chunk;
         }
 
-        // May sure all the left threads finished
-        for (Thread t : threads.keySet()) {
-            t.join();
+        /**
+         * Splits a chunk the service rejected as too large, and sends smaller chunks from now on.
+         */
+        private void shrinkAndRetry(List<TaskAddParameter> chunk) {
+            int requestBodySize = REQUEST_BODY_ENVELOPE_SIZE;
+            for (TaskAddParameter task : chunk) {
+                requestBodySize += taskSizes.get(task);
+            }
+            int half = chunk.size() / 2;
+            maxTasksPerRequest = Math.max(1, Math.min(maxTasksPerRequest, half));
+            maxRequestBodySize = Math.max(REQUEST_BODY_ENVELOPE_SIZE + 1, Math.min(maxRequestBodySize, requestBodySize / 2));
+            retries.addFirst(new ArrayList<>(chunk.subList(half, chunk.size())));
+            retries.addFirst(new ArrayList<>(chunk.subList(0, half)));
         }
 
-        if (innerException == null) {
-            // Anything bad happened at the left threads?
-            for (Thread t : threads.keySet()) {
-                innerException = threads.get(t).getException();
-                if (innerException != null) {
-                    break;
+        private void processResponse(List<TaskAddParameter> chunk, TaskAddCollectionResult response) {
+            if (response == null || response.value() == null) {
+                return;
+            }
+
+            Map<String, TaskAddParameter> tasksById = new HashMap<>();
+            for (TaskAddParameter addParameter : chunk) {
+                tasksById.put(addParameter.id(), addParameter);
+            }
+
+            List<TaskAddParameter> serverErrors = new ArrayList<>();
+            for (TaskAddResult result : response.value()) {
+                if (result.error() != null && result.status() == TaskAddStatus.SERVERERROR) {
+                    // Server error will be retried
+                    TaskAddParameter addParameter = tasksById.get(result.taskId());
+                    if (addParameter != null) {
+                        serverErrors.add(addParameter);
+                    }
+                } else if (result.error() != null && result.status() == TaskAddStatus.CLIENTERROR && !result.error().code().equals(BatchErrorCodeStrings.TaskExists)) {
+                    // Client error will be recorded
+                    reportFailure(result);
+                } else if (resultHandler != null) {
+                    resultHandler.onResult(result);
                 }
             }
+
+            if (!serverErrors.isEmpty()) {
+                retries.add(serverErrors);
+            }
         }
 
-        if (innerException != null) {
-            // We throw any exception happened in sub thread
-            if (innerException instanceof BatchErrorException) {
-                throw (BatchErrorException) innerException;
-            } else {
-                throw (IOException) innerException;
+        private void reportFailure(TaskAddResult result) {
+            failures.add(result);
+            if (resultHandler != null) {
+                resultHandler.onResult(result);
             }
         }
 
-        if (!failures.isEmpty()) {
-            // Report any client error with leftover request
+        private List<TaskAddParameter> notFinished() {
             List<TaskAddParameter> notFinished = new ArrayList<>();
-            for (TaskAddParameter param : pendingList) {
-                notFinished.add(param);
+            for (List<TaskAddParameter> chunk : retries) {
+                notFinished.addAll(chunk);
+            }
+            if (nextTask != null) {
+                notFinished.add(nextTask);
+            }
+            while (remaining.hasNext()) {
+                notFinished.add(remaining.next());
+            }
+            return notFinished;
+        }
+
+        /**
+         * Calls the Batch service to add a chunk of tasks. Overridden by tests.
+         */
+        TaskAddCollectionResult addCollection(List<TaskAddParameter> chunk, TaskAddCollectionOptions options) throws BatchErrorException, IOException {
+            ServiceResponseWithHeaders<TaskAddCollectionResult, TaskAddCollectionHeaders> response = client.protocolLayer().tasks().addCollection(jobId, chunk, options);
+            return response.getBody();
+        }
+
+        private static ChunkResult getResult(Future<ChunkResult> future) throws InterruptedException {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                // AddChunk captures the checked exceptions of the service call
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
             }
-            throw new CreateTasksTerminatedException("At least one task failed to be added.", failures, notFinished);
         }
 
-        // We succeed here
+        private static boolean isRequestBodyTooLarge(Exception exception) {
+            if (!(exception instanceof BatchErrorException)) {
+                return false;
+            }
+            BatchErrorException batchException = (BatchErrorException) exception;
+            return batchException.getBody() != null
+                    && BatchErrorCodeStrings.RequestBodyTooLarge.equals(batchException.getBody().code());
+        }
+
+        /**
+         * Sends one chunk of tasks to the Batch service.
+         */
+        private class AddChunk implements Callable<ChunkResult> {
+            private final List<TaskAddParameter> chunk;
+
+            AddChunk(List<TaskAddParameter> chunk) {
+                this.chunk = chunk;
+            }
+
+            @Override
+            public ChunkResult call() {
+                // The option should be different to every server calls (for example, client-request-id)
+                TaskAddCollectionOptions options = new TaskAddCollectionOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                ChunkResult result = new ChunkResult(chunk);
+                try {
+                    result.response = addCollection(chunk, options);
+                } catch (BatchErrorException | IOException e) {
+                    result.exception = e;
+                }
+                return result;
+            }
+        }
+
+        /**
+         * The outcome of sending one chunk of tasks.
+         */
+        private static class ChunkResult {
+            private final List<TaskAddParameter> chunk;
+            private TaskAddCollectionResult response;
+            private Exception exception;
+
+            ChunkResult(List<TaskAddParameter> chunk) {
+                this.chunk = chunk;
+            }
+        }
     }
 
     /**
@@ -330,6 +493,82 @@ public class TaskOperations implements IInheritedBehaviors {
         return response.getBody();
     }
 
+    /**
+     * Enumerates the {@link CloudTask tasks} of the specified job one page at a time.
+     *
+     * Unlike {@link #listTasks(String)}, only the page being enumerated is kept in memory.
+     *
+     * @param jobId The ID of the job.
+     * @return An {@link Iterable} over the {@link CloudTask tasks}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudTask> iterateTasks(String jobId) throws BatchErrorException, IOException {
+        return iterateTasks(jobId, null, false, null);
+    }
+
+    /**
+     * Enumerates the {@link CloudTask tasks} of the specified job one page at a time.
+     *
+     * Unlike {@link #listTasks(String)}, only the page being enumerated is kept in memory.
+     *
+     * @param jobId The ID of the job.
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @return An {@link Iterable} over the {@link CloudTask tasks}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudTask> iterateTasks(String jobId, DetailLevel detailLevel) throws BatchErrorException, IOException {
+        return iterateTasks(jobId, detailLevel, false, null);
+    }
+
+    /**
+     * Enumerates the {@link CloudTask tasks} of the specified job one page at a time.
+     *
+     * Unlike {@link #listTasks(String)}, only the page being enumerated is kept in memory, plus the next page if
+     * it is prefetched. The first page is requested by this method, the following pages as the enumeration reaches them;
+     * a failure to get one of them is thrown by the iterator as a RuntimeException caused by the {@link BatchErrorException}
+     * or IOException. The number of tasks per page can be set with a {@link com.microsoft.azure.batch.interceptor.PageSizeInterceptor PageSizeInterceptor}.
+     *
+     * @param jobId The ID of the job.
+     * @param detailLevel A {@link DetailLevel} used for filtering the list and for controlling which properties are retrieved from the service.
+     * @param prefetch Whether to request the next page while the current one is enumerated. The request runs on the executor service of a
+     *                 {@link com.microsoft.azure.batch.interceptor.BatchClientParallelOptions BatchClientParallelOptions} behavior if there is one.
+     * @param additionalBehaviors A collection of {@link BatchClientBehavior} instances that are applied to the Batch service request.
+     * @return An {@link Iterable} over the {@link CloudTask tasks}.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    public Iterable<CloudTask> iterateTasks(String jobId, DetailLevel detailLevel, boolean prefetch, Iterable<BatchClientBehavior> additionalBehaviors) throws BatchErrorException, IOException {
+        BehaviorManager bhMgr = new BehaviorManager(this.customBehaviors(), additionalBehaviors);
+        bhMgr.appendDetailLevelToPerCallBehaviors(detailLevel);
+
+        return newTaskIterable(this._parentBatchClient, jobId, prefetch, bhMgr);
+    }
+
+    /**
+     * Enumerates the {@link CloudTask} list one page at a time, applying the behaviors of a {@link BehaviorManager} to every request.
+     */
+    static PagedIterable<CloudTask> newTaskIterable(final BatchClient batchClient, final String jobId, boolean prefetch, final BehaviorManager bhMgr) throws BatchErrorException, IOException {
+        return new PagedIterable<CloudTask>(prefetch, bhMgr) {
+            @Override
+            Page<CloudTask> firstPage() throws BatchErrorException, IOException {
+                TaskListOptions options = new TaskListOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().tasks().list(jobId, options).getBody().currentPage();
+            }
+
+            @Override
+            Page<CloudTask> nextPage(String nextPageLink) throws BatchErrorException, IOException {
+                TaskListNextOptions options = new TaskListNextOptions();
+                bhMgr.applyRequestBehaviors(options);
+
+                return batchClient.protocolLayer().tasks().listNext(nextPageLink, options).getBody();
+            }
+        }.start();
+    }
+
     /**
      * Enumerates the {@link SubtaskInformation subtask information} of the specified task.
      *
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.CloudTask;
+import com.microsoft.azure.batch.protocol.models.TaskState;
+
+/**
+ * Receives the state changes of the tasks of a job found by a {@link TaskStateWatcher}.
+ * Events are reported from the thread of the watcher, one at a time.
+ */
+public interface TaskStateListener {
+
+    /**
+     * Called for every task whose state differs from the one last reported, including every task found by the first poll.
+     *
+     * @param task The task, of which only the id, state and stateTransitionTime properties are retrieved.
+     * @param previousState The state last reported for the task, or null if the task is reported for the first time.
+     */
+    void onTaskStateChanged(CloudTask task, TaskState previousState);
+
+    /**
+     * Called for every task that was reported before and is not part of the job anymore. Deleted tasks are found by
+     * a poll listing every task of the job, which the watcher runs every few minutes.
+     *
+     * @param taskId The ID of the task.
+     * @param previousState The state last reported for the task.
+     */
+    void onTaskDeleted(String taskId, TaskState previousState);
+
+    /**
+     * Called when a poll fails. The watcher keeps polling and reports the changes missed by the failed poll with the next one.
+     *
+     * @param exception The {@link com.microsoft.azure.batch.protocol.models.BatchErrorException BatchErrorException}, IOException or RuntimeException thrown by the poll.
+     */
+    void onPollFailed(Exception exception);
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.BatchErrorException;
+import com.microsoft.azure.batch.protocol.models.CloudTask;
+import com.microsoft.azure.batch.protocol.models.TaskState;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the state of the tasks of a job and reports their changes to a {@link TaskStateListener}.
+ *
+ * The first poll lists every task of the job. The following polls only list the tasks whose state changed since the
+ * latest state transition seen, with a $filter on stateTransitionTime, so their cost depends on the number of changes
+ * rather than on the number of tasks. Only the id, state and stateTransitionTime properties are retrieved. The polls
+ * overlap a little, so transitions that are listed late by the Batch service are not missed; the tasks listed again
+ * are not reported again. Tasks that are deleted do not show up in these polls, so at the reconcile interval, every
+ * five minutes by default, the watcher lists every task of the job again and reports the tasks missing from that list
+ * as deleted. These listings cost one request per page of tasks.
+ *
+ * The poll interval adapts to the rate of changes: it is halved, down to the minimum, after a poll that found changes,
+ * and doubled, up to the maximum, after a poll that found none. The watcher polls until it is closed.
+ */
+public class TaskStateWatcher implements AutoCloseable {
+
+    // The minimum and maximum intervals between polls used when none are given
+    static final long DEFAULT_MIN_POLL_INTERVAL_MILLIS = 5000;
+    static final long DEFAULT_MAX_POLL_INTERVAL_MILLIS = 60000;
+
+    // How far before the latest state transition seen each poll starts
+    private static final long POLL_OVERLAP_MILLIS = 10000;
+
+    // How often every task of the job is listed, to find the deleted ones, when no interval is given
+    static final long DEFAULT_RECONCILE_INTERVAL_MILLIS = 300000;
+
+    private static final String SELECT_CLAUSE = "id,state,stateTransitionTime";
+
+    private final BatchClient batchClient;
+    private final Collection<BatchClientBehavior> baseBehaviors;
+    private final Iterable<BatchClientBehavior> additionalBehaviors;
+    private final String jobId;
+    private final TaskStateListener listener;
+    private final long minPollIntervalMillis;
+    private final long maxPollIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    // Only used by the poll, which never runs concurrently with itself
+    private final Map<String, TaskState> states = new HashMap<>();
+    private int incompleteTasks;
+    private DateTime highWaterMark;
+    private long lastReconcileMillis;
+    private long pollIntervalMillis;
+
+    // Shortened by tests, to list every task at each poll
+    long reconcileIntervalMillis;
+
+    TaskStateWatcher(BatchClient batchClient, Collection<BatchClientBehavior> baseBehaviors, Iterable<BatchClientBehavior> additionalBehaviors,
+                     String jobId, TaskStateListener listener, long minPollIntervalMillis, long maxPollIntervalMillis, long reconcileIntervalMillis) {
+        if (minPollIntervalMillis <= 0 || maxPollIntervalMillis < minPollIntervalMillis) {
+            throw new IllegalArgumentException("The poll intervals must be positive and the minimum cannot be greater than the maximum.");
+        }
+        if (reconcileIntervalMillis <= 0) {
+            throw new IllegalArgumentException("The reconcile interval must be positive.");
+        }
+
+        this.batchClient = batchClient;
+        this.baseBehaviors = baseBehaviors;
+        this.additionalBehaviors = additionalBehaviors;
+        this.jobId = jobId;
+        this.listener = listener;
+        this.minPollIntervalMillis = minPollIntervalMillis;
+        this.maxPollIntervalMillis = maxPollIntervalMillis;
+        this.pollIntervalMillis = minPollIntervalMillis;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+
+        final String threadName = "batch-task-watcher-" + jobId;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts polling.
+     */
+    void start() {
+        scheduler.execute(new Poll());
+    }
+
+    /**
+     * Gets the ID of the job watched.
+     *
+     * @return The ID of the job.
+     */
+    public String jobId() {
+        return jobId;
+    }
+
+    /**
+     * Waits until a poll finds every task of the job completed or deleted. A job without tasks is not considered
+     * completed. Once reached, completion is final: this method keeps returning true even if tasks are added to the
+     * job afterwards, although their state changes are still reported.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return true if every task of the job completed, false if the timeout elapsed first.
+     * @throws InterruptedException exception thrown if any thread has interrupted the current thread.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return completed.await(timeout, unit);
+    }
+
+    /**
+     * Stops polling. A poll in progress is interrupted and no more events are reported.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private class Poll implements Runnable {
+
+        @Override
+        public void run() {
+            int changes = 0;
+            try {
+                changes = poll();
+            } catch (Exception e) {
+                if (!scheduler.isShutdown()) {
+                    listener.onPollFailed(e);
+                }
+            }
+
+            if (scheduler.isShutdown()) {
+                return;
+            }
+
+            if (isCompleted()) {
+                completed.countDown();
+            }
+
+            if (changes > 0) {
+                pollIntervalMillis = Math.max(minPollIntervalMillis, pollIntervalMillis / 2);
+            } else {
+                pollIntervalMillis = Math.min(maxPollIntervalMillis, pollIntervalMillis * 2);
+            }
+
+            try {
+                scheduler.schedule(this, pollIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The watcher was closed
+            }
+        }
+    }
+
+    /**
+     * Lists the tasks that changed since the last poll, or every task when it is time to look for deleted ones, and
+     * reports them.
+     *
+     * @return The number of tasks reported.
+     */
+    int poll() throws BatchErrorException, IOException {
+        long now = System.currentTimeMillis();
+        boolean reconcile = highWaterMark == null || now - lastReconcileMillis >= reconcileIntervalMillis;
+
+        DetailLevel.Builder detailLevel = new DetailLevel.Builder().withSelectClause(SELECT_CLAUSE);
+        if (!reconcile) {
+            String since = highWaterMark.minus(POLL_OVERLAP_MILLIS).toDateTime(DateTimeZone.UTC).toString(ISODateTimeFormat.dateTimeNoMillis());
+            detailLevel.withFilterClause("stateTransitionTime ge DateTime'" + since + "'");
+        }
+
+        Set<String> listed = reconcile ? new HashSet<String>() : null;
+        int changes = 0;
+        DateTime latestTransition = highWaterMark;
+        for (CloudTask task : listTasks(detailLevel.build())) {
+            if (Thread.currentThread().isInterrupted()) {
+                return changes;
+            }
+
+            if (listed != null) {
+                listed.add(task.id());
+            }
+
+            TaskState previousState = states.put(task.id(), task.state());
+            if (previousState == task.state()) {
+                continue;
+            }
+
+            if (previousState != TaskState.COMPLETED && previousState != null) {
+                incompleteTasks--;
+            }
+            if (task.state() != TaskState.COMPLETED) {
+                incompleteTasks++;
+            }
+            if (task.stateTransitionTime() != null && (latestTransition == null || task.stateTransitionTime().isAfter(latestTransition))) {
+                latestTransition = task.stateTransitionTime();
+            }
+
+            listener.onTaskStateChanged(task, previousState);
+            changes++;
+        }
+
+        if (listed != null) {
+            // Every task was listed, those known but missing were deleted
+            Iterator<Map.Entry<String, TaskState>> known = states.entrySet().iterator();
+            while (known.hasNext()) {
+                Map.Entry<String, TaskState> entry = known.next();
+                if (listed.contains(entry.getKey())) {
+                    continue;
+                }
+
+                known.remove();
+                if (entry.getValue() != TaskState.COMPLETED) {
+                    incompleteTasks--;
+                }
+
+                listener.onTaskDeleted(entry.getKey(), entry.getValue());
+                changes++;
+            }
+            lastReconcileMillis = now;
+        }
+
+        // Only move on once every page was read, the tasks are not listed in the order of their transitions
+        highWaterMark = latestTransition;
+        return changes;
+    }
+
+    /**
+     * Lists the tasks of the job.
+     *
+     * @param detailLevel The properties to retrieve and the filter of the poll.
+     * @return The tasks.
+     * @throws BatchErrorException Exception thrown from REST call
+     * @throws IOException Exception thrown from serialization/deserialization
+     */
+    Iterable<CloudTask> listTasks(DetailLevel detailLevel) throws BatchErrorException, IOException {
+        BehaviorManager bhMgr = new BehaviorManager(baseBehaviors, additionalBehaviors);
+        bhMgr.appendDetailLevelToPerCallBehaviors(detailLevel);
+
+        return TaskOperations.newTaskIterable(batchClient, jobId, false, bhMgr);
+    }
+
+    /**
+     * Tells whether every task found is completed.
+     */
+    boolean isCompleted() {
+        return !states.isEmpty() && incompleteTasks == 0;
+    }
+}
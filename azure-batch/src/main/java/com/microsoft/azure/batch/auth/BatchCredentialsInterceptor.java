@@ -7,6 +7,7 @@
 package com.microsoft.azure.batch.auth;
 
 import com.microsoft.rest.DateTimeRfc1123;
+import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.Request;
@@ -17,20 +18,56 @@ import org.joda.time.DateTime;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * The interceptor class to insert Shared Key credential information to request HEADER.
  */
 class BatchCredentialsInterceptor implements Interceptor {
 
+    private static final String HMAC_SHA256 = "hmacSHA256";
+
+    // Initial capacity of the per-thread string-to-sign builder, enough for typical requests
+    private static final int STRING_TO_SIGN_CAPACITY = 512;
+
+    // Builders that grew beyond this are not kept around for the next request
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final String[] STANDARD_HEADERS = {
+        "Date", "If-Modified-Since", "If-Match", "If-None-Match", "If-Unmodified-Since", "Range"
+    };
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Comparator<String[]> PARAMETER_NAME_ORDER = new Comparator<String[]>() {
+        @Override
+        public int compare(String[] left, String[] right) {
+            return left[0].compareTo(right[0]);
+        }
+    };
+
     private BatchSharedKeyCredentials credentials;
 
+    // The lower-cased account name, as it appears in the canonicalized resource
+    private final String canonicalAccountName;
+
+    // HMAC instances keyed with the account key, one per thread since Mac is not thread-safe
+    private final ThreadLocal<Mac> hmac;
+
+    private final ThreadLocal<StringBuilder> stringToSign = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(STRING_TO_SIGN_CAPACITY);
+        }
+    };
+
     /**
      * Constructor for BatchCredentialsInterceptor
      *
@@ -38,6 +75,20 @@ class BatchCredentialsInterceptor implements Interceptor {
      */
     public BatchCredentialsInterceptor(BatchSharedKeyCredentials batchCredentials) {
         this.credentials = batchCredentials;
+        this.canonicalAccountName = batchCredentials.accountName().toLowerCase();
+        final byte[] key = Base64.decodeBase64(batchCredentials.keyValue());
+        this.hmac = new ThreadLocal<Mac>() {
+            @Override
+            protected Mac initialValue() {
+                try {
+                    Mac mac = Mac.getInstance(HMAC_SHA256);
+                    mac.init(new SecretKeySpec(key, HMAC_SHA256));
+                    return mac;
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("accessKey", e);
+                }
+            }
+        };
     }
 
     /**
@@ -53,30 +104,23 @@ class BatchCredentialsInterceptor implements Interceptor {
         return chain.proceed(newRequest);
     }
 
-    private String headerValue(Request request, String headerName) {
+    private static void appendHeaderValue(StringBuilder builder, Request request, String headerName) {
         String headerValue = request.header(headerName);
-        if (headerValue == null) {
-            return "";
+        if (headerValue != null) {
+            builder.append(headerValue);
         }
-
-        return headerValue;
+        builder.append('\n');
     }
 
-    private String sign(String accessKey, String stringToSign) {
-        try {
-            // Encoding the Signature
-            // Signature=Base64(HMAC-SHA256(UTF8(StringToSign)))
-            Mac hmac = Mac.getInstance("hmacSHA256");
-            hmac.init(new SecretKeySpec(Base64.decodeBase64(accessKey),
-                    "hmacSHA256"));
-            byte[] digest = hmac.doFinal(stringToSign.getBytes("UTF-8"));
-            return Base64.encodeBase64String(digest);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("accessKey", e);
-        }
+    private String sign(String stringToSign) {
+        // Encoding the Signature
+        // Signature=Base64(HMAC-SHA256(UTF8(StringToSign)))
+        // doFinal resets the Mac, so it can be reused for the next request on this thread
+        byte[] digest = hmac.get().doFinal(stringToSign.getBytes(UTF8));
+        return Base64.encodeBase64String(digest);
     }
 
-    private Request signHeader(Request request) throws IOException {
+    Request signHeader(Request request) throws IOException {
 
         Request.Builder builder = request.newBuilder();
 
@@ -87,21 +131,24 @@ class BatchCredentialsInterceptor implements Interceptor {
             request = builder.build();
         }
 
-        String signature = request.method() + "\n";
-        signature = signature + headerValue(request, "Content-Encoding")
-                + "\n";
-        signature = signature + headerValue(request, "Content-Language")
-                + "\n";
+        StringBuilder signature = stringToSign.get();
+        signature.setLength(0);
+
+        signature.append(request.method()).append('\n');
+        appendHeaderValue(signature, request, "Content-Encoding");
+        appendHeaderValue(signature, request, "Content-Language");
 
         // Special handle content length
         long length = -1;
         if (request.body() != null) {
             length = request.body().contentLength();
         }
-        signature = signature + (length >= 0 ? Long.valueOf(length) : "")
-                + "\n";
+        if (length >= 0) {
+            signature.append(length);
+        }
+        signature.append('\n');
 
-        signature = signature + headerValue(request, "Content-MD5") + "\n";
+        appendHeaderValue(signature, request, "Content-MD5");
 
         // Special handle content type header
         String contentType = request.header("Content-Type");
@@ -114,59 +161,47 @@ class BatchCredentialsInterceptor implements Interceptor {
                 }
             }
         }
-        signature = signature + contentType + "\n";
+        signature.append(contentType).append('\n');
 
-        signature = signature + headerValue(request, "Date") + "\n";
-        signature = signature + headerValue(request, "If-Modified-Since")
-                + "\n";
-        signature = signature + headerValue(request, "If-Match") + "\n";
-        signature = signature + headerValue(request, "If-None-Match") + "\n";
-        signature = signature + headerValue(request, "If-Unmodified-Since")
-                + "\n";
-        signature = signature + headerValue(request, "Range") + "\n";
+        for (String headerName : STANDARD_HEADERS) {
+            appendHeaderValue(signature, request, headerName);
+        }
 
+        Headers headers = request.headers();
         ArrayList<String> customHeaders = new ArrayList<String>();
-        for (String name : request.headers().names()) {
-            if (name.toLowerCase().startsWith("ocp-")) {
-                customHeaders.add(name.toLowerCase());
+        for (int i = 0; i < headers.size(); i++) {
+            String name = headers.name(i).toLowerCase();
+            if (name.startsWith("ocp-") && !customHeaders.contains(name)) {
+                customHeaders.add(name);
             }
         }
         Collections.sort(customHeaders);
         for (String canonicalHeader : customHeaders) {
-            String value = request.header(canonicalHeader);
-            value = value.replace('\n', ' ').replace('\r', ' ')
-                    .replaceAll("^[ ]+", "");
-            signature = signature + canonicalHeader + ":" + value + "\n";
+            signature.append(canonicalHeader).append(':');
+            appendCanonicalHeaderValue(signature, request.header(canonicalHeader));
+            signature.append('\n');
         }
 
-        signature = signature + "/"
-                + credentials.accountName().toLowerCase() + "/"
-                + request.url().uri().getPath().replaceAll("^[/]+", "");
+        signature.append('/').append(canonicalAccountName).append('/');
+        String path = request.url().uri().getPath();
+        int pathStart = 0;
+        while (pathStart < path.length() && path.charAt(pathStart) == '/') {
+            pathStart++;
+        }
+        signature.append(path, pathStart, path.length());
         // We temporary change client side auth code generator to bypass server
         // bug 4092533
-        signature = signature.replace("%5C", "/").replace("%2F", "/");
+        replaceEncodedSlashes(signature);
 
         String query = request.url().query();
         if (query != null) {
-            Map<String, String> queryComponents = new TreeMap<String, String>();
-            String[] pairs = query.split("&");
-            for (String pair : pairs) {
-                int idx = pair.indexOf("=");
-                String key = URLDecoder.decode(pair.substring(0, idx), "UTF-8")
-                        .toLowerCase(Locale.US);
-                queryComponents.put(
-                        key,
-                        key
-                                + ":"
-                                + URLDecoder.decode(pair.substring(idx + 1),
-                                        "UTF-8"));
-            }
+            appendCanonicalQuery(signature, query);
+        }
 
-            for (Map.Entry<String, String> entry : queryComponents.entrySet()) {
-                signature = signature + "\n" + entry.getValue();
-            }
+        String signedSignature = sign(signature.toString());
+        if (signature.capacity() > MAX_RETAINED_CAPACITY) {
+            stringToSign.remove();
         }
-        String signedSignature = sign(credentials.keyValue(), signature);
         String authorization = "SharedKey " + credentials.accountName()
                 + ":" + signedSignature;
         builder.header("Authorization", authorization);
@@ -174,4 +209,78 @@ class BatchCredentialsInterceptor implements Interceptor {
         return builder.build();
     }
 
+    /**
+     * Appends a header value with line breaks turned into spaces and leading spaces removed.
+     */
+    private static void appendCanonicalHeaderValue(StringBuilder builder, String value) {
+        int start = 0;
+        while (start < value.length() && isSpaceOrLineBreak(value.charAt(start))) {
+            start++;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            builder.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    private static boolean isSpaceOrLineBreak(char c) {
+        return c == ' ' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Replaces every "%5C" and "%2F" in the builder with "/".
+     */
+    private static void replaceEncodedSlashes(StringBuilder builder) {
+        int write = 0;
+        int length = builder.length();
+        for (int read = 0; read < length; read++) {
+            char c = builder.charAt(read);
+            if (c == '%' && read + 2 < length) {
+                char high = builder.charAt(read + 1);
+                char low = builder.charAt(read + 2);
+                if ((high == '5' && low == 'C') || (high == '2' && low == 'F')) {
+                    c = '/';
+                    read += 2;
+                }
+            }
+            builder.setCharAt(write++, c);
+        }
+        builder.setLength(write);
+    }
+
+    /**
+     * Appends the query parameters sorted by lower-cased name, one "name:value" line each.
+     * For repeated names only the last value is kept.
+     */
+    private static void appendCanonicalQuery(StringBuilder builder, String query) throws UnsupportedEncodingException {
+        List<String[]> parameters = new ArrayList<String[]>();
+        int start = 0;
+        while (start < query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start) {
+                int idx = query.indexOf('=', start);
+                if (idx < 0 || idx > end) {
+                    idx = end;
+                }
+                String key = URLDecoder.decode(query.substring(start, idx), "UTF-8").toLowerCase(Locale.US);
+                String value = idx < end ? URLDecoder.decode(query.substring(idx + 1, end), "UTF-8") : "";
+                parameters.add(new String[] { key, value });
+            }
+            start = end + 1;
+        }
+
+        // The sort is stable, so the last of several parameters with the same name comes last
+        Collections.sort(parameters, PARAMETER_NAME_ORDER);
+        for (int i = 0; i < parameters.size(); i++) {
+            String[] parameter = parameters.get(i);
+            if (i + 1 < parameters.size() && parameters.get(i + 1)[0].equals(parameter[0])) {
+                continue;
+            }
+            builder.append('\n').append(parameter[0]).append(':').append(parameter[1]);
+        }
+    }
+
 }
@@ -8,6 +8,8 @@ package com.microsoft.azure.batch.interceptor;
 
 import com.microsoft.azure.batch.BatchClientBehavior;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Stores options that configure the operation of methods on Batch client parallel operations.
  */
@@ -15,6 +17,8 @@ public class BatchClientParallelOptions extends BatchClientBehavior {
 
     private int maxDegreeOfParallelism;
 
+    private ExecutorService executorService;
+
     /**
      * Gets the maximum number of concurrent tasks enabled by this {@link BatchClientParallelOptions} instance.
      *
@@ -41,6 +45,30 @@ public class BatchClientParallelOptions extends BatchClientBehavior {
         return this;
     }
 
+    /**
+     * Gets the {@link ExecutorService} that parallel operations run their requests on.
+     *
+     * The default value is null, in which case each operation uses a thread pool of
+     * {@link #maxDegreeOfParallelism()} threads that is shut down when the operation completes.
+     * @return The executor service, or null if none is set
+     */
+    public ExecutorService executorService() {
+        return this.executorService;
+    }
+
+    /**
+     * Sets the {@link ExecutorService} that parallel operations run their requests on.
+     *
+     * The executor service is shared across operations and is not shut down by them. At most
+     * {@link #maxDegreeOfParallelism()} requests of an operation are submitted to it at a time.
+     * @param executorService the executor service
+     * @return The instance of {@link BatchClientParallelOptions}
+     */
+    public BatchClientParallelOptions withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
     /**
      * Initializes a new instance of the {@link BatchClientParallelOptions} class with default value.
      */
@@ -54,6 +82,9 @@ public class BatchClientParallelOptions extends BatchClientBehavior {
      * @param maxDegreeOfParallelism the maximum number of concurrent tasks
      */
     public BatchClientParallelOptions(int maxDegreeOfParallelism) {
+        if (maxDegreeOfParallelism < 1) {
+            throw new IllegalArgumentException("maxDegreeOfParallelism");
+        }
         this.maxDegreeOfParallelism = maxDegreeOfParallelism;
     }
 
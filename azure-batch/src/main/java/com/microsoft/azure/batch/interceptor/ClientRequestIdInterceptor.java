@@ -6,8 +6,6 @@
 
 package com.microsoft.azure.batch.interceptor;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.UUID;
 
 /**
@@ -22,23 +20,10 @@ public class ClientRequestIdInterceptor extends RequestInterceptor {
         this.withHandler(new BatchRequestInterceptHandler() {
             @Override
             public void modify(Object request) {
-                Class<?> c = request.getClass();
-
-                try {
-                    Method clientRequestIdMethod = c.getMethod("withClientRequestId", new Class[]{String.class});
-                    if (clientRequestIdMethod != null) {
-                        String clientRequestId = UUID.randomUUID().toString();
-                        clientRequestIdMethod.invoke(request, clientRequestId);
-                    }
-
-                    Method returnClientRequestIdMethod = c.getMethod("withReturnClientRequestId", new Class[]{Boolean.class});
-                    if (returnClientRequestIdMethod != null) {
-                        returnClientRequestIdMethod.invoke(request, true);
-                    }
+                String clientRequestId = UUID.randomUUID().toString();
+                if (OptionSetter.CLIENT_REQUEST_ID.set(request, clientRequestId)) {
+                    OptionSetter.RETURN_CLIENT_REQUEST_ID.set(request, true);
                 }
-                catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                }
-
             }
         });
     }
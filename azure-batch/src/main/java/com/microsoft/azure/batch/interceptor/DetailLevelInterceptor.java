@@ -7,8 +7,6 @@
 package com.microsoft.azure.batch.interceptor;
 
 import com.microsoft.azure.batch.DetailLevel;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 /**
  * Interceptor which contains a function used to apply the {@link DetailLevel}.
@@ -29,33 +27,9 @@ public class DetailLevelInterceptor extends RequestInterceptor {
             @Override
             public void modify(Object request) {
                 if (detailLevel != null) {
-                    Class<?> c = request.getClass();
-                    try {
-                        Method selectMethod = c.getMethod("withSelect", new Class[]{String.class});
-                        if (selectMethod != null) {
-                            selectMethod.invoke(request, detailLevel.selectClause());
-                        }
-                    }
-                    catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                    }
-
-                    try {
-                        Method filterMethod = c.getMethod("withFilter", new Class[]{String.class});
-                        if (filterMethod != null) {
-                            filterMethod.invoke(request, detailLevel.filterClause());
-                        }
-                    }
-                    catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                    }
-
-                    try {
-                        Method expandMethod = c.getMethod("withExpand", new Class[]{String.class});
-                        if (expandMethod != null) {
-                            expandMethod.invoke(request, detailLevel.expandClause());
-                        }
-                    }
-                    catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                    }
+                    OptionSetter.SELECT.set(request, detailLevel.selectClause());
+                    OptionSetter.FILTER.set(request, detailLevel.filterClause());
+                    OptionSetter.EXPAND.set(request, detailLevel.expandClause());
                 }
             }
         });
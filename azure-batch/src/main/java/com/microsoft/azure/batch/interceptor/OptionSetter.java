@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch.interceptor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Sets a property of the options of a request through its fluent setter, such as withMaxResults.
+ *
+ * The setter of each options class is looked up once, the first time a request with that class is intercepted, and
+ * kept as a method handle; classes without the setter are remembered too, so a request is never looked up again.
+ */
+final class OptionSetter {
+
+    static final OptionSetter MAX_RESULTS = new OptionSetter("withMaxResults", Integer.class);
+    static final OptionSetter TIMEOUT = new OptionSetter("withTimeout", Integer.class);
+    static final OptionSetter SELECT = new OptionSetter("withSelect", String.class);
+    static final OptionSetter FILTER = new OptionSetter("withFilter", String.class);
+    static final OptionSetter EXPAND = new OptionSetter("withExpand", String.class);
+    static final OptionSetter CLIENT_REQUEST_ID = new OptionSetter("withClientRequestId", String.class);
+    static final OptionSetter RETURN_CLIENT_REQUEST_ID = new OptionSetter("withReturnClientRequestId", Boolean.class);
+
+    // The type every setter is adapted to, so that they are all called the same way
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final ClassValue<MethodHandle> setters;
+
+    private OptionSetter(final String name, final Class<?> parameterType) {
+        this.setters = new ClassValue<MethodHandle>() {
+            @Override
+            protected MethodHandle computeValue(Class<?> type) {
+                try {
+                    return MethodHandles.publicLookup().unreflect(type.getMethod(name, parameterType)).asType(SETTER_TYPE);
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets the property if the options have it.
+     *
+     * @param request The options of the request.
+     * @param value The value to set.
+     * @return Whether the options have the property.
+     */
+    boolean set(Object request, Object value) {
+        MethodHandle setter = setters.get(request.getClass());
+        if (setter == null) {
+            return false;
+        }
+
+        try {
+            setter.invokeExact(request, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+        return true;
+    }
+}
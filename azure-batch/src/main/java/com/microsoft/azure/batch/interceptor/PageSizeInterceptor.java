@@ -6,9 +6,6 @@
 
 package com.microsoft.azure.batch.interceptor;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
 /**
  * Interceptor which contains a function used to set the maximum page size of a request.
  * If there are multiple instances of this then the last set wins.
@@ -27,14 +24,7 @@ public class PageSizeInterceptor extends RequestInterceptor {
         this.withHandler(new BatchRequestInterceptHandler() {
             @Override
             public void modify(Object request) {
-                Class<?> c = request.getClass();
-                try {
-                    Method maxResultsMethod = c.getMethod("withMaxResults", new Class[]{Integer.class});
-                    if (maxResultsMethod != null) {
-                        maxResultsMethod.invoke(request, maxResults);
-                    }
-                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                }
+                OptionSetter.MAX_RESULTS.set(request, maxResults);
             }
         });
     }
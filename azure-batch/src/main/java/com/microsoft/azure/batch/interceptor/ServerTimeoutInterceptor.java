@@ -6,9 +6,6 @@
 
 package com.microsoft.azure.batch.interceptor;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
 /**
  * Interceptor which contains a function used to update server timeout in a request.
  */
@@ -26,14 +23,7 @@ public class ServerTimeoutInterceptor extends RequestInterceptor {
         this.withHandler(new BatchRequestInterceptHandler() {
             @Override
             public void modify(Object request) {
-                Class<?> c = request.getClass();
-                try {
-                    Method timeoutMethod = c.getMethod("withTimeout", new Class[]{Integer.class});
-                    if (timeoutMethod != null) {
-                        timeoutMethod.invoke(request, serverTimeout);
-                    }
-                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                }
+                OptionSetter.TIMEOUT.set(request, serverTimeout);
             }
         });
     }
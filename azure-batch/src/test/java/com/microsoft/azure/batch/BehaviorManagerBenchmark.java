@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.interceptor.BatchRequestInterceptHandler;
+import com.microsoft.azure.batch.interceptor.PageSizeInterceptor;
+import com.microsoft.azure.batch.interceptor.RequestInterceptor;
+import com.microsoft.azure.batch.interceptor.ServerTimeoutInterceptor;
+import com.microsoft.azure.batch.protocol.models.TaskListOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the client side overhead of a list call before the request is sent: creating the
+ * {@link BehaviorManager}, adding the detail level and applying the interceptors to the options. The
+ * baseline is the previous implementation, which copied the behaviors into a new list for every request
+ * and looked up the setters of the options by reflection in every interceptor.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.batch.BehaviorManagerBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BehaviorManagerBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int TIMEOUT = 30;
+
+    private Collection<BatchClientBehavior> baseBehaviors;
+    private Collection<BatchClientBehavior> legacyBaseBehaviors;
+    private DetailLevel detailLevel;
+
+    @Setup
+    public void setup() {
+        baseBehaviors = Arrays.<BatchClientBehavior>asList(new PageSizeInterceptor(PAGE_SIZE), new ServerTimeoutInterceptor(TIMEOUT));
+        legacyBaseBehaviors = Arrays.<BatchClientBehavior>asList(
+                legacyInterceptor("withMaxResults", Integer.class, PAGE_SIZE),
+                legacyInterceptor("withTimeout", Integer.class, TIMEOUT));
+        detailLevel = new DetailLevel.Builder().withSelectClause("id,state").withFilterClause("state eq 'completed'").build();
+
+        // Both implementations must set the same options for the comparison to mean anything
+        TaskListOptions expected = applyLegacy();
+        TaskListOptions actual = apply();
+        if (!expected.maxResults().equals(actual.maxResults()) || !expected.timeout().equals(actual.timeout())
+                || !expected.select().equals(actual.select()) || !expected.filter().equals(actual.filter())) {
+            throw new IllegalStateException("Options differ");
+        }
+    }
+
+    @Benchmark
+    public TaskListOptions apply() {
+        TaskListOptions options = new TaskListOptions();
+        BehaviorManager bhMgr = new BehaviorManager(baseBehaviors, null);
+        bhMgr.appendDetailLevelToPerCallBehaviors(detailLevel);
+        bhMgr.applyRequestBehaviors(options);
+        return options;
+    }
+
+    @Benchmark
+    public TaskListOptions applyLegacy() {
+        TaskListOptions options = new TaskListOptions();
+
+        List<BatchClientBehavior> base = new LinkedList<BatchClientBehavior>(legacyBaseBehaviors);
+        List<BatchClientBehavior> perCall = new LinkedList<BatchClientBehavior>();
+        perCall.add(legacyInterceptor("withSelect", String.class, detailLevel.selectClause()));
+        perCall.add(legacyInterceptor("withFilter", String.class, detailLevel.filterClause()));
+        perCall.add(legacyInterceptor("withExpand", String.class, detailLevel.expandClause()));
+
+        List<BatchClientBehavior> ml = new LinkedList<BatchClientBehavior>(base);
+        ml.addAll(perCall);
+        for (BatchClientBehavior bh : ml) {
+            if (bh instanceof RequestInterceptor) {
+                ((RequestInterceptor) bh).handler().modify(options);
+            }
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BehaviorManagerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    // The interceptors as they were before the setters were resolved once per options class, kept as the baseline
+    private static RequestInterceptor legacyInterceptor(final String name, final Class<?> parameterType, final Object value) {
+        return new RequestInterceptor(new BatchRequestInterceptHandler() {
+            @Override
+            public void modify(Object request) {
+                Class<?> c = request.getClass();
+                try {
+                    Method method = c.getMethod(name, new Class[]{parameterType});
+                    if (method != null) {
+                        method.invoke(request, value);
+                    }
+                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
+                }
+            }
+        });
+    }
+}
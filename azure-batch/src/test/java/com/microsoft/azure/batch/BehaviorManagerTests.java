@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.interceptor.ClientRequestIdInterceptor;
+import com.microsoft.azure.batch.interceptor.PageSizeInterceptor;
+import com.microsoft.azure.batch.interceptor.ServerTimeoutInterceptor;
+import com.microsoft.azure.batch.protocol.models.ExitOptions;
+import com.microsoft.azure.batch.protocol.models.TaskAddOptions;
+import com.microsoft.azure.batch.protocol.models.TaskListOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BehaviorManagerTests {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int TIMEOUT = 30;
+    private static final DetailLevel DETAIL_LEVEL = new DetailLevel.Builder()
+            .withSelectClause("id,state")
+            .withFilterClause("state eq 'completed'")
+            .withExpandClause("stats")
+            .build();
+
+    /**
+     * An options type with none of the setters the interceptors use, and a timeout setter taking another type.
+     */
+    public static class OptionsWithoutSetters {
+        private int timeout;
+
+        public OptionsWithoutSetters withTimeout(int timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+    }
+
+    private static BehaviorManager behaviorManager() {
+        BehaviorManager bhMgr = new BehaviorManager(Arrays.<BatchClientBehavior>asList(
+                new PageSizeInterceptor(PAGE_SIZE), new ServerTimeoutInterceptor(TIMEOUT), new ClientRequestIdInterceptor()), null);
+        bhMgr.appendDetailLevelToPerCallBehaviors(DETAIL_LEVEL);
+        return bhMgr;
+    }
+
+    /**
+     * @return the classes of the options of the generated Batch service operations
+     */
+    private static List<Class<?>> optionsClasses() throws Exception {
+        URL models = TaskListOptions.class.getResource(TaskListOptions.class.getSimpleName() + ".class");
+        Assert.assertEquals("file", models.getProtocol());
+
+        List<Class<?>> classes = new ArrayList<>();
+        for (String file : new File(models.toURI()).getParentFile().list()) {
+            if (file.endsWith("Options.class")) {
+                classes.add(Class.forName(TaskListOptions.class.getPackage().getName() + "." + file.substring(0, file.length() - ".class".length())));
+            }
+        }
+        return classes;
+    }
+
+    private static Method setter(Class<?> type, String name, Class<?> parameterType) {
+        try {
+            return type.getMethod(name, parameterType);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Object get(Object options, String getter) throws Exception {
+        return options.getClass().getMethod(getter).invoke(options);
+    }
+
+    @Test
+    public void canApplyBehaviorsToEveryOptionsClass() throws Exception {
+        // The setters the interceptors use, with the getters of the properties and the values they set
+        String[][] properties = {
+                {"withMaxResults", "maxResults"},
+                {"withTimeout", "timeout"},
+                {"withSelect", "select"},
+                {"withFilter", "filter"},
+                {"withExpand", "expand"},
+                {"withClientRequestId", "clientRequestId"},
+                {"withReturnClientRequestId", "returnClientRequestId"},
+        };
+        Map<String, Object> values = new HashMap<>();
+        values.put("maxResults", PAGE_SIZE);
+        values.put("timeout", TIMEOUT);
+        values.put("select", DETAIL_LEVEL.selectClause());
+        values.put("filter", DETAIL_LEVEL.filterClause());
+        values.put("expand", DETAIL_LEVEL.expandClause());
+        values.put("returnClientRequestId", true);
+        Map<String, Class<?>> types = new HashMap<>();
+        types.put("maxResults", Integer.class);
+        types.put("timeout", Integer.class);
+        types.put("returnClientRequestId", Boolean.class);
+
+        BehaviorManager bhMgr = behaviorManager();
+        Map<String, Integer> classesWithSetter = new HashMap<>();
+        List<Class<?>> classes = optionsClasses();
+        Assert.assertTrue(String.valueOf(classes.size()), classes.size() > 80);
+
+        for (Class<?> type : classes) {
+            Object options = type.newInstance();
+            bhMgr.applyRequestBehaviors(options);
+
+            for (String[] property : properties) {
+                String getter = property[1];
+                Class<?> parameterType = types.containsKey(getter) ? types.get(getter) : String.class;
+                if (setter(type, property[0], parameterType) == null) {
+                    continue;
+                }
+
+                Integer count = classesWithSetter.get(getter);
+                classesWithSetter.put(getter, count == null ? 1 : count + 1);
+                if (getter.equals("clientRequestId")) {
+                    Assert.assertNotNull(type.getSimpleName(), get(options, getter));
+                } else {
+                    Assert.assertEquals(type.getSimpleName() + "." + getter, values.get(getter), get(options, getter));
+                }
+            }
+        }
+
+        // Every options class of a service operation has a timeout and a client request id, lists have the others
+        Assert.assertEquals(classes.size() - 1, (int) classesWithSetter.get("timeout") + countNextOptions(classes));
+        Assert.assertEquals(classes.size() - 1, (int) classesWithSetter.get("clientRequestId"));
+        Assert.assertEquals(classes.size() - 1, (int) classesWithSetter.get("returnClientRequestId"));
+        for (String[] property : properties) {
+            Assert.assertTrue(property[1], classesWithSetter.get(property[1]) > 0);
+        }
+    }
+
+    private static int countNextOptions(List<Class<?>> classes) {
+        int count = 0;
+        for (Class<?> type : classes) {
+            if (type.getSimpleName().endsWith("NextOptions")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void canSkipOptionsWithoutSetters() throws Exception {
+        BehaviorManager bhMgr = behaviorManager();
+
+        // Not the options of a service operation, none of the setters exist
+        ExitOptions exitOptions = new ExitOptions();
+        bhMgr.applyRequestBehaviors(exitOptions);
+        Assert.assertNull(exitOptions.jobAction());
+
+        // A setter taking another type is not called
+        OptionsWithoutSetters withoutSetters = new OptionsWithoutSetters();
+        bhMgr.applyRequestBehaviors(withoutSetters);
+        Assert.assertEquals(0, withoutSetters.timeout);
+
+        // Options without some of the setters get the others, also after a class without any of them
+        TaskAddOptions addOptions = new TaskAddOptions();
+        bhMgr.applyRequestBehaviors(addOptions);
+        Assert.assertEquals(TIMEOUT, (int) addOptions.timeout());
+        Assert.assertNotNull(addOptions.clientRequestId());
+        Assert.assertTrue(addOptions.returnClientRequestId());
+
+        // Each request gets its own client request id
+        TaskAddOptions otherOptions = new TaskAddOptions();
+        bhMgr.applyRequestBehaviors(otherOptions);
+        Assert.assertNotEquals(addOptions.clientRequestId(), otherOptions.clientRequestId());
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.ComputeNode;
+import com.microsoft.azure.batch.protocol.models.ComputeNodeState;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ComputeNodeBulkOperationTests {
+
+    // Far behind the clock of the client, as the clock of the Batch service could be
+    private static final DateTime START = new DateTime(2016, 9, 1, 12, 0, 0, DateTimeZone.UTC);
+
+    /**
+     * Lists the compute nodes of a map instead of calling the Batch service, applying the id filter, and brings a
+     * compute node straight back to the idle state with a later state transition when the operation runs on it.
+     */
+    private static class StubOperation extends ComputeNodeBulkOperation {
+        private static final Pattern ID_CLAUSE = Pattern.compile("id eq '((?:[^']|'')*)'");
+
+        final Map<String, ComputeNode> nodes = Collections.synchronizedMap(new LinkedHashMap<String, ComputeNode>());
+        // The IDs of each filtered listing, or null for a listing of the whole pool
+        final List<List<String>> listed = Collections.synchronizedList(new ArrayList<List<String>>());
+
+        StubOperation() {
+            super(new ComputeNodeOperations(null, null), "pool", null);
+            pollIntervalMillis = 1;
+        }
+
+        void put(String id, ComputeNodeState state, int minute) {
+            nodes.put(id, new ComputeNode().withId(id).withState(state).withStateTransitionTime(START.plusMinutes(minute)));
+        }
+
+        @Override
+        void apply(String nodeId) {
+            put(nodeId, ComputeNodeState.IDLE, 1);
+        }
+
+        @Override
+        Iterable<ComputeNode> iterateComputeNodes(DetailLevel detailLevel) {
+            Assert.assertEquals("id,state,stateTransitionTime", detailLevel.selectClause());
+
+            List<String> ids = null;
+            if (detailLevel.filterClause() != null) {
+                ids = new ArrayList<>();
+                Matcher matcher = ID_CLAUSE.matcher(detailLevel.filterClause());
+                while (matcher.find()) {
+                    ids.add(matcher.group(1).replace("''", "'"));
+                }
+            }
+            listed.add(ids);
+
+            List<ComputeNode> result = new ArrayList<>();
+            synchronized (nodes) {
+                for (ComputeNode node : nodes.values()) {
+                    if (ids == null || ids.contains(node.id())) {
+                        result.add(node);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void canDetectReturnWithServiceTimes() throws Exception {
+        StubOperation operation = new StubOperation();
+        operation.put("a", ComputeNodeState.IDLE, 0);
+        operation.put("b", ComputeNodeState.RUNNING, 0);
+        operation.put("c", ComputeNodeState.IDLE, 0);
+
+        List<ComputeNodeOperationResult> results = operation.run(Arrays.asList("a", "b", "c"), 2, 60000);
+
+        Assert.assertEquals(3, results.size());
+        for (ComputeNodeOperationResult result : results) {
+            Assert.assertTrue(result.nodeId(), result.isSuccessful());
+        }
+
+        // Each batch reads its baseline and checks its own compute nodes only
+        Assert.assertEquals(Arrays.asList("a", "b"), operation.listed.get(0));
+        Assert.assertEquals(2, operation.listed.get(1).size());
+        Assert.assertEquals(Arrays.asList("c"), operation.listed.get(2));
+        Assert.assertEquals(Arrays.asList("c"), operation.listed.get(3));
+    }
+
+    @Test
+    public void canStopAfterBatchThatDidNotReturn() throws Exception {
+        StubOperation operation = new StubOperation() {
+            @Override
+            void apply(String nodeId) {
+                // The compute node never leaves the idle state it was in before the operation
+            }
+        };
+        operation.put("a", ComputeNodeState.IDLE, 0);
+        operation.put("b", ComputeNodeState.IDLE, 0);
+
+        List<ComputeNodeOperationResult> results = operation.run(Arrays.asList("a", "b"), 1, 50);
+
+        Assert.assertEquals(1, results.size());
+        Assert.assertTrue(results.get(0).error() instanceof TimeoutException);
+    }
+
+    @Test
+    public void canListFewNodesWithFilters() throws Exception {
+        StubOperation operation = new StubOperation();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < ComputeNodeBulkOperation.MAX_IDS_PER_FILTER * 2 + 1; i++) {
+            ids.add("node" + i);
+            operation.put("node" + i, ComputeNodeState.IDLE, 0);
+        }
+        operation.put("other", ComputeNodeState.IDLE, 0);
+
+        List<ComputeNode> nodes = operation.listComputeNodes(ids);
+
+        Assert.assertEquals(ids.size(), nodes.size());
+        Assert.assertEquals(3, operation.listed.size());
+        Assert.assertEquals(ids.subList(0, ComputeNodeBulkOperation.MAX_IDS_PER_FILTER), operation.listed.get(0));
+        Assert.assertEquals(ComputeNodeBulkOperation.MAX_IDS_PER_FILTER, operation.listed.get(1).size());
+        Assert.assertEquals(Arrays.asList("node" + (ids.size() - 1)), operation.listed.get(2));
+    }
+
+    @Test
+    public void canListManyNodesFromWholePool() throws Exception {
+        StubOperation operation = new StubOperation();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < ComputeNodeBulkOperation.MAX_IDS_PER_FILTER * ComputeNodeBulkOperation.MAX_FILTERED_LISTINGS + 1; i++) {
+            ids.add("node" + i);
+            operation.put("node" + i, ComputeNodeState.IDLE, 0);
+        }
+        operation.put("other", ComputeNodeState.IDLE, 0);
+
+        List<ComputeNode> nodes = operation.listComputeNodes(ids);
+
+        Assert.assertEquals(ids.size(), nodes.size());
+        Assert.assertEquals(1, operation.listed.size());
+        Assert.assertNull(operation.listed.get(0));
+        for (ComputeNode node : nodes) {
+            Assert.assertNotEquals("other", node.id());
+        }
+    }
+
+    @Test
+    public void canFilterOnNodeIds() {
+        Assert.assertEquals("id eq 'a'", ComputeNodeBulkOperation.idFilter(Arrays.asList("a")));
+        Assert.assertEquals("id eq 'a' or id eq 'b''c'", ComputeNodeBulkOperation.idFilter(Arrays.asList("a", "b'c")));
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.interceptor.BatchClientParallelOptions;
+import com.microsoft.azure.batch.protocol.models.BatchError;
+import com.microsoft.azure.batch.protocol.models.BatchErrorException;
+import com.microsoft.azure.batch.protocol.models.TaskAddCollectionOptions;
+import com.microsoft.azure.batch.protocol.models.TaskAddCollectionResult;
+import com.microsoft.azure.batch.protocol.models.TaskAddParameter;
+import com.microsoft.azure.batch.protocol.models.TaskAddResult;
+import com.microsoft.azure.batch.protocol.models.TaskAddStatus;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+public class CreateTasksPipelineTests {
+
+    private static final JacksonMapperAdapter MAPPER_ADAPTER = new JacksonMapperAdapter();
+
+    // Runs the requests one after the other on the calling thread, so their order is known
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Adds the tasks instead of the Batch service, and records the tasks of every request.
+     * Requests with more than maxTasks tasks, or with a body over maxBodySize bytes, are rejected as too large.
+     */
+    private static class StubPipeline extends TaskOperations.CreateTasksPipeline {
+        final List<List<String>> requests = new ArrayList<>();
+        final List<List<String>> rejected = new ArrayList<>();
+        final List<String> added = new ArrayList<>();
+        final Set<String> clientErrors = new HashSet<>();
+        int maxTasks = Integer.MAX_VALUE;
+        int maxBodySize = 1024 * 1024;
+
+        StubPipeline(List<TaskAddParameter> tasks, List<TaskAddResult> handled) {
+            super(null, new BehaviorManager(null, null), "job", tasks, handler(handled), DIRECT, 1);
+        }
+
+        private static CreateTasksResultHandler handler(final List<TaskAddResult> handled) {
+            return new CreateTasksResultHandler() {
+                @Override
+                public void onResult(TaskAddResult result) {
+                    handled.add(result);
+                }
+            };
+        }
+
+        @Override
+        TaskAddCollectionResult addCollection(List<TaskAddParameter> chunk, TaskAddCollectionOptions options) throws BatchErrorException, IOException {
+            List<String> ids = new ArrayList<>();
+            for (TaskAddParameter task : chunk) {
+                ids.add(task.id());
+            }
+            requests.add(ids);
+
+            if (chunk.size() > maxTasks || requestBodySize(chunk) > maxBodySize) {
+                rejected.add(ids);
+                BatchErrorException exception = new BatchErrorException("The request body is too large.");
+                exception.setBody(new BatchError().withCode(BatchErrorCodeStrings.RequestBodyTooLarge));
+                throw exception;
+            }
+
+            List<TaskAddResult> results = new ArrayList<>();
+            for (String id : ids) {
+                if (clientErrors.contains(id)) {
+                    results.add(new TaskAddResult().withTaskId(id).withStatus(TaskAddStatus.CLIENTERROR)
+                            .withError(new BatchError().withCode(BatchErrorCodeStrings.InvalidPropertyValue)));
+                } else {
+                    added.add(id);
+                    results.add(new TaskAddResult().withTaskId(id).withStatus(TaskAddStatus.SUCCESS));
+                }
+            }
+            return new TaskAddCollectionResult().withValue(results);
+        }
+    }
+
+    private static int requestBodySize(List<TaskAddParameter> chunk) throws IOException {
+        return MAPPER_ADAPTER.getObjectMapper().writeValueAsBytes(Collections.singletonMap("value", chunk)).length;
+    }
+
+    private static TaskAddParameter task(String id, int commandLineLength) {
+        char[] commandLine = new char[commandLineLength];
+        Arrays.fill(commandLine, 'x');
+        return new TaskAddParameter().withId(id).withCommandLine(new String(commandLine));
+    }
+
+    private static List<TaskAddParameter> tasks(int count, int commandLineLength) {
+        List<TaskAddParameter> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tasks.add(task(String.format("task%03d", i), commandLineLength));
+        }
+        return tasks;
+    }
+
+    private static List<String> ids(List<TaskAddParameter> tasks) {
+        List<String> ids = new ArrayList<>();
+        for (TaskAddParameter task : tasks) {
+            ids.add(task.id());
+        }
+        return ids;
+    }
+
+    private static List<Integer> sizes(List<List<String>> requests) {
+        List<Integer> sizes = new ArrayList<>();
+        for (List<String> request : requests) {
+            sizes.add(request.size());
+        }
+        return sizes;
+    }
+
+    @Test
+    public void canChunkByTaskCount() throws Exception {
+        List<TaskAddParameter> tasks = tasks(250, 10);
+        StubPipeline pipeline = new StubPipeline(tasks, new ArrayList<TaskAddResult>());
+
+        pipeline.run();
+
+        Assert.assertEquals(Arrays.asList(100, 100, 50), sizes(pipeline.requests));
+        Assert.assertEquals(ids(tasks), pipeline.added);
+    }
+
+    @Test
+    public void canChunkByRequestBodySize() throws Exception {
+        // Three of these fit in a request, a fourth one would take it over the limit
+        List<TaskAddParameter> tasks = tasks(7, 300 * 1000);
+        StubPipeline pipeline = new StubPipeline(tasks, new ArrayList<TaskAddResult>());
+
+        pipeline.run();
+
+        Assert.assertEquals(Arrays.asList(3, 3, 1), sizes(pipeline.requests));
+        Assert.assertEquals(ids(tasks), pipeline.added);
+        Assert.assertTrue(requestBodySize(tasks.subList(0, 3)) <= TaskOperations.CreateTasksPipeline.MAX_REQUEST_BODY_SIZE);
+    }
+
+    @Test
+    public void canHalveChunksUntilAccepted() throws Exception {
+        List<TaskAddParameter> tasks = tasks(200, 10);
+        StubPipeline pipeline = new StubPipeline(tasks, new ArrayList<TaskAddResult>());
+        pipeline.maxTasks = 25;
+
+        pipeline.run();
+
+        // Each rejected chunk is split in two halves sent before anything else
+        Assert.assertEquals(Arrays.asList(100, 50, 25, 25, 50, 25, 25), sizes(pipeline.requests.subList(0, 7)));
+        Assert.assertEquals(ids(tasks.subList(0, 50)), pipeline.requests.get(1));
+        Assert.assertEquals(ids(tasks.subList(0, 25)), pipeline.requests.get(2));
+        Assert.assertEquals(ids(tasks.subList(50, 100)), pipeline.requests.get(4));
+        Assert.assertEquals(3, pipeline.rejected.size());
+
+        // The chunks of the tasks not sent yet are no larger than the last accepted ones
+        for (List<String> request : pipeline.requests.subList(7, pipeline.requests.size())) {
+            Assert.assertTrue(request.size() <= 25);
+        }
+        Assert.assertEquals(ids(tasks), pipeline.added);
+    }
+
+    @Test
+    public void canShrinkRequestBodySize() throws Exception {
+        List<TaskAddParameter> tasks = tasks(60, 50 * 1000);
+        StubPipeline pipeline = new StubPipeline(tasks, new ArrayList<TaskAddResult>());
+        pipeline.maxBodySize = 200 * 1000;
+
+        pipeline.run();
+
+        // The first chunk is only limited by the default request body size, and is rejected
+        Assert.assertEquals(19, pipeline.requests.get(0).size());
+        Assert.assertEquals(pipeline.requests.get(0), pipeline.rejected.get(0));
+
+        // Once the tasks of the first chunk are all added, the chunks of the tasks not sent yet fit the first time
+        List<String> sent = new ArrayList<>();
+        for (List<String> request : pipeline.requests) {
+            if (!sent.contains(request.get(0)) && sent.containsAll(ids(tasks.subList(0, 19)))) {
+                Assert.assertFalse(request.toString(), pipeline.rejected.contains(request));
+            }
+            sent.addAll(request);
+        }
+        Assert.assertEquals(ids(tasks), pipeline.added);
+    }
+
+    @Test
+    public void canReportOversizeTaskWithPendingTasks() throws Exception {
+        List<TaskAddParameter> tasks = Arrays.asList(task("small1", 10), task("large", 1200 * 1000), task("small2", 10), task("small3", 10));
+        List<TaskAddResult> handled = new ArrayList<>();
+        StubPipeline pipeline = new StubPipeline(tasks, handled);
+
+        try {
+            pipeline.run();
+            Assert.fail();
+        } catch (CreateTasksTerminatedException e) {
+            // The large task is sent on its own, and nothing is sent once it fails
+            Assert.assertEquals(Arrays.asList(Arrays.asList("small1"), Arrays.asList("large")), pipeline.requests);
+            Assert.assertEquals(1, e.failureTasks().size());
+            Assert.assertEquals("large", e.failureTasks().get(0).taskId());
+            Assert.assertEquals(TaskAddStatus.CLIENTERROR, e.failureTasks().get(0).status());
+            Assert.assertEquals(BatchErrorCodeStrings.RequestBodyTooLarge, e.failureTasks().get(0).error().code());
+            Assert.assertEquals(Arrays.asList("small2", "small3"), ids(e.pendingTaskList()));
+        }
+
+        Assert.assertEquals(Arrays.asList("small1"), pipeline.added);
+        Assert.assertEquals(2, handled.size());
+        Assert.assertEquals("large", handled.get(1).taskId());
+    }
+
+    @Test
+    public void canStopOnClientErrorWithPendingTasks() throws Exception {
+        List<TaskAddParameter> tasks = tasks(250, 10);
+        StubPipeline pipeline = new StubPipeline(tasks, new ArrayList<TaskAddResult>());
+        pipeline.clientErrors.add("task005");
+
+        try {
+            pipeline.run();
+            Assert.fail();
+        } catch (CreateTasksTerminatedException e) {
+            Assert.assertEquals(1, pipeline.requests.size());
+            Assert.assertEquals("task005", e.failureTasks().get(0).taskId());
+            Assert.assertEquals(ids(tasks.subList(100, 250)), ids(e.pendingTaskList()));
+        }
+    }
+
+    @Test
+    public void canRejectNonPositiveParallelism() throws Exception {
+        try {
+            new BatchClientParallelOptions(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        BatchClientParallelOptions options = new BatchClientParallelOptions() {
+            @Override
+            public int maxDegreeOfParallelism() {
+                return 0;
+            }
+        };
+        TaskOperations operations = new TaskOperations(null, new ArrayList<BatchClientBehavior>());
+        try {
+            operations.createTasks("job", tasks(10, 10), Arrays.<BatchClientBehavior>asList(options));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("maxDegreeOfParallelism"));
+        }
+    }
+}
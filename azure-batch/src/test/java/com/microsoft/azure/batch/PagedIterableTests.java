@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.batch.interceptor.BatchClientParallelOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class PagedIterableTests {
+
+    private static class FakePage implements Page<Integer> {
+        private final List<Integer> items;
+        private final String nextPageLink;
+
+        FakePage(List<Integer> items, String nextPageLink) {
+            this.items = items;
+            this.nextPageLink = nextPageLink;
+        }
+
+        @Override
+        public String getNextPageLink() {
+            return nextPageLink;
+        }
+
+        @Override
+        public List<Integer> getItems() {
+            return items;
+        }
+    }
+
+    /**
+     * Serves pages of two items and records every page requested.
+     */
+    private static class FakePages extends PagedIterable<Integer> {
+        private final int pageCount;
+        final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+        FakePages(int pageCount, boolean prefetch, BehaviorManager bhMgr) {
+            super(prefetch, bhMgr);
+            this.pageCount = pageCount;
+        }
+
+        @Override
+        Page<Integer> firstPage() {
+            requests.add("first");
+            return page(0);
+        }
+
+        @Override
+        Page<Integer> nextPage(String nextPageLink) {
+            requests.add(nextPageLink);
+            return page(Integer.parseInt(nextPageLink));
+        }
+
+        private Page<Integer> page(int index) {
+            return new FakePage(Arrays.asList(2 * index, 2 * index + 1), index + 1 < pageCount ? Integer.toString(index + 1) : null);
+        }
+    }
+
+    /**
+     * Runs the tasks submitted only when asked to, so the test sees exactly which pages were prefetched.
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+        final Queue<Runnable> queued = new LinkedList<>();
+
+        void runQueued() {
+            Runnable task;
+            while ((task = queued.poll()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<>(queued);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    private static BehaviorManager behaviors(BatchClientBehavior... behaviors) {
+        return new BehaviorManager(null, Arrays.asList(behaviors));
+    }
+
+    @Test
+    public void canRequestEachPageOnceAndOnlyWhenReached() throws Exception {
+        FakePages pages = new FakePages(3, false, behaviors());
+        pages.start();
+        Assert.assertEquals(Arrays.asList("first"), pages.requests);
+
+        Iterator<Integer> iterator = pages.iterator();
+        Assert.assertEquals(0, (int) iterator.next());
+        Assert.assertEquals(1, (int) iterator.next());
+        Assert.assertEquals(Arrays.asList("first"), pages.requests);
+
+        Assert.assertEquals(2, (int) iterator.next());
+        Assert.assertEquals(Arrays.asList("first", "1"), pages.requests);
+
+        List<Integer> rest = new ArrayList<>();
+        while (iterator.hasNext()) {
+            rest.add(iterator.next());
+        }
+        Assert.assertEquals(Arrays.asList(3, 4, 5), rest);
+        Assert.assertEquals(Arrays.asList("first", "1", "2"), pages.requests);
+    }
+
+    @Test
+    public void canRequestFirstPageAgainForLaterIterations() throws Exception {
+        FakePages pages = new FakePages(2, false, behaviors());
+        pages.start();
+
+        int count = 0;
+        for (Integer ignored : pages) {
+            count++;
+        }
+        for (Integer ignored : pages) {
+            count++;
+        }
+
+        Assert.assertEquals(8, count);
+        Assert.assertEquals(Arrays.asList("first", "1", "first", "1"), pages.requests);
+    }
+
+    @Test
+    public void canPrefetchOnlyTheNextPage() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        FakePages pages = new FakePages(3, true, behaviors(new BatchClientParallelOptions().withExecutorService(executor)));
+        pages.start();
+
+        Iterator<Integer> iterator = pages.iterator();
+        Assert.assertEquals(1, executor.queued.size());
+        executor.runQueued();
+        Assert.assertEquals(Arrays.asList("first", "1"), pages.requests);
+
+        // The prefetched page is used, and the page after it is only queued once it is reached
+        Assert.assertEquals(0, (int) iterator.next());
+        Assert.assertEquals(1, (int) iterator.next());
+        Assert.assertEquals(0, executor.queued.size());
+        Assert.assertEquals(2, (int) iterator.next());
+        Assert.assertEquals(Arrays.asList("first", "1"), pages.requests);
+        Assert.assertEquals(1, executor.queued.size());
+
+        executor.runQueued();
+        Assert.assertEquals(3, (int) iterator.next());
+        Assert.assertEquals(4, (int) iterator.next());
+        Assert.assertEquals(5, (int) iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(0, executor.queued.size());
+        Assert.assertEquals(Arrays.asList("first", "1", "2"), pages.requests);
+    }
+}
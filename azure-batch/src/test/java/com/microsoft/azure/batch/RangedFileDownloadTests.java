@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.FileProperties;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RangedFileDownloadTests {
+
+    private static final DateTime MODIFIED = new DateTime(2016, 9, 1, 12, 0, 0, DateTimeZone.UTC);
+
+    // Runs the ranges one after the other on the calling thread, so their order is known
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Serves ranges of a byte array instead of calling the Batch service, in ranges of 4 bytes.
+     */
+    private static class StubDownload extends RangedFileDownload {
+        byte[] content;
+        DateTime lastModified = MODIFIED;
+        // Bytes added to, or removed from, every range served
+        int extraBytes;
+        final Set<String> failing = Collections.synchronizedSet(new HashSet<String>());
+        final List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+
+        StubDownload(String content) {
+            this.content = content.getBytes(StandardCharsets.UTF_8);
+            rangeSize = 4;
+        }
+
+        FileProperties properties() {
+            return new FileProperties().withContentLength(content.length).withLastModified(lastModified);
+        }
+
+        @Override
+        InputStream getRange(String range, DateTime unmodifiedSince) throws IOException {
+            requested.add(range);
+            if (!lastModified.equals(unmodifiedSince)) {
+                throw new IOException("The condition specified using HTTP conditional header(s) is not met.");
+            }
+            if (failing.contains(range)) {
+                throw new IOException("Failed " + range);
+            }
+
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]) + 1 + extraBytes;
+            return new ByteArrayInputStream(Arrays.copyOfRange(content, start, end));
+        }
+    }
+
+    private Path target() {
+        return folder.getRoot().toPath().resolve("file.txt");
+    }
+
+    private Path progressFile() {
+        return folder.getRoot().toPath().resolve("file.txt" + RangedFileDownload.PROGRESS_FILE_SUFFIX);
+    }
+
+    private String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void canDownloadInRanges() throws Exception {
+        StubDownload download = new StubDownload("0123456789");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            download.run(download.properties(), target(), 2, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals("0123456789", read(target()));
+        Assert.assertFalse(Files.exists(progressFile()));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("bytes=0-3", "bytes=4-7", "bytes=8-9")), new HashSet<>(download.requested));
+    }
+
+    @Test
+    public void canResumeWithMissingRanges() throws Exception {
+        StubDownload download = new StubDownload("0123456789");
+        download.failing.add("bytes=4-7");
+
+        try {
+            download.run(download.properties(), target(), 1, DIRECT);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Failed bytes=4-7", e.getMessage());
+        }
+
+        // Only the range written before the failure is recorded, after the header
+        List<String> progress = Files.readAllLines(progressFile(), StandardCharsets.UTF_8);
+        Assert.assertEquals(Arrays.asList("10 " + MODIFIED.getMillis() + " 4", "0"), progress);
+
+        download.failing.clear();
+        download.requested.clear();
+        download.run(download.properties(), target(), 1, DIRECT);
+
+        Assert.assertEquals(Arrays.asList("bytes=4-7", "bytes=8-9"), download.requested);
+        Assert.assertEquals("0123456789", read(target()));
+        Assert.assertFalse(Files.exists(progressFile()));
+    }
+
+    @Test
+    public void canRestartWhenFileChanged() throws Exception {
+        final StubDownload download = new StubDownload("0123456789");
+        final FileProperties properties = download.properties();
+
+        // The file changes on the node after the first range, so the next one fails its If-Unmodified-Since
+        StubDownload changing = new StubDownload("0123456789") {
+            @Override
+            InputStream getRange(String range, DateTime unmodifiedSince) throws IOException {
+                InputStream stream = download.getRange(range, unmodifiedSince);
+                download.content = "abcdefghij".getBytes(StandardCharsets.UTF_8);
+                download.lastModified = MODIFIED.plusMinutes(1);
+                return stream;
+            }
+        };
+        try {
+            changing.run(properties, target(), 1, DIRECT);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("conditional"));
+        }
+        Assert.assertEquals(Arrays.asList("bytes=0-3", "bytes=4-7"), download.requested);
+
+        // The properties no longer match the progress file, so every range is downloaded again
+        download.requested.clear();
+        download.run(download.properties(), target(), 1, DIRECT);
+
+        Assert.assertEquals(Arrays.asList("bytes=0-3", "bytes=4-7", "bytes=8-9"), download.requested);
+        Assert.assertEquals("abcdefghij", read(target()));
+        Assert.assertFalse(Files.exists(progressFile()));
+    }
+
+    @Test
+    public void canDownloadEmptyFile() throws Exception {
+        StubDownload download = new StubDownload("");
+
+        download.run(download.properties(), target(), 2, DIRECT);
+
+        Assert.assertTrue(download.requested.isEmpty());
+        Assert.assertEquals(0, Files.size(target()));
+        Assert.assertFalse(Files.exists(progressFile()));
+    }
+
+    @Test
+    public void cannotAcceptShortRange() throws Exception {
+        StubDownload download = new StubDownload("0123456789");
+        download.extraBytes = -1;
+
+        try {
+            download.run(download.properties(), target(), 1, DIRECT);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("The Batch service returned 3 of the 4 bytes requested from position 0.", e.getMessage());
+        }
+
+        Assert.assertEquals(1, Files.readAllLines(progressFile(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void cannotAcceptOverLongRange() throws Exception {
+        StubDownload download = new StubDownload("0123456789");
+        download.extraBytes = 1;
+
+        try {
+            download.run(download.properties(), target(), 1, DIRECT);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("The Batch service returned more than the 4 bytes requested from position 0.", e.getMessage());
+        }
+
+        Assert.assertEquals(1, Files.readAllLines(progressFile(), StandardCharsets.UTF_8).size());
+    }
+}
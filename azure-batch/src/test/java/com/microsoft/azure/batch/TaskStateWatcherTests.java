@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch;
+
+import com.microsoft.azure.batch.protocol.models.CloudTask;
+import com.microsoft.azure.batch.protocol.models.TaskState;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class TaskStateWatcherTests {
+
+    private static final DateTime START = new DateTime(2016, 9, 1, 12, 0, 0, DateTimeZone.UTC);
+
+    /**
+     * Lists the tasks of a map instead of calling the Batch service, applying the stateTransitionTime filter.
+     */
+    private static class StubWatcher extends TaskStateWatcher {
+        final Map<String, CloudTask> tasks = Collections.synchronizedMap(new LinkedHashMap<String, CloudTask>());
+        final List<String> filters = Collections.synchronizedList(new ArrayList<String>());
+
+        StubWatcher(TaskStateListener listener) {
+            super(null, null, null, "job", listener, 10, 20, TimeUnit.MINUTES.toMillis(5));
+        }
+
+        void put(String id, TaskState state, int minute) {
+            tasks.put(id, new CloudTask().withId(id).withState(state).withStateTransitionTime(START.plusMinutes(minute)));
+        }
+
+        @Override
+        Iterable<CloudTask> listTasks(DetailLevel detailLevel) {
+            filters.add(detailLevel.filterClause());
+            Assert.assertEquals("id,state,stateTransitionTime", detailLevel.selectClause());
+
+            List<CloudTask> listed = new ArrayList<>();
+            synchronized (tasks) {
+                for (CloudTask task : tasks.values()) {
+                    if (detailLevel.filterClause() == null || !task.stateTransitionTime().isBefore(since(detailLevel.filterClause()))) {
+                        listed.add(task);
+                    }
+                }
+            }
+            return listed;
+        }
+
+        private static DateTime since(String filter) {
+            return DateTime.parse(filter.substring(filter.indexOf('\'') + 1, filter.lastIndexOf('\'')));
+        }
+    }
+
+    private static class RecordingListener implements TaskStateListener {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void onTaskStateChanged(CloudTask task, TaskState previousState) {
+            events.add(task.id() + ":" + previousState + "->" + task.state());
+        }
+
+        @Override
+        public void onTaskDeleted(String taskId, TaskState previousState) {
+            events.add(taskId + ":" + previousState + "->deleted");
+        }
+
+        @Override
+        public void onPollFailed(Exception exception) {
+            events.add("failed:" + exception);
+        }
+    }
+
+    @Test
+    public void canReportOnlyChangedTasks() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        try (StubWatcher watcher = new StubWatcher(listener)) {
+            watcher.put("a", TaskState.ACTIVE, 0);
+            watcher.put("b", TaskState.RUNNING, 1);
+
+            Assert.assertEquals(2, watcher.poll());
+            Assert.assertEquals(Arrays.asList("a:null->active", "b:null->running"), listener.events);
+            Assert.assertNull(watcher.filters.get(0));
+
+            // Later polls only list the transitions since the latest one seen, with some overlap
+            watcher.put("a", TaskState.COMPLETED, 5);
+            Assert.assertEquals(1, watcher.poll());
+            Assert.assertEquals("stateTransitionTime ge DateTime'2016-09-01T12:00:50Z'", watcher.filters.get(1));
+            Assert.assertEquals("a:active->completed", listener.events.get(2));
+
+            // Tasks listed again by the overlap are not reported again
+            Assert.assertEquals(0, watcher.poll());
+            Assert.assertEquals(3, listener.events.size());
+            Assert.assertFalse(watcher.isCompleted());
+
+            watcher.put("b", TaskState.COMPLETED, 6);
+            Assert.assertEquals(1, watcher.poll());
+            Assert.assertTrue(watcher.isCompleted());
+        }
+    }
+
+    @Test
+    public void canReportDeletedTasks() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        try (StubWatcher watcher = new StubWatcher(listener)) {
+            watcher.put("a", TaskState.COMPLETED, 0);
+            watcher.put("b", TaskState.RUNNING, 1);
+            watcher.poll();
+
+            // A filtered poll does not see the deletion
+            watcher.tasks.remove("b");
+            Assert.assertEquals(0, watcher.poll());
+            Assert.assertFalse(watcher.isCompleted());
+
+            // Listing every task does, and the job is completed without the deleted task
+            watcher.reconcileIntervalMillis = 0;
+            Assert.assertEquals(1, watcher.poll());
+            Assert.assertNull(watcher.filters.get(watcher.filters.size() - 1));
+            Assert.assertEquals("b:running->deleted", listener.events.get(listener.events.size() - 1));
+            Assert.assertTrue(watcher.isCompleted());
+
+            // Deleted tasks are only reported once
+            Assert.assertEquals(0, watcher.poll());
+        }
+    }
+
+    @Test
+    public void canAwaitCompletion() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        try (StubWatcher watcher = new StubWatcher(listener)) {
+            watcher.put("a", TaskState.RUNNING, 0);
+            watcher.start();
+
+            Assert.assertFalse(watcher.awaitCompletion(100, TimeUnit.MILLISECONDS));
+
+            watcher.put("a", TaskState.COMPLETED, 1);
+            Assert.assertTrue(watcher.awaitCompletion(10, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList("a:null->running", "a:running->completed"), listener.events);
+
+            // Completion is final, tasks added later are still reported
+            watcher.put("b", TaskState.ACTIVE, 2);
+            watcher.put("a", TaskState.COMPLETED, 2);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!listener.events.contains("b:null->active") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(listener.events.contains("b:null->active"));
+            Assert.assertTrue(watcher.awaitCompletion(0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotReconcileWithoutInterval() {
+        new TaskStateWatcher(null, null, null, "job", new RecordingListener(), 10, 20, 0);
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch.auth;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the request signing of {@link BatchCredentialsInterceptor} with the
+ * previous implementation, which created a new Mac and concatenated strings for
+ * every request.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.batch.auth.BatchCredentialsInterceptorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchCredentialsInterceptorBenchmark {
+
+    private static final String ACCOUNT_NAME = "BenchmarkAccount";
+    private static final String ACCOUNT_KEY = Base64.encodeBase64String(new byte[64]);
+
+    private BatchSharedKeyCredentials credentials;
+    private BatchCredentialsInterceptor interceptor;
+    private Request listRequest;
+    private Request addRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        credentials = new BatchSharedKeyCredentials("https://benchmark.westus.batch.azure.com", ACCOUNT_NAME, ACCOUNT_KEY);
+        interceptor = new BatchCredentialsInterceptor(credentials);
+        listRequest = new Request.Builder()
+                .url("https://benchmark.westus.batch.azure.com/jobs/job1/tasks?api-version=2016-07-01.3.1&timeout=30&$filter=state%20eq%20'completed'&$select=id,state")
+                .header("ocp-date", "Mon, 02 Jan 2017 10:00:00 GMT")
+                .header("client-request-id", "00000000-0000-0000-0000-000000000000")
+                .header("return-client-request-id", "false")
+                .get()
+                .build();
+        addRequest = new Request.Builder()
+                .url("https://benchmark.westus.batch.azure.com/jobs/job1/addtaskcollection?api-version=2016-07-01.3.1")
+                .header("ocp-date", "Mon, 02 Jan 2017 10:00:00 GMT")
+                .header("ocp-range", "bytes=0-1023")
+                .header("client-request-id", "00000000-0000-0000-0000-000000000000")
+                .post(RequestBody.create(MediaType.parse("application/json; odata=minimalmetadata; charset=utf-8"),
+                        "{\"value\":[{\"id\":\"task1\",\"commandLine\":\"cmd /c echo hello\"}]}"))
+                .build();
+
+        // Both implementations must produce the same signature for the comparison to mean anything
+        for (Request request : new Request[] { listRequest, addRequest }) {
+            String expected = legacySignHeader(credentials, request).header("Authorization");
+            String actual = interceptor.signHeader(request).header("Authorization");
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Signatures differ: " + expected + " / " + actual);
+            }
+        }
+    }
+
+    @Benchmark
+    public Request signListRequest() throws IOException {
+        return interceptor.signHeader(listRequest);
+    }
+
+    @Benchmark
+    public Request signListRequestLegacy() throws IOException {
+        return legacySignHeader(credentials, listRequest);
+    }
+
+    @Benchmark
+    public Request signAddRequest() throws IOException {
+        return interceptor.signHeader(addRequest);
+    }
+
+    @Benchmark
+    public Request signAddRequestLegacy() throws IOException {
+        return legacySignHeader(credentials, addRequest);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BatchCredentialsInterceptorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static String legacyHeaderValue(Request request, String headerName) {
+        String headerValue = request.header(headerName);
+        if (headerValue == null) {
+            return "";
+        }
+        return headerValue;
+    }
+
+    private static String legacySign(String accessKey, String stringToSign) {
+        try {
+            Mac hmac = Mac.getInstance("hmacSHA256");
+            hmac.init(new SecretKeySpec(Base64.decodeBase64(accessKey), "hmacSHA256"));
+            byte[] digest = hmac.doFinal(stringToSign.getBytes("UTF-8"));
+            return Base64.encodeBase64String(digest);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("accessKey", e);
+        }
+    }
+
+    // The signing code as it was before the per-thread Mac and StringBuilder, kept as the baseline
+    private static Request legacySignHeader(BatchSharedKeyCredentials credentials, Request request) throws IOException {
+        Request.Builder builder = request.newBuilder();
+
+        String signature = request.method() + "\n";
+        signature = signature + legacyHeaderValue(request, "Content-Encoding") + "\n";
+        signature = signature + legacyHeaderValue(request, "Content-Language") + "\n";
+
+        long length = -1;
+        if (request.body() != null) {
+            length = request.body().contentLength();
+        }
+        signature = signature + (length >= 0 ? Long.valueOf(length) : "") + "\n";
+
+        signature = signature + legacyHeaderValue(request, "Content-MD5") + "\n";
+
+        String contentType = request.header("Content-Type");
+        if (contentType == null) {
+            contentType = "";
+            if (request.body() != null) {
+                MediaType mediaType = request.body().contentType();
+                if (mediaType != null) {
+                    contentType = mediaType.toString();
+                }
+            }
+        }
+        signature = signature + contentType + "\n";
+
+        signature = signature + legacyHeaderValue(request, "Date") + "\n";
+        signature = signature + legacyHeaderValue(request, "If-Modified-Since") + "\n";
+        signature = signature + legacyHeaderValue(request, "If-Match") + "\n";
+        signature = signature + legacyHeaderValue(request, "If-None-Match") + "\n";
+        signature = signature + legacyHeaderValue(request, "If-Unmodified-Since") + "\n";
+        signature = signature + legacyHeaderValue(request, "Range") + "\n";
+
+        ArrayList<String> customHeaders = new ArrayList<String>();
+        for (String name : request.headers().names()) {
+            if (name.toLowerCase().startsWith("ocp-")) {
+                customHeaders.add(name.toLowerCase());
+            }
+        }
+        Collections.sort(customHeaders);
+        for (String canonicalHeader : customHeaders) {
+            String value = request.header(canonicalHeader);
+            value = value.replace('\n', ' ').replace('\r', ' ').replaceAll("^[ ]+", "");
+            signature = signature + canonicalHeader + ":" + value + "\n";
+        }
+
+        signature = signature + "/" + credentials.accountName().toLowerCase() + "/"
+                + request.url().uri().getPath().replaceAll("^[/]+", "");
+        signature = signature.replace("%5C", "/").replace("%2F", "/");
+
+        String query = request.url().query();
+        if (query != null) {
+            Map<String, String> queryComponents = new TreeMap<String, String>();
+            String[] pairs = query.split("&");
+            for (String pair : pairs) {
+                int idx = pair.indexOf("=");
+                String key = URLDecoder.decode(pair.substring(0, idx), "UTF-8").toLowerCase(Locale.US);
+                queryComponents.put(key, key + ":" + URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
+            }
+            for (Map.Entry<String, String> entry : queryComponents.entrySet()) {
+                signature = signature + "\n" + entry.getValue();
+            }
+        }
+        String signedSignature = legacySign(credentials.keyValue(), signature);
+        builder.header("Authorization", "SharedKey " + credentials.accountName() + ":" + signedSignature);
+        return builder.build();
+    }
+}
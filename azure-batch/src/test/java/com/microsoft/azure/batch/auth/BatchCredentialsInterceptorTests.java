@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.batch.auth;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+public class BatchCredentialsInterceptorTests {
+
+    private static final String BASE_URL = "https://account.westus.batch.azure.com";
+
+    // "testkey"
+    private static final String ACCOUNT_KEY = "dGVzdGtleQ==";
+
+    private static final String DATE = "Mon, 02 Jan 2017 10:00:00 GMT";
+
+    // The lines of the string to sign for the standard headers, when none of them is set
+    private static final String NO_STANDARD_HEADERS = "\n\n\n\n\n\n";
+
+    private final BatchCredentialsInterceptor interceptor = new BatchCredentialsInterceptor(
+            new BatchSharedKeyCredentials(BASE_URL, "Account", ACCOUNT_KEY));
+
+    private static String authorization(String stringToSign) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(Base64.decodeBase64(ACCOUNT_KEY), "HmacSHA256"));
+        return "SharedKey Account:" + Base64.encodeBase64String(mac.doFinal(stringToSign.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String sign(Request request) throws Exception {
+        return interceptor.signHeader(request).header("Authorization");
+    }
+
+    @Test
+    public void canSignListRequest() throws Exception {
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/jobs/job1/tasks?api-version=2016-07-01.3.1&timeout=30&$filter=state%20eq%20'completed'")
+                .header("ocp-date", DATE)
+                .header("client-request-id", "00000000-0000-0000-0000-000000000000")
+                .get()
+                .build();
+
+        String stringToSign = "GET\n\n\n\n\n\n" + NO_STANDARD_HEADERS
+                + "ocp-date:" + DATE + "\n"
+                + "/account/jobs/job1/tasks"
+                + "\n$filter:state eq 'completed'"
+                + "\napi-version:2016-07-01.3.1"
+                + "\ntimeout:30";
+
+        Assert.assertEquals(authorization(stringToSign), sign(request));
+        // The same signature computed outside of Java
+        Assert.assertEquals("SharedKey Account:MQ1BgbA1LV3hfnN+6g8j8vr5XX2pdiQPu/PhOtqbPq4=", sign(request));
+    }
+
+    @Test
+    public void canSignRequestWithBodyAndHeaders() throws Exception {
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/jobs/job1/addtaskcollection?api-version=2016-07-01.3.1")
+                .header("ocp-date", DATE)
+                .header("If-Match", "0x8D4")
+                .header("OCP-Custom", "")
+                .post(RequestBody.create(MediaType.parse("application/json; odata=minimalmetadata; charset=utf-8"), "{\"value\":[]}"))
+                .build();
+
+        // The custom headers are lower-cased and sorted, an empty one is signed with an empty value
+        String stringToSign = "POST\n\n\n12\n\napplication/json; odata=minimalmetadata; charset=utf-8\n"
+                + "\n\n0x8D4\n\n\n\n"
+                + "ocp-custom:\n"
+                + "ocp-date:" + DATE + "\n"
+                + "/account/jobs/job1/addtaskcollection"
+                + "\napi-version:2016-07-01.3.1";
+
+        Assert.assertEquals(authorization(stringToSign), sign(request));
+    }
+
+    @Test
+    public void canSignEmptyHeaders() throws Exception {
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/pools")
+                .header("ocp-date", DATE)
+                .header("Content-Type", "")
+                .header("Range", "")
+                .get()
+                .build();
+
+        String stringToSign = "GET\n\n\n\n\n\n" + NO_STANDARD_HEADERS
+                + "ocp-date:" + DATE + "\n"
+                + "/account/pools";
+
+        Assert.assertEquals(authorization(stringToSign), sign(request));
+    }
+
+    @Test
+    public void canSignQueryParametersWithoutValue() throws Exception {
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/pools?restype&timeout=30&empty=")
+                .header("ocp-date", DATE)
+                .get()
+                .build();
+
+        String stringToSign = "GET\n\n\n\n\n\n" + NO_STANDARD_HEADERS
+                + "ocp-date:" + DATE + "\n"
+                + "/account/pools"
+                + "\nempty:"
+                + "\nrestype:"
+                + "\ntimeout:30";
+
+        Assert.assertEquals(authorization(stringToSign), sign(request));
+    }
+
+    @Test
+    public void canSignRepeatedQueryParameters() throws Exception {
+        // Names differing only in case are the same parameter, and the last value of a parameter wins
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/pools?b=1&A=x&B=2&timeout=30&a=y")
+                .header("ocp-date", DATE)
+                .get()
+                .build();
+
+        String stringToSign = "GET\n\n\n\n\n\n" + NO_STANDARD_HEADERS
+                + "ocp-date:" + DATE + "\n"
+                + "/account/pools"
+                + "\na:y"
+                + "\nb:2"
+                + "\ntimeout:30";
+
+        Assert.assertEquals(authorization(stringToSign), sign(request));
+    }
+
+    @Test
+    public void canSignEncodedSlashesInPath() throws Exception {
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/jobs/job%2F1/tasks/task%5C1")
+                .header("ocp-date", DATE)
+                .get()
+                .build();
+
+        String stringToSign = "GET\n\n\n\n\n\n" + NO_STANDARD_HEADERS
+                + "ocp-date:" + DATE + "\n"
+                + "/account/jobs/job/1/tasks/task\\1";
+
+        Assert.assertEquals(authorization(stringToSign), sign(request));
+    }
+
+    @Test
+    public void canReuseSigningAcrossRequests() throws Exception {
+        Request first = new Request.Builder().url(BASE_URL + "/pools?timeout=30").header("ocp-date", DATE).get().build();
+        Request second = new Request.Builder().url(BASE_URL + "/jobs").header("ocp-date", DATE).get().build();
+
+        String firstSignature = sign(first);
+        sign(second);
+
+        // The per-thread Mac and string builder carry nothing over from one request to the next
+        Assert.assertEquals(firstSignature, sign(first));
+    }
+
+    @Test
+    public void canAddDateWhenMissing() throws Exception {
+        Request signed = interceptor.signHeader(new Request.Builder().url(BASE_URL + "/pools").get().build());
+
+        Assert.assertNotNull(signed.header("ocp-date"));
+        Assert.assertTrue(signed.header("Authorization").startsWith("SharedKey Account:"));
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Adapts an {@link ICryptoTransform} to {@link IStreamingCryptoTransform} by
+ * collecting the input until the transform is finished and transforming it as
+ * a single operation then. Nothing is output before doFinal, so an
+ * authenticating decryptor verifies the tag before any plain text is released,
+ * at the cost of holding the whole input in memory.
+ */
+class BufferingCryptoTransform implements IStreamingCryptoTransform, IAuthenticatedCryptoTransform {
+
+    // The output of a symmetric cipher exceeds its input by at most one block of padding
+    private static final int MaxPaddingLength = 32;
+
+    private final ICryptoTransform _transform;
+
+    private byte[] _input;
+    private int    _length;
+    private byte[] _output;
+
+    BufferingCryptoTransform(ICryptoTransform transform) {
+        _transform = transform;
+        _input     = new byte[0];
+    }
+
+    @Override
+    public byte[] getTag() {
+
+        if (!(_transform instanceof IAuthenticatedCryptoTransform)) {
+            return null;
+        }
+
+        return ((IAuthenticatedCryptoTransform) _transform).getTag();
+    }
+
+    @Override
+    public int getOutputSize(int inputLength) {
+
+        if (_output != null) {
+            return _output.length;
+        }
+
+        return _length + inputLength + MaxPaddingLength;
+    }
+
+    @Override
+    public int update(ByteBuffer input, ByteBuffer output) {
+
+        append(input);
+
+        return 0;
+    }
+
+    @Override
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+        // The result is kept when the output buffer is too small, so the call
+        // can be repeated with a larger one
+        if (_output == null) {
+            append(input);
+
+            byte[] collected = Arrays.copyOf(_input, _length);
+
+            Arrays.fill(_input, (byte) 0);
+
+            _output = _transform.doFinal(collected);
+            _input  = null;
+            _length = 0;
+
+            Arrays.fill(collected, (byte) 0);
+        }
+
+        if (output.remaining() < _output.length) {
+            throw new ShortBufferException();
+        }
+
+        output.put(_output);
+
+        return _output.length;
+    }
+
+    @Override
+    public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+        if (_length == 0 && _output == null) {
+            return _transform.doFinal(input);
+        }
+
+        ByteBuffer output = ByteBuffer.allocate(getOutputSize(input.length));
+
+        try {
+            doFinal(ByteBuffer.wrap(input), output);
+        } catch (ShortBufferException e) {
+            // The output buffer is sized by getOutputSize
+            throw new IllegalStateException(e);
+        }
+
+        return Arrays.copyOf(output.array(), output.position());
+    }
+
+    private void append(ByteBuffer input) {
+
+        if (_input == null) {
+            throw new IllegalStateException("The transform is finished");
+        }
+
+        int count = input.remaining();
+
+        if (_input.length - _length < count) {
+            byte[] grown = Arrays.copyOf(_input, Math.max(_input.length << 1, _length + count));
+
+            Arrays.fill(_input, (byte) 0);
+
+            _input = grown;
+        }
+
+        input.get(_input, _length, count);
+
+        _length += count;
+    }
+}
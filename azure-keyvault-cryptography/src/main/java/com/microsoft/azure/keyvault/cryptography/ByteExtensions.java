@@ -97,4 +97,37 @@ public final class ByteExtensions {
         return difference == 0;
     }
 
+    /**
+     * Compares a byte array with the leading bytes of another in constant time,
+     * which saves copying the leading bytes, e.g. of a hash, into an array of
+     * their own first.
+     * 
+     * @param self
+     *      The byte array to compare 
+     * @param other
+     *      The byte array whose leading bytes are compared
+     * @param length
+     *      The number of leading bytes of other to compare
+     * @return
+     *      True if self has the given length and equals the leading bytes of other.
+     */
+    public static boolean sequenceEqualConstantTime( byte[] self, byte[] other, int length )
+    {
+        if ( self == null )
+            throw new IllegalArgumentException( "self" );
+
+        if ( other == null || other.length < length )
+            throw new IllegalArgumentException( "other" );
+
+        // Constant time comparison of self with the leading bytes of other
+        long difference = ( self.length & 0xffffffffl ) ^ ( length & 0xffffffffl );
+
+        for ( int i = 0; i < self.length && i < length; i++ )
+        {
+            difference |= ( self[i] ^ other[i] ) & 0xffffffffl;
+        }
+
+        return difference == 0;
+    }
+
 }
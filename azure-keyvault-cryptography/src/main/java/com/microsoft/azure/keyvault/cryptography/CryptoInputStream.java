@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * An input stream that passes the data read from another stream through an
+ * {@link IStreamingCryptoTransform}, reading the source in fixed size chunks.
+ *
+ * When decrypting with an authenticating algorithm the tag is verified at the
+ * end of the source, and the read that reaches it fails with an
+ * IllegalArgumentException if the data is not authentic. Algorithms that
+ * decrypt incrementally have returned most of the plain text by then, which
+ * must be discarded if the read fails.
+ */
+public class CryptoInputStream extends InputStream {
+
+    private static final int BufferSize = 8192;
+
+    private final InputStream               _in;
+    private final IStreamingCryptoTransform _transform;
+    private final byte[]                    _input;
+
+    private ByteBuffer _output;
+    private boolean    _finished;
+
+    /**
+     * Creates a stream that transforms the data read from the specified stream.
+     * @param in
+     *      The stream to read from.
+     * @param transform
+     *      The transform to apply.
+     */
+    public CryptoInputStream(InputStream in, IStreamingCryptoTransform transform) {
+
+        if (in == null) {
+            throw new IllegalArgumentException("in");
+        }
+
+        if (transform == null) {
+            throw new IllegalArgumentException("transform");
+        }
+
+        _in        = in;
+        _transform = transform;
+        _input     = new byte[BufferSize];
+        _output    = ByteBuffer.allocate(transform.getOutputSize(BufferSize));
+
+        _output.flip();
+    }
+
+    /**
+     * Returns the authentication tag once the end of the stream was reached
+     * when using an authenticating algorithm.
+     * @return The authentication tag or null.
+     */
+    public byte[] getTag() {
+
+        if (!_finished || !(_transform instanceof IAuthenticatedCryptoTransform)) {
+            return null;
+        }
+
+        return ((IAuthenticatedCryptoTransform) _transform).getTag();
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        if (!fill()) {
+            return -1;
+        }
+
+        return _output.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!fill()) {
+            return -1;
+        }
+
+        int count = Math.min(len, _output.remaining());
+
+        _output.get(b, off, count);
+
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return _output.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    private boolean fill() throws IOException {
+
+        while (!_output.hasRemaining()) {
+
+            if (_finished) {
+                return false;
+            }
+
+            int read = _in.read(_input);
+
+            try {
+                if (read < 0) {
+                    prepare(0);
+                    _transform.doFinal(ByteBuffer.wrap(_input, 0, 0), _output);
+                    _finished = true;
+                } else {
+                    prepare(read);
+                    _transform.update(ByteBuffer.wrap(_input, 0, read), _output);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+
+            _output.flip();
+        }
+
+        return true;
+    }
+
+    private void prepare(int inputLength) {
+
+        int size = _transform.getOutputSize(inputLength);
+
+        if (_output.capacity() < size) {
+            // Grow geometrically, so that a transform whose output size keeps
+            // growing with its input is not given a new buffer for every chunk
+            _output = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, Math.max(size, 2L * _output.capacity())));
+        }
+
+        _output.clear();
+    }
+}
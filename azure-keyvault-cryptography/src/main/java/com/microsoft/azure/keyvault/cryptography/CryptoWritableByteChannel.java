@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+
+/**
+ * A channel that passes the data written to it through an
+ * {@link IStreamingCryptoTransform} into another, blocking, channel in fixed
+ * size chunks. Closing the channel finishes the transform and closes the
+ * target channel.
+ *
+ * When decrypting with an authenticating algorithm closing the channel
+ * verifies the tag and fails with an IllegalArgumentException if the data is
+ * not authentic. Algorithms that decrypt incrementally have written most of
+ * the plain text to the target by then, which must be discarded if closing
+ * fails.
+ */
+public class CryptoWritableByteChannel implements WritableByteChannel {
+
+    private static final int BufferSize = 8192;
+
+    private final WritableByteChannel       _out;
+    private final IStreamingCryptoTransform _transform;
+
+    private ByteBuffer _output;
+    private boolean    _open;
+    private boolean    _finished;
+
+    /**
+     * Creates a channel that writes the transformed data to the specified channel.
+     * @param out
+     *      The channel to write to.
+     * @param transform
+     *      The transform to apply.
+     */
+    public CryptoWritableByteChannel(WritableByteChannel out, IStreamingCryptoTransform transform) {
+
+        if (out == null) {
+            throw new IllegalArgumentException("out");
+        }
+
+        if (transform == null) {
+            throw new IllegalArgumentException("transform");
+        }
+
+        _out       = out;
+        _transform = transform;
+        _output    = ByteBuffer.allocate(transform.getOutputSize(BufferSize));
+        _open      = true;
+    }
+
+    /**
+     * Returns the authentication tag once the channel was closed when using
+     * an authenticating algorithm.
+     * @return The authentication tag or null.
+     */
+    public byte[] getTag() {
+
+        if (!_finished || !(_transform instanceof IAuthenticatedCryptoTransform)) {
+            return null;
+        }
+
+        return ((IAuthenticatedCryptoTransform) _transform).getTag();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return _open;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+
+        if (!_open) {
+            throw new ClosedChannelException();
+        }
+
+        int count = src.remaining();
+
+        while (src.hasRemaining()) {
+
+            ByteBuffer chunk = src.duplicate();
+
+            chunk.limit(chunk.position() + Math.min(chunk.remaining(), BufferSize));
+
+            try {
+                prepare(chunk.remaining());
+                _transform.update(chunk, _output);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+
+            src.position(chunk.position());
+
+            drain();
+        }
+
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (!_open) {
+            return;
+        }
+
+        _open = false;
+
+        try {
+            try {
+                prepare(0);
+                _transform.doFinal(ByteBuffer.allocate(0), _output);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+
+            drain();
+
+            _finished = true;
+        } finally {
+            _out.close();
+        }
+    }
+
+    private void prepare(int inputLength) {
+
+        int size = _transform.getOutputSize(inputLength);
+
+        if (_output.capacity() < size) {
+            // Grow geometrically, so that a transform whose output size keeps
+            // growing with its input is not given a new buffer for every chunk
+            _output = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, Math.max(size, 2L * _output.capacity())));
+        }
+
+        _output.clear();
+    }
+
+    private void drain() throws IOException {
+
+        _output.flip();
+
+        while (_output.hasRemaining()) {
+            _out.write(_output);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography;
+
+/**
+ * The keys a symmetric encryption algorithm derives from the key material, such
+ * as the AES and HMAC halves of an AES-CBC-HMAC key.
+ *
+ * A derived key is created once with
+ * {@link SymmetricEncryptionAlgorithm#DeriveKey(byte[])} and can then be used by
+ * any number of transforms of the same algorithm, on any thread, without
+ * splitting or copying the key material again.
+ */
+public interface IDerivedKey {
+
+    /**
+     * @return The name of the algorithm that derived the key.
+     */
+    public String getAlgorithm();
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Defines a cryptographic transformation that processes its input in parts, so
+ * that payloads of any size can be transformed with bounded memory.
+ *
+ * A streaming transform keeps state between calls and must not be used by
+ * several threads at the same time.
+ */
+public interface IStreamingCryptoTransform extends ICryptoTransform {
+
+    /**
+     * Returns the size of the output buffer that the next update or doFinal
+     * call needs for the given input length.
+     *
+     * @param inputLength
+     * 			The number of input bytes.
+     * @return
+     * 			The maximum number of output bytes.
+     */
+    public int getOutputSize(int inputLength);
+
+    /**
+     * Transforms all remaining bytes of the input buffer. The output may lag
+     * behind the input by up to one block.
+     *
+     * @param input
+     * 			The input buffer; its position is advanced to its limit.
+     * @param output
+     * 			The output buffer; its position is advanced by the bytes written.
+     * @return
+     * 			The number of bytes written to the output buffer.
+     * @throws ShortBufferException
+     * 			If the output buffer is too small; no input is consumed in that case.
+     */
+    public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException;
+
+    /**
+     * Transforms the remaining bytes of the input buffer and finishes the
+     * transformation.
+     *
+     * @param input
+     * 			The input buffer; its position is advanced to its limit.
+     * @param output
+     * 			The output buffer; its position is advanced by the bytes written.
+     * @return
+     * 			The number of bytes written to the output buffer.
+     * @throws ShortBufferException
+     * @throws IllegalBlockSizeException
+     * @throws BadPaddingException
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     */
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException;
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography;
+
+/**
+ * The derived key of an algorithm that does not derive its keys ahead of time:
+ * a copy of the key material, which the default transform factories of
+ * {@link SymmetricEncryptionAlgorithm} pass to the factories taking the key
+ * material.
+ */
+final class RawDerivedKey implements IDerivedKey {
+
+    private final String _algorithm;
+    private final byte[] _key;
+
+    RawDerivedKey(String algorithm, byte[] key) {
+        _algorithm = algorithm;
+        _key       = key.clone();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return _algorithm;
+    }
+
+    byte[] getKey() {
+        return _key;
+    }
+}
@@ -12,17 +12,38 @@ import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
+import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.azure.keyvault.core.IKey;
 import com.microsoft.azure.keyvault.cryptography.algorithms.Rs256;
 import com.microsoft.azure.keyvault.cryptography.algorithms.RsaOaep;
 import com.microsoft.azure.keyvault.cryptography.Strings;
 
+/**
+ * An RSA key held in memory.
+ *
+ * The private key operations, decrypt, unwrap and sign, run on an executor
+ * rather than on the calling thread. Unless another executor is given, they
+ * run on a pool shared by all keys with one daemon thread per processor.
+ * Pass {@link com.google.common.util.concurrent.MoreExecutors#directExecutor()}
+ * to run them on the calling thread. The public key operations are cheap and
+ * always complete before the call returns.
+ */
 public class RsaKey implements IKey {
 
     public static int KeySize1024 = 1024;
@@ -32,9 +53,29 @@ public class RsaKey implements IKey {
         return RsaKey.KeySize2048;
     }
 
+    /**
+     * Holds the default executor, created on first use.
+     */
+    private static final class DefaultExecutor {
+
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            int                threads  = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rsakey-%d").build());
+
+            // Let an idle application drop the threads
+            executor.allowCoreThreadTimeOut(true);
+
+            return executor;
+        }
+    }
+
     private final String   _kid;
     private final KeyPair  _keyPair;
     private final Provider _provider;
+    private final Executor _executor;
 
     public RsaKey(String kid) throws NoSuchAlgorithmException {
         this(kid, getDefaultKeySize());
@@ -45,6 +86,18 @@ public class RsaKey implements IKey {
     }
     
     public RsaKey(String kid, int keySize, Provider provider) throws NoSuchAlgorithmException {
+        this(kid, keySize, provider, null);
+    }
+
+    /**
+     * Constructor.
+     * @param kid the key identifier
+     * @param keySize the size of the generated key in bits
+     * @param provider the java security provider, null for the default one
+     * @param executor the executor running the private key operations, null for the default pool
+     * @throws NoSuchAlgorithmException when the provider does not support RSA
+     */
+    public RsaKey(String kid, int keySize, Provider provider, Executor executor) throws NoSuchAlgorithmException {
 
         if (Strings.isNullOrWhiteSpace(kid)) {
             throw new IllegalArgumentException("kid");
@@ -57,6 +110,7 @@ public class RsaKey implements IKey {
         _kid      = kid;
         _keyPair  = generator.generateKeyPair();
         _provider = provider;
+        _executor = executor != null ? executor : DefaultExecutor.INSTANCE;
     }
 
     public RsaKey(String kid, KeyPair keyPair) {
@@ -64,6 +118,17 @@ public class RsaKey implements IKey {
     }
 
     public RsaKey(String kid, KeyPair keyPair, Provider provider) {
+        this(kid, keyPair, provider, null);
+    }
+
+    /**
+     * Constructor.
+     * @param kid the key identifier
+     * @param keyPair the RSA key pair, the private key may be missing
+     * @param provider the java security provider, null for the default one
+     * @param executor the executor running the private key operations, null for the default pool
+     */
+    public RsaKey(String kid, KeyPair keyPair, Provider provider, Executor executor) {
 
         if (Strings.isNullOrWhiteSpace(kid)) {
             throw new IllegalArgumentException("kid");
@@ -80,6 +145,7 @@ public class RsaKey implements IKey {
         _kid      = kid;
         _keyPair  = keyPair;
         _provider = provider;
+        _executor = executor != null ? executor : DefaultExecutor.INSTANCE;
     }
 
     @Override
@@ -120,19 +186,15 @@ public class RsaKey implements IKey {
             throw new NoSuchAlgorithmException(algorithm);
         }
         
-        AsymmetricEncryptionAlgorithm algo = (AsymmetricEncryptionAlgorithm)baseAlgorithm;
-
-        ICryptoTransform         transform;
-        ListenableFuture<byte[]> result;
+        final AsymmetricEncryptionAlgorithm algo = (AsymmetricEncryptionAlgorithm)baseAlgorithm;
 
-        try {
-            transform = algo.CreateDecryptor(_keyPair, _provider);
-            result    = Futures.immediateFuture(transform.doFinal(ciphertext));
-        } catch (Exception e) {
-            result    = Futures.immediateFailedFuture(e);
-        }
+        return submit(new Callable<byte[]>() {
 
-        return result;
+            @Override
+            public byte[] call() throws Exception {
+                return algo.CreateDecryptor(_keyPair, _provider).doFinal(ciphertext);
+            }
+        });
     }
 
     @Override
@@ -214,19 +276,91 @@ public class RsaKey implements IKey {
             throw new NoSuchAlgorithmException(algorithm);
         }
         
-        AsymmetricEncryptionAlgorithm algo = (AsymmetricEncryptionAlgorithm)baseAlgorithm;
+        final AsymmetricEncryptionAlgorithm algo = (AsymmetricEncryptionAlgorithm)baseAlgorithm;
 
-        ICryptoTransform         transform;
-        ListenableFuture<byte[]> result;
+        return submit(new Callable<byte[]>() {
 
-        try {
-            transform = algo.CreateDecryptor(_keyPair, _provider);
-            result    = Futures.immediateFuture(transform.doFinal(encryptedKey));
-        } catch (Exception e) {
-            result    = Futures.immediateFailedFuture(e);
+            @Override
+            public byte[] call() throws Exception {
+                return algo.CreateDecryptor(_keyPair, _provider).doFinal(encryptedKey);
+            }
+        });
+    }
+
+    /**
+     * Unwraps a batch of keys, spreading the work over the executor in one
+     * slice per processor so that every slice initializes its cipher once.
+     *
+     * @param encryptedKeys the wrapped keys
+     * @param algorithm the key wrap algorithm
+     * @return a future to the unwrapped keys in the order of the wrapped ones,
+     *         which fails if any of them cannot be unwrapped
+     * @throws NoSuchAlgorithmException the algorithm is not valid
+     */
+    public ListenableFuture<List<byte[]>> unwrapKeysAsync(List<byte[]> encryptedKeys, final String algorithm) throws NoSuchAlgorithmException {
+
+        if (encryptedKeys == null) {
+            throw new IllegalArgumentException("encryptedKeys");
         }
 
-        return result;
+        // The slices are read on the executor threads after this method returns, so they must
+        // not be views of a list the caller may change by then
+        final List<byte[]> keysToUnwrap = new ArrayList<byte[]>(encryptedKeys);
+
+        if (keysToUnwrap.contains(null)) {
+            throw new IllegalArgumentException("encryptedKeys");
+        }
+
+        if (Strings.isNullOrWhiteSpace(algorithm)) {
+            throw new IllegalArgumentException("algorithm");
+        }
+
+        Algorithm baseAlgorithm = AlgorithmResolver.Default.get(algorithm);
+
+        if (baseAlgorithm == null || !(baseAlgorithm instanceof AsymmetricEncryptionAlgorithm)) {
+            throw new NoSuchAlgorithmException(algorithm);
+        }
+
+        final AsymmetricEncryptionAlgorithm algo = (AsymmetricEncryptionAlgorithm)baseAlgorithm;
+
+        final int count = keysToUnwrap.size();
+        int slices      = Math.min(count, Runtime.getRuntime().availableProcessors());
+        int sliceSize   = slices == 0 ? 0 : (count + slices - 1) / slices;
+
+        List<ListenableFuture<List<byte[]>>> futures = new ArrayList<ListenableFuture<List<byte[]>>>(slices);
+
+        for (int start = 0; start < count; start += sliceSize) {
+            final List<byte[]> slice = keysToUnwrap.subList(start, Math.min(start + sliceSize, count));
+
+            futures.add(submit(new Callable<List<byte[]>>() {
+
+                @Override
+                public List<byte[]> call() throws Exception {
+                    ICryptoTransform transform = algo.CreateDecryptor(_keyPair, _provider);
+                    List<byte[]>     keys      = new ArrayList<byte[]>(slice.size());
+
+                    for (byte[] encryptedKey : slice) {
+                        keys.add(transform.doFinal(encryptedKey));
+                    }
+
+                    return keys;
+                }
+            }));
+        }
+
+        return Futures.transform(Futures.allAsList(futures), new Function<List<List<byte[]>>, List<byte[]>>() {
+
+            @Override
+            public List<byte[]> apply(List<List<byte[]>> slices) {
+                List<byte[]> keys = new ArrayList<byte[]>(count);
+
+                for (List<byte[]> slice : slices) {
+                    keys.addAll(slice);
+                }
+
+                return keys;
+            }
+        });
     }
 
     @Override
@@ -250,13 +384,15 @@ public class RsaKey implements IKey {
         
         Rs256 algo = (Rs256)baseAlgorithm;
 
-        ISignatureTransform signer = algo.createSignatureTransform(_keyPair);
-        
-        try {
-			return Futures.immediateFuture(Pair.of(signer.sign(digest), Rs256.ALGORITHM_NAME));
-		} catch (Exception e) {
-			return Futures.immediateFailedFuture(e);
-		}
+        final ISignatureTransform signer = algo.createSignatureTransform(_keyPair);
+
+        return submit(new Callable<Pair<byte[], String>>() {
+
+            @Override
+            public Pair<byte[], String> call() throws Exception {
+                return Pair.of(signer.sign(digest), Rs256.ALGORITHM_NAME);
+            }
+        });
     }
 
     @Override
@@ -291,7 +427,20 @@ public class RsaKey implements IKey {
 
     @Override
     public void close() throws IOException {
-        // Intentionally empty
+        // Intentionally empty, the executor is not owned by the key
+    }
+
+    private <V> ListenableFuture<V> submit(Callable<V> operation) {
+
+        ListenableFutureTask<V> task = ListenableFutureTask.create(operation);
+
+        try {
+            _executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+
+        return task;
     }
 
 }
@@ -104,4 +104,173 @@ public abstract class SymmetricEncryptionAlgorithm extends EncryptionAlgorithm {
      */
     public abstract ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException;
 
+    /**
+     * Derives the keys the algorithm uses from the key material. The result can be
+     * passed to the transform factories taking an {@link IDerivedKey} any number of
+     * times, which saves deriving the keys again for every transform.
+     * The default implementation keeps a copy of the key material, which the default
+     * transform factories pass to the factories taking the key material.
+     * @param key
+     * 			The key material to be used.
+     * @return The derived key.
+     * @throws InvalidKeyException
+     */
+    public IDerivedKey DeriveKey(byte[] key) throws InvalidKeyException {
+
+        if (key == null) {
+            throw new IllegalArgumentException("key");
+        }
+
+        return new RawDerivedKey(getName(), key);
+    }
+
+    /**
+     * Creates a {@link com.microsoft.azure.keyvault.cryptography.ICryptoTransform} implementation for encryption
+     * using a key derived by {@link #DeriveKey(byte[])}, the supplied initialization vector and the specific provider for the Java Security API.
+     * @param key
+     * 			The derived key to be used.
+     * @param iv
+     * 			The initialization vector to be used.
+     * @param authenticationData
+     * 			The authentication data to be used with authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param provider
+     * 			The provider to use.
+     * @return A {@link com.microsoft.azure.keyvault.cryptography.ICryptoTransform} implementation
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public ICryptoTransform CreateEncryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateEncryptor(getRawKey(key), iv, authenticationData, provider);
+    }
+
+    /**
+     * Creates a {@link com.microsoft.azure.keyvault.cryptography.ICryptoTransform} implementation for decryption
+     * using a key derived by {@link #DeriveKey(byte[])}, the supplied initialization vector and the specific provider for the Java Security API.
+     * @param key
+     * 			The derived key to be used.
+     * @param iv
+     * 			The initialization vector to be used.
+     * @param authenticationData
+     * 			The authentication data to be used with authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param authenticationTag
+     *          The authentication tag to verify when using authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param provider
+     * 			The provider to use.
+     * @return A {@link com.microsoft.azure.keyvault.cryptography.ICryptoTransform} implementation
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public ICryptoTransform CreateDecryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateDecryptor(getRawKey(key), iv, authenticationData, authenticationTag, provider);
+    }
+
+    /**
+     * Creates a {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation for encryption
+     * using the supplied initialization vector and the specific provider for the Java Security API.
+     * Derives the keys with {@link #DeriveKey(byte[])} and uses the factory taking the derived key.
+     * @param key
+     * 			The key material to be used.
+     * @param iv
+     * 			The initialization vector to be used.
+     * @param authenticationData
+     * 			The authentication data to be used with authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param provider
+     * 			The provider to use.
+     * @return A {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public IStreamingCryptoTransform CreateStreamingEncryptor(byte[] key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateStreamingEncryptor(DeriveKey(key), iv, authenticationData, provider);
+    }
+
+    /**
+     * Creates a {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation for decryption
+     * using the supplied initialization vector and the specific provider for the Java Security API.
+     * Derives the keys with {@link #DeriveKey(byte[])} and uses the factory taking the derived key.
+     * @param key
+     * 			The key material to be used.
+     * @param iv
+     * 			The initialization vector to be used.
+     * @param authenticationData
+     * 			The authentication data to be used with authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param authenticationTag
+     *          The authentication tag to verify when using authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param provider
+     * 			The provider to use.
+     * @return A {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public IStreamingCryptoTransform CreateStreamingDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateStreamingDecryptor(DeriveKey(key), iv, authenticationData, authenticationTag, provider);
+    }
+
+    /**
+     * Creates a {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation for encryption
+     * using a key derived by {@link #DeriveKey(byte[])}, the supplied initialization vector and the specific provider for the Java Security API.
+     * The default implementation collects the input and encrypts it with the transform of
+     * {@link #CreateEncryptor(IDerivedKey, byte[], byte[], Provider)} when finished; algorithms that can
+     * encrypt incrementally override it.
+     * @param key
+     * 			The derived key to be used.
+     * @param iv
+     * 			The initialization vector to be used.
+     * @param authenticationData
+     * 			The authentication data to be used with authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param provider
+     * 			The provider to use.
+     * @return A {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public IStreamingCryptoTransform CreateStreamingEncryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return new BufferingCryptoTransform(CreateEncryptor(key, iv, authenticationData, provider));
+    }
+
+    /**
+     * Creates a {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation for decryption
+     * using a key derived by {@link #DeriveKey(byte[])}, the supplied initialization vector and the specific provider for the Java Security API.
+     * The default implementation collects the input and decrypts it with the transform of
+     * {@link #CreateDecryptor(IDerivedKey, byte[], byte[], byte[], Provider)} when finished;
+     * algorithms that can decrypt incrementally override it.
+     * @param key
+     * 			The derived key to be used.
+     * @param iv
+     * 			The initialization vector to be used.
+     * @param authenticationData
+     * 			The authentication data to be used with authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param authenticationTag
+     *          The authentication tag to verify when using authenticating encryption algorithms (ignored for non-authenticating algorithms)
+     * @param provider
+     * 			The provider to use.
+     * @return A {@link com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform} implementation
+     * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public IStreamingCryptoTransform CreateStreamingDecryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return new BufferingCryptoTransform(CreateDecryptor(key, iv, authenticationData, authenticationTag, provider));
+    }
+
+    private byte[] getRawKey(IDerivedKey key) throws InvalidKeyException {
+
+        if (!(key instanceof RawDerivedKey) || !getName().equals(key.getAlgorithm())) {
+            throw new InvalidKeyException("key was not derived by " + getName());
+        }
+
+        return ((RawDerivedKey) key).getKey();
+    }
+
 }
@@ -7,10 +7,18 @@
 package com.microsoft.azure.keyvault.cryptography;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.SecureRandom;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.NoSuchPaddingException;
 
 import org.apache.commons.lang3.NotImplementedException;
 import org.apache.commons.lang3.tuple.Pair;
@@ -48,6 +56,9 @@ public class SymmetricKey implements IKey {
     private final String   _kid;
     private final byte[]   _key;
     private final Provider _provider;
+
+    // The keys derived for each encryption algorithm used with this key
+    private final ConcurrentMap<String, IDerivedKey> _derivedKeys = new ConcurrentHashMap<String, IDerivedKey>();
     
     /**
      * Creates a SymmetricKey with a random key identifier and
@@ -234,7 +245,7 @@ public class SymmetricKey implements IKey {
         ICryptoTransform transform = null;
 
         try {
-            transform = algo.CreateDecryptor(_key, iv, authenticationData, authenticationTag, _provider );
+            transform = algo.CreateDecryptor(getDerivedKey(algo), iv, authenticationData, authenticationTag, _provider );
         } catch (Exception e) {
             return Futures.immediateFailedFuture(e);
         }
@@ -274,7 +285,7 @@ public class SymmetricKey implements IKey {
         ICryptoTransform transform = null;
 
         try {
-            transform = algo.CreateEncryptor(_key, iv, authenticationData, _provider);
+            transform = algo.CreateEncryptor(getDerivedKey(algo), iv, authenticationData, _provider);
         } catch (Exception e) {
             return Futures.immediateFailedFuture(e);
         }
@@ -373,6 +384,195 @@ public class SymmetricKey implements IKey {
         return Futures.immediateFuture(decrypted);
     }
 
+    /**
+     * Returns a stream that encrypts the data read from the specified stream.
+     * The authentication tag of authenticating algorithms is available from
+     * the returned stream once it was read to the end.
+     * @param plaintext
+     *      The stream to encrypt.
+     * @param iv
+     *      The initialization vector.
+     * @param authenticationData
+     *      The authentication data to use with authenticating algorithms.
+     * @param algorithm
+     *      The encryption algorithm to use (optional, null for the default).
+     * @return A stream of the cipher text.
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeyException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public CryptoInputStream encryptStream(final InputStream plaintext, final byte[] iv, final byte[] authenticationData, final String algorithm) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+        if (plaintext == null) {
+            throw new IllegalArgumentException("plaintext");
+        }
+
+        if (iv == null) {
+            throw new IllegalArgumentException("iv");
+        }
+
+        String algorithmName = (Strings.isNullOrWhiteSpace(algorithm)) ? getDefaultEncryptionAlgorithm() : algorithm;
+
+        return new CryptoInputStream(plaintext, createStreamingEncryptor(algorithmName, iv, authenticationData));
+    }
+
+    /**
+     * Returns a stream that decrypts the data read from the specified stream.
+     * Authenticating algorithms verify the authentication tag at the end of
+     * the stream; the plain text returned before must be discarded if the
+     * data is not authentic.
+     * @param ciphertext
+     *      The stream to decrypt.
+     * @param iv
+     *      The initialization vector.
+     * @param authenticationData
+     *      The authentication data to use with authenticating algorithms.
+     * @param authenticationTag
+     *      The authentication tag to verify with authenticating algorithms.
+     * @param algorithm
+     *      The encryption algorithm to use.
+     * @return A stream of the plain text.
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeyException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public CryptoInputStream decryptStream(final InputStream ciphertext, final byte[] iv, final byte[] authenticationData, final byte[] authenticationTag, final String algorithm) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+        if (Strings.isNullOrWhiteSpace(algorithm)) {
+            throw new IllegalArgumentException("algorithm");
+        }
+
+        if (ciphertext == null) {
+            throw new IllegalArgumentException("ciphertext");
+        }
+
+        if (iv == null) {
+            throw new IllegalArgumentException("iv");
+        }
+
+        return new CryptoInputStream(ciphertext, createStreamingDecryptor(algorithm, iv, authenticationData, authenticationTag));
+    }
+
+    /**
+     * Returns a channel that encrypts the data written to it into the specified
+     * channel. The authentication tag of authenticating algorithms is available
+     * from the returned channel once it was closed.
+     * @param ciphertext
+     *      The channel to write the cipher text to.
+     * @param iv
+     *      The initialization vector.
+     * @param authenticationData
+     *      The authentication data to use with authenticating algorithms.
+     * @param algorithm
+     *      The encryption algorithm to use (optional, null for the default).
+     * @return A channel accepting the plain text.
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeyException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public CryptoWritableByteChannel encryptChannel(final WritableByteChannel ciphertext, final byte[] iv, final byte[] authenticationData, final String algorithm) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+        if (ciphertext == null) {
+            throw new IllegalArgumentException("ciphertext");
+        }
+
+        if (iv == null) {
+            throw new IllegalArgumentException("iv");
+        }
+
+        String algorithmName = (Strings.isNullOrWhiteSpace(algorithm)) ? getDefaultEncryptionAlgorithm() : algorithm;
+
+        return new CryptoWritableByteChannel(ciphertext, createStreamingEncryptor(algorithmName, iv, authenticationData));
+    }
+
+    /**
+     * Returns a channel that decrypts the data written to it into the specified
+     * channel. Authenticating algorithms verify the authentication tag when the
+     * returned channel is closed; the plain text written before must be
+     * discarded if the data is not authentic.
+     * @param plaintext
+     *      The channel to write the plain text to.
+     * @param iv
+     *      The initialization vector.
+     * @param authenticationData
+     *      The authentication data to use with authenticating algorithms.
+     * @param authenticationTag
+     *      The authentication tag to verify with authenticating algorithms.
+     * @param algorithm
+     *      The encryption algorithm to use.
+     * @return A channel accepting the cipher text.
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeyException
+     * @throws NoSuchPaddingException
+     * @throws InvalidAlgorithmParameterException
+     */
+    public CryptoWritableByteChannel decryptChannel(final WritableByteChannel plaintext, final byte[] iv, final byte[] authenticationData, final byte[] authenticationTag, final String algorithm) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+        if (Strings.isNullOrWhiteSpace(algorithm)) {
+            throw new IllegalArgumentException("algorithm");
+        }
+
+        if (plaintext == null) {
+            throw new IllegalArgumentException("plaintext");
+        }
+
+        if (iv == null) {
+            throw new IllegalArgumentException("iv");
+        }
+
+        return new CryptoWritableByteChannel(plaintext, createStreamingDecryptor(algorithm, iv, authenticationData, authenticationTag));
+    }
+
+    private IStreamingCryptoTransform createStreamingEncryptor(String algorithm, byte[] iv, byte[] authenticationData) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+        SymmetricEncryptionAlgorithm algo = getSymmetricEncryptionAlgorithm(algorithm);
+
+        // Use the same derived keys as encryptAsync
+        return algo.CreateStreamingEncryptor(getDerivedKey(algo), iv, authenticationData, _provider);
+    }
+
+    private IStreamingCryptoTransform createStreamingDecryptor(String algorithm, byte[] iv, byte[] authenticationData, byte[] authenticationTag) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+        SymmetricEncryptionAlgorithm algo = getSymmetricEncryptionAlgorithm(algorithm);
+
+        // Use the same derived keys as decryptAsync
+        return algo.CreateStreamingDecryptor(getDerivedKey(algo), iv, authenticationData, authenticationTag, _provider);
+    }
+
+    private IDerivedKey getDerivedKey(SymmetricEncryptionAlgorithm algorithm) throws InvalidKeyException {
+
+        // Derive the keys on first use of an algorithm only, the key material
+        // does not change
+        IDerivedKey derivedKey = _derivedKeys.get(algorithm.getName());
+
+        if (derivedKey == null) {
+            derivedKey = algorithm.DeriveKey(_key);
+
+            IDerivedKey existing = _derivedKeys.putIfAbsent(algorithm.getName(), derivedKey);
+
+            if (existing != null) {
+                derivedKey = existing;
+            }
+        }
+
+        return derivedKey;
+    }
+
+    private static SymmetricEncryptionAlgorithm getSymmetricEncryptionAlgorithm(String algorithm) throws NoSuchAlgorithmException {
+
+        // Interpret the algorithm
+        Algorithm baseAlgorithm = AlgorithmResolver.Default.get(algorithm);
+
+        if (baseAlgorithm == null || !(baseAlgorithm instanceof SymmetricEncryptionAlgorithm)) {
+            throw new NoSuchAlgorithmException(algorithm);
+        }
+
+        return (SymmetricEncryptionAlgorithm)baseAlgorithm;
+    }
+
     @Override
     public ListenableFuture<Pair<byte[], String>> signAsync(final byte[] digest, final String algorithm) {
         return Futures.immediateFailedFuture(new NotImplementedException("signAsync is not currently supported"));
@@ -6,67 +6,153 @@
 
 package com.microsoft.azure.keyvault.cryptography.algorithms;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
-import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import com.microsoft.azure.keyvault.cryptography.ICryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.IDerivedKey;
+import com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform;
 import com.microsoft.azure.keyvault.cryptography.SymmetricEncryptionAlgorithm;
 
 public abstract class AesCbc extends SymmetricEncryptionAlgorithm {
 
     final int keySizeInBytes;
     final int keySize;
-    static class AesCbcDecryptor implements ICryptoTransform {
+    static final String AES_CBC = "AES/CBC/PKCS5Padding";
 
-        private final Cipher _cipher;
+    /**
+     * The AES key taken from the leading bytes of the key material.
+     */
+    static final class AesCbcKey implements IDerivedKey {
 
-        AesCbcDecryptor(byte[] key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+        private final String        _algorithm;
+        private final SecretKeySpec _key;
 
-            // Create the cipher using the Provider if specified
-            if (provider == null) {
-                _cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            } else {
-                _cipher = Cipher.getInstance("AES/CBC/PKCS5Padding", provider);
-            }
+        AesCbcKey(String algorithm, SecretKeySpec key) {
+            _algorithm = algorithm;
+            _key       = key;
+        }
 
-            _cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        @Override
+        public String getAlgorithm() {
+            return _algorithm;
+        }
+    }
+
+    abstract static class AesCbcTransform implements ICryptoTransform {
+
+        private final int             _mode;
+        private final SecretKeySpec   _key;
+        private final IvParameterSpec _iv;
+        private final Provider        _provider;
+
+        AesCbcTransform(int mode, SecretKeySpec key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+
+            _mode     = mode;
+            _key      = key;
+            _iv       = new IvParameterSpec(iv);
+            _provider = provider;
+
+            // Initialize the thread's cached cipher now so that bad keys or
+            // parameters are reported when the transform is created
+            init(CipherCache.cipher(AES_CBC, provider));
+        }
+
+        private void init(CipherCache.Slot<Cipher> slot) throws InvalidKeyException, InvalidAlgorithmParameterException {
+            slot.release();
+            slot.instance.init(_mode, _key, _iv);
+            slot.own(this);
         }
 
         @Override
-        public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException {
-            return _cipher.doFinal(plaintext);
+        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            // The transform may be used on another thread or after another
+            // transform re-initialized the cached cipher
+            CipherCache.Slot<Cipher> slot;
+
+            try {
+                slot = CipherCache.cipher(AES_CBC, _provider);
+
+                if (!slot.isOwnedBy(this)) {
+                    init(slot);
+                }
+            } catch (NoSuchPaddingException e) {
+                throw new NoSuchAlgorithmException(AES_CBC, e);
+            } catch (InvalidAlgorithmParameterException e) {
+                throw new InvalidKeyException(e);
+            }
+
+            // Drop the ownership while the cipher is in use so that a failure
+            // forces the next call to initialize it again
+            slot.release();
+            byte[] output = slot.instance.doFinal(input);
+            slot.own(this);
+
+            return output;
+        }
+    }
+
+    static class AesCbcDecryptor extends AesCbcTransform {
+
+        AesCbcDecryptor(SecretKeySpec key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+            super(Cipher.DECRYPT_MODE, key, iv, provider);
+        }
+    }
+
+    static class AesCbcEncryptor extends AesCbcTransform {
+
+        AesCbcEncryptor(SecretKeySpec key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+            super(Cipher.ENCRYPT_MODE, key, iv, provider);
         }
     }
 
-    static class AesCbcEncryptor implements ICryptoTransform {
+    static class AesCbcStreamingTransform implements IStreamingCryptoTransform {
 
         private final Cipher _cipher;
 
-        AesCbcEncryptor(byte[] key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+        AesCbcStreamingTransform(int mode, SecretKeySpec key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
 
-            // Create the cipher using the Provider if specified
+            // The cipher state lives across calls, so a streaming transform
+            // owns its cipher instead of borrowing the thread's cached one
             if (provider == null) {
-                _cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+                _cipher = Cipher.getInstance(AES_CBC);
             } else {
-                _cipher = Cipher.getInstance("AES/CBC/PKCS5Padding", provider);
+                _cipher = Cipher.getInstance(AES_CBC, provider);
             }
 
-            _cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+            _cipher.init(mode, key, new IvParameterSpec(iv));
+        }
+
+        @Override
+        public int getOutputSize(int inputLength) {
+            return _cipher.getOutputSize(inputLength);
+        }
+
+        @Override
+        public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+            return _cipher.update(input, output);
         }
 
         @Override
-        public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException {
-            return _cipher.doFinal(plaintext);
+        public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+            return _cipher.doFinal(input, output);
+        }
+
+        @Override
+        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException {
+            return _cipher.doFinal(input);
         }
     }
 
@@ -77,42 +163,61 @@ public abstract class AesCbc extends SymmetricEncryptionAlgorithm {
     }
 
     @Override
-    public ICryptoTransform CreateEncryptor(byte[] key, byte[] iv, byte[] authenticationData) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
-        
+    public IDerivedKey DeriveKey(byte[] key) throws InvalidKeyException {
+
         if (key == null || key.length < keySizeInBytes) {
             throw new InvalidKeyException("key must be at least " + keySize + " bits in length");
         }
-        
-        return new AesCbcEncryptor(Arrays.copyOfRange(key, 0, keySizeInBytes), iv, null);
+
+        return new AesCbcKey(getName(), new SecretKeySpec(key, 0, keySizeInBytes, "AES"));
+    }
+
+    @Override
+    public ICryptoTransform CreateEncryptor(byte[] key, byte[] iv, byte[] authenticationData) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateEncryptor(DeriveKey(key), iv, authenticationData, null);
     }
 
     @Override
     public ICryptoTransform CreateEncryptor(byte[] key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateEncryptor(DeriveKey(key), iv, authenticationData, provider);
+    }
 
-        if (key == null || key.length < keySizeInBytes) {
-            throw new InvalidKeyException("key must be at least " + keySize + " bits in length");
-        }
-        
-        return new AesCbcEncryptor(Arrays.copyOfRange(key, 0, keySizeInBytes), iv, provider);
+    @Override
+    public ICryptoTransform CreateEncryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return new AesCbcEncryptor(getKey(key), iv, provider);
     }
 
     @Override
     public ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
-
-        if (key == null || key.length < keySizeInBytes) {
-            throw new InvalidKeyException("key must be at least " + keySize + " bits in length");
-        }
-        
-        return new AesCbcDecryptor(Arrays.copyOfRange(key, 0, keySizeInBytes), iv, null);
+        return CreateDecryptor(DeriveKey(key), iv, authenticationData, authenticationTag, null);
     }
 
     @Override
     public ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateDecryptor(DeriveKey(key), iv, authenticationData, authenticationTag, provider);
+    }
 
-        if (key == null || key.length < keySizeInBytes) {
-            throw new InvalidKeyException("key must be at least " + keySize + " bits in length");
+    @Override
+    public ICryptoTransform CreateDecryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return new AesCbcDecryptor(getKey(key), iv, provider);
+    }
+
+    @Override
+    public IStreamingCryptoTransform CreateStreamingEncryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return new AesCbcStreamingTransform(Cipher.ENCRYPT_MODE, getKey(key), iv, provider);
+    }
+
+    @Override
+    public IStreamingCryptoTransform CreateStreamingDecryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return new AesCbcStreamingTransform(Cipher.DECRYPT_MODE, getKey(key), iv, provider);
+    }
+
+    private SecretKeySpec getKey(IDerivedKey key) throws InvalidKeyException {
+
+        if (!(key instanceof AesCbcKey) || !getName().equals(key.getAlgorithm())) {
+            throw new InvalidKeyException("key was not derived by " + getName());
         }
-        
-        return new AesCbcDecryptor(Arrays.copyOfRange(key, 0, keySizeInBytes), iv, provider);
+
+        return ((AesCbcKey) key)._key;
     }
 }
@@ -6,57 +6,95 @@
 
 package com.microsoft.azure.keyvault.cryptography.algorithms;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
+import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.apache.commons.lang3.tuple.Triple;
-
 import com.microsoft.azure.keyvault.cryptography.ByteExtensions;
 import com.microsoft.azure.keyvault.cryptography.IAuthenticatedCryptoTransform;
 import com.microsoft.azure.keyvault.cryptography.ICryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.IDerivedKey;
+import com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform;
 import com.microsoft.azure.keyvault.cryptography.SymmetricEncryptionAlgorithm;
 
 public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
 
-    static class AesCbcHmacSha2Decryptor implements IAuthenticatedCryptoTransform {
+    /**
+     * The HMAC and AES keys split from the key material.
+     */
+    static final class AesCbcHmacSha2Key implements IDerivedKey {
 
-        final byte[]           _aad_length;
-        final Mac              _hmac;
-        final byte[]           _hmac_key;
-        final ICryptoTransform _inner;
+        private final String        _algorithm;
+        private final SecretKeySpec _aes_key;
+        private final SecretKeySpec _hmac_key;
+        private final String        _hmac_name;
+        private final int           _tag_length;
 
-        byte[] _tag;
+        AesCbcHmacSha2Key(String algorithm, byte[] key, int keySizeInBytes, String hmacName) {
+
+            _algorithm  = algorithm;
+
+            // The HMAC key precedes the AES key
+            _hmac_key   = new SecretKeySpec(key, 0, keySizeInBytes, hmacName);
+            _aes_key    = new SecretKeySpec(key, keySizeInBytes, keySizeInBytes, "AES");
+            _hmac_name  = hmacName;
+            _tag_length = keySizeInBytes;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return _algorithm;
+        }
+    }
+
+    abstract static class AesCbcHmacSha2Transform implements IAuthenticatedCryptoTransform {
+
+        final byte[]            _aad;
+        final byte[]            _aad_length;
+        final byte[]            _iv;
+        final AesCbcHmacSha2Key _key;
+        final ICryptoTransform  _inner;
 
-        AesCbcHmacSha2Decryptor(String name, byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        byte[] _tag;
 
-            // Split the key to get the AES key, the HMAC key and the HMAC
-            // object
-            Triple<byte[], byte[], Mac> parameters = GetAlgorithmParameters(name, key);
+        AesCbcHmacSha2Transform(AesCbcHmacSha2Key key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, boolean encrypt, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
 
-            // Save the MAC provider and key
-            _hmac     = parameters.getRight();
-            _hmac_key = parameters.getMiddle();
+            _key = key;
 
-            // Create the AES provider
-            _inner    = new AesCbc.AesCbcDecryptor(parameters.getLeft(), iv, provider);
+            // Create the AES transform
+            if (encrypt) {
+                _inner = new AesCbc.AesCbcEncryptor(key._aes_key, iv, provider);
+            } else {
+                _inner = new AesCbc.AesCbcDecryptor(key._aes_key, iv, provider);
+            }
 
+            _aad        = authenticationData;
             _aad_length = toBigEndian(authenticationData.length * 8);
-            
+            _iv         = iv;
+
             // Save the tag
             _tag        = authenticationTag;
 
-            // Prime the hash.
-            _hmac.update(authenticationData);
-            _hmac.update(iv);
+            // Initialize the thread's cached MAC now so that a bad key is
+            // reported when the transform is created
+            init(CipherCache.mac(_key._hmac_name, null));
+        }
+
+        private void init(CipherCache.Slot<Mac> slot) throws InvalidKeyException {
+            slot.release();
+            slot.instance.init(_key._hmac_key);
+            slot.own(this);
         }
 
         @Override
@@ -64,21 +102,67 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
             return _tag;
         }
 
-        @Override
-        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+        /**
+         * Computes the HMAC of the cipher text into the calling thread's scratch
+         * buffer, so that the tag can be copied or compared without allocating
+         * the hash. The buffer is only valid until the next call on the thread.
+         */
+        byte[] computeHash(byte[] ciphertext) throws InvalidKeyException, NoSuchAlgorithmException {
+
+            // The transform may be used on another thread or after another
+            // transform re-initialized the cached MAC
+            CipherCache.Slot<Mac> slot = CipherCache.mac(_key._hmac_name, null);
 
-            // Add the cipher text to the running hash
-            _hmac.update(input);
+            if (!slot.isOwnedBy(this)) {
+                init(slot);
+            }
+
+            Mac hmac = slot.instance;
+
+            if (slot.buffer == null || slot.buffer.length < hmac.getMacLength()) {
+                slot.buffer = new byte[hmac.getMacLength()];
+            }
+
+            // Drop the ownership while the MAC is in use so that a failure
+            // forces the next call to initialize it again
+            slot.release();
+
+            // Prime the hash and add the cipher text to it
+            hmac.update(_aad);
+            hmac.update(_iv);
+            hmac.update(ciphertext);
 
             // Add the associated_data_length bytes to the hash
-            byte[] hash = _hmac.doFinal(_aad_length);
+            hmac.update(_aad_length);
+
+            try {
+                hmac.doFinal(slot.buffer, 0);
+            } catch (ShortBufferException e) {
+                // The buffer is sized by getMacLength
+                throw new IllegalStateException(e);
+            }
+
+            slot.own(this);
+
+            return slot.buffer;
+        }
+    }
 
-            // Compute the new tag
-            byte[] tag = new byte[_hmac_key.length];
-            System.arraycopy(hash, 0, tag, 0, _hmac_key.length);
-            
-            // Check the tag before performing the final decrypt
-            if ( !ByteExtensions.sequenceEqualConstantTime(_tag, tag) ) {
+    static class AesCbcHmacSha2Decryptor extends AesCbcHmacSha2Transform {
+
+        AesCbcHmacSha2Decryptor(AesCbcHmacSha2Key key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+            super(key, iv, authenticationData, authenticationTag, false, provider);
+        }
+
+        @Override
+        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            // Compute the new hash
+            byte[] hash = computeHash(input);
+
+            // Check the tag, which is the leading bytes of the hash, before
+            // performing the final decrypt
+            if ( !ByteExtensions.sequenceEqualConstantTime(_tag, hash, _key._tag_length) ) {
                 throw new IllegalArgumentException("Data is not authentic");
             }
 
@@ -86,26 +170,48 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
         }
     }
 
-    static class AesCbcHmacSha2Encryptor implements IAuthenticatedCryptoTransform {
+    static class AesCbcHmacSha2Encryptor extends AesCbcHmacSha2Transform {
+
+        AesCbcHmacSha2Encryptor(AesCbcHmacSha2Key key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+            super(key, iv, authenticationData, null, true, provider);
+        }
 
-        final byte[]           _aad_length;
-        final Mac              _hmac;
-        final byte[]           _hmac_key;
-        final ICryptoTransform _inner;
+        @Override
+        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            // Encrypt the block
+            byte[] output = _inner.doFinal(input);
+
+            // The tag is the leading bytes of the hash over the cipher text
+            _tag = Arrays.copyOf(computeHash(output), _key._tag_length);
+
+            return output;
+        }
+    }
+
+    /**
+     * Encrypts incrementally, adding the cipher text to the running hash as it
+     * is produced.
+     */
+    static class AesCbcHmacSha2StreamingEncryptor implements IStreamingCryptoTransform, IAuthenticatedCryptoTransform {
+
+        final byte[]                    _aad_length;
+        final Mac                       _hmac;
+        final int                       _tag_length;
+        final IStreamingCryptoTransform _inner;
 
         byte[] _tag;
 
-        AesCbcHmacSha2Encryptor(String name, byte[] key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
-            // Split the key to get the AES key, the HMAC key and the HMAC
-            // object
-            Triple<byte[], byte[], Mac> parameters = GetAlgorithmParameters(name, key);
+        AesCbcHmacSha2StreamingEncryptor(AesCbcHmacSha2Key key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
 
-            // Save the MAC provider and key
-            _hmac = parameters.getRight();
-            _hmac_key = parameters.getMiddle();
+            // The running hash lives across calls, so a streaming transform
+            // owns its MAC instead of borrowing the thread's cached one
+            _hmac       = Mac.getInstance(key._hmac_name);
+            _hmac.init(key._hmac_key);
+            _tag_length = key._tag_length;
 
-            // Create the AES encryptor
-            _inner = new AesCbc.AesCbcEncryptor(parameters.getLeft(), iv, provider);
+            // Create the AES transform
+            _inner = new AesCbc.AesCbcStreamingTransform(Cipher.ENCRYPT_MODE, key._aes_key, iv, provider);
 
             _aad_length = toBigEndian(authenticationData.length * 8);
 
@@ -119,37 +225,160 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
             return _tag;
         }
 
-        // public int TransformBlock( byte[] inputBuffer, int inputOffset, int
-        // inputCount, byte[] outputBuffer, int outputOffset )
-        // {
-        // // Encrypt the block
-        // var result = _inner.TransformBlock( inputBuffer, inputOffset,
-        // inputCount, outputBuffer, outputOffset );
-        //
-        // // Add it to the running hash
-        // _hmac.TransformBlock( outputBuffer, outputOffset, result,
-        // outputBuffer, outputOffset );
-        //
-        // return result;
-        // }
+        @Override
+        public int getOutputSize(int inputLength) {
+            return _inner.getOutputSize(inputLength);
+        }
+
+        @Override
+        public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+
+            // Add the cipher text to the running hash as it is produced
+            int start   = output.position();
+            int written = _inner.update(input, output);
+
+            authenticate(output, start);
+
+            return written;
+        }
+
+        @Override
+        public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            int start   = output.position();
+            int written = _inner.doFinal(input, output);
+
+            authenticate(output, start);
+
+            // Add the associated_data_length bytes to the hash; the tag is the
+            // leading bytes of the hash
+            _tag = Arrays.copyOf(_hmac.doFinal(_aad_length), _tag_length);
+
+            return written;
+        }
 
         @Override
         public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
 
-            // Encrypt the block
-            byte[] output = _inner.doFinal(input);
+            ByteBuffer output = ByteBuffer.allocate(getOutputSize(input.length));
 
-            // Add the cipher text to the running hash
-            _hmac.update(output);
+            try {
+                doFinal(ByteBuffer.wrap(input), output);
+            } catch (ShortBufferException e) {
+                // The output buffer is sized by getOutputSize
+                throw new IllegalStateException(e);
+            }
 
-            // Add the associated_data_length bytes to the hash
+            return Arrays.copyOf(output.array(), output.position());
+        }
+
+        private void authenticate(ByteBuffer output, int start) {
+
+            ByteBuffer ciphertext = output.duplicate();
+
+            ciphertext.limit(output.position());
+            ciphertext.position(start);
+
+            _hmac.update(ciphertext);
+        }
+    }
+
+    /**
+     * Decrypts incrementally, adding the cipher text to the running hash as it
+     * is consumed, and verifies the tag in doFinal.
+     *
+     * A single pass over a stream cannot verify the tag before decrypting, so
+     * the plain text of all but the last block is released before the data is
+     * known to be authentic. doFinal checks the tag before it decrypts the
+     * last block and removes the padding, and throws IllegalArgumentException
+     * if the data is not authentic; callers must then discard all the plain
+     * text produced by the transform.
+     */
+    static class AesCbcHmacSha2StreamingDecryptor implements IStreamingCryptoTransform, IAuthenticatedCryptoTransform {
+
+        final byte[]                    _aad_length;
+        final Mac                       _hmac;
+        final byte[]                    _tag;
+        final int                       _tag_length;
+        final IStreamingCryptoTransform _inner;
+
+        AesCbcHmacSha2StreamingDecryptor(AesCbcHmacSha2Key key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+
+            _hmac       = Mac.getInstance(key._hmac_name);
+            _hmac.init(key._hmac_key);
+            _tag        = authenticationTag.clone();
+            _tag_length = key._tag_length;
+
+            // Create the AES transform
+            _inner = new AesCbc.AesCbcStreamingTransform(Cipher.DECRYPT_MODE, key._aes_key, iv, provider);
+
+            _aad_length = toBigEndian(authenticationData.length * 8);
+
+            // Prime the hash.
+            _hmac.update(authenticationData);
+            _hmac.update(iv);
+        }
+
+        @Override
+        public byte[] getTag() {
+            return _tag;
+        }
+
+        @Override
+        public int getOutputSize(int inputLength) {
+            return _inner.getOutputSize(inputLength);
+        }
+
+        @Override
+        public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+
+            // Add the cipher text to the running hash once the AES transform
+            // has consumed it
+            ByteBuffer ciphertext = input.duplicate();
+            int        written    = _inner.update(input, output);
+
+            ciphertext.limit(input.position());
+            _hmac.update(ciphertext);
+
+            return written;
+        }
+
+        @Override
+        public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            // The hash cannot be resumed once computed, so check the output
+            // buffer first
+            if (output.remaining() < getOutputSize(input.remaining())) {
+                throw new ShortBufferException();
+            }
+
+            _hmac.update(input.duplicate());
+
+            // Add the associated_data_length bytes to the hash, and check the
+            // tag, which is the leading bytes of the hash, before performing
+            // the final decrypt
             byte[] hash = _hmac.doFinal(_aad_length);
 
-            // Compute the tag
-            _tag = new byte[_hmac_key.length];
-            System.arraycopy(hash, 0, _tag, 0, _tag.length);
+            if ( !ByteExtensions.sequenceEqualConstantTime(_tag, hash, _tag_length) ) {
+                throw new IllegalArgumentException("Data is not authentic");
+            }
 
-            return output;
+            return _inner.doFinal(input, output);
+        }
+
+        @Override
+        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            ByteBuffer output = ByteBuffer.allocate(getOutputSize(input.length));
+
+            try {
+                doFinal(ByteBuffer.wrap(input), output);
+            } catch (ShortBufferException e) {
+                // The output buffer is sized by getOutputSize
+                throw new IllegalStateException(e);
+            }
+
+            return Arrays.copyOf(output.array(), output.position());
         }
     }
 
@@ -157,6 +386,37 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
         super(name);
     }
 
+    @Override
+    public IDerivedKey DeriveKey(byte[] key) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("No key material");
+        }
+
+        String algorithm = getName();
+        int    keySize;
+        String hmac;
+
+        if (algorithm.equalsIgnoreCase(Aes128CbcHmacSha256.ALGORITHM_NAME)) {
+            keySize = 128;
+            hmac    = "HmacSHA256";
+        } else if (algorithm.equalsIgnoreCase(Aes192CbcHmacSha384.ALGORITHM_NAME)) {
+            keySize = 192;
+            hmac    = "HmacSHA384";
+        } else if (algorithm.equalsIgnoreCase(Aes256CbcHmacSha512.ALGORITHM_NAME)) {
+            keySize = 256;
+            hmac    = "HmacSHA512";
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported algorithm: %s", algorithm));
+        }
+
+        if ((key.length << 3) < keySize << 1) {
+            throw new IllegalArgumentException(String.format("%s key length in bits %d < %d", algorithm, key.length << 3, keySize << 1));
+        }
+
+        return new AesCbcHmacSha2Key(algorithm, key, keySize >> 3, hmac);
+    }
+
     @Override
     public ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
         return CreateDecryptor(key, iv, authenticationData, authenticationTag, null);
@@ -164,9 +424,11 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
 
     @Override
     public ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
-        if (key == null) {
-            throw new IllegalArgumentException("No key material");
-        }
+        return CreateDecryptor(DeriveKey(key), iv, authenticationData, authenticationTag, provider);
+    }
+
+    @Override
+    public ICryptoTransform CreateDecryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
 
         if (iv == null) {
             throw new IllegalArgumentException("No initialization vector");
@@ -181,7 +443,7 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
         }
 
         // Create the Decryptor
-        return new AesCbcHmacSha2Decryptor(getName(), key, iv, authenticationData, authenticationTag, provider);
+        return new AesCbcHmacSha2Decryptor(getKey(key), iv, authenticationData, authenticationTag, provider);
     }
 
     @Override
@@ -191,10 +453,11 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
 
     @Override
     public ICryptoTransform CreateEncryptor(byte[] key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+        return CreateEncryptor(DeriveKey(key), iv, authenticationData, provider);
+    }
 
-        if (key == null) {
-            throw new IllegalArgumentException("No key material");
-        }
+    @Override
+    public ICryptoTransform CreateEncryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
 
         if (iv == null) {
             throw new IllegalArgumentException("No initialization vector");
@@ -205,73 +468,58 @@ public abstract class AesCbcHmacSha2 extends SymmetricEncryptionAlgorithm {
         }
 
         // Create the Encryptor
-        return new AesCbcHmacSha2Encryptor(getName(), key, iv, authenticationData, provider);
+        return new AesCbcHmacSha2Encryptor(getKey(key), iv, authenticationData, provider);
     }
 
-    private static Triple<byte[], byte[], Mac> GetAlgorithmParameters(String algorithm, byte[] key) throws InvalidKeyException, NoSuchAlgorithmException {
-
-        byte[] aes_key;
-        byte[] hmac_key;
-        Mac hmac;
-
-        if (algorithm.equalsIgnoreCase(Aes128CbcHmacSha256.ALGORITHM_NAME)) {
-            if ((key.length << 3) < 256) {
-                throw new IllegalArgumentException(String.format("%s key length in bits %d < 256", algorithm, key.length << 3));
-            }
-
-            hmac_key = new byte[128 >> 3];
-            aes_key = new byte[128 >> 3];
-
-            // The HMAC key precedes the AES key
-            System.arraycopy(key, 0, hmac_key, 0, 128 >> 3);
-            System.arraycopy(key, 128 >> 3, aes_key, 0, 128 >> 3);
+    @Override
+    public IStreamingCryptoTransform CreateStreamingEncryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
 
-            hmac = Mac.getInstance("HmacSHA256");
-            hmac.init(new SecretKeySpec(hmac_key, "HmacSHA256"));
+        if (iv == null) {
+            throw new IllegalArgumentException("No initialization vector");
+        }
 
-        } else if (algorithm.equalsIgnoreCase(Aes192CbcHmacSha384.ALGORITHM_NAME)) {
+        if (authenticationData == null) {
+            throw new IllegalArgumentException("No authentication data");
+        }
 
-            if ((key.length << 3) < 384) {
-                throw new IllegalArgumentException(String.format("%s key length in bits %d < 384", algorithm, key.length << 3));
-            }
+        return new AesCbcHmacSha2StreamingEncryptor(getKey(key), iv, authenticationData, provider);
+    }
 
-            hmac_key = new byte[192 >> 3];
-            aes_key = new byte[192 >> 3];
+    @Override
+    public IStreamingCryptoTransform CreateStreamingDecryptor(IDerivedKey key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
 
-            // The HMAC key precedes the AES key
-            System.arraycopy(key, 0, hmac_key, 0, 192 >> 3);
-            System.arraycopy(key, 192 >> 3, aes_key, 0, 192 >> 3);
+        if (iv == null) {
+            throw new IllegalArgumentException("No initialization vector");
+        }
 
-            hmac = Mac.getInstance("HmacSHA384");
-            hmac.init(new SecretKeySpec(hmac_key, "HmacSHA384"));
-        } else if (algorithm.equalsIgnoreCase(Aes256CbcHmacSha512.ALGORITHM_NAME)) {
+        if (authenticationData == null) {
+            throw new IllegalArgumentException("No authentication data");
+        }
 
-            if ((key.length << 3) < 512) {
-                throw new IllegalArgumentException(String.format("%s key length in bits %d < 512", algorithm, key.length << 3));
-            }
+        if (authenticationTag == null) {
+            throw new IllegalArgumentException("No authentication tag");
+        }
 
-            hmac_key = new byte[256 >> 3];
-            aes_key = new byte[256 >> 3];
+        return new AesCbcHmacSha2StreamingDecryptor(getKey(key), iv, authenticationData, authenticationTag, provider);
+    }
 
-            // The HMAC key precedes the AES key
-            System.arraycopy(key, 0, hmac_key, 0, 256 >> 3);
-            System.arraycopy(key, 256 >> 3, aes_key, 0, 256 >> 3);
+    private AesCbcHmacSha2Key getKey(IDerivedKey key) throws InvalidKeyException {
 
-            hmac = Mac.getInstance("HmacSHA512");
-            hmac.init(new SecretKeySpec(hmac_key, "HmacSHA512"));
-        } else {
-            throw new IllegalArgumentException(String.format("Unsupported algorithm: %s", algorithm));
+        if (!(key instanceof AesCbcHmacSha2Key) || !getName().equals(key.getAlgorithm())) {
+            throw new InvalidKeyException("key was not derived by " + getName());
         }
 
-        return Triple.of(aes_key, hmac_key, hmac);
+        return (AesCbcHmacSha2Key) key;
     }
 
     static byte[] toBigEndian(long i) {
 
-        byte[] shortRepresentation = BigInteger.valueOf(i).toByteArray();
-        byte[] longRepresentation = new byte[] { 0, 0, 0, 0, 0, 0, 0, 0 };
+        byte[] longRepresentation = new byte[8];
 
-        System.arraycopy(shortRepresentation, 0, longRepresentation, longRepresentation.length - shortRepresentation.length, shortRepresentation.length);
+        for (int index = longRepresentation.length - 1; index >= 0; index--) {
+            longRepresentation[index] = (byte) i;
+            i >>>= 8;
+        }
 
         return longRepresentation;
     }
@@ -26,62 +26,103 @@ public abstract class AesKw extends KeyWrapAlgorithm {
     static final byte[] _defaultIv  = new byte[] { (byte) 0xA6, (byte) 0xA6, (byte) 0xA6, (byte) 0xA6, (byte) 0xA6, (byte) 0xA6, (byte) 0xA6, (byte) 0xA6 };
     static final String _cipherName = "AESWrap";
 
-    class AesKwDecryptor implements ICryptoTransform {
+    abstract static class AesKwTransform implements ICryptoTransform {
 
-        final Cipher _cipher;
+        private final int             _mode;
+        private final SecretKeySpec   _key;
+        private final IvParameterSpec _iv;
+        private final Provider        _provider;
 
-        AesKwDecryptor(byte[] key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+        AesKwTransform(int mode, byte[] key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
 
-            if (provider == null) {
-                _cipher = Cipher.getInstance(_cipherName);
-            } else {
-                _cipher = Cipher.getInstance(_cipherName, provider);
-            }
+            _mode     = mode;
+            _key      = new SecretKeySpec(key, "AES");
+            _iv       = new IvParameterSpec(iv);
+            _provider = provider;
+
+            // Initialize the thread's cached cipher now so that bad keys or
+            // parameters are reported when the transform is created
+            init(CipherCache.cipher(_cipherName, provider));
+        }
+
+        private void init(CipherCache.Slot<Cipher> slot) throws InvalidKeyException, InvalidAlgorithmParameterException {
+
+            slot.release();
 
             // The default provider does not support the specification of IV. This
             // is guarded by the CreateEncrypter wrapper method and the iv parameter
             // can be ignored when using the default provider 
-            if (provider == null ) {
-                _cipher.init(Cipher.UNWRAP_MODE, new SecretKeySpec(key, "AES"));
+            if (_provider == null) {
+                slot.instance.init(_mode, _key);
             } else {
-                _cipher.init(Cipher.UNWRAP_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+                slot.instance.init(_mode, _key, _iv);
+            }
+
+            slot.own(this);
+        }
+
+        CipherCache.Slot<Cipher> acquire() throws InvalidKeyException, NoSuchAlgorithmException {
+
+            // The transform may be used on another thread or after another
+            // transform re-initialized the cached cipher
+            CipherCache.Slot<Cipher> slot;
+
+            try {
+                slot = CipherCache.cipher(_cipherName, _provider);
+
+                if (!slot.isOwnedBy(this)) {
+                    init(slot);
+                }
+            } catch (NoSuchPaddingException e) {
+                throw new NoSuchAlgorithmException(_cipherName, e);
+            } catch (InvalidAlgorithmParameterException e) {
+                throw new InvalidKeyException(e);
             }
+
+            return slot;
+        }
+    }
+
+    static class AesKwDecryptor extends AesKwTransform {
+
+        AesKwDecryptor(byte[] key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
+            super(Cipher.UNWRAP_MODE, key, iv, provider);
         }
 
         @Override
         public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
 
-            return _cipher.unwrap(plaintext, "AESWrap", Cipher.SECRET_KEY).getEncoded();
+            CipherCache.Slot<Cipher> slot = acquire();
+
+            // Drop the ownership while the cipher is in use so that a failure
+            // forces the next call to initialize it again
+            slot.release();
+            byte[] key = slot.instance.unwrap(plaintext, "AESWrap", Cipher.SECRET_KEY).getEncoded();
+            slot.own(this);
+
+            return key;
         }
 
     }
 
-    class AesKwEncryptor implements ICryptoTransform {
-
-        final Cipher _cipher;
+    static class AesKwEncryptor extends AesKwTransform {
 
         AesKwEncryptor(byte[] key, byte[] iv, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
-
-            if (provider == null) {
-                _cipher = Cipher.getInstance(_cipherName);
-            } else {
-                _cipher = Cipher.getInstance(_cipherName, provider);
-            }
-
-            // The default provider does not support the specification of IV. This
-            // is guarded by the CreateEncrypter wrapper method and the iv parameter
-            // can be ignored when using the default provider 
-            if (provider == null ) {
-                _cipher.init(Cipher.WRAP_MODE, new SecretKeySpec(key, "AES"));
-            } else {
-                _cipher.init(Cipher.WRAP_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
-            }
+            super(Cipher.WRAP_MODE, key, iv, provider);
         }
 
         @Override
-        public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            CipherCache.Slot<Cipher> slot = acquire();
+
+            // Drop the ownership while the cipher is in use so that a failure
+            // forces the next call to initialize it again
+            slot.release();
+            byte[] wrapped = slot.instance.wrap(new SecretKeySpec(plaintext, "AES"));
+            slot.own(this);
 
-            return _cipher.wrap(new SecretKeySpec(plaintext, "AES"));
+            return wrapped;
         }
 
     }
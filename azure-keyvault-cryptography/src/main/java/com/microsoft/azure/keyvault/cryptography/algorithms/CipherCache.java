@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.cryptography.algorithms;
+
+import java.lang.ref.WeakReference;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+/**
+ * Per-thread cache of {@link Cipher} and {@link Mac} instances keyed by
+ * (algorithm, provider).
+ *
+ * Looking up a JCA implementation through the provider framework is far more
+ * expensive than initializing an existing instance, so the transforms in this
+ * package borrow their instances from here. Every thread owns its own instances
+ * and a borrowed instance is only used within a single call on the borrowing
+ * thread, so no cipher state is ever shared across threads. Each slot remembers
+ * the transform that last initialized it, which lets a transform skip
+ * re-initialization when nothing else used the instance in between.
+ */
+final class CipherCache {
+
+    /**
+     * A cached instance, the transform that last initialized it and a scratch
+     * buffer for the instance's output.
+     *
+     * The owner is only held weakly: the slots live as long as their thread,
+     * which must not keep transforms, and the keys they hold, reachable.
+     */
+    static final class Slot<T> {
+
+        final T instance;
+        byte[]  buffer;
+
+        private WeakReference<Object> _owner;
+        private boolean               _owned;
+
+        Slot(T instance) {
+            this.instance = instance;
+        }
+
+        /**
+         * @return Whether the transform initialized the instance and nothing used it since.
+         */
+        boolean isOwnedBy(Object transform) {
+            return _owned && _owner.get() == transform;
+        }
+
+        /**
+         * Records the transform that initialized the instance or finished using it.
+         */
+        void own(Object transform) {
+            if (_owner == null || _owner.get() != transform) {
+                _owner = new WeakReference<Object>(transform);
+            }
+            _owned = true;
+        }
+
+        /**
+         * Drops the ownership, so that the next transform initializes the instance again.
+         */
+        void release() {
+            _owned = false;
+        }
+    }
+
+    private static final class Key {
+
+        final String   _algorithm;
+        final Provider _provider;
+
+        Key(String algorithm, Provider provider) {
+            _algorithm = algorithm;
+            _provider  = provider;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _algorithm.equals(other._algorithm) && _provider == other._provider;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * _algorithm.hashCode() + System.identityHashCode(_provider);
+        }
+    }
+
+    private static final ThreadLocal<Map<Key, Slot<Cipher>>> _ciphers = new ThreadLocal<Map<Key, Slot<Cipher>>>() {
+        @Override
+        protected Map<Key, Slot<Cipher>> initialValue() {
+            return new HashMap<Key, Slot<Cipher>>();
+        }
+    };
+
+    private static final ThreadLocal<Map<Key, Slot<Mac>>> _macs = new ThreadLocal<Map<Key, Slot<Mac>>>() {
+        @Override
+        protected Map<Key, Slot<Mac>> initialValue() {
+            return new HashMap<Key, Slot<Mac>>();
+        }
+    };
+
+    private CipherCache() {
+    }
+
+    /**
+     * Returns the calling thread's cipher for a transformation, creating it on first use.
+     *
+     * @param transformation The cipher transformation, e.g. AES/CBC/PKCS5Padding.
+     * @param provider The provider to use or null for the default provider.
+     * @return The cached cipher slot.
+     * @throws NoSuchAlgorithmException
+     * @throws NoSuchPaddingException
+     */
+    static Slot<Cipher> cipher(String transformation, Provider provider) throws NoSuchAlgorithmException, NoSuchPaddingException {
+
+        Map<Key, Slot<Cipher>> ciphers = _ciphers.get();
+        Key                    key     = new Key(transformation, provider);
+        Slot<Cipher>           slot    = ciphers.get(key);
+
+        if (slot == null) {
+            if (provider == null) {
+                slot = new Slot<Cipher>(Cipher.getInstance(transformation));
+            } else {
+                slot = new Slot<Cipher>(Cipher.getInstance(transformation, provider));
+            }
+            ciphers.put(key, slot);
+        }
+
+        return slot;
+    }
+
+    /**
+     * Returns the calling thread's MAC for an algorithm, creating it on first use.
+     *
+     * @param algorithm The MAC algorithm, e.g. HmacSHA256.
+     * @param provider The provider to use or null for the default provider.
+     * @return The cached MAC slot.
+     * @throws NoSuchAlgorithmException
+     */
+    static Slot<Mac> mac(String algorithm, Provider provider) throws NoSuchAlgorithmException {
+
+        Map<Key, Slot<Mac>> macs = _macs.get();
+        Key                 key  = new Key(algorithm, provider);
+        Slot<Mac>           slot = macs.get(key);
+
+        if (slot == null) {
+            if (provider == null) {
+                slot = new Slot<Mac>(Mac.getInstance(algorithm));
+            } else {
+                slot = new Slot<Mac>(Mac.getInstance(algorithm, provider));
+            }
+            macs.put(key, slot);
+        }
+
+        return slot;
+    }
+}
@@ -6,10 +6,73 @@
 
 package com.microsoft.azure.keyvault.cryptography.algorithms;
 
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+
 import com.microsoft.azure.keyvault.cryptography.AsymmetricEncryptionAlgorithm;
+import com.microsoft.azure.keyvault.cryptography.ICryptoTransform;
 
 public abstract class RsaEncryption extends AsymmetricEncryptionAlgorithm {
 
+    abstract static class RsaTransform implements ICryptoTransform {
+
+        private final String   _transformation;
+        private final int      _mode;
+        private final Key      _key;
+        private final Provider _provider;
+
+        RsaTransform(String transformation, int mode, Key key, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException {
+
+            _transformation = transformation;
+            _mode           = mode;
+            _key            = key;
+            _provider       = provider;
+
+            // Initialize the thread's cached cipher now so that a bad key is
+            // reported when the transform is created
+            init(CipherCache.cipher(transformation, provider));
+        }
+
+        private void init(CipherCache.Slot<Cipher> slot) throws InvalidKeyException {
+            slot.release();
+            slot.instance.init(_mode, _key);
+            slot.own(this);
+        }
+
+        @Override
+        public byte[] doFinal(byte[] input) throws IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+
+            // The transform may be used on another thread or after another
+            // transform re-initialized the cached cipher
+            CipherCache.Slot<Cipher> slot;
+
+            try {
+                slot = CipherCache.cipher(_transformation, _provider);
+            } catch (NoSuchPaddingException e) {
+                throw new NoSuchAlgorithmException(_transformation, e);
+            }
+
+            if (!slot.isOwnedBy(this)) {
+                init(slot);
+            }
+
+            // Drop the ownership while the cipher is in use so that a failure
+            // forces the next call to initialize it again
+            slot.release();
+            byte[] output = slot.instance.doFinal(input);
+            slot.own(this);
+
+            return output;
+        }
+    }
+
     protected RsaEncryption(String name) {
         super(name);
     }
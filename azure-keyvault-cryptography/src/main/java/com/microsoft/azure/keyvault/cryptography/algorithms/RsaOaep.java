@@ -11,61 +11,29 @@ import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 
-import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 
 import com.microsoft.azure.keyvault.cryptography.ICryptoTransform;
 
 public final class RsaOaep extends RsaEncryption {
 
-    class RsaOaepDecryptor implements ICryptoTransform {
-
-        private final Cipher _cipher;
+    static class RsaOaepDecryptor extends RsaTransform {
 
         RsaOaepDecryptor(KeyPair keyPair, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException {
 
-            // Create a cipher object using the provider, if specified
-            if (provider == null) {
-                _cipher = Cipher.getInstance(RSAOAEP);
-            } else {
-                _cipher = Cipher.getInstance(RSAOAEP, provider);
-            }
-
-            // encrypt the plain text using the public key
-            _cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
-        }
-
-        @Override
-        public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException {
-
-            return _cipher.doFinal(plaintext);
+            // decrypt the cipher text using the private key
+            super(RSAOAEP, Cipher.DECRYPT_MODE, keyPair.getPrivate(), provider);
         }
 
     }
 
-    class RsaOaepEncryptor implements ICryptoTransform {
-
-        private final Cipher _cipher;
+    static class RsaOaepEncryptor extends RsaTransform {
 
         RsaOaepEncryptor(KeyPair keyPair, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException {
 
-            // Create a cipher object using the provider, if specified
-            if (provider == null) {
-                _cipher = Cipher.getInstance(RSAOAEP);
-            } else {
-                _cipher = Cipher.getInstance(RSAOAEP, provider);
-            }
-
             // encrypt the plain text using the public key
-            _cipher.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
-        }
-
-        @Override
-        public byte[] doFinal(byte[] plaintext) throws IllegalBlockSizeException, BadPaddingException {
-
-            return _cipher.doFinal(plaintext);
+            super(RSAOAEP, Cipher.ENCRYPT_MODE, keyPair.getPublic(), provider);
         }
 
     }
@@ -1,8 +1,12 @@
 package com.microsoft.azure.keyvault.cryptography.test;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
 import java.security.Provider;
 
 import org.junit.After;
@@ -12,6 +16,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.microsoft.azure.keyvault.cryptography.IAuthenticatedCryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.IDerivedKey;
+import com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform;
 import com.microsoft.azure.keyvault.cryptography.algorithms.Aes128CbcHmacSha256;
 import com.microsoft.azure.keyvault.cryptography.algorithms.Aes192CbcHmacSha384;
 import com.microsoft.azure.keyvault.cryptography.algorithms.Aes256CbcHmacSha512;
@@ -264,4 +270,100 @@ public class AesCbcHmacShaTest {
         assertArrayEquals(P, decrypted);
         assertArrayEquals(T, tag);
     }
+
+    @Test
+    public void testAes128CbcHmacSha256DerivedKey() throws Exception {
+        byte[] K  = new byte[32];
+        byte[] P  = "A derived key is reusable across transforms".getBytes("UTF-8");
+        byte[] IV = new byte[16];
+        byte[] A  = new byte[8];
+
+        for (int i = 0; i < K.length; i++) {
+            K[i] = (byte) i;
+        }
+
+        Aes128CbcHmacSha256 algo       = new Aes128CbcHmacSha256();
+        IDerivedKey         derivedKey = algo.DeriveKey(K);
+
+        // Transforms created from the derived key match those created from the key material
+        IAuthenticatedCryptoTransform encryptor = (IAuthenticatedCryptoTransform) algo.CreateEncryptor(K, IV, A, _provider);
+        byte[] E = encryptor.doFinal(P);
+        byte[] T = encryptor.getTag();
+
+        for (int i = 0; i < 3; i++) {
+            IAuthenticatedCryptoTransform transform = (IAuthenticatedCryptoTransform) algo.CreateEncryptor(derivedKey, IV, A, _provider);
+            assertArrayEquals(E, transform.doFinal(P));
+            assertArrayEquals(T, transform.getTag());
+
+            assertArrayEquals(P, algo.CreateDecryptor(derivedKey, IV, A, T, _provider).doFinal(E));
+        }
+
+        // A key derived by another algorithm is rejected
+        try {
+            new Aes256CbcHmacSha512().CreateEncryptor(derivedKey, IV, A, _provider);
+            fail("Expected InvalidKeyException");
+        } catch (InvalidKeyException e) {
+            // Expected
+        }
+
+        // A tampered tag is detected without copying the hash
+        T[0] ^= 1;
+        try {
+            algo.CreateDecryptor(derivedKey, IV, A, T, _provider).doFinal(E);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testAes128CbcHmacSha256StreamingDecryptor() throws Exception {
+        byte[] K  = new byte[32];
+        byte[] P  = new byte[1024 * 1024 + 5];
+        byte[] IV = new byte[16];
+        byte[] A  = new byte[8];
+
+        for (int i = 0; i < P.length; i++) {
+            P[i] = (byte) i;
+        }
+
+        Aes128CbcHmacSha256 algo       = new Aes128CbcHmacSha256();
+        IDerivedKey         derivedKey = algo.DeriveKey(K);
+
+        IAuthenticatedCryptoTransform encryptor = (IAuthenticatedCryptoTransform) algo.CreateEncryptor(derivedKey, IV, A, _provider);
+        byte[] E = encryptor.doFinal(P);
+        byte[] T = encryptor.getTag();
+
+        // The output of every update is bounded by the chunk, not by the data decrypted so far
+        assertArrayEquals(P, decryptInChunks(algo.CreateStreamingDecryptor(derivedKey, IV, A, T, _provider), E, 8192));
+
+        // A tampered tag fails in doFinal, before the last block is released
+        T[0] ^= 1;
+        try {
+            decryptInChunks(algo.CreateStreamingDecryptor(derivedKey, IV, A, T, _provider), E, 8192);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private static byte[] decryptInChunks(IStreamingCryptoTransform transform, byte[] input, int chunkSize) throws Exception {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        ByteBuffer            output = ByteBuffer.allocate(chunkSize + 16);
+
+        for (int offset = 0; offset < input.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, input.length - offset);
+            assertTrue(transform.getOutputSize(length) <= output.capacity());
+
+            output.clear();
+            transform.update(ByteBuffer.wrap(input, offset, length), output);
+            result.write(output.array(), 0, output.position());
+        }
+
+        output.clear();
+        transform.doFinal(ByteBuffer.allocate(0), output);
+        result.write(output.array(), 0, output.position());
+
+        return result.toByteArray();
+    }
 }
@@ -227,4 +227,46 @@ public class AesCbcTest {
             fail(e.getMessage());
         }
     }
+
+    @Test
+    public void testAes128CbcInterleavedTransforms() throws Exception {
+        // Transforms created before any of them is used must not disturb each other,
+        // even when they are finished on another thread
+        byte[] CEK   = { 0x06, (byte)0xa9, 0x21, 0x40, 0x36, (byte)0xb8, (byte)0xa1, 0x5b, 0x51, 0x2e, 0x03, (byte)0xd5, 0x34, 0x12, 0x00, 0x06 };
+        byte[] CEK2  = { 0x56, (byte)0xe4, 0x7a, 0x38, (byte)0xc5, 0x59, (byte)0x89, 0x74, (byte)0xbc, 0x46, (byte)0x90, 0x3d, (byte)0xba, 0x29, 0x03, 0x49 };
+        byte[] PLAIN = "Single block msg".getBytes();
+        byte[] IV    = { 0x3d, (byte)0xaf, (byte)0xba, 0x42, (byte)0x9d, (byte)0x9e, (byte)0xb4, 0x30, (byte)0xb4, 0x22, (byte)0xda, (byte)0x80, 0x2c, (byte)0x9f, (byte)0xac, 0x41 };
+        byte[] ED    = { (byte)0xe3, 0x53, 0x77, (byte)0x9c, 0x10, 0x79, (byte)0xae, (byte)0xb8, 0x27, 0x08, (byte)0x94, 0x2d, (byte)0xbe, 0x77, 0x18, 0x1a };
+
+        Aes128Cbc algo = new Aes128Cbc();
+
+        final ICryptoTransform encryptor  = algo.CreateEncryptor(CEK, IV, null, _provider);
+        ICryptoTransform       encryptor2 = algo.CreateEncryptor(CEK2, IV, null, _provider);
+        ICryptoTransform       decryptor  = algo.CreateDecryptor(CEK, IV, null, null, _provider);
+
+        byte[] other = encryptor2.doFinal(PLAIN);
+
+        final byte[][] encrypted = new byte[1][];
+        final Exception[] error = new Exception[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    encrypted[0] = encryptor.doFinal("Single block msg".getBytes());
+                } catch (Exception e) {
+                    error[0] = e;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        if (error[0] != null) {
+            fail(error[0].getMessage());
+        }
+        assertArrayEquals(Arrays.copyOfRange(encrypted[0], 0, 16), ED);
+        assertArrayEquals(Arrays.copyOfRange(encryptor.doFinal(PLAIN), 0, 16), ED);
+        assertArrayEquals(decryptor.doFinal(encrypted[0]), PLAIN);
+        assertArrayEquals(algo.CreateDecryptor(CEK2, IV, null, null, _provider).doFinal(other), PLAIN);
+    }
 }
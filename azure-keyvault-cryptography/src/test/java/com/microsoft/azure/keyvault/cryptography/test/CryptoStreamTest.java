@@ -0,0 +1,162 @@
+package com.microsoft.azure.keyvault.cryptography.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+import org.junit.Test;
+
+import com.microsoft.azure.keyvault.cryptography.CryptoInputStream;
+import com.microsoft.azure.keyvault.cryptography.CryptoWritableByteChannel;
+import com.microsoft.azure.keyvault.cryptography.IAuthenticatedCryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Aes128CbcHmacSha256;
+
+public class CryptoStreamTest {
+
+    private static final int PayloadSize = 4 * 1024 * 1024;
+
+    /**
+     * Passes the data through unchanged, holding it all back until doFinal like
+     * a buffering transform, and records the capacity of the output buffers.
+     */
+    private static class RecordingTransform implements IStreamingCryptoTransform {
+
+        final Set<Integer>          capacities = new LinkedHashSet<Integer>();
+        final ByteArrayOutputStream held       = new ByteArrayOutputStream();
+
+        @Override
+        public int getOutputSize(int inputLength) {
+            return held.size() + inputLength;
+        }
+
+        @Override
+        public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+            capacities.add(output.capacity());
+
+            byte[] data = new byte[input.remaining()];
+            input.get(data);
+            held.write(data, 0, data.length);
+
+            return 0;
+        }
+
+        @Override
+        public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+            update(input, output);
+
+            output.put(held.toByteArray());
+
+            return held.size();
+        }
+
+        @Override
+        public byte[] doFinal(byte[] input) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static byte[] payload() {
+        byte[] payload = new byte[PayloadSize];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] chunk = new byte[10000];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            result.write(chunk, 0, read);
+        }
+        in.close();
+        return result.toByteArray();
+    }
+
+    @Test
+    public void testInputStreamGrowsOutputGeometrically() throws Exception {
+        byte[]             payload   = payload();
+        RecordingTransform transform = new RecordingTransform();
+
+        assertArrayEquals(payload, readAll(new CryptoInputStream(new ByteArrayInputStream(payload), transform)));
+
+        // A new buffer for every 8 KB chunk would make 512 of them
+        assertTrue(transform.capacities.toString(), transform.capacities.size() <= 12);
+    }
+
+    @Test
+    public void testChannelGrowsOutputGeometrically() throws Exception {
+        byte[]                payload   = payload();
+        RecordingTransform    transform = new RecordingTransform();
+        ByteArrayOutputStream written   = new ByteArrayOutputStream();
+
+        CryptoWritableByteChannel channel = new CryptoWritableByteChannel(Channels.newChannel(written), transform);
+        channel.write(ByteBuffer.wrap(payload));
+        channel.close();
+
+        assertArrayEquals(payload, written.toByteArray());
+        assertTrue(transform.capacities.toString(), transform.capacities.size() <= 12);
+    }
+
+    @Test
+    public void testDecryptStreamKeepsOutputBuffer() throws Exception {
+        byte[]              payload = payload();
+        byte[]              key     = new byte[32];
+        byte[]              iv      = new byte[16];
+        byte[]              aad     = new byte[8];
+        Aes128CbcHmacSha256 algo    = new Aes128CbcHmacSha256();
+
+        IAuthenticatedCryptoTransform encryptor = (IAuthenticatedCryptoTransform) algo.CreateEncryptor(key, iv, aad);
+        byte[] ciphertext = encryptor.doFinal(payload);
+
+        // The incremental decryptor needs no more output than one chunk and the
+        // block it holds back, so the buffer stops growing after the first chunk
+        final IStreamingCryptoTransform decryptor  = algo.CreateStreamingDecryptor(key, iv, aad, encryptor.getTag(), null);
+        final Set<Integer>              capacities = new LinkedHashSet<Integer>();
+
+        IStreamingCryptoTransform recording = new IStreamingCryptoTransform() {
+            @Override
+            public int getOutputSize(int inputLength) {
+                return decryptor.getOutputSize(inputLength);
+            }
+
+            @Override
+            public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+                capacities.add(output.capacity());
+                return decryptor.update(input, output);
+            }
+
+            @Override
+            public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException, NoSuchAlgorithmException {
+                capacities.add(output.capacity());
+                return decryptor.doFinal(input, output);
+            }
+
+            @Override
+            public byte[] doFinal(byte[] input) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        assertArrayEquals(payload, readAll(new CryptoInputStream(new ByteArrayInputStream(ciphertext), recording)));
+        assertTrue(capacities.toString(), capacities.size() <= 2);
+        for (int capacity : capacities) {
+            assertTrue(capacities.toString(), capacity <= 2 * 8192);
+        }
+    }
+}
@@ -2,8 +2,13 @@ package com.microsoft.azure.keyvault.cryptography.test;
 
 import static org.junit.Assert.*;
 
+import java.security.KeyPair;
 import java.security.MessageDigest;
 import java.security.Provider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.tuple.Pair;
@@ -15,6 +20,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.microsoft.azure.keyvault.cryptography.RsaKey;
 import com.microsoft.azure.keyvault.cryptography.algorithms.Rs256;
 import com.microsoft.azure.keyvault.cryptography.algorithms.Rsa15;
@@ -127,6 +133,101 @@ public class RsaKeyTest {
         key.close();
     }
     
+    @Test
+    public void testUnwrapKeys() throws Exception {
+
+        RsaKey key = getTestRsaKey();
+
+        List<byte[]> keys    = new ArrayList<byte[]>();
+        List<byte[]> wrapped = new ArrayList<byte[]>();
+
+        for (int i = 0; i < 17; i++) {
+            byte[] cek = CEK.clone();
+            cek[0] = (byte) i;
+            keys.add(cek);
+            wrapped.add(key.wrapKeyAsync(cek, RsaOaep.ALGORITHM_NAME).get().getLeft());
+        }
+
+        List<byte[]> unwrapped = key.unwrapKeysAsync(wrapped, RsaOaep.ALGORITHM_NAME).get();
+
+        // Assert
+        assertEquals(keys.size(), unwrapped.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertArrayEquals(keys.get(i), unwrapped.get(i));
+        }
+
+        assertTrue(key.unwrapKeysAsync(new ArrayList<byte[]>(), RsaOaep.ALGORITHM_NAME).get().isEmpty());
+
+        key.close();
+    }
+
+    @Test
+    public void testUnwrapKeysDoesNotReadCallerListLater() throws Exception {
+
+        final List<Runnable> queued = new ArrayList<Runnable>();
+
+        RsaKey key = new RsaKey("foo", getTestKeyPair(), _provider, new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        });
+
+        List<byte[]> wrapped = new ArrayList<byte[]>();
+
+        for (int i = 0; i < 5; i++) {
+            byte[] cek = CEK.clone();
+            cek[0] = (byte) i;
+            wrapped.add(key.wrapKeyAsync(cek, RsaOaep.ALGORITHM_NAME).get().getLeft());
+        }
+
+        ListenableFuture<List<byte[]>> future = key.unwrapKeysAsync(wrapped, RsaOaep.ALGORITHM_NAME);
+
+        // The caller reuses its list before the unwraps run
+        wrapped.clear();
+
+        for (Runnable command : queued) {
+            command.run();
+        }
+
+        List<byte[]> unwrapped = future.get();
+
+        // Assert
+        assertEquals(5, unwrapped.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals((byte) i, unwrapped.get(i)[0]);
+        }
+
+        key.close();
+    }
+
+    @Test
+    public void testPrivateKeyOperationsUseExecutor() throws Exception {
+
+        final AtomicInteger executed = new AtomicInteger();
+
+        RsaKey key = new RsaKey("foo", getTestKeyPair(), _provider, new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                command.run();
+            }
+        });
+
+        Pair<byte[], String> wrapped = key.wrapKeyAsync(CEK, RsaOaep.ALGORITHM_NAME).get();
+        assertEquals(0, executed.get());
+
+        assertArrayEquals(CEK, key.unwrapKeyAsync(wrapped.getLeft(), wrapped.getRight()).get());
+        assertEquals(1, executed.get());
+
+        key.signAsync(MessageDigest.getInstance("SHA-256").digest(CEK), "RS256").get();
+        assertEquals(2, executed.get());
+
+        key.close();
+    }
+
     @Test
     public void testSignVerify() throws Exception {
     	
@@ -159,13 +260,17 @@ public class RsaKeyTest {
     }
     
     private RsaKey getTestRsaKey() throws Exception {
+    	return new RsaKey("foo", getTestKeyPair());
+    }
+
+    private KeyPair getTestKeyPair() throws Exception {
     	String       jwkString = "{\"kty\":\"RSA\",\"n\":\"rZ8pnmXkhfmmgNWVVdtNcYy2q0OAcCGIpeFzsN9URqJsiBEiWQfxlUxFTbM4kVWPqjauKt6byvApBGEeMA7Qs8kxwRVP-BD4orXRe9VPgliM92rH0UxQWHmCHUe7G7uUAFPwbiDVhWuFzELxNa6Kljg6Z9DuUKoddmQvlYWj8uSunofCtDi_zzlZKGYTOYJma5IYScHNww1yjLp8-b-Be2UdHbrPkCv6Nuwi6MVIKjPpEeRQgfefRmxDBJQKY3OfydMXZmEwukYXVkUcdIP8XwG2OxnfdRK0oAo0NDebNNVuT89k_3AyZLTr1KbDmx1nnjwa8uB8k-uLtcOC9igbTw\",\"e\":\"AQAB\",\"d\":\"H-z7hy_vVJ9yeZBMtIvt8qpQUK_J51STPwV085otcgud72tPKJXoW2658664ASl9kGwbnLBwb2G3-SEunuGqiNS_PGUB3niob6sFSUMRKsPDsB9HfPoOcCZvwZiWFGRqs6C7vlR1TuJVqRjKJ_ffbf4K51oo6FZPspx7j4AShLAwLUSQ60Ld5QPuxYMYZIMpdVbMVIVHJ26pR4Y18e_0GYmEGnbF5N0HkwqQmfmTiIK5aoGnD3GGgqHeHmWBwh6_WAq90ITLcX_zBeqQUgBSj-Z5v61SroO9Eang36T9mMoYrcPpYwemtAOb4HhQYDj8dCCfbeOcVmvZ9UJKWCX2oQ\",\"dp\":\"HW87UpwPoj3lPI9B9K1hJFeuGgarpakvtHuk1HpZ5hXWFGAJiXoWRV-jvYyjoM2k7RpSxPyuuFFmYHcIxiGFp2ES4HnP0BIhKVa2DyugUxIEcMK53C43Ub4mboJPZTSC3sapKgAmA2ue624sapWmshTPpx9qnUP2Oj3cSMkgMGE\",\"dq\":\"RhwEwb5FYio0GS2tmul8FAYsNH7JDehwI1yUApnTiakhSenFetml4PYyVkKR4csgLZEi3RY6J3R8Tg-36zrZuF7hxhVJn80L5_KETSpfEI3jcrXMVg4SRaMsWLY9Ahxflt2FJgUnHOmWRLmP6_hmaTcxxSACjbyUd_HhwNavD5E\",\"qi\":\"wYPZ4lKIslA1w3FaAzQifnNLABYXXUZ_KAA3a8T8fuxkdE4OP3xIFX7WHhnmBd6uOFiEcGoeq2jNQqDg91rV5661-5muQKcvp4uUsNId5rQw9EZw-kdDcwMtVFTEBfvVuyp83X974xYAHn1Jd8wWohSwrpi1QuH5cQMR5Fm6I1A\",\"p\":\"74Ot7MgxRu4euB31UWnGtrqYPjJmvbjYESS43jfDfo-s62ggV5a39P_YPg6oosgtGHNw0QDxunUOXNu9iriaYPf_imptRk69bKN8Nrl727Y-AaBYdLf1UZuwz8X07FqHAH5ghYpk79djld8QvkUUJLpx6rzcW8BJLTOi46DtzZE\",\"q\":\"uZJu-qenARIt28oj_Jlsk-p_KLnqdczczZfbRDd7XNp6csGLa8R0EyYqUB4xLWELQZsX4tAu9SaAO62tuuEy5wbOAmOVrq2ntoia1mGQSJdoeVq6OqtN300xVnaBc3us0rm8C6-824fEQ1PWXoulXLKcSqBhFT-hQahsYi-kat8\"}";
     	ObjectMapper mapper    = new ObjectMapper();
     	JsonWebKey   jwk       = null;
     	
 		jwk = mapper.readValue(jwkString, JsonWebKey.class);
     	
-    	return new RsaKey("foo", jwk.toRSA(true, _provider) );
+    	return jwk.toRSA(true, _provider);
     }
 
 }
@@ -0,0 +1,114 @@
+package com.microsoft.azure.keyvault.cryptography.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.NoSuchPaddingException;
+
+import org.junit.Test;
+
+import com.microsoft.azure.keyvault.cryptography.ICryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.IDerivedKey;
+import com.microsoft.azure.keyvault.cryptography.IStreamingCryptoTransform;
+import com.microsoft.azure.keyvault.cryptography.SymmetricEncryptionAlgorithm;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Aes128Cbc;
+
+/**
+ * Checks that a subclass implementing only the original transform factories
+ * gets working defaults for the derived key and streaming factories.
+ */
+public class SymmetricEncryptionAlgorithmTest {
+
+    private static class LegacyAlgorithm extends SymmetricEncryptionAlgorithm {
+
+        private final Aes128Cbc _inner = new Aes128Cbc();
+
+        LegacyAlgorithm() {
+            super("Legacy");
+        }
+
+        @Override
+        public ICryptoTransform CreateEncryptor(byte[] key, byte[] iv, byte[] authenticationData) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+            return _inner.CreateEncryptor(key, iv, authenticationData);
+        }
+
+        @Override
+        public ICryptoTransform CreateEncryptor(byte[] key, byte[] iv, byte[] authenticationData, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+            return _inner.CreateEncryptor(key, iv, authenticationData, provider);
+        }
+
+        @Override
+        public ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+            return _inner.CreateDecryptor(key, iv, authenticationData, authenticationTag);
+        }
+
+        @Override
+        public ICryptoTransform CreateDecryptor(byte[] key, byte[] iv, byte[] authenticationData, byte[] authenticationTag, Provider provider) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException {
+            return _inner.CreateDecryptor(key, iv, authenticationData, authenticationTag, provider);
+        }
+    }
+
+    private static final byte[] KEY = new byte[16];
+    private static final byte[] IV  = new byte[16];
+    private static final byte[] PLAIN = new byte[1000];
+
+    static {
+        Random random = new Random(42);
+        random.nextBytes(KEY);
+        random.nextBytes(IV);
+        random.nextBytes(PLAIN);
+    }
+
+    @Test
+    public void testDefaultDerivedKeyTransforms() throws Exception {
+        LegacyAlgorithm algo     = new LegacyAlgorithm();
+        byte[]          expected = new Aes128Cbc().CreateEncryptor(KEY, IV, null).doFinal(PLAIN);
+
+        IDerivedKey derived   = algo.DeriveKey(KEY);
+        byte[]      encrypted = algo.CreateEncryptor(derived, IV, null, null).doFinal(PLAIN);
+
+        assertEquals("Legacy", derived.getAlgorithm());
+        assertArrayEquals(expected, encrypted);
+        assertArrayEquals(PLAIN, algo.CreateDecryptor(derived, IV, null, null, null).doFinal(encrypted));
+
+        // A key derived by another algorithm is rejected
+        try {
+            algo.CreateEncryptor(new Aes128Cbc().DeriveKey(KEY), IV, null, null);
+            fail("Expected the key to be rejected");
+        } catch (InvalidKeyException e) {
+        }
+    }
+
+    @Test
+    public void testDefaultStreamingTransforms() throws Exception {
+        LegacyAlgorithm algo     = new LegacyAlgorithm();
+        byte[]          expected = new Aes128Cbc().CreateEncryptor(KEY, IV, null).doFinal(PLAIN);
+
+        byte[] encrypted = stream(algo.CreateStreamingEncryptor(KEY, IV, null, null), PLAIN);
+        assertArrayEquals(expected, encrypted);
+
+        byte[] decrypted = stream(algo.CreateStreamingDecryptor(KEY, IV, null, null, null), encrypted);
+        assertArrayEquals(PLAIN, decrypted);
+    }
+
+    private static byte[] stream(IStreamingCryptoTransform transform, byte[] input) throws Exception {
+        ByteBuffer output = ByteBuffer.allocate(transform.getOutputSize(input.length));
+
+        for (int offset = 0; offset < input.length; offset += 300) {
+            // The buffering defaults hold back all output until the transform is finished
+            assertEquals(0, transform.update(ByteBuffer.wrap(input, offset, Math.min(300, input.length - offset)), output));
+        }
+        transform.doFinal(ByteBuffer.allocate(0), output);
+
+        return Arrays.copyOf(output.array(), output.position());
+    }
+}
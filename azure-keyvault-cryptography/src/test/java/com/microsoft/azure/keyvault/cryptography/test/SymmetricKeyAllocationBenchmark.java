@@ -0,0 +1,199 @@
+package com.microsoft.azure.keyvault.cryptography.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.microsoft.azure.keyvault.cryptography.AlgorithmResolver;
+import com.microsoft.azure.keyvault.cryptography.IDerivedKey;
+import com.microsoft.azure.keyvault.cryptography.SymmetricEncryptionAlgorithm;
+import com.microsoft.azure.keyvault.cryptography.SymmetricKey;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Aes128CbcHmacSha256;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Aes192CbcHmacSha384;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Aes256CbcHmacSha512;
+
+/**
+ * Compares the allocation rate of encrypting and decrypting with AES-CBC-HMAC-SHA2 when the AES and
+ * HMAC keys are derived once, as {@link SymmetricKey} does, with deriving them from the key material for
+ * every transform, and with the legacy code that split the key material into fresh arrays and copied the
+ * tag out of the hash on every operation. The legacy baseline reuses its JCA instances so that only the
+ * key handling differs; the symmetricKey benchmarks add the overhead of the IKey API on top of the derived
+ * ones. Compare the gc.alloc.rate.norm rows of the GC profiler.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.keyvault.cryptography.test.SymmetricKeyAllocationBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymmetricKeyAllocationBenchmark {
+
+    @Param({ Aes128CbcHmacSha256.ALGORITHM_NAME, Aes192CbcHmacSha384.ALGORITHM_NAME, Aes256CbcHmacSha512.ALGORITHM_NAME })
+    public String algorithm;
+
+    private SymmetricKey                 key;
+    private SymmetricEncryptionAlgorithm algo;
+    private IDerivedKey                  derivedKey;
+    private byte[]                       keyBytes;
+    private byte[]                       iv;
+    private byte[]                       authenticationData;
+    private byte[]                       authenticationTag;
+    private byte[]                       plaintext;
+    private byte[]                       ciphertext;
+    private Cipher                       cipher;
+    private Mac                          hmac;
+
+    @Setup
+    public void setup() throws Exception {
+        SecureRandom random = new SecureRandom();
+
+        // A content encryption key is the typical payload of an envelope
+        plaintext          = new byte[32];
+        keyBytes           = new byte[64];
+        iv                 = new byte[16];
+        authenticationData = new byte[16];
+        random.nextBytes(plaintext);
+        random.nextBytes(keyBytes);
+        random.nextBytes(iv);
+        random.nextBytes(authenticationData);
+
+        key        = new SymmetricKey("kid", keyBytes);
+        algo       = (SymmetricEncryptionAlgorithm) AlgorithmResolver.Default.get(algorithm);
+        derivedKey = algo.DeriveKey(keyBytes);
+        cipher     = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        hmac       = Mac.getInstance(hmacName());
+
+        Triple<byte[], byte[], String> result = key.encryptAsync(plaintext, iv, authenticationData, algorithm).get();
+        ciphertext        = result.getLeft();
+        authenticationTag = result.getMiddle();
+
+        if (!Arrays.equals(ciphertext, derivedEncrypt()) || !Arrays.equals(ciphertext, keyMaterialEncrypt()) || !Arrays.equals(ciphertext, legacyEncrypt())
+                || !Arrays.equals(plaintext, symmetricKeyDecrypt()) || !Arrays.equals(plaintext, derivedDecrypt()) || !Arrays.equals(plaintext, keyMaterialDecrypt()) || !Arrays.equals(plaintext, legacyDecrypt())) {
+            throw new IllegalStateException("Transformed data differs for " + algorithm);
+        }
+    }
+
+    @Benchmark
+    public byte[] symmetricKeyEncrypt() throws Exception {
+        return key.encryptAsync(plaintext, iv, authenticationData, algorithm).get().getLeft();
+    }
+
+    @Benchmark
+    public byte[] symmetricKeyDecrypt() throws Exception {
+        return key.decryptAsync(ciphertext, iv, authenticationData, authenticationTag, algorithm).get();
+    }
+
+    @Benchmark
+    public byte[] derivedEncrypt() throws Exception {
+        return algo.CreateEncryptor(derivedKey, iv, authenticationData, null).doFinal(plaintext);
+    }
+
+    @Benchmark
+    public byte[] derivedDecrypt() throws Exception {
+        return algo.CreateDecryptor(derivedKey, iv, authenticationData, authenticationTag, null).doFinal(ciphertext);
+    }
+
+    @Benchmark
+    public byte[] keyMaterialEncrypt() throws Exception {
+        return algo.CreateEncryptor(keyBytes, iv, authenticationData, null).doFinal(plaintext);
+    }
+
+    @Benchmark
+    public byte[] keyMaterialDecrypt() throws Exception {
+        return algo.CreateDecryptor(keyBytes, iv, authenticationData, authenticationTag, null).doFinal(ciphertext);
+    }
+
+    @Benchmark
+    public byte[] legacyEncrypt() throws Exception {
+        int keySize = keySizeInBytes();
+
+        // The key and its halves are split on every operation
+        byte[] hmacKey = new byte[keySize];
+        byte[] aesKey  = new byte[keySize];
+        System.arraycopy(keyBytes, 0, hmacKey, 0, keySize);
+        System.arraycopy(keyBytes, keySize, aesKey, 0, keySize);
+
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(aesKey, "AES"), new IvParameterSpec(iv));
+        byte[] output = cipher.doFinal(plaintext);
+
+        legacyTag(hmacKey, output);
+
+        return output;
+    }
+
+    @Benchmark
+    public byte[] legacyDecrypt() throws Exception {
+        int keySize = keySizeInBytes();
+
+        byte[] hmacKey = new byte[keySize];
+        byte[] aesKey  = new byte[keySize];
+        System.arraycopy(keyBytes, 0, hmacKey, 0, keySize);
+        System.arraycopy(keyBytes, keySize, aesKey, 0, keySize);
+
+        if (!Arrays.equals(authenticationTag, legacyTag(hmacKey, ciphertext))) {
+            throw new IllegalArgumentException("Data is not authentic");
+        }
+
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(aesKey, "AES"), new IvParameterSpec(iv));
+        return cipher.doFinal(ciphertext);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SymmetricKeyAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private int keySizeInBytes() {
+        // A128CBC-HS256, ...
+        return Integer.parseInt(algorithm.substring(1, 4)) >> 3;
+    }
+
+    private String hmacName() {
+        return "HmacSHA" + algorithm.substring(algorithm.length() - 3);
+    }
+
+    // The tag computation as it was before the keys were derived once, kept as the baseline
+    private byte[] legacyTag(byte[] hmacKey, byte[] ciphertext) throws Exception {
+        hmac.init(new SecretKeySpec(hmacKey, hmacName()));
+        hmac.update(authenticationData);
+        hmac.update(iv);
+        hmac.update(ciphertext);
+
+        byte[] shortLength = BigInteger.valueOf(authenticationData.length * 8).toByteArray();
+        byte[] aadLength   = new byte[8];
+        System.arraycopy(shortLength, 0, aadLength, aadLength.length - shortLength.length, shortLength.length);
+
+        byte[] hash = hmac.doFinal(aadLength);
+        byte[] tag  = new byte[hmacKey.length];
+        System.arraycopy(hash, 0, tag, 0, tag.length);
+
+        return tag;
+    }
+}
@@ -20,22 +20,32 @@ package com.microsoft.azure.keyvault.cryptography.test;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.ExecutionException;
 
 import javax.crypto.Cipher;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.microsoft.azure.keyvault.cryptography.CryptoInputStream;
+import com.microsoft.azure.keyvault.cryptography.CryptoWritableByteChannel;
 import com.microsoft.azure.keyvault.cryptography.SymmetricKey;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Aes128CbcHmacSha256;
 
 public class SymmetricKeyTest {
 
@@ -589,4 +599,109 @@ public class SymmetricKeyTest {
             fail("Key could not be closed");
         }
     }
+
+    @Test
+    public void testSymmetricKeyStreamAes128CbcHmacSha256() throws Exception {
+        // Arrange
+        byte[] KEY = new byte[32];
+        byte[] IV  = new byte[16];
+        byte[] AAD = "additional authenticated data".getBytes();
+        byte[] PLAIN = new byte[100000];
+        Random random = new Random(42);
+        random.nextBytes(KEY);
+        random.nextBytes(IV);
+        random.nextBytes(PLAIN);
+
+        SymmetricKey key = new SymmetricKey("KEK", KEY, _provider);
+        Triple<byte[], byte[], String> expected = key.encryptAsync(PLAIN, IV, AAD, Aes128CbcHmacSha256.ALGORITHM_NAME).get();
+
+        // Act: encrypt through a stream read in odd sized chunks
+        CryptoInputStream encryptor = key.encryptStream(new ByteArrayInputStream(PLAIN), IV, AAD, Aes128CbcHmacSha256.ALGORITHM_NAME);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1000];
+        int read;
+        while ((read = encryptor.read(chunk, 0, 777)) >= 0) {
+            encrypted.write(chunk, 0, read);
+        }
+        encryptor.close();
+
+        // Assert
+        assertArrayEquals(expected.getLeft(), encrypted.toByteArray());
+        assertArrayEquals(expected.getMiddle(), encryptor.getTag());
+
+        // Act: decrypt through a channel written in odd sized chunks
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        CryptoWritableByteChannel decryptor = key.decryptChannel(Channels.newChannel(decrypted), IV, AAD, expected.getMiddle(), Aes128CbcHmacSha256.ALGORITHM_NAME);
+        byte[] ciphertext = encrypted.toByteArray();
+        for (int offset = 0; offset < ciphertext.length; offset += 5000) {
+            decryptor.write(ByteBuffer.wrap(ciphertext, offset, Math.min(5000, ciphertext.length - offset)));
+        }
+        decryptor.close();
+
+        // Assert
+        assertArrayEquals(PLAIN, decrypted.toByteArray());
+
+        // A tampered tag fails at the end of the stream, before the padding is removed
+        byte[] tag = expected.getMiddle().clone();
+        tag[0] ^= 1;
+        CryptoInputStream tampered = key.decryptStream(new ByteArrayInputStream(ciphertext), IV, AAD, tag, Aes128CbcHmacSha256.ALGORITHM_NAME);
+        ByteArrayOutputStream returned = new ByteArrayOutputStream();
+        try {
+            while ((read = tampered.read(chunk)) >= 0) {
+                returned.write(chunk, 0, read);
+            }
+            fail("Expected the authentication to fail");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Data is not authentic", e.getMessage());
+        }
+        assertArrayEquals(Arrays.copyOf(PLAIN, returned.size()), returned.toByteArray());
+
+        // Tampered cipher text fails when the channel is closed
+        ciphertext[ciphertext.length / 2] ^= 1;
+        ByteArrayOutputStream released = new ByteArrayOutputStream();
+        CryptoWritableByteChannel tamperedChannel = key.decryptChannel(Channels.newChannel(released), IV, AAD, expected.getMiddle(), Aes128CbcHmacSha256.ALGORITHM_NAME);
+        tamperedChannel.write(ByteBuffer.wrap(ciphertext));
+        try {
+            tamperedChannel.close();
+            fail("Expected the authentication to fail");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Data is not authentic", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSymmetricKeyStreamAes128Cbc() throws Exception {
+        // Arrange
+        byte[] KEY = new byte[16];
+        byte[] IV  = new byte[16];
+        byte[] PLAIN = new byte[20001];
+        Random random = new Random(42);
+        random.nextBytes(KEY);
+        random.nextBytes(IV);
+        random.nextBytes(PLAIN);
+
+        SymmetricKey key = new SymmetricKey("KEK", KEY, _provider);
+
+        // Act: encrypt through a channel with the default algorithm
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        CryptoWritableByteChannel encryptor = key.encryptChannel(Channels.newChannel(encrypted), IV, null, null);
+        encryptor.write(ByteBuffer.wrap(PLAIN));
+        encryptor.close();
+
+        // Assert
+        assertArrayEquals(key.encryptAsync(PLAIN, IV, null, null).get().getLeft(), encrypted.toByteArray());
+        assertNull(encryptor.getTag());
+
+        // Act: decrypt through a stream
+        CryptoInputStream decryptor = key.decryptStream(new ByteArrayInputStream(encrypted.toByteArray()), IV, null, null, key.getDefaultEncryptionAlgorithm());
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        int b;
+        while ((b = decryptor.read()) >= 0) {
+            decrypted.write(b);
+        }
+        decryptor.close();
+
+        // Assert
+        assertArrayEquals(PLAIN, decrypted.toByteArray());
+    }
 }
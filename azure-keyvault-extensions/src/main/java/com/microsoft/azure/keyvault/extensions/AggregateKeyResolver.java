@@ -18,121 +18,100 @@
 
 package com.microsoft.azure.keyvault.extensions;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.microsoft.azure.keyvault.core.IKey;
 import com.microsoft.azure.keyvault.core.IKeyResolver;
 
 /**
  * The collection of key resolvers that would iterate on a key id to resolve to {@link IKey}.
+ *
+ * Resolution never blocks: the returned future completes once the resolvers have answered.
+ * Resolvers can be added while keys are being resolved, a resolution uses the resolvers
+ * present when it started.
  */
 public class AggregateKeyResolver implements IKeyResolver {
 
     /**
-     * Future key class that resolves a key id after the async result is available.
+     * How the resolvers are asked to resolve a key id.
      */
-    class FutureKey extends AbstractFuture<IKey> {
-
-        private final String kid;
-
-        private boolean isCancelled = false;
-        private boolean isDone      = false;
-        private IKey    result    = null;
-
-        FutureKey(String kid) {
-            this.kid = kid;
-        }
-
-        @Override
-        public boolean cancel(boolean mayInterruptIfRunning) {
-
-            // mark cancelled
-            isCancelled = true;
-
-            return isCancelled;
-        }
-
-        @Override
-        public boolean isCancelled() {
-            return isCancelled;
-        }
-
-        @Override
-        public boolean isDone() {
-
-            // always true
-            return isDone;
-        }
-
-        @Override
-        public IKey get() throws InterruptedException, ExecutionException {
-
-            // throw if cancelled
-            if (isCancelled) {
-                throw new InterruptedException();
-            }
-
-            synchronized (resolvers) {
-                for (IKeyResolver resolver : resolvers) {
-                    Future<IKey> futureKey = resolver.resolveKeyAsync(kid);
-    
-                    result = futureKey.get();
-    
-                    if (result != null) {
-                        break;
-                    }
-                }
-            }
+    public enum ResolutionPolicy {
+        /**
+         * Ask the resolvers one after the other in the order they were added, and
+         * stop at the first one that resolves the key.
+         */
+        SEQUENTIAL,
+
+        /**
+         * Ask all resolvers at the same time and use the first key resolved, regardless
+         * of the order the resolvers were added in.
+         */
+        PARALLEL
+    }
 
-            // Mark done
-            isDone = true;
+    /**
+     * A resolver along with the time it is given to resolve a key.
+     */
+    private static final class Entry {
+        private final IKeyResolver resolver;
+        private final long timeoutNanos;
 
-            return result;
+        Entry(IKeyResolver resolver, long timeoutNanos) {
+            this.resolver = resolver;
+            this.timeoutNanos = timeoutNanos;
         }
+    }
 
-        @Override
-        public IKey get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-
-            // throw if cancelled
-            if (isCancelled) {
-                throw new InterruptedException();
-            }
-
-            synchronized (resolvers) {
-                for (IKeyResolver resolver : resolvers) {
-                    Future<IKey> futureKey = resolver.resolveKeyAsync(kid);
-    
-                    result = futureKey.get(timeout, unit);
-    
-                    if (result != null) {
-                        break;
-                    }
-                }
+    /**
+     * Holds the timer failing the resolutions that take too long, only created when a
+     * resolver with a timeout is added.
+     */
+    private static final class Timer {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "keyvault-key-resolver-timeout");
+                thread.setDaemon(true);
+                return thread;
             }
-
-            // Mark done
-            isDone = true;
-
-            return result;
-        }
+        });
     }
 
-    private final List<IKeyResolver> resolvers;
+    private final List<Entry> resolvers;
+    private final ResolutionPolicy policy;
 
     /**
      * Constructor.
      */
     public AggregateKeyResolver() {
+        this(ResolutionPolicy.SEQUENTIAL);
+    }
 
-        resolvers = Collections.synchronizedList(new ArrayList<IKeyResolver>());
+    /**
+     * Constructor.
+     * @param policy how the resolvers are asked to resolve a key id
+     */
+    public AggregateKeyResolver(ResolutionPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy");
+        }
+        this.resolvers = new CopyOnWriteArrayList<Entry>();
+        this.policy = policy;
     }
 
     /**
@@ -140,15 +119,118 @@ public class AggregateKeyResolver implements IKeyResolver {
      * @param resolver the key resolver
      */
     public void add(IKeyResolver resolver) {
+        resolvers.add(new Entry(resolver, 0));
+    }
 
-        synchronized (resolvers) {
-            resolvers.add(resolver);
+    /**
+     * Adds a key resolver to the collection of key resolvers. The resolution fails with a
+     * {@link TimeoutException} if the resolver does not answer within the given time.
+     * @param resolver the key resolver
+     * @param timeout the time the resolver is given to resolve a key
+     * @param unit the unit of the timeout
+     */
+    public void add(IKeyResolver resolver, long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout");
         }
+        resolvers.add(new Entry(resolver, unit.toNanos(timeout)));
     }
 
     @Override
     public ListenableFuture<IKey> resolveKeyAsync(String kid) {
-        return new FutureKey(kid);
+        // Snapshot of the resolvers, the copy-on-write list makes this free of locks
+        Entry[] entries = resolvers.toArray(new Entry[0]);
+        if (policy == ResolutionPolicy.PARALLEL) {
+            return resolveInParallel(entries, kid);
+        }
+        return resolveInOrder(entries, 0, kid);
+    }
+
+    private ListenableFuture<IKey> resolveInOrder(final Entry[] entries, final int index, final String kid) {
+        if (index == entries.length) {
+            return Futures.immediateFuture(null);
+        }
+        return Futures.transform(resolve(entries[index], kid), new AsyncFunction<IKey, IKey>() {
+            @Override
+            public ListenableFuture<IKey> apply(IKey key) {
+                if (key != null) {
+                    return Futures.immediateFuture(key);
+                }
+                return resolveInOrder(entries, index + 1, kid);
+            }
+        });
+    }
+
+    private ListenableFuture<IKey> resolveInParallel(Entry[] entries, String kid) {
+        if (entries.length == 0) {
+            return Futures.immediateFuture(null);
+        }
+        final SettableFuture<IKey> result = SettableFuture.create();
+        final AtomicInteger remaining = new AtomicInteger(entries.length);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (Entry entry : entries) {
+            Futures.addCallback(resolve(entry, kid), new FutureCallback<IKey>() {
+                @Override
+                public void onSuccess(IKey key) {
+                    if (key != null) {
+                        result.set(key);
+                    }
+                    resolved();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    failure.compareAndSet(null, t);
+                    resolved();
+                }
+
+                private void resolved() {
+                    // When no resolver found the key, report the first failure if any
+                    if (remaining.decrementAndGet() == 0) {
+                        Throwable t = failure.get();
+                        if (t != null) {
+                            result.setException(t);
+                        } else {
+                            result.set(null);
+                        }
+                    }
+                }
+            });
+        }
+        return result;
     }
 
+    private static ListenableFuture<IKey> resolve(Entry entry, final String kid) {
+        ListenableFuture<IKey> future = entry.resolver.resolveKeyAsync(kid);
+        if (entry.timeoutNanos == 0 || future.isDone()) {
+            return future;
+        }
+        // The resolver's future is left running rather than cancelled as it may be
+        // shared, e.g. by a caching resolver
+        final SettableFuture<IKey> result = SettableFuture.create();
+        Futures.addCallback(future, new FutureCallback<IKey>() {
+            @Override
+            public void onSuccess(IKey key) {
+                result.set(key);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+        });
+        final ScheduledFuture<?> timeout = Timer.SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                result.setException(new TimeoutException("Timed out resolving key " + kid));
+            }
+        }, entry.timeoutNanos, TimeUnit.NANOSECONDS);
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                timeout.cancel(false);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
 }
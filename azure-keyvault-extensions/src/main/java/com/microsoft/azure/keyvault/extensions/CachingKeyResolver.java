@@ -18,37 +18,162 @@
 
 package com.microsoft.azure.keyvault.extensions;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.microsoft.azure.keyvault.core.IKey;
 import com.microsoft.azure.keyvault.core.IKeyResolver;
 
 /**
  * The key resolver that caches the key after resolving to {@link IKey}.
+ *
+ * Entries can expire after a time to live and be refreshed ahead of expiry:
+ * a request for an entry older than the refresh interval starts resolving the
+ * key again in the background and keeps being answered from the cached key
+ * until the new one is resolved, which picks up rotated keys without putting
+ * the vault round trip on the request path. Failed resolutions are never
+ * cached.
  */
 public class CachingKeyResolver implements IKeyResolver {
 
     private final LoadingCache<String, ListenableFuture<IKey>> cache;
-    
+    private final IKeyResolver keyResolver;
+    private final Ticker ticker;
+
+    private final AtomicLong loadSuccessCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+    private final AtomicLong totalLoadTime    = new AtomicLong();
+
     /**
      * Constructor.
      * @param capacity the cache size
      * @param keyResolver the key resolver
      */
     public CachingKeyResolver(int capacity, final IKeyResolver keyResolver) {
-        cache = CacheBuilder.newBuilder().maximumSize(capacity)
+        this(CacheBuilder.newBuilder().maximumSize(capacity), keyResolver, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor.
+     * @param capacity the cache size
+     * @param keyResolver the key resolver
+     * @param timeToLive the time after which a resolved key is resolved again on the request path
+     * @param refreshAfter the time after which a resolved key is refreshed in the background on access;
+     *     should be shorter than timeToLive
+     * @param unit the unit of timeToLive and refreshAfter
+     */
+    public CachingKeyResolver(int capacity, final IKeyResolver keyResolver, long timeToLive, long refreshAfter, TimeUnit unit) {
+        this(capacity, keyResolver, timeToLive, refreshAfter, unit, Ticker.systemTicker());
+    }
+
+    CachingKeyResolver(int capacity, final IKeyResolver keyResolver, long timeToLive, long refreshAfter, TimeUnit unit, Ticker ticker) {
+        this(CacheBuilder.newBuilder().maximumSize(capacity)
+                .expireAfterWrite(timeToLive, unit)
+                .refreshAfterWrite(refreshAfter, unit)
+                .ticker(ticker), keyResolver, ticker);
+    }
+
+    private CachingKeyResolver(CacheBuilder<Object, Object> builder, final IKeyResolver keyResolver, Ticker ticker) {
+        this.keyResolver = keyResolver;
+        this.ticker = ticker;
+        this.cache = builder.recordStats()
                 .build(new CacheLoader<String, ListenableFuture<IKey>>() {
 
                     @Override
                     public ListenableFuture<IKey> load(String kid) {
-                        return keyResolver.resolveKeyAsync(kid);
+                        return resolve(kid);
+                    }
+
+                    @Override
+                    public ListenableFuture<ListenableFuture<IKey>> reload(String kid, ListenableFuture<IKey> oldValue) {
+                        if (!oldValue.isDone()) {
+                            // The key is still being resolved
+                            return Futures.immediateFuture(oldValue);
+                        }
+
+                        // Keep serving the old key until the new one is resolved; a failed
+                        // refresh keeps the old key until it expires
+                        return Futures.transform(resolve(kid), new Function<IKey, ListenableFuture<IKey>>() {
+                            @Override
+                            public ListenableFuture<IKey> apply(IKey key) {
+                                return Futures.immediateFuture(key);
+                            }
+                        });
                     } });
     }
 
     @Override
     public ListenableFuture<IKey> resolveKeyAsync(String kid) {
-        return cache.getUnchecked(kid);
+        ListenableFuture<IKey> future = cache.getUnchecked(kid);
+
+        // A resolution that failed while it was being loaded could not be evicted by its callback
+        if (isFailed(future)) {
+            cache.asMap().remove(kid, future);
+        }
+
+        return future;
+    }
+
+    /**
+     * Returns the cache statistics. The load counts and the total load time
+     * cover the resolution of the keys by the underlying key resolver,
+     * including background refreshes.
+     * @return the cache statistics
+     */
+    public CacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStats(stats.hitCount(), stats.missCount(), loadSuccessCount.get(), loadFailureCount.get(),
+                totalLoadTime.get(), stats.evictionCount());
+    }
+
+    private ListenableFuture<IKey> resolve(final String kid) {
+        final long start = ticker.read();
+        final ListenableFuture<IKey> future = keyResolver.resolveKeyAsync(kid);
+
+        Futures.addCallback(future, new FutureCallback<IKey>() {
+            @Override
+            public void onSuccess(IKey key) {
+                totalLoadTime.addAndGet(ticker.read() - start);
+                loadSuccessCount.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                totalLoadTime.addAndGet(ticker.read() - start);
+                loadFailureCount.incrementAndGet();
+                cache.asMap().remove(kid, future);
+            }
+        });
+
+        return future;
+    }
+
+    private static boolean isFailed(ListenableFuture<IKey> future) {
+        if (!future.isDone()) {
+            return false;
+        }
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (CancellationException e) {
+            return true;
+        } catch (InterruptedException e) {
+            // Not reachable as the future is done
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
@@ -20,12 +20,20 @@ package com.microsoft.azure.keyvault.extensions;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
 import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.microsoft.azure.keyvault.KeyVaultClient;
 import com.microsoft.azure.keyvault.core.IKey;
 import com.microsoft.azure.keyvault.cryptography.RsaKey;
@@ -34,12 +42,99 @@ import com.microsoft.azure.keyvault.webkey.JsonWebKeyEncryptionAlgorithm;
 import com.microsoft.azure.keyvault.webkey.JsonWebKeySignatureAlgorithm;
 import com.microsoft.azure.keyvault.models.KeyBundle;
 import com.microsoft.azure.keyvault.models.KeyOperationResult;
+import com.microsoft.azure.keyvault.models.KeyVerifyResult;
 import com.microsoft.azure.keyvault.webkey.JsonWebKeyType;
 
 /**
  * The key vault key that performs cryptography operations.
+ *
+ * Identical decrypt and unwrap requests (same client, key, algorithm and
+ * cipher text) that are in flight at the same time share a single call to
+ * the vault. Unwrapped keys can also be kept in an {@link UnwrappedKeyCache}.
+ *
+ * The public keys parsed from the fetched keys are shared by every instance
+ * for the same key identifier and version, so resolving a key again does not
+ * parse its public key again. Whether the public key operations run locally
+ * or in the vault is set by a {@link PublicKeyOperationPolicy}.
  */
 public class KeyVaultKey implements IKey {
+
+    /**
+     * Identifies a remote decrypt or unwrap operation.
+     */
+    static final class KeyOperation {
+
+        private final KeyVaultClient client;
+        private final String         kid;
+        private final boolean        unwrap;
+        private final String         algorithm;
+        private final byte[]         ciphertext;
+        private final int            hashCode;
+
+        KeyOperation(KeyVaultClient client, String kid, boolean unwrap, String algorithm, byte[] ciphertext) {
+            this.client     = client;
+            this.kid        = kid;
+            this.unwrap     = unwrap;
+            this.algorithm  = algorithm;
+            this.ciphertext = ciphertext.clone();
+            this.hashCode   = 31 * (31 * kid.hashCode() + algorithm.hashCode()) + Arrays.hashCode(this.ciphertext) + (unwrap ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof KeyOperation)) {
+                return false;
+            }
+            KeyOperation other = (KeyOperation) obj;
+            return client == other.client
+                    && unwrap == other.unwrap
+                    && kid.equals(other.kid)
+                    && algorithm.equals(other.algorithm)
+                    && Arrays.equals(ciphertext, other.ciphertext);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Copies the shared result of a coalesced operation for each caller.
+     */
+    static final Function<byte[], byte[]> COPY_RESULT = new Function<byte[], byte[]>() {
+        @Override
+        public byte[] apply(byte[] result) {
+            return result == null ? null : result.clone();
+        }
+    };
+
+    /**
+     * A public key parsed from a fetched key, with the parameters it was parsed from.
+     */
+    private static final class ParsedPublicKey {
+
+        private final byte[] n;
+        private final byte[] e;
+        private final IKey   key;
+
+        ParsedPublicKey(JsonWebKey jwk) {
+            this.n   = jwk.n();
+            this.e   = jwk.e();
+            // The private key is not available for KeyVault keys
+            this.key = new RsaKey(jwk.kid(), jwk.toRSA(false));
+        }
+
+        boolean matches(JsonWebKey jwk) {
+            return Arrays.equals(n, jwk.n()) && Arrays.equals(e, jwk.e());
+        }
+    }
+
+    static final int PUBLIC_KEY_CACHE_SIZE = 1000;
+
+    private static final ConcurrentMap<KeyOperation, ListenableFuture<byte[]>> PENDING_OPERATIONS = new ConcurrentHashMap<KeyOperation, ListenableFuture<byte[]>>();
+
+    private static final Cache<String, ParsedPublicKey> PUBLIC_KEYS = CacheBuilder.newBuilder().maximumSize(PUBLIC_KEY_CACHE_SIZE).build();
     
     /**
      * Transforms the result of decrypt operation to byte array.
@@ -56,6 +151,39 @@ public class KeyVaultKey implements IKey {
         }
     }
 
+    /**
+     * Transforms the result of encrypt operation to cipher text, authentication tag and algorithm triple.
+     */
+    class EncryptResultTransform implements Function<KeyOperationResult, Triple<byte[], byte[], String>> {
+
+        private final String algorithm;
+
+        EncryptResultTransform(String algorithm) {
+            super();
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public Triple<byte[], byte[], String> apply(KeyOperationResult result) {
+            return Triple.of(result.result(), (byte[]) null, algorithm);
+        }
+    }
+
+    /**
+     * Transforms the result of verify operation to boolean.
+     */
+    class VerifyResultTransform implements Function<KeyVerifyResult, Boolean> {
+
+        VerifyResultTransform() {
+            super();
+        }
+
+        @Override
+        public Boolean apply(KeyVerifyResult result) {
+            return result.value();
+        }
+    }
+
     /**
      * Transforms the result of sign operation to byte array and algorithm pair.
      */
@@ -75,8 +203,10 @@ public class KeyVaultKey implements IKey {
         }
     }
 
-    private final KeyVaultClient client;
-    private IKey                 implementation;
+    private final KeyVaultClient     client;
+    private IKey                     implementation;
+    private UnwrappedKeyCache        unwrappedKeyCache;
+    private PublicKeyOperationPolicy publicKeyOperationPolicy = PublicKeyOperationPolicy.LOCAL;
 
     protected KeyVaultKey(KeyVaultClient client, KeyBundle keyBundle) {
 
@@ -94,12 +224,8 @@ public class KeyVaultKey implements IKey {
             throw new IllegalArgumentException("keyBundle must contain a key");
         }
 
-        if (key.kty().equals(JsonWebKeyType.RSA)) {
-            // The private key is not available for KeyVault keys
-            implementation = new RsaKey(key.kid(), key.toRSA(false));
-        } else if (key.kty().equals(JsonWebKeyType.RSA_HSM)) {
-            // The private key is not available for KeyVault keys
-            implementation = new RsaKey(key.kid(), key.toRSA(false));
+        if (key.kty().equals(JsonWebKeyType.RSA) || key.kty().equals(JsonWebKeyType.RSA_HSM)) {
+            implementation = publicKey(key);
         }
 
         if (implementation == null) {
@@ -109,6 +235,52 @@ public class KeyVaultKey implements IKey {
         this.client = client;
     }
 
+    /**
+     * Gets the public key of a fetched key, parsing it only if the same key
+     * identifier was not parsed before with the same parameters.
+     */
+    private static IKey publicKey(JsonWebKey jwk) {
+
+        if (jwk.kid() == null) {
+            return new ParsedPublicKey(jwk).key;
+        }
+
+        ParsedPublicKey cached = PUBLIC_KEYS.getIfPresent(jwk.kid());
+
+        // A key identifier without a version may have been rotated
+        if (cached == null || !cached.matches(jwk)) {
+            cached = new ParsedPublicKey(jwk);
+            PUBLIC_KEYS.put(jwk.kid(), cached);
+        }
+
+        return cached.key;
+    }
+
+    /**
+     * Sets where the operations that only need the public key run, locally by default.
+     * @param publicKeyOperationPolicy the policy
+     * @return this key
+     */
+    public KeyVaultKey withPublicKeyOperationPolicy(PublicKeyOperationPolicy publicKeyOperationPolicy) {
+
+        if (publicKeyOperationPolicy == null) {
+            throw new IllegalArgumentException("publicKeyOperationPolicy");
+        }
+
+        this.publicKeyOperationPolicy = publicKeyOperationPolicy;
+        return this;
+    }
+
+    /**
+     * Keeps the keys unwrapped by this key in the specified cache.
+     * @param unwrappedKeyCache the cache to use, or null to unwrap every key remotely
+     * @return this key
+     */
+    public KeyVaultKey withUnwrappedKeyCache(UnwrappedKeyCache unwrappedKeyCache) {
+        this.unwrappedKeyCache = unwrappedKeyCache;
+        return this;
+    }
+
     @Override
     public void close() throws IOException {
         if (implementation != null) {
@@ -167,13 +339,7 @@ public class KeyVaultKey implements IKey {
         }
 
         // Never local
-        ListenableFuture<KeyOperationResult> futureCall =
-                client.decryptAsync(
-                        implementation.getKid(),
-                        new JsonWebKeyEncryptionAlgorithm(algorithm),
-                        ciphertext,
-                        null);
-        return Futures.transform(futureCall, new DecryptResultTransform());
+        return coalesce(new KeyOperation(client, implementation.getKid(), false, algorithm, ciphertext));
     }
 
     @Override
@@ -182,7 +348,21 @@ public class KeyVaultKey implements IKey {
             return null;
         }
 
-        return implementation.encryptAsync(plaintext, iv, authenticationData, algorithm);
+        if (publicKeyOperationPolicy == PublicKeyOperationPolicy.LOCAL) {
+            return implementation.encryptAsync(plaintext, iv, authenticationData, algorithm);
+        }
+
+        if (Strings.isNullOrWhiteSpace(algorithm)) {
+            algorithm = getDefaultEncryptionAlgorithm();
+        }
+
+        ListenableFuture<KeyOperationResult> futureCall =
+                client.encryptAsync(
+                        implementation.getKid(),
+                        new JsonWebKeyEncryptionAlgorithm(algorithm),
+                        plaintext,
+                        null);
+        return Futures.transform(futureCall, new EncryptResultTransform(algorithm));
     }
 
     @Override
@@ -191,7 +371,21 @@ public class KeyVaultKey implements IKey {
             return null;
         }
 
-        return implementation.wrapKeyAsync(plaintext, algorithm);
+        if (publicKeyOperationPolicy == PublicKeyOperationPolicy.LOCAL) {
+            return implementation.wrapKeyAsync(plaintext, algorithm);
+        }
+
+        if (Strings.isNullOrWhiteSpace(algorithm)) {
+            algorithm = getDefaultKeyWrapAlgorithm();
+        }
+
+        ListenableFuture<KeyOperationResult> futureCall =
+                client.wrapKeyAsync(
+                        implementation.getKid(),
+                        new JsonWebKeyEncryptionAlgorithm(algorithm),
+                        plaintext,
+                        null);
+        return Futures.transform(futureCall, new SignResultTransform(algorithm));
     }
 
     @Override
@@ -204,14 +398,18 @@ public class KeyVaultKey implements IKey {
             algorithm = getDefaultKeyWrapAlgorithm();
         }
 
+        KeyOperation operation = new KeyOperation(client, implementation.getKid(), true, algorithm, ciphertext);
+
+        if (unwrappedKeyCache != null) {
+            byte[] key = unwrappedKeyCache.get(operation);
+
+            if (key != null) {
+                return Futures.immediateFuture(key);
+            }
+        }
+
         // Never local
-        ListenableFuture<KeyOperationResult> futureCall = 
-                client.unwrapKeyAsync(
-                        implementation.getKid(),
-                        new JsonWebKeyEncryptionAlgorithm(algorithm),
-                        ciphertext,
-                        null);
-        return Futures.transform(futureCall, new DecryptResultTransform());
+        return coalesce(operation);
     }
 
     @Override
@@ -240,6 +438,79 @@ public class KeyVaultKey implements IKey {
             return null;
         }
 
-        return implementation.verifyAsync(digest, signature, algorithm);
+        if (publicKeyOperationPolicy == PublicKeyOperationPolicy.LOCAL) {
+            return implementation.verifyAsync(digest, signature, algorithm);
+        }
+
+        if (Strings.isNullOrWhiteSpace(algorithm)) {
+            algorithm = getDefaultSignatureAlgorithm();
+        }
+
+        ListenableFuture<KeyVerifyResult> futureCall =
+                client.verifyAsync(
+                        implementation.getKid(),
+                        new JsonWebKeySignatureAlgorithm(algorithm),
+                        digest,
+                        signature,
+                        null);
+        return Futures.transform(futureCall, new VerifyResultTransform());
+    }
+
+    /**
+     * Runs a remote decrypt or unwrap operation, sharing the call with an
+     * identical operation that is already in flight.
+     */
+    private ListenableFuture<byte[]> coalesce(final KeyOperation operation) {
+
+        final SettableFuture<byte[]> pending  = SettableFuture.create();
+        ListenableFuture<byte[]>     existing = PENDING_OPERATIONS.putIfAbsent(operation, pending);
+
+        if (existing != null) {
+            return Futures.transform(existing, COPY_RESULT);
+        }
+
+        final UnwrappedKeyCache cache = operation.unwrap ? unwrappedKeyCache : null;
+
+        // A request that missed the cache may win the slot of an identical
+        // call that completed since, whose key is then in the cache
+        if (cache != null) {
+            byte[] key = cache.get(operation);
+
+            if (key != null) {
+                PENDING_OPERATIONS.remove(operation, pending);
+                pending.set(key);
+                return Futures.immediateFuture(key.clone());
+            }
+        }
+
+        try {
+            ListenableFuture<KeyOperationResult> futureCall = operation.unwrap
+                    ? client.unwrapKeyAsync(operation.kid, new JsonWebKeyEncryptionAlgorithm(operation.algorithm), operation.ciphertext, null)
+                    : client.decryptAsync(operation.kid, new JsonWebKeyEncryptionAlgorithm(operation.algorithm), operation.ciphertext, null);
+
+            Futures.addCallback(Futures.transform(futureCall, new DecryptResultTransform()), new FutureCallback<byte[]>() {
+                @Override
+                public void onSuccess(byte[] result) {
+                    // Cache the key before the operation stops being shared, so
+                    // that the requests that win the slot next find it
+                    if (cache != null && result != null) {
+                        cache.put(operation, result);
+                    }
+                    PENDING_OPERATIONS.remove(operation, pending);
+                    pending.set(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    PENDING_OPERATIONS.remove(operation, pending);
+                    pending.setException(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            PENDING_OPERATIONS.remove(operation, pending);
+            pending.setException(e);
+        }
+
+        return Futures.transform(pending, COPY_RESULT);
     }
 }
@@ -36,6 +36,8 @@ import com.microsoft.azure.keyvault.models.SecretBundle;
 /**
  * The key resolver class that handles resolving key id to type {@link IKey} 
  * to be used for cryptography operations.
+ * Every resolution calls the vault; wrap the resolver in a {@link CachingKeyResolver}
+ * with a time to live and a refresh interval to keep the vault off the request path.
  */
 public class KeyVaultKeyResolver implements IKeyResolver {
 
@@ -54,7 +56,9 @@ public class KeyVaultKeyResolver implements IKeyResolver {
         public IKey apply(KeyBundle keyBundle) {
 
             if (keyBundle != null) {
-                return new KeyVaultKey(client, keyBundle);
+                return new KeyVaultKey(client, keyBundle)
+                        .withUnwrappedKeyCache(unwrappedKeyCache)
+                        .withPublicKeyOperationPolicy(publicKeyOperationPolicy);
             }
 
             return null;
@@ -85,16 +89,17 @@ public class KeyVaultKeyResolver implements IKeyResolver {
         }
     }
 
-    private final KeyVaultClient client;
-    private final Provider       provider;
+    private final KeyVaultClient           client;
+    private final Provider                 provider;
+    private final UnwrappedKeyCache        unwrappedKeyCache;
+    private final PublicKeyOperationPolicy publicKeyOperationPolicy;
 
     /**
      * Constructor.
      * @param client the key vault client
      */
     public KeyVaultKeyResolver(KeyVaultClient client) {
-        this.client   = client;
-        this.provider = null;
+        this(client, null, null);
     }
     
     /**
@@ -103,8 +108,36 @@ public class KeyVaultKeyResolver implements IKeyResolver {
      * @param provider the java security provider
      */
     public KeyVaultKeyResolver(KeyVaultClient client, Provider provider) {
-        this.client   = client;
-        this.provider = provider;
+        this(client, provider, null);
+    }
+
+    /**
+     * Constructor.
+     * @param client the key vault client
+     * @param provider the java security provider
+     * @param unwrappedKeyCache the cache for keys unwrapped by the resolved keys, may be shared between resolvers
+     */
+    public KeyVaultKeyResolver(KeyVaultClient client, Provider provider, UnwrappedKeyCache unwrappedKeyCache) {
+        this(client, provider, unwrappedKeyCache, PublicKeyOperationPolicy.LOCAL);
+    }
+
+    /**
+     * Constructor.
+     * @param client the key vault client
+     * @param provider the java security provider
+     * @param unwrappedKeyCache the cache for keys unwrapped by the resolved keys, may be shared between resolvers
+     * @param publicKeyOperationPolicy where the resolved keys run the operations that only need the public key
+     */
+    public KeyVaultKeyResolver(KeyVaultClient client, Provider provider, UnwrappedKeyCache unwrappedKeyCache, PublicKeyOperationPolicy publicKeyOperationPolicy) {
+
+        if (publicKeyOperationPolicy == null) {
+            throw new IllegalArgumentException("publicKeyOperationPolicy");
+        }
+
+        this.client                   = client;
+        this.provider                 = provider;
+        this.unwrappedKeyCache        = unwrappedKeyCache;
+        this.publicKeyOperationPolicy = publicKeyOperationPolicy;
     }
 
     private ListenableFuture<IKey> resolveKeyFromSecretAsync(String kid) {
@@ -0,0 +1,39 @@
+/**
+ *
+ * Copyright (c) Microsoft and contributors.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.microsoft.azure.keyvault.extensions;
+
+/**
+ * Where {@link KeyVaultKey} runs the operations that only need the public key:
+ * encrypt, wrap and verify. Decrypt, unwrap and sign need the private key and
+ * always run in the vault.
+ */
+public enum PublicKeyOperationPolicy {
+
+    /**
+     * Run the public key operations locally with the public key fetched with
+     * the key, without a round trip to the vault.
+     */
+    LOCAL,
+
+    /**
+     * Run every operation in the vault, so that each one is authorized and
+     * logged by the vault.
+     */
+    REMOTE
+}
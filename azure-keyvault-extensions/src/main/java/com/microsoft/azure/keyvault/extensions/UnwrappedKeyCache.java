@@ -0,0 +1,127 @@
+/**
+ *
+ * Copyright (c) Microsoft and contributors.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.microsoft.azure.keyvault.extensions;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * A bounded cache of keys unwrapped by {@link KeyVaultKey}, so that content
+ * keys wrapped with the same key encryption key are unwrapped by the vault
+ * only once per time to live.
+ *
+ * Entries are keyed by the key vault client, the key identifier, the algorithm
+ * and the wrapped key. The cache hands out copies of the unwrapped keys and
+ * overwrites its own copy with zeros when an entry is evicted, expires or the
+ * cache is closed. Expired entries are zeroed during the cache maintenance that
+ * happens as the cache is used, and at the latest when a lookup misses.
+ */
+public class UnwrappedKeyCache implements Closeable {
+
+    static final class Entry {
+
+        final byte[]    key;
+        private boolean destroyed;
+
+        Entry(byte[] key) {
+            this.key = key;
+        }
+
+        synchronized byte[] copy() {
+            return destroyed ? null : key.clone();
+        }
+
+        synchronized void destroy() {
+            destroyed = true;
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private final Cache<Object, Entry> cache;
+
+    /**
+     * Constructor.
+     * @param capacity the maximum number of unwrapped keys to keep
+     * @param timeToLive the time after which an unwrapped key is dropped
+     * @param unit the unit of timeToLive
+     */
+    public UnwrappedKeyCache(int capacity, long timeToLive, TimeUnit unit) {
+        this(capacity, timeToLive, unit, Ticker.systemTicker());
+    }
+
+    UnwrappedKeyCache(int capacity, long timeToLive, TimeUnit unit, Ticker ticker) {
+        cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .maximumSize(capacity)
+                .expireAfterWrite(timeToLive, unit)
+                .removalListener(new RemovalListener<Object, Entry>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<Object, Entry> notification) {
+                        Entry entry = notification.getValue();
+                        if (entry != null) {
+                            entry.destroy();
+                        }
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @return the number of unwrapped keys in the cache
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Drops and zeroes all unwrapped keys.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        cache.cleanUp();
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    byte[] get(Object operation) {
+        Entry entry = cache.getIfPresent(operation);
+        if (entry == null) {
+            // A miss is followed by a vault call, zero the expired keys now
+            cache.cleanUp();
+            return null;
+        }
+        return entry.copy();
+    }
+
+    Entry put(Object operation, byte[] key) {
+        Entry entry = new Entry(key.clone());
+        cache.put(operation, entry);
+        return entry;
+    }
+}
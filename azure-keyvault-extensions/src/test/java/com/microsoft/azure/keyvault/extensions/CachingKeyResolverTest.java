@@ -0,0 +1,205 @@
+/**
+ *
+ * Copyright (c) Microsoft and contributors.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.microsoft.azure.keyvault.extensions;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Futures;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.microsoft.azure.keyvault.core.IKey;
+import com.microsoft.azure.keyvault.core.IKeyResolver;
+import static org.mockito.Mockito.*;
+
+public class CachingKeyResolverTest {
+    
+    @SuppressWarnings("unchecked")
+    final ListenableFuture<IKey> ikeyAsync = mock(ListenableFuture.class);
+    final static String keyId = "keyID";
+    final static String keyId2 = "keyID2";
+    final static String keyId3 = "keyID3";
+
+    private static final class FakeTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+
+    /* 
+     * Tests the capacity limit of CachingKeyResolver by adding more keys
+     * than the cache limit and verifying that least recently used entity is evicted.
+     */
+    @Test
+    public void KeyVault_CapacityLimitOfCachingKeyResolver()
+    {
+        IKeyResolver mockedKeyResolver = mock(IKeyResolver.class);
+        CachingKeyResolver resolver = new CachingKeyResolver(2, mockedKeyResolver);
+        
+        when(mockedKeyResolver.resolveKeyAsync(keyId)).thenReturn(ikeyAsync);
+        when(mockedKeyResolver.resolveKeyAsync(keyId2)).thenReturn(ikeyAsync);
+        when(mockedKeyResolver.resolveKeyAsync(keyId3)).thenReturn(ikeyAsync);
+        
+        resolver.resolveKeyAsync(keyId);
+        resolver.resolveKeyAsync(keyId2);
+        resolver.resolveKeyAsync(keyId3);
+        
+        resolver.resolveKeyAsync(keyId2);
+        resolver.resolveKeyAsync(keyId3);
+        resolver.resolveKeyAsync(keyId);
+        resolver.resolveKeyAsync(keyId3);
+        
+        verify(mockedKeyResolver, times(1)).resolveKeyAsync(keyId2);
+        verify(mockedKeyResolver, times(1)).resolveKeyAsync(keyId3);
+        verify(mockedKeyResolver, times(2)).resolveKeyAsync(keyId);
+    }
+    
+    /* 
+     * Tests the behavior of CachingKeyResolver when resolving key throws 
+     * and validate that the failed entity is not added to the cache. 
+     */
+    @Test
+    public void KeyVault_CachingKeyResolverThrows()
+    {
+        IKeyResolver mockedKeyResolver = mock(IKeyResolver.class);
+        CachingKeyResolver resolver = new CachingKeyResolver(10, mockedKeyResolver);
+        
+        // First throw exception and for the second call return a value
+        when(mockedKeyResolver.resolveKeyAsync(keyId))
+            .thenThrow(new RuntimeException("test"))
+            .thenReturn(ikeyAsync);
+        
+        try {
+            resolver.resolveKeyAsync(keyId);
+            assertFalse("Should have thrown an exception.", true);
+        }
+        catch (UncheckedExecutionException e) {
+            assertTrue("RuntimeException is expected.", e.getCause() instanceof RuntimeException);
+        }
+        
+        resolver.resolveKeyAsync(keyId);
+        resolver.resolveKeyAsync(keyId);
+        
+        verify(mockedKeyResolver, times(2)).resolveKeyAsync(keyId);
+    }
+
+    /*
+     * Tests that a resolution failing after it was cached is evicted
+     * so that the next request resolves the key again.
+     */
+    @Test
+    public void KeyVault_CachingKeyResolverEvictsFailedFutures() throws Exception
+    {
+        IKey key = mock(IKey.class);
+        SettableFuture<IKey> failing = SettableFuture.create();
+        IKeyResolver mockedKeyResolver = mock(IKeyResolver.class);
+        CachingKeyResolver resolver = new CachingKeyResolver(10, mockedKeyResolver);
+
+        when(mockedKeyResolver.resolveKeyAsync(keyId))
+            .thenReturn(failing)
+            .thenReturn(Futures.<IKey>immediateFailedFuture(new RuntimeException("test")))
+            .thenReturn(Futures.immediateFuture(key));
+
+        assertSame(failing, resolver.resolveKeyAsync(keyId));
+        failing.setException(new RuntimeException("test"));
+
+        assertTrue(resolver.resolveKeyAsync(keyId).isDone());
+        assertSame(key, resolver.resolveKeyAsync(keyId).get());
+        assertSame(key, resolver.resolveKeyAsync(keyId).get());
+
+        verify(mockedKeyResolver, times(3)).resolveKeyAsync(keyId);
+        assertEquals(1, resolver.stats().loadSuccessCount());
+        assertEquals(2, resolver.stats().loadExceptionCount());
+        assertEquals(1, resolver.stats().hitCount());
+    }
+
+    /*
+     * Tests that an entry older than the refresh interval is refreshed in the
+     * background while requests keep being answered from the cached key.
+     */
+    @Test
+    public void KeyVault_CachingKeyResolverRefreshesAhead() throws Exception
+    {
+        IKey key = mock(IKey.class);
+        IKey rotatedKey = mock(IKey.class);
+        SettableFuture<IKey> refresh = SettableFuture.create();
+        IKeyResolver mockedKeyResolver = mock(IKeyResolver.class);
+        FakeTicker ticker = new FakeTicker();
+        CachingKeyResolver resolver = new CachingKeyResolver(10, mockedKeyResolver, 10, 1, TimeUnit.MINUTES, ticker);
+
+        when(mockedKeyResolver.resolveKeyAsync(keyId))
+            .thenReturn(Futures.immediateFuture(key))
+            .thenReturn(refresh);
+
+        assertSame(key, resolver.resolveKeyAsync(keyId).get());
+        ticker.advance(59, TimeUnit.SECONDS);
+        assertSame(key, resolver.resolveKeyAsync(keyId).get());
+        verify(mockedKeyResolver, times(1)).resolveKeyAsync(keyId);
+
+        ticker.advance(2, TimeUnit.SECONDS);
+
+        // Starts the refresh but answers with the cached key
+        ListenableFuture<IKey> future = resolver.resolveKeyAsync(keyId);
+        assertTrue(future.isDone());
+        assertSame(key, future.get());
+        assertSame(key, resolver.resolveKeyAsync(keyId).get());
+
+        refresh.set(rotatedKey);
+        assertSame(rotatedKey, resolver.resolveKeyAsync(keyId).get());
+
+        verify(mockedKeyResolver, times(2)).resolveKeyAsync(keyId);
+    }
+
+    /*
+     * Tests that entries expire after their time to live.
+     */
+    @Test
+    public void KeyVault_CachingKeyResolverExpires() throws Exception
+    {
+        IKeyResolver mockedKeyResolver = mock(IKeyResolver.class);
+        FakeTicker ticker = new FakeTicker();
+        CachingKeyResolver resolver = new CachingKeyResolver(10, mockedKeyResolver, 1, 1, TimeUnit.MINUTES, ticker);
+
+        when(mockedKeyResolver.resolveKeyAsync(keyId)).thenReturn(Futures.immediateFuture(mock(IKey.class)));
+
+        resolver.resolveKeyAsync(keyId);
+        ticker.advance(59, TimeUnit.SECONDS);
+        resolver.resolveKeyAsync(keyId);
+        ticker.advance(1, TimeUnit.SECONDS);
+        resolver.resolveKeyAsync(keyId);
+
+        verify(mockedKeyResolver, times(2)).resolveKeyAsync(keyId);
+        assertEquals(2, resolver.stats().missCount());
+    }
+}
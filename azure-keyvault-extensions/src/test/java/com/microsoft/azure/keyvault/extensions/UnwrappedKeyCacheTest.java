@@ -0,0 +1,143 @@
+/**
+ *
+ * Copyright (c) Microsoft and contributors.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.microsoft.azure.keyvault.extensions;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.microsoft.azure.keyvault.KeyVaultClient;
+import com.microsoft.azure.keyvault.extensions.KeyVaultKey.KeyOperation;
+import com.microsoft.rest.credentials.TokenCredentials;
+
+public class UnwrappedKeyCacheTest {
+
+    private static final byte[] ZEROS = new byte[] { 0, 0, 0 };
+
+    private static final class FakeTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+
+    private static KeyOperation operation(String kid) {
+        return new KeyOperation(null, kid, true, "RSA-OAEP", new byte[] { 1, 2, 3 });
+    }
+
+    @Test
+    public void handsOutCopies() {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, 1, TimeUnit.MINUTES);
+        byte[] key = new byte[] { 4, 5, 6 };
+
+        cache.put(operation("kid"), key);
+        key[0] = 0;
+
+        byte[] first = cache.get(operation("kid"));
+        assertArrayEquals(new byte[] { 4, 5, 6 }, first);
+        first[1] = 0;
+
+        byte[] second = cache.get(operation("kid"));
+        assertArrayEquals(new byte[] { 4, 5, 6 }, second);
+        assertNotSame(first, second);
+        assertNull(cache.get(operation("other")));
+    }
+
+    @Test
+    public void zeroesEvictedKeys() {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(1, 1, TimeUnit.MINUTES);
+
+        UnwrappedKeyCache.Entry evicted = cache.put(operation("kid1"), new byte[] { 4, 5, 6 });
+        UnwrappedKeyCache.Entry kept = cache.put(operation("kid2"), new byte[] { 7, 8, 9 });
+
+        assertEquals(1, cache.size());
+        assertArrayEquals(ZEROS, evicted.key);
+        assertNull(evicted.copy());
+        assertArrayEquals(new byte[] { 7, 8, 9 }, kept.key);
+    }
+
+    @Test
+    public void zeroesExpiredKeys() {
+        FakeTicker ticker = new FakeTicker();
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, 1, TimeUnit.MINUTES, ticker);
+
+        UnwrappedKeyCache.Entry entry = cache.put(operation("kid"), new byte[] { 4, 5, 6 });
+
+        ticker.advance(59, TimeUnit.SECONDS);
+        assertArrayEquals(new byte[] { 4, 5, 6 }, cache.get(operation("kid")));
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertNull(cache.get(operation("kid")));
+        assertArrayEquals(ZEROS, entry.key);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void zeroesKeysOnInvalidateAllAndClose() {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, 1, TimeUnit.MINUTES);
+
+        UnwrappedKeyCache.Entry first = cache.put(operation("kid1"), new byte[] { 4, 5, 6 });
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertArrayEquals(ZEROS, first.key);
+        assertNull(cache.get(operation("kid1")));
+
+        UnwrappedKeyCache.Entry second = cache.put(operation("kid2"), new byte[] { 7, 8, 9 });
+        cache.close();
+
+        assertEquals(0, cache.size());
+        assertArrayEquals(ZEROS, second.key);
+    }
+
+    @Test
+    public void keyOperationsAreEqualByValue() {
+        KeyVaultClient client = new KeyVaultClient(new TokenCredentials("Bearer", "test"));
+        byte[] ciphertext = new byte[] { 1, 2, 3 };
+
+        KeyOperation operation = new KeyOperation(client, "kid", true, "RSA-OAEP", ciphertext);
+        KeyOperation same = new KeyOperation(client, "kid", true, "RSA-OAEP", new byte[] { 1, 2, 3 });
+
+        assertEquals(operation, same);
+        assertEquals(operation.hashCode(), same.hashCode());
+
+        // The cipher text is copied, so changing it afterwards does not change the operation
+        ciphertext[0] = 9;
+        assertEquals(operation, same);
+        assertEquals(operation.hashCode(), same.hashCode());
+
+        assertNotEquals(operation, new KeyOperation(client, "kid", false, "RSA-OAEP", new byte[] { 1, 2, 3 }));
+        assertNotEquals(operation, new KeyOperation(client, "kid2", true, "RSA-OAEP", new byte[] { 1, 2, 3 }));
+        assertNotEquals(operation, new KeyOperation(client, "kid", true, "RSA1_5", new byte[] { 1, 2, 3 }));
+        assertNotEquals(operation, new KeyOperation(client, "kid", true, "RSA-OAEP", new byte[] { 1, 2, 4 }));
+        assertNotEquals(operation, new KeyOperation(new KeyVaultClient(new TokenCredentials("Bearer", "test")), "kid", true, "RSA-OAEP", new byte[] { 1, 2, 3 }));
+        assertNotEquals(operation, null);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ *
+ * Copyright (c) Microsoft and contributors.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.microsoft.azure.keyvault.extensions.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.azure.keyvault.core.IKey;
+import com.microsoft.azure.keyvault.core.IKeyResolver;
+import com.microsoft.azure.keyvault.extensions.AggregateKeyResolver;
+
+public class AggregateKeyResolverTest {
+
+    final static String keyId = "keyID";
+
+    /*
+     * Tests that the resolvers are asked in order and that the ones after
+     * the resolver that found the key are not asked at all.
+     */
+    @Test
+    public void KeyVault_AggregateKeyResolverStopsAtFirstKey() throws Exception
+    {
+        IKey key = mock(IKey.class);
+        IKeyResolver first = mock(IKeyResolver.class);
+        IKeyResolver second = mock(IKeyResolver.class);
+        IKeyResolver third = mock(IKeyResolver.class);
+        when(first.resolveKeyAsync(keyId)).thenReturn(Futures.<IKey>immediateFuture(null));
+        when(second.resolveKeyAsync(keyId)).thenReturn(Futures.immediateFuture(key));
+
+        AggregateKeyResolver resolver = new AggregateKeyResolver();
+        resolver.add(first);
+        resolver.add(second);
+        resolver.add(third);
+
+        assertSame(key, resolver.resolveKeyAsync(keyId).get());
+        verify(third, never()).resolveKeyAsync(keyId);
+    }
+
+    /*
+     * Tests that resolving does not block on a pending resolver and completes
+     * once the resolver answers.
+     */
+    @Test
+    public void KeyVault_AggregateKeyResolverDoesNotBlock() throws Exception
+    {
+        IKey key = mock(IKey.class);
+        SettableFuture<IKey> pending = SettableFuture.create();
+        IKeyResolver slow = mock(IKeyResolver.class);
+        when(slow.resolveKeyAsync(keyId)).thenReturn(pending);
+
+        AggregateKeyResolver resolver = new AggregateKeyResolver();
+        resolver.add(slow);
+
+        ListenableFuture<IKey> result = resolver.resolveKeyAsync(keyId);
+        assertFalse(result.isDone());
+        pending.set(key);
+        assertTrue(result.isDone());
+        assertSame(key, result.get());
+    }
+
+    /*
+     * Tests that in parallel mode the first key resolved wins even if an
+     * earlier resolver has not answered yet.
+     */
+    @Test
+    public void KeyVault_AggregateKeyResolverParallelTakesFirstKey() throws Exception
+    {
+        IKey key = mock(IKey.class);
+        IKeyResolver slow = mock(IKeyResolver.class);
+        IKeyResolver fast = mock(IKeyResolver.class);
+        when(slow.resolveKeyAsync(keyId)).thenReturn(SettableFuture.<IKey>create());
+        when(fast.resolveKeyAsync(keyId)).thenReturn(Futures.immediateFuture(key));
+
+        AggregateKeyResolver resolver = new AggregateKeyResolver(AggregateKeyResolver.ResolutionPolicy.PARALLEL);
+        resolver.add(slow);
+        resolver.add(fast);
+
+        assertSame(key, resolver.resolveKeyAsync(keyId).get(1, TimeUnit.SECONDS));
+    }
+
+    /*
+     * Tests that a resolver exceeding its timeout fails the resolution.
+     */
+    @Test
+    public void KeyVault_AggregateKeyResolverTimesOut() throws Exception
+    {
+        IKeyResolver slow = mock(IKeyResolver.class);
+        when(slow.resolveKeyAsync(keyId)).thenReturn(SettableFuture.<IKey>create());
+
+        AggregateKeyResolver resolver = new AggregateKeyResolver();
+        resolver.add(slow, 50, TimeUnit.MILLISECONDS);
+
+        try {
+            resolver.resolveKeyAsync(keyId).get(5, TimeUnit.SECONDS);
+            fail("Expected the resolution to time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+}
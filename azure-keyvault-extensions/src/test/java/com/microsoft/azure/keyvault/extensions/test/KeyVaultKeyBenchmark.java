@@ -0,0 +1,179 @@
+/**
+ *
+ * Copyright (c) Microsoft and contributors.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.microsoft.azure.keyvault.extensions.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.keyvault.KeyVaultClient;
+import com.microsoft.azure.keyvault.core.IKey;
+import com.microsoft.azure.keyvault.cryptography.algorithms.Rs256;
+import com.microsoft.azure.keyvault.cryptography.algorithms.RsaOaep;
+import com.microsoft.azure.keyvault.extensions.KeyVaultKeyResolver;
+import com.microsoft.azure.keyvault.extensions.PublicKeyOperationPolicy;
+import com.microsoft.azure.keyvault.webkey.JsonWebKey;
+import com.microsoft.rest.credentials.TokenCredentials;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Compares the latency of wrapping a key and verifying a signature locally
+ * with the public key fetched with the key, and in the vault. The vault is
+ * stood in for by an HTTP server on the loopback interface that answers with
+ * canned responses, so the remote rows measure the client and HTTP overhead
+ * only and are a lower bound of the latency against a real vault, which adds
+ * the network round trip and the time the vault takes.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.keyvault.extensions.test.KeyVaultKeyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyVaultKeyBenchmark {
+
+    private static final Base64 BASE64 = new Base64(-1, null, true);
+
+    private HttpServer      server;
+    private ExecutorService serverExecutor;
+    private IKey            localKey;
+    private IKey            remoteKey;
+    private byte[]          cek;
+    private byte[]          digest;
+    private byte[]          signature;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        cek       = new byte[32];
+        digest    = MessageDigest.getInstance("SHA-256").digest(cek);
+
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keyPair.getPrivate());
+        signer.update(cek);
+        signature = signer.sign();
+
+        // The server would otherwise wait for delayed acknowledgements between the headers and the body
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        String     kid = "http://127.0.0.1:" + server.getAddress().getPort() + "/keys/benchmark/0123456789abcdef";
+        JsonWebKey jwk = JsonWebKey.fromRSA(new KeyPair(keyPair.getPublic(), null)).withKid(kid);
+
+        final byte[] keyBundle = ("{\"key\":" + new ObjectMapper().writeValueAsString(jwk) + "}").getBytes(StandardCharsets.UTF_8);
+        final byte[] wrapped   = ("{\"kid\":\"" + kid + "\",\"value\":\"" + BASE64.encodeAsString(new byte[256]) + "\"}").getBytes(StandardCharsets.UTF_8);
+        final byte[] verified  = "{\"value\":true}".getBytes(StandardCharsets.UTF_8);
+
+        server.createContext("/keys/benchmark/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream request = exchange.getRequestBody();
+                while (request.read(new byte[1024]) >= 0) {
+                    // Drain the request
+                }
+
+                String path     = exchange.getRequestURI().getPath();
+                byte[] response = path.endsWith("/wrapkey") ? wrapped : path.endsWith("/verify") ? verified : keyBundle;
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(response);
+                body.close();
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        KeyVaultClient client = new KeyVaultClient(new TokenCredentials("Bearer", "benchmark"));
+
+        localKey  = new KeyVaultKeyResolver(client, null, null, PublicKeyOperationPolicy.LOCAL).resolveKeyAsync(kid).get();
+        remoteKey = new KeyVaultKeyResolver(client, null, null, PublicKeyOperationPolicy.REMOTE).resolveKeyAsync(kid).get();
+
+        if (!localVerify() || !remoteVerify() || remoteWrap().length != 256) {
+            throw new IllegalStateException("Unexpected result");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdown();
+    }
+
+    @Benchmark
+    public byte[] localWrap() throws Exception {
+        return localKey.wrapKeyAsync(cek, RsaOaep.ALGORITHM_NAME).get().getLeft();
+    }
+
+    @Benchmark
+    public byte[] remoteWrap() throws Exception {
+        return remoteKey.wrapKeyAsync(cek, RsaOaep.ALGORITHM_NAME).get().getLeft();
+    }
+
+    @Benchmark
+    public boolean localVerify() throws Exception {
+        return localKey.verifyAsync(digest, signature, Rs256.ALGORITHM_NAME).get();
+    }
+
+    @Benchmark
+    public boolean remoteVerify() throws Exception {
+        return remoteKey.verifyAsync(digest, signature, Rs256.ALGORITHM_NAME).get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(KeyVaultKeyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.keyvault.models.KeyVaultErrorException;
+import com.microsoft.azure.keyvault.models.SecretBundle;
+
+import retrofit2.Response;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Fetches a set of secrets concurrently, with a cap on the requests in flight.
+ *
+ * Requests rejected with 429 Too Many Requests are retried after the delay the
+ * service asks for in the Retry-After header, or after an exponential back-off
+ * when it does not send one. Any other failure, and a request still throttled
+ * after {@link #MAX_THROTTLED_RETRIES} retries, is recorded against its
+ * identifier without affecting the other requests.
+ */
+final class BulkSecretFetch {
+
+    static final int DEFAULT_MAX_CONCURRENCY = 16;
+    static final int MAX_THROTTLED_RETRIES = 5;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+
+    /**
+     * The outcome of fetching a single secret.
+     */
+    private static final class Outcome {
+        final String identifier;
+        final SecretBundle secret;
+        final Throwable error;
+
+        Outcome(String identifier, SecretBundle secret, Throwable error) {
+            this.identifier = identifier;
+            this.secret = secret;
+            this.error = error;
+        }
+    }
+
+    private BulkSecretFetch() {
+    }
+
+    /**
+     * Fetches the secrets.
+     *
+     * @param secretIdentifiers the URLs of the secrets, duplicates are fetched once
+     * @param maxConcurrency the maximum number of requests in flight
+     * @param getSecret the function creating the call fetching a secret
+     * @return the observable to the result, which never fails
+     */
+    static Observable<GetSecretsResult> fetch(Collection<String> secretIdentifiers, int maxConcurrency,
+                                              final Func1<SecretIdentifier, Observable<SecretBundle>> getSecret) {
+        if (secretIdentifiers == null) {
+            throw new IllegalArgumentException("Parameter secretIdentifiers is required and cannot be null.");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Parameter maxConcurrency must be positive.");
+        }
+
+        final LinkedHashSet<String> requested = new LinkedHashSet<String>(secretIdentifiers);
+
+        return Observable.from(requested)
+            .flatMap(new Func1<String, Observable<Outcome>>() {
+                @Override
+                public Observable<Outcome> call(final String identifier) {
+                    return fetchOne(identifier, getSecret)
+                        .map(new Func1<SecretBundle, Outcome>() {
+                            @Override
+                            public Outcome call(SecretBundle secret) {
+                                return new Outcome(identifier, secret, null);
+                            }
+                        })
+                        .onErrorReturn(new Func1<Throwable, Outcome>() {
+                            @Override
+                            public Outcome call(Throwable error) {
+                                return new Outcome(identifier, null, error);
+                            }
+                        });
+                }
+            }, maxConcurrency)
+            .toList()
+            .map(new Func1<List<Outcome>, GetSecretsResult>() {
+                @Override
+                public GetSecretsResult call(List<Outcome> outcomes) {
+                    Map<String, Outcome> byIdentifier = new LinkedHashMap<String, Outcome>();
+                    for (Outcome outcome : outcomes) {
+                        byIdentifier.put(outcome.identifier, outcome);
+                    }
+                    Map<String, SecretBundle> secrets = new LinkedHashMap<String, SecretBundle>();
+                    Map<String, Throwable> errors = new LinkedHashMap<String, Throwable>();
+                    for (String identifier : requested) {
+                        Outcome outcome = byIdentifier.get(identifier);
+                        if (outcome.error == null) {
+                            secrets.put(identifier, outcome.secret);
+                        } else {
+                            errors.put(identifier, outcome.error);
+                        }
+                    }
+                    return new GetSecretsResult(secrets, errors);
+                }
+            });
+    }
+
+    private static Observable<SecretBundle> fetchOne(final String identifier, final Func1<SecretIdentifier, Observable<SecretBundle>> getSecret) {
+        return Observable.defer(new Func0<Observable<SecretBundle>>() {
+                @Override
+                public Observable<SecretBundle> call() {
+                    return getSecret.call(new SecretIdentifier(identifier));
+                }
+            })
+            .subscribeOn(Schedulers.io())
+            .retryWhen(new Func1<Observable<? extends Throwable>, Observable<?>>() {
+                @Override
+                public Observable<?> call(Observable<? extends Throwable> errors) {
+                    return errors.flatMap(new Func1<Throwable, Observable<Long>>() {
+                        private int retries;
+
+                        @Override
+                        public Observable<Long> call(Throwable error) {
+                            Response<?> response = error instanceof KeyVaultErrorException ? ((KeyVaultErrorException) error).getResponse() : null;
+                            if (response == null || response.code() != TOO_MANY_REQUESTS || retries >= MAX_THROTTLED_RETRIES) {
+                                return Observable.error(error);
+                            }
+                            return Observable.timer(retryDelayMillis(response.headers().get("Retry-After"), retries++), TimeUnit.MILLISECONDS);
+                        }
+                    });
+                }
+            });
+    }
+
+    /**
+     * Gets the delay before retrying a throttled request.
+     *
+     * @param retryAfter the Retry-After header, in seconds or as an HTTP date, may be null
+     * @param retries the number of retries already made
+     * @return the delay in milliseconds
+     */
+    static long retryDelayMillis(String retryAfter, int retries) {
+        if (retryAfter != null) {
+            retryAfter = retryAfter.trim();
+            try {
+                return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter)));
+            } catch (NumberFormatException e) {
+                SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                try {
+                    return Math.max(0, httpDate.parse(retryAfter).getTime() - System.currentTimeMillis());
+                } catch (ParseException ignored) {
+                    // Fall back to the exponential back-off below
+                }
+            }
+        }
+        return DEFAULT_RETRY_DELAY_MILLIS << retries;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.microsoft.azure.keyvault.models.SecretBundle;
+
+/**
+ * The outcome of fetching several secrets at once. Every requested identifier
+ * appears either among the secrets or among the errors.
+ */
+public final class GetSecretsResult {
+
+    private final Map<String, SecretBundle> secrets;
+    private final Map<String, Throwable> errors;
+
+    /**
+     * Constructor.
+     * @param secrets the fetched secrets keyed by the requested identifier.
+     * @param errors the failures keyed by the requested identifier.
+     */
+    GetSecretsResult(Map<String, SecretBundle> secrets, Map<String, Throwable> errors) {
+        this.secrets = Collections.unmodifiableMap(secrets);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return the fetched secrets keyed by the requested identifier, in request order.
+     */
+    public Map<String, SecretBundle> secrets() {
+        return secrets;
+    }
+
+    /**
+     * @return the error of every secret that could not be fetched keyed by the requested identifier, in request order.
+     */
+    public Map<String, Throwable> errors() {
+        return errors;
+    }
+
+    /**
+     * @return true if at least one secret could not be fetched.
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
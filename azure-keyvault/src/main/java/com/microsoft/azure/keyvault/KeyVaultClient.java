@@ -7,11 +7,14 @@
 package com.microsoft.azure.keyvault;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import com.google.common.base.Joiner;
 import com.microsoft.azure.AzureClient;
 import com.microsoft.azure.ListOperationCallback;
+import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.keyvault.models.BackupKeyResult;
 import com.microsoft.azure.keyvault.models.CertificateBundle;
@@ -471,6 +474,40 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getKeyVersionsAsync(vaultBaseUrl, keyName, maxresults, serviceCallback);
     }
 
+    /**
+     * List the versions of the specified key.
+     * Items are emitted page by page as the subscriber requests them; the next page is only fetched once the current one has been consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param keyName The name of the key
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the KeyItem items
+     */
+    public Observable<KeyItem> listKeyVersionsAsync(final String vaultBaseUrl, final String keyName) {
+        return listKeyVersionsAsync(vaultBaseUrl, keyName, null, 0);
+    }
+
+    /**
+     * List the versions of the specified key.
+     * Items are emitted page by page as the subscriber requests them, with at most prefetchPages pages fetched ahead of the page being consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param keyName The name of the key
+     * @param maxresults Maximum number of results to return in a page. If not specified the service will return up to 25 results.
+     * @param prefetchPages The number of pages to fetch ahead of the page being consumed, 0 to fetch the next page only once the current one has been consumed.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the KeyItem items
+     */
+    public Observable<KeyItem> listKeyVersionsAsync(final String vaultBaseUrl, final String keyName, final Integer maxresults, final int prefetchPages) {
+        return PagedObservable.items(innerKeyVaultClient.getKeyVersionsSinglePageAsync(vaultBaseUrl, keyName, maxresults),
+            new Func1<String, Observable<ServiceResponse<Page<KeyItem>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<KeyItem>>> call(String nextPageLink) {
+                    return innerKeyVaultClient.getKeyVersionsNextSinglePageAsync(nextPageLink);
+                }
+            }, prefetchPages);
+    }
+
     /**
      * List keys in the specified vault.
      *
@@ -522,6 +559,38 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getKeysAsync(vaultBaseUrl, maxresults, serviceCallback);
     }
 
+    /**
+     * List keys in the specified vault.
+     * Items are emitted page by page as the subscriber requests them; the next page is only fetched once the current one has been consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the KeyItem items
+     */
+    public Observable<KeyItem> listKeysAsync(final String vaultBaseUrl) {
+        return listKeysAsync(vaultBaseUrl, null, 0);
+    }
+
+    /**
+     * List keys in the specified vault.
+     * Items are emitted page by page as the subscriber requests them, with at most prefetchPages pages fetched ahead of the page being consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param maxresults Maximum number of results to return in a page. If not specified the service will return up to 25 results.
+     * @param prefetchPages The number of pages to fetch ahead of the page being consumed, 0 to fetch the next page only once the current one has been consumed.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the KeyItem items
+     */
+    public Observable<KeyItem> listKeysAsync(final String vaultBaseUrl, final Integer maxresults, final int prefetchPages) {
+        return PagedObservable.items(innerKeyVaultClient.getKeysSinglePageAsync(vaultBaseUrl, maxresults),
+            new Func1<String, Observable<ServiceResponse<Page<KeyItem>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<KeyItem>>> call(String nextPageLink) {
+                    return innerKeyVaultClient.getKeysNextSinglePageAsync(nextPageLink);
+                }
+            }, prefetchPages);
+    }
+
     /**
      * Requests that a backup of the specified key be downloaded to the client.
      *
@@ -954,6 +1023,63 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getSecretAsync(vaultBaseUrl, secretName, secretVersion == null ? "" : secretVersion, serviceCallback);
     }
 
+    /**
+     * Gets several secrets, fetching up to 16 of them concurrently.
+     *
+     * @param secretIdentifiers The URLs of the secrets.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the fetched secrets and the error of every secret that could not be fetched.
+     */
+    public GetSecretsResult getSecrets(Collection<String> secretIdentifiers) {
+        return getSecrets(secretIdentifiers, BulkSecretFetch.DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Gets several secrets, fetching up to 16 of them concurrently.
+     *
+     * @param secretIdentifiers The identifiers of the secrets.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the fetched secrets keyed by {@link SecretIdentifier#identifier()} and the error of every secret that could not be fetched.
+     */
+    public GetSecretsResult getSecrets(SecretIdentifier... secretIdentifiers) {
+        List<String> identifiers = new ArrayList<String>(secretIdentifiers.length);
+        for (SecretIdentifier secretIdentifier : secretIdentifiers) {
+            identifiers.add(secretIdentifier.identifier());
+        }
+        return getSecrets(identifiers);
+    }
+
+    /**
+     * Gets several secrets.
+     *
+     * @param secretIdentifiers The URLs of the secrets.
+     * @param maxConcurrency The maximum number of requests in flight.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the fetched secrets and the error of every secret that could not be fetched.
+     */
+    public GetSecretsResult getSecrets(Collection<String> secretIdentifiers, int maxConcurrency) {
+        return getSecretsAsync(secretIdentifiers, maxConcurrency).toBlocking().single();
+    }
+
+    /**
+     * Gets several secrets. Requests throttled by the service are retried after the
+     * delay given in their Retry-After header; a secret that cannot be fetched is
+     * reported in {@link GetSecretsResult#errors()} without failing the others.
+     *
+     * @param secretIdentifiers The URLs of the secrets.
+     * @param maxConcurrency The maximum number of requests in flight.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the fetched secrets and the error of every secret that could not be fetched.
+     */
+    public Observable<GetSecretsResult> getSecretsAsync(Collection<String> secretIdentifiers, int maxConcurrency) {
+        return BulkSecretFetch.fetch(secretIdentifiers, maxConcurrency, new Func1<SecretIdentifier, Observable<SecretBundle>>() {
+            @Override
+            public Observable<SecretBundle> call(SecretIdentifier id) {
+                return innerKeyVaultClient.getSecretAsync(id.vault, id.name, id.version == null ? "" : id.version);
+            }
+        });
+    }
+
     /**
      * List secrets in the specified vault.
      *
@@ -1005,6 +1131,38 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getSecretsAsync(vaultBaseUrl, maxresults, serviceCallback);
     }
 
+    /**
+     * List secrets in the specified vault.
+     * Items are emitted page by page as the subscriber requests them; the next page is only fetched once the current one has been consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the SecretItem items
+     */
+    public Observable<SecretItem> listSecretsAsync(final String vaultBaseUrl) {
+        return listSecretsAsync(vaultBaseUrl, null, 0);
+    }
+
+    /**
+     * List secrets in the specified vault.
+     * Items are emitted page by page as the subscriber requests them, with at most prefetchPages pages fetched ahead of the page being consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param maxresults Maximum number of results to return in a page. If not specified the service will return up to 25 results.
+     * @param prefetchPages The number of pages to fetch ahead of the page being consumed, 0 to fetch the next page only once the current one has been consumed.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the SecretItem items
+     */
+    public Observable<SecretItem> listSecretsAsync(final String vaultBaseUrl, final Integer maxresults, final int prefetchPages) {
+        return PagedObservable.items(innerKeyVaultClient.getSecretsSinglePageAsync(vaultBaseUrl, maxresults),
+            new Func1<String, Observable<ServiceResponse<Page<SecretItem>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<SecretItem>>> call(String nextPageLink) {
+                    return innerKeyVaultClient.getSecretsNextSinglePageAsync(nextPageLink);
+                }
+            }, prefetchPages);
+    }
+
     /**
      * List the versions of the specified secret.
      *
@@ -1060,6 +1218,40 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getSecretVersionsAsync(vaultBaseUrl, secretName, maxresults, serviceCallback);
     }
 
+    /**
+     * List the versions of the specified secret.
+     * Items are emitted page by page as the subscriber requests them; the next page is only fetched once the current one has been consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param secretName The name of the secret in the given vault
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the SecretItem items
+     */
+    public Observable<SecretItem> listSecretVersionsAsync(final String vaultBaseUrl, final String secretName) {
+        return listSecretVersionsAsync(vaultBaseUrl, secretName, null, 0);
+    }
+
+    /**
+     * List the versions of the specified secret.
+     * Items are emitted page by page as the subscriber requests them, with at most prefetchPages pages fetched ahead of the page being consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param secretName The name of the secret in the given vault
+     * @param maxresults Maximum number of results to return in a page. If not specified the service will return up to 25 results.
+     * @param prefetchPages The number of pages to fetch ahead of the page being consumed, 0 to fetch the next page only once the current one has been consumed.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the SecretItem items
+     */
+    public Observable<SecretItem> listSecretVersionsAsync(final String vaultBaseUrl, final String secretName, final Integer maxresults, final int prefetchPages) {
+        return PagedObservable.items(innerKeyVaultClient.getSecretVersionsSinglePageAsync(vaultBaseUrl, secretName, maxresults),
+            new Func1<String, Observable<ServiceResponse<Page<SecretItem>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<SecretItem>>> call(String nextPageLink) {
+                    return innerKeyVaultClient.getSecretVersionsNextSinglePageAsync(nextPageLink);
+                }
+            }, prefetchPages);
+    }
+
     /**
      * List certificates in the specified vault.
      *
@@ -1111,6 +1303,38 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getCertificatesAsync(vaultBaseUrl, maxresults, serviceCallback);
     }
 
+    /**
+     * List certificates in the specified vault.
+     * Items are emitted page by page as the subscriber requests them; the next page is only fetched once the current one has been consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the CertificateItem items
+     */
+    public Observable<CertificateItem> listCertificatesAsync(final String vaultBaseUrl) {
+        return listCertificatesAsync(vaultBaseUrl, null, 0);
+    }
+
+    /**
+     * List certificates in the specified vault.
+     * Items are emitted page by page as the subscriber requests them, with at most prefetchPages pages fetched ahead of the page being consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param maxresults Maximum number of results to return in a page. If not specified the service will return up to 25 results.
+     * @param prefetchPages The number of pages to fetch ahead of the page being consumed, 0 to fetch the next page only once the current one has been consumed.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the CertificateItem items
+     */
+    public Observable<CertificateItem> listCertificatesAsync(final String vaultBaseUrl, final Integer maxresults, final int prefetchPages) {
+        return PagedObservable.items(innerKeyVaultClient.getCertificatesSinglePageAsync(vaultBaseUrl, maxresults),
+            new Func1<String, Observable<ServiceResponse<Page<CertificateItem>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<CertificateItem>>> call(String nextPageLink) {
+                    return innerKeyVaultClient.getCertificatesNextSinglePageAsync(nextPageLink);
+                }
+            }, prefetchPages);
+    }
+
     /**
      * Deletes a certificate from the specified vault.
      *
@@ -1536,6 +1760,40 @@ public final class KeyVaultClient {
         return innerKeyVaultClient.getCertificateVersionsAsync(vaultBaseUrl, certificateName, maxresults, serviceCallback);
     }
 
+    /**
+     * List the versions of a certificate.
+     * Items are emitted page by page as the subscriber requests them; the next page is only fetched once the current one has been consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param certificateName The name of the certificate
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the CertificateItem items
+     */
+    public Observable<CertificateItem> listCertificateVersionsAsync(final String vaultBaseUrl, final String certificateName) {
+        return listCertificateVersionsAsync(vaultBaseUrl, certificateName, null, 0);
+    }
+
+    /**
+     * List the versions of a certificate.
+     * Items are emitted page by page as the subscriber requests them, with at most prefetchPages pages fetched ahead of the page being consumed.
+     *
+     * @param vaultBaseUrl The vault name, e.g. https://myvault.vault.azure.net
+     * @param certificateName The name of the certificate
+     * @param maxresults Maximum number of results to return in a page. If not specified the service will return up to 25 results.
+     * @param prefetchPages The number of pages to fetch ahead of the page being consumed, 0 to fetch the next page only once the current one has been consumed.
+     * @throws IllegalArgumentException exception thrown from invalid parameters
+     * @return the observable to the CertificateItem items
+     */
+    public Observable<CertificateItem> listCertificateVersionsAsync(final String vaultBaseUrl, final String certificateName, final Integer maxresults, final int prefetchPages) {
+        return PagedObservable.items(innerKeyVaultClient.getCertificateVersionsSinglePageAsync(vaultBaseUrl, certificateName, maxresults),
+            new Func1<String, Observable<ServiceResponse<Page<CertificateItem>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<CertificateItem>>> call(String nextPageLink) {
+                    return innerKeyVaultClient.getCertificateVersionsNextSinglePageAsync(nextPageLink);
+                }
+            }, prefetchPages);
+    }
+
     /**
      * Gets the policy for a certificate.
      *
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.azure.Page;
+import com.microsoft.rest.ServiceResponse;
+
+import rx.Observable;
+import rx.Observer;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func3;
+import rx.observables.AsyncOnSubscribe;
+import rx.schedulers.Schedulers;
+
+/**
+ * Turns a paged list operation into an {@link Observable} of the listed items.
+ *
+ * A page is only requested from the service when the subscriber has asked for
+ * items the pages already received cannot satisfy, plus at most the configured
+ * number of prefetched pages, so enumerating a large vault holds a bounded
+ * number of pages in memory regardless of its size.
+ */
+final class PagedObservable {
+
+    /**
+     * The position of one subscription in the list.
+     */
+    private static final class Cursor {
+        volatile boolean started;
+        volatile String  nextPageLink;
+    }
+
+    private PagedObservable() {
+    }
+
+    /**
+     * Creates an observable emitting the items of every page in order.
+     *
+     * @param firstPage the call fetching the first page
+     * @param nextPage the function creating the call fetching the page behind a next page link
+     * @param prefetchPages the number of pages fetched ahead of the page being consumed, 0 to fetch the next page only once the current one is consumed
+     * @param <T> the item type
+     * @return the observable to the items
+     */
+    static <T> Observable<T> items(final Observable<ServiceResponse<Page<T>>> firstPage,
+                                   final Func1<String, Observable<ServiceResponse<Page<T>>>> nextPage,
+                                   final int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("Parameter prefetchPages cannot be negative.");
+        }
+
+        Observable<Page<T>> pages = Observable.create(AsyncOnSubscribe.createStateful(
+            new Func0<Cursor>() {
+                @Override
+                public Cursor call() {
+                    return new Cursor();
+                }
+            },
+            new Func3<Cursor, Long, Observer<Observable<? extends Page<T>>>, Cursor>() {
+                @Override
+                public Cursor call(final Cursor cursor, Long requested, Observer<Observable<? extends Page<T>>> observer) {
+                    if (cursor.started && cursor.nextPageLink == null) {
+                        observer.onCompleted();
+                        return cursor;
+                    }
+                    Observable<ServiceResponse<Page<T>>> call = cursor.started ? nextPage.call(cursor.nextPageLink) : firstPage;
+                    cursor.started = true;
+                    observer.onNext(call
+                        .subscribeOn(Schedulers.io())
+                        .map(new Func1<ServiceResponse<Page<T>>, Page<T>>() {
+                            @Override
+                            public Page<T> call(ServiceResponse<Page<T>> response) {
+                                Page<T> page = response.getBody();
+                                cursor.nextPageLink = page.getNextPageLink();
+                                return page;
+                            }
+                        }));
+                    return cursor;
+                }
+            }))
+            // Complete with the last page rather than wait for the generator to be called again, which does not
+            // happen when a single page is requested at a time
+            .takeUntil(new Func1<Page<T>, Boolean>() {
+                @Override
+                public Boolean call(Page<T> page) {
+                    return page.getNextPageLink() == null;
+                }
+            });
+
+        if (prefetchPages == 0) {
+            // Merging one page at a time requests the next page only once every item of the current one was emitted
+            return pages.flatMap(new Func1<Page<T>, Observable<T>>() {
+                @Override
+                public Observable<T> call(Page<T> page) {
+                    return Observable.from(items(page));
+                }
+            }, 1);
+        }
+        return pages.flatMapIterable(new Func1<Page<T>, Iterable<T>>() {
+            @Override
+            public Iterable<T> call(Page<T> page) {
+                return items(page);
+            }
+        }, prefetchPages);
+    }
+
+    private static <T> List<T> items(Page<T> page) {
+        List<T> items = page.getItems();
+        return items != null ? items : Collections.<T>emptyList();
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.authentication;
+
+import java.util.Date;
+
+/**
+ * A bearer token together with the time it expires at.
+ */
+public final class AccessToken {
+
+    private final String token;
+    private final Date expiresOn;
+
+    /**
+     * Creates an access token.
+     *
+     * @param token
+     *            the bearer token value.
+     * @param expiresOn
+     *            the time the token expires at, or null if unknown. The
+     *            expiry of a token is then read from its exp claim if it is a
+     *            JWT, or else assumed to be a few minutes away.
+     */
+    public AccessToken(String token, Date expiresOn) {
+        this.token = token;
+        this.expiresOn = expiresOn == null ? null : new Date(expiresOn.getTime());
+    }
+
+    /**
+     * @return the bearer token value.
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * @return the time the token expires at, or null if unknown.
+     */
+    public Date expiresOn() {
+        return expiresOn == null ? null : new Date(expiresOn.getTime());
+    }
+
+    /**
+     * @return the time the token expires at in milliseconds since the epoch,
+     *         or {@link Long#MIN_VALUE} if unknown.
+     */
+    long expiresOnMillis() {
+        return expiresOn == null ? Long.MIN_VALUE : expiresOn.getTime();
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.authentication;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Caches bearer tokens by authority, resource and scope.
+ *
+ * Tokens are refreshed in the background once they get close to expiry, so
+ * callers keep using the current token in the meantime. Callers asking for a
+ * token that is missing or expired share a single in-flight acquisition.
+ * When the credentials do not report the expiry of a token, it is read from the
+ * exp claim of the token if it is a JWT, or else assumed to be short.
+ */
+class AccessTokenCache {
+
+    // Tokens closer than this to expiry are not handed out anymore
+    private static final long EXPIRY_SKEW_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // Tokens closer than this to expiry are refreshed in the background
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // Minimum delay between two background refreshes after a failed one
+    private static final long REFRESH_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // Lifetime assumed for tokens whose expiry is neither reported nor readable from the token
+    private static final long UNKNOWN_EXPIRY_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final KeyVaultCredentials credentials;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final Executor refreshExecutor;
+
+    AccessTokenCache(KeyVaultCredentials credentials) {
+        this.credentials = credentials;
+        // A single background thread that is only alive while refreshes are pending
+        this.refreshExecutor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "keyvault-token-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Gets a bearer token, acquiring one only if no usable token is cached.
+     *
+     * @param authorization
+     *            the authority URL.
+     * @param resource
+     *            the resource the token is for.
+     * @param scope
+     *            the scope of the token.
+     * @return the bearer token, or null if none could be acquired.
+     * @throws IOException
+     *             if the calling thread is interrupted while waiting for the token.
+     */
+    String getToken(String authorization, String resource, String scope) throws IOException {
+        String key = key(authorization, resource, scope);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry created = new Entry(authorization, resource, scope);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        AccessToken token = entry.token;
+        if (token != null && token.expiresOnMillis() - now > EXPIRY_SKEW_MILLIS) {
+            if (token.expiresOnMillis() - now < REFRESH_AHEAD_MILLIS) {
+                entry.refreshInBackground(now);
+            }
+            return token.token();
+        }
+
+        token = entry.acquire();
+        return token == null ? null : token.token();
+    }
+
+    /**
+     * Drops the cached token, e.g. after the service rejected it.
+     *
+     * @param authorization
+     *            the authority URL.
+     * @param resource
+     *            the resource the token is for.
+     * @param scope
+     *            the scope of the token.
+     */
+    void invalidate(String authorization, String resource, String scope) {
+        Entry entry = entries.get(key(authorization, resource, scope));
+        if (entry != null) {
+            entry.token = null;
+        }
+    }
+
+    private static String key(String authorization, String resource, String scope) {
+        return authorization + '\n' + resource + '\n' + scope;
+    }
+
+    /**
+     * Fills in the expiry of a token that was acquired without one.
+     *
+     * @param token
+     *            the token acquired.
+     * @param now
+     *            the time the token was acquired at.
+     * @return the token with the expiry of its JWT exp claim, or a short
+     *         lifetime if it has none.
+     */
+    static AccessToken withExpiry(AccessToken token, long now) {
+        if (token == null || token.token() == null || token.expiresOn() != null) {
+            return token;
+        }
+
+        Long expiresOn = jwtExpiry(token.token());
+        return new AccessToken(token.token(), new Date(expiresOn != null ? expiresOn : now + UNKNOWN_EXPIRY_TTL_MILLIS));
+    }
+
+    /**
+     * Reads the exp claim of a JWT.
+     *
+     * @param token
+     *            the token.
+     * @return the expiry in milliseconds since the epoch, or null if the token
+     *         is not a JWT or has no exp claim.
+     */
+    static Long jwtExpiry(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+
+        try {
+            JsonNode exp = JSON.readTree(Base64.decodeBase64(parts[1])).get("exp");
+            return exp != null && exp.canConvertToLong() ? TimeUnit.SECONDS.toMillis(exp.asLong()) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The cached token and in-flight acquisition for one authority, resource and scope.
+     */
+    private final class Entry {
+        private final String authorization;
+        private final String resource;
+        private final String scope;
+        private final AtomicReference<FutureTask<AccessToken>> inFlight = new AtomicReference<FutureTask<AccessToken>>();
+        private volatile AccessToken token;
+        private volatile long nextRefreshMillis;
+
+        Entry(String authorization, String resource, String scope) {
+            this.authorization = authorization;
+            this.resource = resource;
+            this.scope = scope;
+        }
+
+        AccessToken acquire() throws IOException {
+            FutureTask<AccessToken> task = inFlight.get();
+            if (task == null) {
+                FutureTask<AccessToken> created = newAcquisition();
+                if (inFlight.compareAndSet(null, created)) {
+                    created.run();
+                    task = created;
+                } else {
+                    task = inFlight.get();
+                    if (task == null) {
+                        // Another acquisition completed in the meantime
+                        AccessToken current = token;
+                        return current != null ? current : acquire();
+                    }
+                }
+            }
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while acquiring an access token");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+
+        void refreshInBackground(long now) {
+            if (now < nextRefreshMillis || inFlight.get() != null) {
+                return;
+            }
+            FutureTask<AccessToken> created = newAcquisition();
+            if (inFlight.compareAndSet(null, created)) {
+                nextRefreshMillis = now + REFRESH_RETRY_MILLIS;
+                refreshExecutor.execute(created);
+            }
+        }
+
+        private FutureTask<AccessToken> newAcquisition() {
+            return new FutureTask<AccessToken>(new Callable<AccessToken>() {
+                @Override
+                public AccessToken call() {
+                    AccessToken acquired = withExpiry(credentials.doAuthenticateWithExpiry(authorization, resource, scope), System.currentTimeMillis());
+                    if (acquired != null && acquired.token() != null) {
+                        token = acquired;
+                    }
+                    return acquired;
+                }
+            }) {
+                @Override
+                protected void done() {
+                    inFlight.compareAndSet(this, null);
+                }
+            };
+        }
+    }
+}
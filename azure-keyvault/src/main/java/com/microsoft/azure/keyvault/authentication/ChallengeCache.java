@@ -6,18 +6,20 @@
 
 package com.microsoft.azure.keyvault.authentication;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import okhttp3.HttpUrl;
 
 /**
- * Handles caching of the challenge.
+ * Handles caching of the challenge. Safe for use by concurrent requests.
  */
 class ChallengeCache {
 
-    private final HashMap<String, Map<String, String>> cachedChallenges = new HashMap<String, Map<String, String>>();
+    private final ConcurrentMap<String, Map<String, String>> cachedChallenges = new ConcurrentHashMap<String, Map<String, String>>();
 
     /**
      * Uses authority to retrieve the cached values.
@@ -49,7 +51,7 @@ class ChallengeCache {
         }
         String authority = getAuthority(url);
         authority = authority.toLowerCase(Locale.ENGLISH);
-        cachedChallenges.put(authority, challenge);
+        cachedChallenges.put(authority, Collections.unmodifiableMap(challenge));
     }
 
     /**
@@ -31,6 +31,7 @@ public abstract class KeyVaultCredentials implements ServiceClientCredentials {
     private static final String BEARER_TOKEP_REFIX = "Bearer ";
 
     private final ChallengeCache cache = new ChallengeCache();
+    private final AccessTokenCache tokenCache = new AccessTokenCache(this);
 
     @Override
     public void applyCredentialsFilter(OkHttpClient.Builder clientBuilder) {
@@ -76,6 +77,15 @@ public abstract class KeyVaultCredentials implements ServiceClientCredentials {
                 // Cache the challenge
                 cache.addCachedChallenge(response.request().url(), challengeMap);
 
+                if (challengeMap == null) {
+                    return null;
+                }
+
+                // The service rejected the token sent along, don't hand it out again
+                if (response.request().header(AUTHENTICATE) != null) {
+                    invalidateAuthenticationCredentials(challengeMap);
+                }
+
                 // Get the bearer token from the callback by providing the
                 // challenges
                 String credential = getAuthenticationCredentials(challengeMap);
@@ -85,22 +95,23 @@ public abstract class KeyVaultCredentials implements ServiceClientCredentials {
                 }
 
                 // Add the token header and resume the call.
-                // The token should live for duration of this request and never
-                // be cached anywhere in our code.
                 return response.request().newBuilder().header(AUTHENTICATE, BEARER_TOKEP_REFIX + credential).build();
             }
         });
     }
 
     /**
-     * Extracts the authentication challenges from the challenge map and calls
-     * the authentication callback to get the bearer token and return it.
+     * Extracts the authentication challenges from the challenge map and returns
+     * the cached bearer token for them, calling the authentication callback only
+     * if no usable token is cached.
      * 
      * @param challengeMap
      *            the challenge map.
      * @return the bearer token.
+     * @throws IOException
+     *             if interrupted while waiting for the token.
      */
-    private String getAuthenticationCredentials(Map<String, String> challengeMap) {
+    private String getAuthenticationCredentials(Map<String, String> challengeMap) throws IOException {
 
         String authorization = challengeMap.get("authorization");
         if (authorization == null) {
@@ -110,7 +121,23 @@ public abstract class KeyVaultCredentials implements ServiceClientCredentials {
         String resource = challengeMap.get("resource");
         String scope = challengeMap.get("scope");
 
-        return doAuthenticate(authorization, resource, scope);
+        return tokenCache.getToken(authorization, resource, scope);
+    }
+
+    /**
+     * Drops the cached bearer token for the authentication challenges.
+     * 
+     * @param challengeMap
+     *            the challenge map.
+     */
+    private void invalidateAuthenticationCredentials(Map<String, String> challengeMap) {
+
+        String authorization = challengeMap.get("authorization");
+        if (authorization == null) {
+            authorization = challengeMap.get("authorization_uri");
+        }
+
+        tokenCache.invalidate(authorization, challengeMap.get("resource"), challengeMap.get("scope"));
     }
 
     /**
@@ -215,4 +242,31 @@ public abstract class KeyVaultCredentials implements ServiceClientCredentials {
      */
     public abstract String doAuthenticate(String authorization, String resource, String scope);
 
+    /**
+     * Answers a server challenge with a token and its expiry time.
+     * <p>
+     * The token is reused across requests and refreshed in the background shortly
+     * before it expires. Concurrent requests needing a new token share a single
+     * call to this method. The default implementation calls
+     * {@link #doAuthenticate(String, String, String)} and reports an unknown
+     * expiry, in which case the expiry is read from the exp claim of the token if
+     * it is a JWT, as Azure Active Directory tokens are, or else assumed to be a
+     * few minutes away. Override this method to return the expiry time as well,
+     * e.g. from ADAL's <code>AuthenticationResult.getExpiresOnDate()</code>.
+     * </p>
+     *
+     * @param authorization
+     *            Identifier of the authority, a URL.
+     * @param resource
+     *            Identifier of the target resource that is the recipient of the
+     *            requested token, a URL.
+     * @param scope
+     *            The scope of the authentication request.
+     *
+     * @return The access token and its expiry time
+     */
+    public AccessToken doAuthenticateWithExpiry(String authorization, String resource, String scope) {
+        return new AccessToken(doAuthenticate(authorization, resource, scope), null);
+    }
+
 }
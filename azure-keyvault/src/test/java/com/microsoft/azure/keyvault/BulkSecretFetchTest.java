@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.microsoft.azure.keyvault.models.KeyVaultErrorException;
+import com.microsoft.azure.keyvault.models.SecretBundle;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import rx.Observable;
+import rx.functions.Func1;
+
+public class BulkSecretFetchTest {
+
+    private static final String VAULT = "https://myvault.vault.azure.net";
+
+    /**
+     * Answers the secret requests instead of Key Vault, failing the first requests
+     * for a secret as told, and counts the requests made for each secret.
+     */
+    private static final class FakeVault implements Func1<SecretIdentifier, Observable<SecretBundle>> {
+
+        // The failures to return, in order, before each secret is served
+        final ConcurrentMap<String, List<Throwable>> failures = new ConcurrentHashMap<String, List<Throwable>>();
+        final ConcurrentMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+
+        void fail(String name, Throwable... errors) {
+            failures.put(name, Collections.synchronizedList(new ArrayList<Throwable>(Arrays.asList(errors))));
+        }
+
+        int requests(String name) {
+            AtomicInteger count = requests.get(name);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public Observable<SecretBundle> call(SecretIdentifier identifier) {
+            String name = identifier.name();
+            requests.putIfAbsent(name, new AtomicInteger());
+            requests.get(name).incrementAndGet();
+
+            List<Throwable> errors = failures.get(name);
+            if (errors != null && !errors.isEmpty()) {
+                return Observable.error(errors.remove(0));
+            }
+            return Observable.just(new SecretBundle().withId(identifier.identifier()).withValue("value of " + name));
+        }
+
+        GetSecretsResult fetch(String... identifiers) {
+            return BulkSecretFetch.fetch(Arrays.asList(identifiers), 2, this).toBlocking().single();
+        }
+    }
+
+    private static String secret(String name) {
+        return VAULT + "/secrets/" + name;
+    }
+
+    private static KeyVaultErrorException error(int code, String retryAfter) {
+        okhttp3.Response.Builder raw = new okhttp3.Response.Builder()
+            .code(code)
+            .message("Error " + code)
+            .protocol(Protocol.HTTP_1_1)
+            .request(new Request.Builder().url(VAULT).build());
+        if (retryAfter != null) {
+            raw.header("Retry-After", retryAfter);
+        }
+        Response<?> response = Response.error(ResponseBody.create(MediaType.parse("application/json"), "{}"), raw.build());
+
+        KeyVaultErrorException exception = new KeyVaultErrorException("Error " + code);
+        exception.setResponse(response);
+        return exception;
+    }
+
+    @Test
+    public void retryDelayFromDeltaSeconds() {
+        assertEquals(0, BulkSecretFetch.retryDelayMillis("0", 0));
+        assertEquals(7000, BulkSecretFetch.retryDelayMillis("7", 0));
+        assertEquals(7000, BulkSecretFetch.retryDelayMillis(" 7 ", 3));
+        assertEquals(0, BulkSecretFetch.retryDelayMillis("-7", 0));
+    }
+
+    @Test
+    public void retryDelayFromHttpDate() {
+        SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        long delay = BulkSecretFetch.retryDelayMillis(httpDate.format(new Date(System.currentTimeMillis() + 60000)), 0);
+        // The header has a precision of one second, and some time passes before it is read
+        assertTrue(String.valueOf(delay), delay > 55000 && delay <= 60000);
+
+        assertEquals(0, BulkSecretFetch.retryDelayMillis(httpDate.format(new Date(System.currentTimeMillis() - 60000)), 0));
+    }
+
+    @Test
+    public void retryDelayFallsBackToExponentialBackOff() {
+        assertEquals(1000, BulkSecretFetch.retryDelayMillis(null, 0));
+        assertEquals(2000, BulkSecretFetch.retryDelayMillis(null, 1));
+        assertEquals(16000, BulkSecretFetch.retryDelayMillis(null, 4));
+        assertEquals(4000, BulkSecretFetch.retryDelayMillis("soon", 2));
+    }
+
+    @Test
+    public void retriesThrottledRequests() {
+        FakeVault vault = new FakeVault();
+        vault.fail("a", error(429, "0"), error(429, "0"));
+
+        GetSecretsResult result = vault.fetch(secret("a"), secret("b"));
+
+        assertFalse(result.hasErrors());
+        assertEquals("value of a", result.secrets().get(secret("a")).value());
+        assertEquals(3, vault.requests("a"));
+        assertEquals(1, vault.requests("b"));
+    }
+
+    @Test
+    public void givesUpAfterMaxThrottledRetries() {
+        FakeVault vault = new FakeVault();
+        KeyVaultErrorException[] errors = new KeyVaultErrorException[BulkSecretFetch.MAX_THROTTLED_RETRIES + 1];
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = error(429, "0");
+        }
+        vault.fail("a", (Throwable[]) errors);
+
+        GetSecretsResult result = vault.fetch(secret("a"));
+
+        assertEquals(BulkSecretFetch.MAX_THROTTLED_RETRIES + 1, vault.requests("a"));
+        assertTrue(result.secrets().isEmpty());
+        assertSame(errors[errors.length - 1], result.errors().get(secret("a")));
+    }
+
+    @Test
+    public void recordsOtherFailuresWithoutRetrying() {
+        FakeVault vault = new FakeVault();
+        KeyVaultErrorException notFound = error(404, "0");
+        vault.fail("b", notFound);
+        IllegalStateException broken = new IllegalStateException("broken");
+        vault.fail("c", broken);
+
+        GetSecretsResult result = vault.fetch(secret("a"), secret("b"), secret("c"), secret("d"));
+
+        assertTrue(result.hasErrors());
+        assertEquals(Arrays.asList(secret("a"), secret("d")), new ArrayList<String>(result.secrets().keySet()));
+        assertEquals(Arrays.asList(secret("b"), secret("c")), new ArrayList<String>(result.errors().keySet()));
+        assertSame(notFound, result.errors().get(secret("b")));
+        assertSame(broken, result.errors().get(secret("c")));
+        assertEquals(1, vault.requests("b"));
+        assertEquals(1, vault.requests("c"));
+    }
+
+    @Test
+    public void keepsRequestOrder() {
+        FakeVault vault = new FakeVault();
+        String[] identifiers = new String[20];
+        for (int i = 0; i < identifiers.length; i++) {
+            identifiers[i] = secret("s" + (identifiers.length - i));
+        }
+        // Delays the early secrets, so they complete after the later ones
+        vault.fail("s20", error(429, "0"), error(429, "0"));
+        vault.fail("s19", error(429, "0"));
+
+        GetSecretsResult result = vault.fetch(identifiers);
+
+        assertEquals(Arrays.asList(identifiers), new ArrayList<String>(result.secrets().keySet()));
+    }
+
+    @Test
+    public void fetchesDuplicatesOnce() {
+        FakeVault vault = new FakeVault();
+
+        GetSecretsResult result = vault.fetch(secret("a"), secret("b"), secret("a"));
+
+        assertEquals(Arrays.asList(secret("a"), secret("b")), new ArrayList<String>(result.secrets().keySet()));
+        assertEquals(1, vault.requests("a"));
+        assertEquals(1, vault.requests("b"));
+    }
+
+    @Test
+    public void recordsInvalidIdentifiers() {
+        FakeVault vault = new FakeVault();
+        String invalid = VAULT + "/keys/a";
+
+        GetSecretsResult result = vault.fetch(secret("a"), invalid, "");
+
+        assertEquals(Arrays.asList(secret("a")), new ArrayList<String>(result.secrets().keySet()));
+        Map<String, Throwable> errors = result.errors();
+        assertEquals(Arrays.asList(invalid, ""), new ArrayList<String>(errors.keySet()));
+        assertTrue(errors.get(invalid) instanceof IllegalArgumentException);
+        assertTrue(errors.get("") instanceof IllegalArgumentException);
+        assertEquals(1, vault.requests("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNullIdentifiers() {
+        BulkSecretFetch.fetch(null, 1, new FakeVault());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveConcurrency() {
+        BulkSecretFetch.fetch(Arrays.asList(secret("a")), 0, new FakeVault());
+    }
+
+    @Test
+    public void completesWithoutIdentifiers() {
+        GetSecretsResult result = new FakeVault().fetch();
+
+        assertTrue(result.secrets().isEmpty());
+        assertFalse(result.hasErrors());
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.microsoft.azure.Page;
+import com.microsoft.rest.ServiceResponse;
+
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+
+public class PagedObservableTest {
+
+    private static final class FakePage implements Page<Integer> {
+
+        private final List<Integer> items;
+        private final String        nextPageLink;
+
+        FakePage(List<Integer> items, String nextPageLink) {
+            this.items        = items;
+            this.nextPageLink = nextPageLink;
+        }
+
+        @Override
+        public String getNextPageLink() {
+            return nextPageLink;
+        }
+
+        @Override
+        public List<Integer> getItems() {
+            return items;
+        }
+    }
+
+    /**
+     * Serves the given pages, linked by their index, and counts the page requests.
+     */
+    private static final class FakePages {
+
+        private final List<List<Integer>> pages;
+        final AtomicInteger               requests = new AtomicInteger();
+
+        FakePages(List<List<Integer>> pages) {
+            this.pages = pages;
+        }
+
+        Observable<ServiceResponse<Page<Integer>>> page(final int index) {
+            return Observable.defer(new Func0<Observable<ServiceResponse<Page<Integer>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<Integer>>> call() {
+                    requests.incrementAndGet();
+                    String nextPageLink = index + 1 < pages.size() ? Integer.toString(index + 1) : null;
+                    Page<Integer> page = new FakePage(pages.get(index), nextPageLink);
+                    return Observable.just(new ServiceResponse<Page<Integer>>(page, null));
+                }
+            });
+        }
+
+        Observable<Integer> items(int prefetchPages) {
+            return PagedObservable.items(page(0), new Func1<String, Observable<ServiceResponse<Page<Integer>>>>() {
+                @Override
+                public Observable<ServiceResponse<Page<Integer>>> call(String nextPageLink) {
+                    return page(Integer.parseInt(nextPageLink));
+                }
+            }, prefetchPages);
+        }
+    }
+
+    private static FakePages pagesOfTwo(int pageCount) {
+        List<List<Integer>> pages = new ArrayList<List<Integer>>();
+        for (int i = 0; i < pageCount; i++) {
+            pages.add(Arrays.asList(2 * i, 2 * i + 1));
+        }
+        return new FakePages(pages);
+    }
+
+    private static void awaitItems(TestSubscriber<Integer> subscriber, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (subscriber.getOnNextEvents().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, subscriber.getOnNextEvents().size());
+    }
+
+    @Test
+    public void emitsItemsInPageOrder() {
+        for (int prefetchPages : new int[] { 0, 1, 3 }) {
+            TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+
+            pagesOfTwo(5).items(prefetchPages).subscribe(subscriber);
+
+            subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+            subscriber.assertNoErrors();
+            subscriber.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+            subscriber.assertCompleted();
+        }
+    }
+
+    @Test
+    public void requestsNextPageOnlyOnceCurrentOneIsConsumed() throws Exception {
+        FakePages pages = pagesOfTwo(3);
+        TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>(0);
+
+        pages.items(0).subscribe(subscriber);
+        Thread.sleep(50);
+        assertEquals(1, pages.requests.get());
+
+        // Half of the first page consumed
+        subscriber.requestMore(1);
+        awaitItems(subscriber, 1);
+        Thread.sleep(50);
+        assertEquals(1, pages.requests.get());
+
+        // The first page consumed
+        subscriber.requestMore(1);
+        awaitItems(subscriber, 2);
+        subscriber.requestMore(1);
+        awaitItems(subscriber, 3);
+        assertEquals(2, pages.requests.get());
+
+        subscriber.requestMore(Long.MAX_VALUE - 3);
+        subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+        subscriber.assertValues(0, 1, 2, 3, 4, 5);
+        subscriber.assertCompleted();
+        assertEquals(3, pages.requests.get());
+    }
+
+    @Test
+    public void prefetchesAtMostGivenNumberOfPages() throws Exception {
+        FakePages pages = pagesOfTwo(10);
+        TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>(0);
+
+        pages.items(2).subscribe(subscriber);
+        Thread.sleep(100);
+        assertEquals(2, pages.requests.get());
+
+        for (int consumed = 1; consumed <= 20; consumed++) {
+            subscriber.requestMore(1);
+            awaitItems(subscriber, consumed);
+            // The page holding the next item, plus the pages fetched ahead of it
+            int nextItemPage = Math.min(10, consumed / 2 + 1);
+            assertTrue(consumed + " items: " + pages.requests.get() + " pages", pages.requests.get() <= nextItemPage + 2);
+        }
+
+        subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+        subscriber.assertCompleted();
+        assertEquals(10, pages.requests.get());
+    }
+
+    @Test
+    public void skipsPagesWithoutItems() {
+        FakePages pages = new FakePages(Arrays.asList(
+                Arrays.asList(0, 1),
+                null,
+                Collections.<Integer>emptyList(),
+                Arrays.asList(2)));
+
+        for (int prefetchPages : new int[] { 0, 2 }) {
+            TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+
+            pages.items(prefetchPages).subscribe(subscriber);
+
+            subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+            subscriber.assertNoErrors();
+            subscriber.assertValues(0, 1, 2);
+            subscriber.assertCompleted();
+        }
+    }
+
+    @Test
+    public void emptyListCompletes() {
+        FakePages pages = new FakePages(Arrays.asList(Collections.<Integer>emptyList()));
+        TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+
+        pages.items(0).subscribe(subscriber);
+
+        subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+        subscriber.assertNoValues();
+        subscriber.assertCompleted();
+        assertEquals(1, pages.requests.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativePrefetch() {
+        pagesOfTwo(1).items(-1);
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.keyvault.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+public class AccessTokenCacheTest {
+
+    private static final String AUTHORITY = "https://login.windows.net/tenant";
+    private static final String RESOURCE = "https://vault.azure.net";
+    private static final String SCOPE = "";
+
+    /**
+     * Hands out the tokens queued by the test, counting the acquisitions.
+     */
+    private static class QueuedCredentials extends KeyVaultCredentials {
+        final BlockingQueue<AccessToken> tokens = new LinkedBlockingQueue<AccessToken>();
+        final AtomicInteger acquisitions = new AtomicInteger();
+        volatile CountDownLatch started = new CountDownLatch(1);
+
+        @Override
+        public String doAuthenticate(String authorization, String resource, String scope) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AccessToken doAuthenticateWithExpiry(String authorization, String resource, String scope) {
+            acquisitions.incrementAndGet();
+            started.countDown();
+            try {
+                return tokens.poll(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static AccessToken token(String value, long expiresInMillis) {
+        return new AccessToken(value, new Date(System.currentTimeMillis() + expiresInMillis));
+    }
+
+    @Test
+    public void concurrentCallersShareOneAcquisition() throws Exception {
+        final QueuedCredentials credentials = new QueuedCredentials();
+        final AccessTokenCache cache = new AccessTokenCache(credentials);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.getToken(AUTHORITY, RESOURCE, SCOPE);
+                    }
+                }));
+            }
+
+            // Hand out the token once the first caller is acquiring it
+            assertTrue(credentials.started.await(10, TimeUnit.SECONDS));
+            credentials.tokens.add(token("shared", TimeUnit.HOURS.toMillis(1)));
+            credentials.tokens.add(token("shared", TimeUnit.HOURS.toMillis(1)));
+
+            for (Future<String> result : results) {
+                assertEquals("shared", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals("shared", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Callers that arrived after the acquisition completed may start a second one, but never more
+        assertTrue(credentials.acquisitions.get() >= 1);
+        assertTrue(credentials.acquisitions.get() <= 2);
+    }
+
+    @Test
+    public void tokensCloseToExpiryAreRefreshedInBackground() throws Exception {
+        QueuedCredentials credentials = new QueuedCredentials();
+        AccessTokenCache cache = new AccessTokenCache(credentials);
+
+        credentials.tokens.add(token("first", TimeUnit.MINUTES.toMillis(2)));
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+
+        // The token is within the refresh window: it is still handed out while a refresh starts
+        credentials.started = new CountDownLatch(1);
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertTrue(credentials.started.await(10, TimeUnit.SECONDS));
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+
+        credentials.tokens.add(token("second", TimeUnit.HOURS.toMillis(1)));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        String current;
+        do {
+            current = cache.getToken(AUTHORITY, RESOURCE, SCOPE);
+        } while ("first".equals(current) && System.currentTimeMillis() < deadline);
+
+        assertEquals("second", current);
+        assertEquals(2, credentials.acquisitions.get());
+    }
+
+    @Test
+    public void expiredTokensAreAcquiredAgain() throws Exception {
+        QueuedCredentials credentials = new QueuedCredentials();
+        AccessTokenCache cache = new AccessTokenCache(credentials);
+
+        // Within the expiry skew, so not usable anymore
+        credentials.tokens.add(token("first", TimeUnit.SECONDS.toMillis(10)));
+        credentials.tokens.add(token("second", TimeUnit.HOURS.toMillis(1)));
+
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertEquals("second", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertEquals(2, credentials.acquisitions.get());
+    }
+
+    @Test
+    public void invalidatedTokensAreAcquiredAgain() throws Exception {
+        QueuedCredentials credentials = new QueuedCredentials();
+        AccessTokenCache cache = new AccessTokenCache(credentials);
+
+        credentials.tokens.add(token("first", TimeUnit.HOURS.toMillis(1)));
+        credentials.tokens.add(token("second", TimeUnit.HOURS.toMillis(1)));
+
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+
+        // Other resources keep their token
+        cache.invalidate(AUTHORITY, "https://other", SCOPE);
+        assertEquals("first", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+
+        cache.invalidate(AUTHORITY, RESOURCE, SCOPE);
+        assertEquals("second", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertEquals(2, credentials.acquisitions.get());
+    }
+
+    @Test
+    public void tokensWithoutExpiryAreCached() throws Exception {
+        QueuedCredentials credentials = new QueuedCredentials();
+        AccessTokenCache cache = new AccessTokenCache(credentials);
+
+        credentials.tokens.add(new AccessToken("opaque", null));
+
+        assertEquals("opaque", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertEquals("opaque", cache.getToken(AUTHORITY, RESOURCE, SCOPE));
+        assertEquals(1, credentials.acquisitions.get());
+    }
+
+    @Test
+    public void expiryIsReadFromJwt() {
+        long exp = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600;
+        String jwt = encode("{\"alg\":\"RS256\",\"typ\":\"JWT\"}") + "." + encode("{\"aud\":\"https://vault.azure.net\",\"exp\":" + exp + "}") + ".c2lnbmF0dXJl";
+
+        AccessToken token = AccessTokenCache.withExpiry(new AccessToken(jwt, null), 0);
+        assertEquals(TimeUnit.SECONDS.toMillis(exp), token.expiresOn().getTime());
+
+        // A reported expiry is kept
+        Date reported = new Date(12345);
+        assertEquals(reported, AccessTokenCache.withExpiry(new AccessToken(jwt, reported), 0).expiresOn());
+
+        // Tokens that are not JWTs get a short lifetime
+        long now = System.currentTimeMillis();
+        assertNull(AccessTokenCache.jwtExpiry("opaque"));
+        assertNull(AccessTokenCache.jwtExpiry("not.a.jwt"));
+        long expiresOn = AccessTokenCache.withExpiry(new AccessToken("opaque", null), now).expiresOn().getTime();
+        assertTrue(expiresOn > now && expiresOn <= now + TimeUnit.HOURS.toMillis(1));
+    }
+
+    private static String encode(String json) {
+        return Base64.encodeBase64URLSafeString(json.getBytes());
+    }
+}
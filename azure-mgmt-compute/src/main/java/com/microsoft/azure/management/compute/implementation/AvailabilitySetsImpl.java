@@ -27,6 +27,8 @@ class AvailabilitySetsImpl
         AvailabilitySetsInner,
         ComputeManager>
     implements AvailabilitySets {
+    // Number of resource groups whose availability sets are listed at the same time
+    private static final int LIST_CONCURRENCY = 8;
 
     AvailabilitySetsImpl(
             final AvailabilitySetsInner client,
@@ -36,7 +38,7 @@ class AvailabilitySetsImpl
 
     @Override
     public PagedList<AvailabilitySet> list() {
-        return new GroupPagedList<AvailabilitySet>(this.myManager.resourceManager().resourceGroups().list()) {
+        return new GroupPagedList<AvailabilitySet>(this.myManager.resourceManager().resourceGroups().list(), LIST_CONCURRENCY) {
             @Override
             public List<AvailabilitySet> listNextGroup(String resourceGroupName) {
                 return wrapList(innerCollection.list(resourceGroupName));
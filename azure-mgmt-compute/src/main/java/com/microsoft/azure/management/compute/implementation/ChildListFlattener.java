@@ -5,14 +5,27 @@ import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.rest.RestException;
 
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * {@link ChildListFlattener} that can take a paged list of parents and flatten their child lists
  * as a single lazy paged list.
+ * <p>
+ * Child lists of the parents following the current one can be loaded in the background while
+ * the consumer iterates the current child list, up to a given number of child lists at a time.
+ * Child lists are always returned in the order of their parents. Loading ahead only happens as
+ * the consumer moves to the next child list, so nothing more is loaded once iteration stops.
  *
  * @param <ParentT> the type of parent paged list item
  * @param <ChildT> the type of child paged list item
@@ -22,6 +35,9 @@ final class ChildListFlattener<ParentT, ChildT> {
     private Iterator<ParentT> parentItr;
     private PagedList<ChildT> currentChildList;
     private final ChildListLoader<ParentT, ChildT> childListLoader;
+    private final int maxPrefetch;
+    // Child lists being loaded ahead of the consumer, in the order of their parents
+    private final Queue<Future<PagedList<ChildT>>> prefetched = new ArrayDeque<>();
 
     /**
      * Interface that will be implemented by the consumer of {@link ChildListFlattener}.
@@ -51,8 +67,24 @@ final class ChildListFlattener<ParentT, ChildT> {
      * @param childListLoader {@link ChildListLoader} for fetching child paged list associated any parent
      */
     ChildListFlattener(PagedList<ParentT> parentList, ChildListLoader<ParentT, ChildT> childListLoader) {
+        this(parentList, childListLoader, 0);
+    }
+
+    /**
+     * Creates ChildListFlattener that loads child lists ahead of the consumer.
+     *
+     * @param parentList a paged list of parents
+     * @param childListLoader {@link ChildListLoader} for fetching child paged list associated any parent
+     * @param maxPrefetch the maximum number of child lists loaded at the same time, including the one
+     *                    the consumer waits for, 0 to load each child list only when the consumer reaches it
+     */
+    ChildListFlattener(PagedList<ParentT> parentList, ChildListLoader<ParentT, ChildT> childListLoader, int maxPrefetch) {
+        if (maxPrefetch < 0) {
+            throw new IllegalArgumentException("maxPrefetch cannot be negative.");
+        }
         this.parentItr = parentList.iterator();
         this.childListLoader = childListLoader;
+        this.maxPrefetch = maxPrefetch;
     }
 
     /**
@@ -95,8 +127,8 @@ final class ChildListFlattener<ParentT, ChildT> {
      * @throws IOException exceptions thrown from serialization/deserialization
      */
     private PagedList<ChildT> nextChildList() {
-        while (parentItr.hasNext()) {
-            PagedList<ChildT> nextChildList = childListLoader.loadList(parentItr.next());
+        while (hasMoreParents()) {
+            PagedList<ChildT> nextChildList = loadNextChildList();
             if (nextChildList.iterator().hasNext()) {
                 return nextChildList;
             }
@@ -104,6 +136,66 @@ final class ChildListFlattener<ParentT, ChildT> {
         return emptyPagedList();
     }
 
+    /**
+     * @return true if there are parents whose child list is not consumed yet
+     */
+    private boolean hasMoreParents() {
+        return !prefetched.isEmpty() || parentItr.hasNext();
+    }
+
+    /**
+     * Returns the child list of the next parent, waiting for it if it is still being loaded.
+     * Once it is loaded, starts loading the child lists of the following parents so that up
+     * to maxPrefetch of them are in flight while the consumer iterates it. If loading fails,
+     * the child lists being loaded ahead are cancelled.
+     *
+     * @return the child paged list of the next parent
+     */
+    private PagedList<ChildT> loadNextChildList() {
+        if (maxPrefetch == 0) {
+            return childListLoader.loadList(parentItr.next());
+        }
+        // The queue is only refilled once the child list waited for is loaded, so that no more
+        // than maxPrefetch child lists are loaded at the same time
+        fillPrefetchQueue();
+        Future<PagedList<ChildT>> next = prefetched.poll();
+        PagedList<ChildT> childList;
+        try {
+            childList = next.get();
+        } catch (InterruptedException e) {
+            cancelPrefetched();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            cancelPrefetched();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        fillPrefetchQueue();
+        return childList;
+    }
+
+    private void cancelPrefetched() {
+        for (Future<PagedList<ChildT>> childList : prefetched) {
+            childList.cancel(true);
+        }
+        prefetched.clear();
+    }
+
+    private void fillPrefetchQueue() {
+        while (prefetched.size() < maxPrefetch && parentItr.hasNext()) {
+            final ParentT parent = parentItr.next();
+            prefetched.add(Observable.fromCallable(new Callable<PagedList<ChildT>>() {
+                @Override
+                public PagedList<ChildT> call() {
+                    return childListLoader.loadList(parent);
+                }
+            }).subscribeOn(Schedulers.io()).toBlocking().toFuture());
+        }
+    }
+
     /**
      * Method returns a {@link Page} with the same items as in the given page, if the given
      * page is last page of the current paged child list and if there is a cousin list then
@@ -122,7 +214,7 @@ final class ChildListFlattener<ParentT, ChildT> {
                    return page.getNextPageLink();
                 }
 
-                if (parentItr.hasNext()) {
+                if (hasMoreParents()) {
                     // The current child paged list has no more pages so switch to it's cousin list
                     return switchToCousin;
                 }
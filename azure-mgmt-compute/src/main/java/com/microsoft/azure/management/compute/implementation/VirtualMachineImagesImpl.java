@@ -16,6 +16,9 @@ import com.microsoft.azure.management.resources.fluentcore.arm.Region;
 @LangDefinition
 class VirtualMachineImagesImpl
         implements VirtualMachineImages {
+    // The number of sibling offer, sku and image lists loaded concurrently while listing by region
+    private static final int LIST_PREFETCH = 8;
+
     private final VirtualMachinePublishers publishers;
     private final VirtualMachineImagesInner client;
 
@@ -49,7 +52,7 @@ class VirtualMachineImagesImpl
                     public PagedList<VirtualMachineOffer> loadList(VirtualMachinePublisher publisher)  {
                         return publisher.offers().list();
                     }
-                }).flatten();
+                }, LIST_PREFETCH).flatten();
 
         PagedList<VirtualMachineSku> skus =
                 new ChildListFlattener<>(offers, new ChildListFlattener.ChildListLoader<VirtualMachineOffer, VirtualMachineSku>() {
@@ -57,7 +60,7 @@ class VirtualMachineImagesImpl
                     public PagedList<VirtualMachineSku> loadList(VirtualMachineOffer offer)  {
                         return offer.skus().list();
                     }
-                }).flatten();
+                }, LIST_PREFETCH).flatten();
 
         PagedList<VirtualMachineImage> images =
                 new ChildListFlattener<>(skus, new ChildListFlattener.ChildListLoader<VirtualMachineSku, VirtualMachineImage>() {
@@ -65,7 +68,7 @@ class VirtualMachineImagesImpl
                     public PagedList<VirtualMachineImage> loadList(VirtualMachineSku sku)  {
                         return sku.images().list();
                     }
-                }).flatten();
+                }, LIST_PREFETCH).flatten();
 
         return images;
     }
@@ -8,7 +8,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ChildListFlattenerTests {
 
@@ -44,6 +46,177 @@ public class ChildListFlattenerTests {
         Assert.assertEquals(6, (int) flattenedList.get(5));
     }
 
+    @Test
+    public void testFlattenerWithPrefetch() throws Exception {
+        PagedList<Integer> parentList = new PagedList<Integer>(new ParentPage(0)) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws RestException, IOException {
+                return new ParentPage(Integer.parseInt(nextPageLink));
+            }
+        };
+
+        ChildListFlattener<Integer, Integer> flattener = new ChildListFlattener<>(parentList, new ChildListFlattener.ChildListLoader<Integer, Integer>() {
+            @Override
+            public PagedList<Integer> loadList(final Integer parent) {
+                return new PagedList<Integer>(new ChildPage(parent, 0)) {
+                    @Override
+                    public Page<Integer> nextPage(String nextPageLink) throws RestException, IOException {
+                        return new ChildPage(parent, Integer.parseInt(nextPageLink));
+                    }
+                };
+            }
+        }, 2);
+
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 2, 4, 6), new ArrayList<>(flattener.flatten()));
+    }
+
+    @Test
+    public void testPrefetchKeepsParentOrder() throws Exception {
+        // The child lists of the first parents take the longest to load
+        SlowLoader loader = new SlowLoader(10);
+        ChildListFlattener<Integer, Integer> flattener = new ChildListFlattener<>(parentList(10), loader, 4);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int parent = 0; parent < 10; parent++) {
+            expected.add(10 * parent);
+            expected.add(10 * parent + 1);
+        }
+        Assert.assertEquals(expected, new ArrayList<>(flattener.flatten()));
+        Assert.assertEquals(10, loader.started.get());
+    }
+
+    @Test
+    public void testPrefetchIsBounded() throws Exception {
+        SlowLoader loader = new SlowLoader(10);
+        ChildListFlattener<Integer, Integer> flattener = new ChildListFlattener<>(parentList(10), loader, 3);
+
+        // PagedList caches the page following the current one, so the consumer is one child list ahead
+        List<Integer> flattenedList = flattener.flatten();
+        Assert.assertTrue("started: " + loader.started.get(), loader.started.get() <= 2 + 3);
+
+        int parent = 0;
+        for (Integer child : flattenedList) {
+            if (child % 10 == 0) {
+                // The child list being consumed and the cached one, plus at most 3 loaded ahead of them
+                Assert.assertTrue("started: " + loader.started.get(), loader.started.get() <= parent + 2 + 3);
+                parent++;
+            }
+        }
+        Assert.assertEquals(10, parent);
+        // The child list waited for counts against the 3 loaded at the same time
+        Assert.assertTrue("concurrent loads: " + loader.maxLoading.get(), loader.maxLoading.get() <= 3);
+        Assert.assertTrue("concurrent loads: " + loader.maxLoading.get(), loader.maxLoading.get() > 1);
+    }
+
+    @Test
+    public void testPrefetchIsCancelledOnFailure() throws Exception {
+        SlowLoader loader = new SlowLoader(10);
+        loader.failing = 0;
+
+        try {
+            new ChildListFlattener<>(parentList(10), loader, 3).flatten();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("parent 0", e.getMessage());
+        }
+
+        // The loads started ahead of the failed one are interrupted, and no other load is started
+        for (int i = 0; i < 100 && loader.interrupted.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, loader.interrupted.get());
+        Assert.assertEquals(3, loader.started.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePrefetch() throws Exception {
+        new ChildListFlattener<>(parentList(1), new SlowLoader(1), -1);
+    }
+
+    /**
+     * @return a single page list of the parents 0 to count - 1
+     */
+    private PagedList<Integer> parentList(int count) {
+        final List<Integer> parents = new ArrayList<>();
+        for (int parent = 0; parent < count; parent++) {
+            parents.add(parent);
+        }
+        return new PagedList<Integer>(new Page<Integer>() {
+            @Override
+            public String getNextPageLink() {
+                return null;
+            }
+
+            @Override
+            public List<Integer> getItems() {
+                return parents;
+            }
+        }) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws RestException, IOException {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Loads a child list of two items for each parent, the earlier parents taking longer,
+     * and counts the loads started, running at the same time and interrupted.
+     */
+    private class SlowLoader implements ChildListFlattener.ChildListLoader<Integer, Integer> {
+        private final int parentCount;
+        private final AtomicInteger loading = new AtomicInteger();
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger maxLoading = new AtomicInteger();
+        final AtomicInteger interrupted = new AtomicInteger();
+        // The parent whose child list fails to load, -1 for none
+        int failing = -1;
+
+        SlowLoader(int parentCount) {
+            this.parentCount = parentCount;
+        }
+
+        @Override
+        public PagedList<Integer> loadList(final Integer parent) {
+            started.incrementAndGet();
+            int current = loading.incrementAndGet();
+            int max;
+            while ((max = maxLoading.get()) < current && !maxLoading.compareAndSet(max, current)) {
+                // Retry with the new maximum
+            }
+            try {
+                if (parent == failing) {
+                    // Fails while the child lists of the following parents are still loading
+                    Thread.sleep(20);
+                    throw new IllegalStateException("parent " + parent);
+                }
+                Thread.sleep(10 * (parentCount - parent));
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw new RuntimeException(e);
+            } finally {
+                loading.decrementAndGet();
+            }
+
+            return new PagedList<Integer>(new Page<Integer>() {
+                @Override
+                public String getNextPageLink() {
+                    return null;
+                }
+
+                @Override
+                public List<Integer> getItems() {
+                    return Arrays.asList(10 * parent, 10 * parent + 1);
+                }
+            }) {
+                @Override
+                public Page<Integer> nextPage(String nextPageLink) throws RestException, IOException {
+                    return null;
+                }
+            };
+        }
+    }
+
     private class EmptyPage implements Page<Integer> {
         @Override
         public String getNextPageLink() {
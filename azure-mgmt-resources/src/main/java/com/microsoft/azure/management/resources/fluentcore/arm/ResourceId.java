@@ -9,6 +9,10 @@ package com.microsoft.azure.management.resources.fluentcore.arm;
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 
 import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Instantiate itself from a resource id, and give easy access to resource information like subscription, resourceGroup,
@@ -16,55 +20,117 @@ import java.security.InvalidParameterException;
  */
 @LangDefinition
 public final class ResourceId {
-
-    private String subscriptionId;
-    private String resourceGroupName;
-    private String name;
-    private ResourceId parent;
-    private String providerNamespace;
-    private String resourceType;
-    private String id;
+    // Upper bound of the number of parsed ids kept around for reuse
+    private static final int MAX_CACHED_IDS = 4096;
+    private static final ConcurrentMap<String, ResourceId> CACHE = new ConcurrentHashMap<>();
+
+    private final String subscriptionId;
+    private final String resourceGroupName;
+    private final String name;
+    private final ResourceId parent;
+    private final String providerNamespace;
+    private final String resourceType;
+    private final String fullResourceType;
+    private final String id;
+
+    private ResourceId(String id, String subscriptionId, String resourceGroupName, String providerNamespace,
+                       String resourceType, String name, ResourceId parent) {
+        this.id = id;
+        this.subscriptionId = subscriptionId;
+        this.resourceGroupName = resourceGroupName;
+        this.providerNamespace = providerNamespace;
+        this.resourceType = resourceType;
+        this.name = name;
+        this.parent = parent;
+        if (parent == null) {
+            this.fullResourceType = providerNamespace + "/" + resourceType;
+        } else {
+            this.fullResourceType = parent.fullResourceType + "/" + resourceType;
+        }
+    }
 
     /**
      * Returns parsed ResourceId object for a given resource id.
+     * <p>
+     * Parsed ids are cached, so parsing the same id again returns the same instance, and ids of
+     * resources under the same parent share the parent instance.
+     *
      * @param id of the resource
      * @return ResourceId object.
      */
     public static ResourceId parseResourceId(String id) {
-        // Example of id is id=/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/ans/providers/Microsoft.Network/applicationGateways/something
-        // Remove the first '/' and then split using '/'
-        String[] splits = id.substring(1).split("/");
+        ResourceId resourceId = CACHE.get(id);
+        if (resourceId != null) {
+            return resourceId;
+        }
 
-        if (splits.length % 2 == 1) {
+        // Example of id is id=/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/ans/providers/Microsoft.Network/applicationGateways/something
+        // Collect the offsets of the '/' starting each segment in a single pass, the first character
+        // is always treated as a separator and trailing separators are ignored
+        int length = id.length();
+        while (length > 1 && id.charAt(length - 1) == '/') {
+            length--;
+        }
+        int[] separators = new int[16];
+        int count = 1;
+        for (int i = 1; i < length; i++) {
+            if (id.charAt(i) == '/') {
+                if (count == separators.length) {
+                    separators = Arrays.copyOf(separators, count * 2);
+                }
+                separators[count++] = i;
+            }
+        }
+        if (count % 2 == 1 || count < 4) {
             throw new InvalidParameterException();
         }
-        ResourceId resourceId = new ResourceId();
 
-        resourceId.id = id;
-        resourceId.subscriptionId = splits[1];
-        resourceId.resourceGroupName = splits[3];
-
-        // In case of a resource group Id is passed, then name is resource group name.
-        if (splits.length == 4) {
-            resourceId.name = resourceId.resourceGroupName;
-            return resourceId;
+        String subscriptionId = segment(id, separators, count, length, 1);
+        String resourceGroupName = segment(id, separators, count, length, 3);
+        String providerNamespace = count > 4 ? segment(id, separators, count, length, 5) : null;
+
+        // Build the chain from the outermost ancestor down to the resource itself, reusing the
+        // cached ancestors; a resource group id is the ancestor only of ids with a single level
+        // under it, other ids start at the top level resource
+        int segments = count == 4 || count == 6 ? 4 : 8;
+        ResourceId parent = null;
+        while (segments <= count) {
+            String levelId = segments == count ? id : id.substring(0, separators[segments]);
+            resourceId = CACHE.get(levelId);
+            if (resourceId == null) {
+                if (segments == 4) {
+                    resourceId = new ResourceId(levelId, subscriptionId, resourceGroupName, null, null,
+                            resourceGroupName, null);
+                } else {
+                    resourceId = new ResourceId(levelId, subscriptionId, resourceGroupName, providerNamespace,
+                            segment(id, separators, count, length, segments - 2),
+                            segment(id, separators, count, length, segments - 1),
+                            parent);
+                }
+                resourceId = cache(resourceId);
+            }
+            parent = resourceId;
+            segments += 2;
         }
+        return resourceId;
+    }
 
-        resourceId.providerNamespace = splits[5];
-
-        resourceId.name = splits[splits.length - 1];
-        resourceId.resourceType = splits[splits.length - 2];
+    private static String segment(String id, int[] separators, int count, int length, int index) {
+        int end = index + 1 < count ? separators[index + 1] : length;
+        return id.substring(separators[index] + 1, end);
+    }
 
-        int numberOfParents = splits.length / 2 - 4;
-        if (numberOfParents == 0) {
-            return resourceId;
+    private static ResourceId cache(ResourceId resourceId) {
+        if (CACHE.size() >= MAX_CACHED_IDS) {
+            // Evict arbitrary entries, an evicted id is simply parsed again the next time
+            Iterator<String> keys = CACHE.keySet().iterator();
+            while (CACHE.size() >= MAX_CACHED_IDS && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
         }
-
-        String resourceType = splits[splits.length - 2];
-
-        resourceId.parent = ResourceId.parseResourceId(id.substring(0, id.length() - ("/" + resourceType + "/" + resourceId.name()).length()));
-
-        return resourceId;
+        ResourceId existing = CACHE.putIfAbsent(resourceId.id, resourceId);
+        return existing != null ? existing : resourceId;
     }
 
     /**
@@ -113,10 +179,7 @@ public final class ResourceId {
      * @return full type of the resource.
      */
     public String fullResourceType() {
-        if (this.parent == null) {
-            return this.providerNamespace + "/" + this.resourceType;
-        }
-        return this.parent.fullResourceType() + "/" + this.resourceType;
+        return this.fullResourceType;
     }
 
     /**
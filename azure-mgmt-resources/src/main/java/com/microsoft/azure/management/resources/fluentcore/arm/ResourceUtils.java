@@ -60,9 +60,9 @@ public final class ResourceUtils {
         if (id == null) {
             return null;
         }
-        ResourceId resourceId = ResourceId.parseResourceId(id);
-        if (resourceId != null && resourceId.parent() != null) {
-            return ResourceId.parseResourceId(id).parent().id();
+        ResourceId parent = ResourceId.parseResourceId(id).parent();
+        if (parent != null) {
+            return parent.id();
         }
 
         return null;
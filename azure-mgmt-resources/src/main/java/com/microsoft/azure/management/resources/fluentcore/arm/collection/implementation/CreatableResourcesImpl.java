@@ -1,6 +1,7 @@
 package com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation;
 
 import com.microsoft.azure.management.resources.fluentcore.collection.SupportsBatchCreation;
+import com.microsoft.azure.management.resources.fluentcore.dag.TaskExecutionListener;
 import com.microsoft.azure.management.resources.fluentcore.model.Creatable;
 import com.microsoft.azure.management.resources.fluentcore.model.CreatedResources;
 import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
@@ -51,6 +52,13 @@ public abstract class CreatableResourcesImpl<T extends Indexable, ImplT extends
                 .single();
     }
 
+    @Override
+    public final CreatedResources<T> create(List<Creatable<T>> creatables, int maxConcurrency) {
+        return createAsyncNonStream(this.createAsync(creatables, maxConcurrency, null))
+                .toBlocking()
+                .single();
+    }
+
     @Override
     @SafeVarargs
     public final Observable<Indexable> createAsync(Creatable<T> ... creatables) {
@@ -66,6 +74,16 @@ public abstract class CreatableResourcesImpl<T extends Indexable, ImplT extends
         return rootResource.createAsync();
     }
 
+    @Override
+    public final Observable<Indexable> createAsync(List<Creatable<T>> creatables, int maxConcurrency, TaskExecutionListener listener) {
+        CreatableUpdatableResourcesRootImpl<T> rootResource = new CreatableUpdatableResourcesRootImpl<>();
+        rootResource.addCreatableDependencies(creatables);
+        rootResource.creatorUpdatorTaskGroup()
+                .withMaxConcurrency(maxConcurrency)
+                .withExecutionListener(listener);
+        return rootResource.createAsync();
+    }
+
     @Override
     @SafeVarargs
     public final ServiceCall<CreatedResources<T>> createAsync(final ServiceCallback<CreatedResources<T>> callback, Creatable<T>... creatables) {
@@ -91,7 +109,11 @@ public abstract class CreatableResourcesImpl<T extends Indexable, ImplT extends
 
 
     private Observable<CreatedResources<T>> createAsyncNonStream(List<Creatable<T>> creatables) {
-        return Utils.<CreatableUpdatableResourcesRoot<T>>rootResource(this.createAsync(creatables))
+        return createAsyncNonStream(this.createAsync(creatables));
+    }
+
+    private Observable<CreatedResources<T>> createAsyncNonStream(Observable<Indexable> createdResources) {
+        return Utils.<CreatableUpdatableResourcesRoot<T>>rootResource(createdResources)
                 .map(new Func1<CreatableUpdatableResourcesRoot<T>, CreatedResources<T>>() {
                     @Override
                     public CreatedResources<T> call(CreatableUpdatableResourcesRoot<T> tCreatableUpdatableResourcesRoot) {
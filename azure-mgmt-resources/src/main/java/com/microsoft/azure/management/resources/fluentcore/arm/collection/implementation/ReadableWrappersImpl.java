@@ -23,6 +23,9 @@ public abstract class ReadableWrappersImpl<
         T,
         ImplT extends T,
         InnerT> {
+    // Lists are mostly read in full, one page fetched ahead hides the latency of the next one at the cost
+    // of at most one extra ARM call for a caller reading only the first page
+    static final int DEFAULT_LIST_PREFETCH_DEPTH = 1;
 
     private final PagedListConverter<InnerT, T> converter;
 
@@ -32,7 +35,24 @@ public abstract class ReadableWrappersImpl<
             public T typeConvert(InnerT inner) {
                 return wrapModel(inner);
             }
-        };
+        }.withPrefetchDepth(DEFAULT_LIST_PREFETCH_DEPTH);
+    }
+
+    /**
+     * Sets how many pages the lists returned by this collection fetch and convert in the background ahead of
+     * the page being consumed. By default one page is fetched ahead.
+     * <p>
+     * Pages are fetched ahead as soon as a list is returned, so a caller reading only the first page of a
+     * list still costs up to this number of extra calls to Azure Resource Manager, which count against the
+     * read request limits of the subscription. Collections whose lists are long and read in full can fetch
+     * more pages ahead, collections whose lists are rarely read past the first page can disable it with 0.
+     *
+     * @param prefetchDepth the maximum number of pages fetched ahead, 0 to disable prefetching
+     * @return this collection
+     */
+    protected ReadableWrappersImpl<T, ImplT, InnerT> withListPrefetchDepth(int prefetchDepth) {
+        this.converter.withPrefetchDepth(prefetchDepth);
+        return this;
     }
 
     protected abstract ImplT wrapModel(InnerT inner);
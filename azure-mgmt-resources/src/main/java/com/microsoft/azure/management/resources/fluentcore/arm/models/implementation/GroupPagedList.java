@@ -10,10 +10,17 @@ import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.resources.ResourceGroup;
 import com.microsoft.azure.management.resources.implementation.PageImpl;
+import rx.Observable;
+import rx.schedulers.Schedulers;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Defines a list of resources paginated across resource groups.
@@ -22,6 +29,9 @@ import java.util.List;
  */
 public abstract class GroupPagedList<E> extends PagedList<E> {
     private Iterator<ResourceGroup> resourceGroupItr;
+    private int maxConcurrency = 1;
+    // Listings of the resource groups following the current page, in the order of the groups
+    private final Queue<Future<List<E>>> pendingGroupLists = new ArrayDeque<>();
 
     /**
      * Creates an instance from a list of resource groups.
@@ -33,8 +43,32 @@ public abstract class GroupPagedList<E> extends PagedList<E> {
         setCurrentPage(nextPage("dummy"));
     }
 
+    /**
+     * Creates an instance from a list of resource groups that lists the resources in up to
+     * the given number of resource groups at the same time.
+     * <p>
+     * Each page of this list holds the resources of one resource group, in the order of the
+     * groups. The groups following the current page are listed in the background only while
+     * the consumer asks for pages, so a list that is no longer iterated stops once the listings
+     * already started complete.
+     *
+     * @param resourceGroupList the list of resource groups
+     * @param maxConcurrency the maximum number of resource groups to list at the same time
+     */
+    public GroupPagedList(PagedList<ResourceGroup> resourceGroupList, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.resourceGroupItr = resourceGroupList.iterator();
+        this.maxConcurrency = maxConcurrency;
+        setCurrentPage(nextPage("dummy"));
+    }
+
     @Override
     public Page<E> nextPage(String s) {
+        if (maxConcurrency > 1) {
+            return nextConcurrentPage(s);
+        }
         if (resourceGroupItr.hasNext()) {
             ResourceGroup resourceGroup = resourceGroupItr.next();
             PageImpl<E> page = new PageImpl<>();
@@ -49,6 +83,62 @@ public abstract class GroupPagedList<E> extends PagedList<E> {
         }
     }
 
+    private Page<E> nextConcurrentPage(String s) {
+        // Start listing the groups up to maxConcurrency, including the one returned now, so that
+        // the others are listed while the consumer iterates this page
+        while (pendingGroupLists.size() < maxConcurrency && resourceGroupItr.hasNext()) {
+            pendingGroupLists.add(listGroupAsync(resourceGroupItr.next()));
+        }
+        PageImpl<E> page = new PageImpl<>();
+        Future<List<E>> next = pendingGroupLists.poll();
+        if (next != null) {
+            page.setItems(waitForGroupList(next));
+            page.setNextPageLink(s);
+        } else {
+            // return an empty page without next link so that iteration will terminate
+            page.setItems(new ArrayList<E>());
+        }
+        return page;
+    }
+
+    private Future<List<E>> listGroupAsync(final ResourceGroup resourceGroup) {
+        return Observable.fromCallable(new Callable<List<E>>() {
+            @Override
+            public List<E> call() {
+                List<E> items = listNextGroup(resourceGroup.name());
+                if (items instanceof PagedList) {
+                    // Fetch the remaining pages here rather than on the consumer's thread
+                    ((PagedList<E>) items).loadAll();
+                }
+                return items;
+            }
+        }).subscribeOn(Schedulers.io()).toBlocking().toFuture();
+    }
+
+    private List<E> waitForGroupList(Future<List<E>> groupList) {
+        try {
+            return groupList.get();
+        } catch (InterruptedException e) {
+            cancelPendingGroupLists();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // The iteration fails here, so stop listing the following groups
+            cancelPendingGroupLists();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void cancelPendingGroupLists() {
+        for (Future<List<E>> groupList : pendingGroupLists) {
+            groupList.cancel(true);
+        }
+        pendingGroupLists.clear();
+    }
+
     /**
      * Override this method to implement how to list resources in a resource group.
      *
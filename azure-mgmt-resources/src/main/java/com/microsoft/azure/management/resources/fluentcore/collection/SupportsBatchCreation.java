@@ -3,6 +3,7 @@ package com.microsoft.azure.management.resources.fluentcore.collection;
 
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 import com.microsoft.azure.management.apigeneration.LangDefinition.MethodConversion;
+import com.microsoft.azure.management.resources.fluentcore.dag.TaskExecutionListener;
 import com.microsoft.azure.management.resources.fluentcore.model.Creatable;
 import com.microsoft.azure.management.resources.fluentcore.model.CreatedResources;
 import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
@@ -36,6 +37,16 @@ public interface SupportsBatchCreation<ResourceT extends Indexable> {
      */
     CreatedResources<ResourceT> create(List<Creatable<ResourceT>> creatables);
 
+    /**
+     * Executes the create requests on a collection (batch) of resources, sending at most the given
+     * number of requests at the same time.
+     *
+     * @param creatables the list of creatables in the batch
+     * @param maxConcurrency the maximum number of create requests in flight
+     * @return the batch operation result from which created resources in this batch can be accessed.
+     */
+    CreatedResources<ResourceT> create(List<Creatable<ResourceT>> creatables, int maxConcurrency);
+
     /**
      * Puts the requests to create a batch of resources into the queue and allow the HTTP client to execute it when
      * system resources are available.
@@ -54,6 +65,17 @@ public interface SupportsBatchCreation<ResourceT extends Indexable> {
      */
     Observable<Indexable> createAsync(List<Creatable<ResourceT>> creatables);
 
+    /**
+     * Puts the requests to create a batch of resources into the queue and allow the HTTP client to execute it when
+     * system resources are available, sending at most the given number of requests at the same time.
+     *
+     * @param creatables the list of creatables in the batch
+     * @param maxConcurrency the maximum number of create requests in flight
+     * @param listener the listener to notify when the creation of a resource starts and finishes, can be null
+     * @return an observable for the resources
+     */
+    Observable<Indexable> createAsync(List<Creatable<ResourceT>> creatables, int maxConcurrency, TaskExecutionListener listener);
+
     /**
      * Puts the requests to create a batch of resources into the queue and allow the HTTP client to execute it when
      * system resources are available.
@@ -0,0 +1,32 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.dag;
+
+/**
+ * Receives a notification when a task in a {@link TaskGroup} starts and finishes executing.
+ * <p>
+ * The methods are invoked on the threads that run the tasks, hence implementations must be
+ * thread safe, return quickly and must not throw.
+ */
+public interface TaskExecutionListener {
+    /**
+     * Called right before a task starts executing.
+     *
+     * @param key the key of the task
+     */
+    void onTaskStarted(String key);
+
+    /**
+     * Called when a task finished executing.
+     *
+     * @param key the key of the task
+     * @param elapsedMillis the time in milliseconds the task took to execute
+     * @param error the error the task failed with, null if the task succeeded
+     */
+    void onTaskFinished(String key, long elapsedMillis, Throwable error);
+}
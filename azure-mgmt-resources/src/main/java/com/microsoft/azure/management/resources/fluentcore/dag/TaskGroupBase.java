@@ -8,11 +8,17 @@
 package com.microsoft.azure.management.resources.fluentcore.dag;
 
 import rx.Observable;
-import rx.functions.Func1;
+import rx.Subscriber;
+import rx.observers.SerializedSubscriber;
+import rx.subscriptions.CompositeSubscription;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The base implementation of TaskGroup interface.
@@ -33,6 +39,8 @@ public abstract class TaskGroupBase<T, U extends TaskItem<T>>
      *     The dependent keys gets populated only after invoking {@link DAGraph#prepare()}
      */
     private DAGraph<U, TaskItemHolder<T, U>> dag;
+    private int maxConcurrency = Integer.MAX_VALUE;
+    private TaskExecutionListener listener;
 
     /**
      * Creates TaskGroupBase.
@@ -109,44 +117,221 @@ public abstract class TaskGroupBase<T, U extends TaskItem<T>>
         }
     }
 
+    /**
+     * Limits the number of tasks in this group that can execute at the same time.
+     * <p>
+     * When more tasks are ready than allowed to run, the ones on the longest chain of dependents
+     * (the critical path) are started first. By default the number of tasks is not limited.
+     *
+     * @param maxConcurrency the maximum number of tasks to execute at the same time
+     * @return this task group
+     */
+    public TaskGroupBase<T, U> withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the listener to notify when a task in this group starts and finishes executing.
+     *
+     * @param listener the listener, null to remove the current one
+     * @return this task group
+     */
+    public TaskGroupBase<T, U> withExecutionListener(TaskExecutionListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
     @Override
     public Observable<T> executeAsync() {
-        TaskItemHolder<T, U> nextNode = dag.getNext();
-        final List<Observable<T>> observables = new ArrayList<>();
-        while (nextNode != null) {
-            final TaskItemHolder<T, U> thisNode = nextNode;
-            T cachedResult = nextNode.data().result();
-            if (cachedResult != null && !this.dag().isRootNode(nextNode)) {
-                observables.add(Observable.just(cachedResult)
-                        .flatMap(new Func1<T, Observable<T>>() {
-                            @Override
-                            public Observable<T> call(T t) {
-                                dag().reportedCompleted(thisNode);
-                                return Observable.just(t).concatWith(executeAsync());
-                            }
-                        })
-                );
-            } else {
-                observables.add(nextNode.data().executeAsync()
-                        .flatMap(new Func1<T, Observable<T>>() {
-                            @Override
-                            public Observable<T> call(T t) {
-                                dag().reportedCompleted(thisNode);
-                                if (dag().isRootNode(thisNode)) {
-                                    return Observable.just(t);
-                                } else {
-                                    return Observable.just(t).concatWith(executeAsync());
-                                }
-                            }
-                        }));
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(Subscriber<? super T> subscriber) {
+                new Execution(subscriber).drain();
             }
-            nextNode = dag.getNext();
-        }
-        return Observable.merge(observables);
+        });
     }
 
     @Override
     public T taskResult(String taskId) {
         return dag.getNodeData(taskId).result();
     }
+
+    /**
+     * Computes for each node the number of nodes on the longest chain of dependents starting
+     * at that node, the root node being at the end of every chain.
+     *
+     * @return the critical path length of each node by node key
+     */
+    private Map<String, Integer> criticalPathLengths() {
+        Map<String, Integer> lengths = new HashMap<>();
+        Map<String, Integer> pendingDependents = new HashMap<>();
+        ArrayDeque<TaskItemHolder<T, U>> resolved = new ArrayDeque<>();
+        for (TaskItemHolder<T, U> node : dag.getNodes()) {
+            pendingDependents.put(node.key(), node.dependentKeys().size());
+            if (node.dependentKeys().isEmpty()) {
+                lengths.put(node.key(), 1);
+                resolved.add(node);
+            }
+        }
+        // Walks the graph from the root towards the leaves, a node is visited only once
+        // all of its dependents are visited so its length is final at that point
+        while (!resolved.isEmpty()) {
+            TaskItemHolder<T, U> node = resolved.poll();
+            int length = lengths.get(node.key()) + 1;
+            for (String dependencyKey : node.dependencyKeys()) {
+                Integer current = lengths.get(dependencyKey);
+                if (current == null || current < length) {
+                    lengths.put(dependencyKey, length);
+                }
+                int remaining = pendingDependents.get(dependencyKey) - 1;
+                pendingDependents.put(dependencyKey, remaining);
+                if (remaining == 0) {
+                    resolved.add(dag.getNode(dependencyKey));
+                }
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * A node whose dependencies are resolved, waiting for a free execution slot.
+     */
+    private final class ReadyTask implements Comparable<ReadyTask> {
+        private final TaskItemHolder<T, U> node;
+        private final int criticalPathLength;
+        private final long sequence;
+
+        ReadyTask(TaskItemHolder<T, U> node, int criticalPathLength, long sequence) {
+            this.node = node;
+            this.criticalPathLength = criticalPathLength;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ReadyTask other) {
+            if (criticalPathLength != other.criticalPathLength) {
+                return criticalPathLength > other.criticalPathLength ? -1 : 1;
+            }
+            // Nodes on equally long paths start in the order they became ready
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * A single execution of the tasks in the group.
+     * <p>
+     * The nodes whose dependencies are resolved are moved from the graph to a ready queue and
+     * started from there as long as fewer than {@link TaskGroupBase#maxConcurrency} tasks are in
+     * flight. The queue is drained by one thread at a time, other threads signal the draining
+     * thread instead of recursing, so the stack depth does not grow with the depth of the graph.
+     */
+    private final class Execution {
+        private final Subscriber<? super T> subscriber;
+        private final CompositeSubscription subscriptions = new CompositeSubscription();
+        private final Map<String, Integer> criticalPathLengths;
+        private final PriorityQueue<ReadyTask> ready = new PriorityQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private long sequence;
+
+        Execution(Subscriber<? super T> subscriber) {
+            this.subscriber = new SerializedSubscriber<>(subscriber);
+            this.criticalPathLengths = criticalPathLengths();
+            subscriber.add(subscriptions);
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!isStopped()) {
+                    pollGraph();
+                    if (ready.isEmpty() || inFlight.get() >= maxConcurrency) {
+                        break;
+                    }
+                    TaskItemHolder<T, U> node = ready.poll().node;
+                    T cachedResult = node.data().result();
+                    if (cachedResult != null && !dag.isRootNode(node)) {
+                        subscriber.onNext(cachedResult);
+                        dag.reportedCompleted(node);
+                    } else {
+                        inFlight.incrementAndGet();
+                        execute(node);
+                    }
+                }
+                if (inFlight.get() == 0) {
+                    // No task can resolve more nodes, whatever is in the graph queue now is all there is
+                    pollGraph();
+                    if (ready.isEmpty() && done.compareAndSet(false, true)) {
+                        subscriber.onCompleted();
+                    }
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private boolean isStopped() {
+            return done.get() || subscriber.isUnsubscribed();
+        }
+
+        private void pollGraph() {
+            TaskItemHolder<T, U> next = dag.getNext();
+            while (next != null) {
+                Integer length = criticalPathLengths.get(next.key());
+                ready.add(new ReadyTask(next, length == null ? 0 : length, sequence++));
+                next = dag.getNext();
+            }
+        }
+
+        private void execute(final TaskItemHolder<T, U> node) {
+            final long startedAt = System.currentTimeMillis();
+            final TaskExecutionListener listener = TaskGroupBase.this.listener;
+            if (listener != null) {
+                listener.onTaskStarted(node.key());
+            }
+            Subscriber<T> taskSubscriber = new Subscriber<T>() {
+                private boolean reported;
+
+                @Override
+                public void onNext(T t) {
+                    if (!reported) {
+                        reported = true;
+                        dag.reportedCompleted(node);
+                    }
+                    if (!done.get()) {
+                        subscriber.onNext(t);
+                    }
+                    drain();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    if (listener != null) {
+                        listener.onTaskFinished(node.key(), System.currentTimeMillis() - startedAt, e);
+                    }
+                    if (done.compareAndSet(false, true)) {
+                        subscriptions.unsubscribe();
+                        subscriber.onError(e);
+                    }
+                }
+
+                @Override
+                public void onCompleted() {
+                    subscriptions.remove(this);
+                    if (listener != null) {
+                        listener.onTaskFinished(node.key(), System.currentTimeMillis() - startedAt, null);
+                    }
+                    inFlight.decrementAndGet();
+                    drain();
+                }
+            };
+            subscriptions.add(taskSubscriber);
+            node.data().executeAsync().subscribe(taskSubscriber);
+        }
+    }
 }
@@ -11,8 +11,19 @@ import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.resources.implementation.PageImpl;
 import com.microsoft.rest.RestException;
 
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * The base class for converting {@link PagedList} of one type of resource to
@@ -24,6 +35,9 @@ import java.util.ArrayList;
  * @param <V> the type of Resource to convert to
  */
 public abstract class PagedListConverter<U, V> {
+    private int prefetchDepth;
+    private Scheduler prefetchScheduler = Schedulers.io();
+
     /**
      * Override this method to define how to convert each Resource item
      * individually.
@@ -33,6 +47,38 @@ public abstract class PagedListConverter<U, V> {
      */
     public abstract V typeConvert(U u);
 
+    /**
+     * Makes the lists returned by {@link #convert(PagedList)} fetch and convert pages in the
+     * background ahead of the consumer.
+     * <p>
+     * While a page is consumed, the following pages are fetched one after the other until the
+     * given number of pages are waiting to be consumed. By default no page is fetched ahead.
+     *
+     * @param prefetchDepth the maximum number of pages fetched ahead, 0 to disable prefetching
+     * @return this converter
+     */
+    public PagedListConverter<U, V> withPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("prefetchDepth cannot be negative.");
+        }
+        this.prefetchDepth = prefetchDepth;
+        return this;
+    }
+
+    /**
+     * Sets the scheduler the pages fetched ahead are fetched and converted on, {@link Schedulers#io()} by default.
+     *
+     * @param prefetchScheduler the scheduler
+     * @return this converter
+     */
+    public PagedListConverter<U, V> withPrefetchScheduler(Scheduler prefetchScheduler) {
+        if (prefetchScheduler == null) {
+            throw new IllegalArgumentException("prefetchScheduler cannot be null.");
+        }
+        this.prefetchScheduler = prefetchScheduler;
+        return this;
+    }
+
     /**
      * Converts the paged list.
      *
@@ -48,25 +94,154 @@ public abstract class PagedListConverter<U, V> {
                 }
             };
         }
-        Page<U> uPage = uList.currentPage();
+        Page<V> vPage = convertPage(uList.currentPage());
+        if (prefetchDepth > 0 && vPage.getNextPageLink() != null) {
+            return new PrefetchingPagedList(uList, vPage);
+        }
+        return new PagedList<V>(vPage) {
+            @Override
+            public Page<V> nextPage(String nextPageLink) throws RestException, IOException {
+                return convertPage(uList.nextPage(nextPageLink));
+            }
+        };
+    }
+
+    private Page<V> convertPage(Page<U> uPage) {
         PageImpl<V> vPage = new PageImpl<>();
         vPage.setNextPageLink(uPage.getNextPageLink());
-        vPage.setItems(new ArrayList<V>());
+        vPage.setItems(new ArrayList<V>(uPage.getItems().size()));
         for (U u : uPage.getItems()) {
             vPage.getItems().add(typeConvert(u));
         }
-        return new PagedList<V>(vPage) {
-            @Override
-            public Page<V> nextPage(String nextPageLink) throws RestException, IOException {
-                Page<U> uPage = uList.nextPage(nextPageLink);
-                PageImpl<V> vPage = new PageImpl<>();
-                vPage.setNextPageLink(uPage.getNextPageLink());
-                vPage.setItems(new ArrayList<V>());
-                for (U u : uPage.getItems()) {
-                    vPage.getItems().add(typeConvert(u));
+        return vPage;
+    }
+
+    /**
+     * A converted list that fetches and converts the pages following the one being consumed
+     * in the background, up to {@link PagedListConverter#prefetchDepth} pages ahead.
+     * <p>
+     * Only one page is fetched at a time, the fetch of a page schedules the fetch of the next
+     * one when it completes, or leaves it to the consumer if enough pages are already waiting.
+     */
+    private final class PrefetchingPagedList extends PagedList<V> {
+        private final PagedList<U> uList;
+        // Pages fetched or being fetched ahead of the consumer, in the order of the list
+        private final Queue<PrefetchedPage> prefetched = new ArrayDeque<>();
+        // The link of the next page to fetch once a prefetched page is consumed
+        private String deferredLink;
+        // Incremented when the prefetched pages are dropped so that pending fetches stop chaining
+        private int generation;
+
+        PrefetchingPagedList(PagedList<U> uList, Page<V> firstPage) {
+            this.uList = uList;
+            synchronized (prefetched) {
+                prefetch(firstPage.getNextPageLink());
+            }
+            // Loads the first page and takes the second one from the prefetched pages
+            setCurrentPage(firstPage);
+        }
+
+        @Override
+        public Page<V> nextPage(String nextPageLink) throws RestException, IOException {
+            PrefetchedPage next;
+            synchronized (prefetched) {
+                next = prefetched.poll();
+                if (next != null && next.link.equals(nextPageLink)) {
+                    if (deferredLink != null) {
+                        String link = deferredLink;
+                        deferredLink = null;
+                        prefetch(link);
+                    }
+                } else {
+                    // Not the page fetched ahead, start over from the requested one
+                    prefetched.clear();
+                    deferredLink = null;
+                    generation++;
+                    next = null;
                 }
-                return vPage;
             }
-        };
+            if (next != null) {
+                return next.get();
+            }
+            Page<V> page = convertPage(uList.nextPage(nextPageLink));
+            synchronized (prefetched) {
+                prefetch(page.getNextPageLink());
+            }
+            return page;
+        }
+
+        // Must be called while holding the lock on prefetched
+        private void prefetch(final String link) {
+            if (link == null) {
+                return;
+            }
+            if (prefetched.size() >= prefetchDepth) {
+                deferredLink = link;
+                return;
+            }
+            final int fetchGeneration = generation;
+            final FutureTask<Page<V>> fetch = new FutureTask<>(new Callable<Page<V>>() {
+                @Override
+                public Page<V> call() throws Exception {
+                    Page<V> page = convertPage(uList.nextPage(link));
+                    synchronized (prefetched) {
+                        if (fetchGeneration == generation) {
+                            prefetch(page.getNextPageLink());
+                        }
+                    }
+                    return page;
+                }
+            });
+            // Queued before it is scheduled, so the next fetch counts it even if the scheduler runs it right away
+            prefetched.add(new PrefetchedPage(link, fetch));
+            final Scheduler.Worker worker = prefetchScheduler.createWorker();
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    try {
+                        fetch.run();
+                    } finally {
+                        worker.unsubscribe();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * A page fetched or being fetched ahead of the consumer.
+     */
+    private final class PrefetchedPage {
+        private final String link;
+        private final Future<Page<V>> page;
+
+        PrefetchedPage(String link, Future<Page<V>> page) {
+            this.link = link;
+            this.page = page;
+        }
+
+        Page<V> get() throws RestException, IOException {
+            try {
+                return page.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next page");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RestException) {
+                    throw (RestException) cause;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
     }
 }
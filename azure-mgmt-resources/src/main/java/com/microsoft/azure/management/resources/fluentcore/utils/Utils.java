@@ -10,17 +10,36 @@ import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
 import okhttp3.ResponseBody;
 import retrofit2.Retrofit;
 import retrofit2.http.GET;
+import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 import rx.Observable;
+import rx.Observer;
 import rx.exceptions.Exceptions;
+import rx.functions.Action1;
+import rx.functions.Action2;
+import rx.functions.Func0;
 import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.observables.SyncOnSubscribe;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Defines a few utilities.
  */
 public final class Utils {
+    /**
+     * The default size of the chunks emitted by {@link #streamFileAsync(String, Retrofit)}.
+     */
+    public static final int DEFAULT_DOWNLOAD_CHUNK_SIZE = 64 * 1024;
+
     /**
      * Converts an object Boolean to a primitive boolean.
      *
@@ -116,10 +135,155 @@ public final class Utils {
     }
 
     /**
-     * A Retrofit service used to download a file.
+     * Download a file asynchronously as a stream of chunks of at most
+     * {@link #DEFAULT_DOWNLOAD_CHUNK_SIZE} bytes.
+     * @param url the URL pointing to the file
+     * @param retrofit the retrofit client
+     * @return an Observable emitting the content of the file chunk by chunk
+     */
+    public static Observable<ByteBuffer> streamFileAsync(String url, Retrofit retrofit) {
+        return streamFileAsync(url, retrofit, DEFAULT_DOWNLOAD_CHUNK_SIZE);
+    }
+
+    /**
+     * Download a file asynchronously as a stream of chunks. The content is read from
+     * the connection only as chunks are requested by the subscriber, so at most
+     * the requested number of chunks is held in memory at any time.
+     * @param url the URL pointing to the file
+     * @param retrofit the retrofit client
+     * @param chunkSize the maximum size of each emitted chunk in bytes
+     * @return an Observable emitting the content of the file chunk by chunk
+     */
+    public static Observable<ByteBuffer> streamFileAsync(String url, Retrofit retrofit, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive.");
+        }
+        FileService service = retrofit.create(FileService.class);
+        return service.download(url).flatMap(new Func1<ResponseBody, Observable<ByteBuffer>>() {
+            @Override
+            public Observable<ByteBuffer> call(final ResponseBody responseBody) {
+                return Observable.create(SyncOnSubscribe.createSingleState(
+                        new Func0<ReadableByteChannel>() {
+                            @Override
+                            public ReadableByteChannel call() {
+                                return Channels.newChannel(responseBody.byteStream());
+                            }
+                        },
+                        new Action2<ReadableByteChannel, Observer<? super ByteBuffer>>() {
+                            @Override
+                            public void call(ReadableByteChannel channel, Observer<? super ByteBuffer> observer) {
+                                ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+                                boolean endOfStream = false;
+                                try {
+                                    while (chunk.hasRemaining()) {
+                                        if (channel.read(chunk) < 0) {
+                                            endOfStream = true;
+                                            break;
+                                        }
+                                    }
+                                } catch (IOException e) {
+                                    observer.onError(e);
+                                    return;
+                                }
+                                chunk.flip();
+                                if (chunk.hasRemaining()) {
+                                    observer.onNext(chunk);
+                                }
+                                if (endOfStream) {
+                                    observer.onCompleted();
+                                }
+                            }
+                        },
+                        new Action1<ReadableByteChannel>() {
+                            @Override
+                            public void call(ReadableByteChannel channel) {
+                                responseBody.close();
+                            }
+                        }));
+            }
+        });
+    }
+
+    /**
+     * Download a file asynchronously into a channel, one chunk at a time.
+     * The channel is not closed once the download completes.
+     * @param url the URL pointing to the file
+     * @param retrofit the retrofit client
+     * @param target the channel to write the content of the file to
+     * @return an Observable emitting the number of bytes written
+     */
+    public static Observable<Long> downloadFileAsync(String url, Retrofit retrofit, final WritableByteChannel target) {
+        return streamFileAsync(url, retrofit)
+                .map(new Func1<ByteBuffer, Long>() {
+                    @Override
+                    public Long call(ByteBuffer chunk) {
+                        long written = 0;
+                        try {
+                            while (chunk.hasRemaining()) {
+                                written += target.write(chunk);
+                            }
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                        return written;
+                    }
+                })
+                .reduce(0L, new Func2<Long, Long, Long>() {
+                    @Override
+                    public Long call(Long total, Long written) {
+                        return total + written;
+                    }
+                });
+    }
+
+    /**
+     * Download a file asynchronously into a local file, one chunk at a time.
+     * The local file is created if missing and overwritten otherwise.
+     * @param url the URL pointing to the file
+     * @param retrofit the retrofit client
+     * @param target the path of the local file
+     * @return an Observable emitting the number of bytes written
+     */
+    public static Observable<Long> downloadFileAsync(final String url, final Retrofit retrofit, final Path target) {
+        return Observable.using(
+                new Func0<FileChannel>() {
+                    @Override
+                    public FileChannel call() {
+                        try {
+                            return FileChannel.open(target,
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }
+                },
+                new Func1<FileChannel, Observable<Long>>() {
+                    @Override
+                    public Observable<Long> call(FileChannel channel) {
+                        return downloadFileAsync(url, retrofit, channel);
+                    }
+                },
+                new Action1<FileChannel>() {
+                    @Override
+                    public void call(FileChannel channel) {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * A Retrofit service used to download a file. The response body is streamed
+     * from the connection rather than buffered up front.
      */
     private interface FileService {
         @GET
+        @Streaming
         Observable<ResponseBody> download(@Url String url);
     }
 
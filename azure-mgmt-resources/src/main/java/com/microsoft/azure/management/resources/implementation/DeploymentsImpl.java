@@ -26,6 +26,8 @@ import java.util.List;
  */
 final class DeploymentsImpl
     implements Deployments {
+    // Number of resource groups whose deployments are listed at the same time
+    private static final int LIST_CONCURRENCY = 8;
 
     private final DeploymentsInner client;
     private final DeploymentOperationsInner deploymentOperationsClient;
@@ -48,7 +50,7 @@ final class DeploymentsImpl
 
     @Override
     public PagedList<Deployment> list() {
-        return new GroupPagedList<Deployment>(this.resourceManager.resourceGroups().list()) {
+        return new GroupPagedList<Deployment>(this.resourceManager.resourceGroups().list(), LIST_CONCURRENCY) {
             @Override
             public List<Deployment> listNextGroup(String resourceGroupName) {
                 return converter.convert(client.list(resourceGroupName));
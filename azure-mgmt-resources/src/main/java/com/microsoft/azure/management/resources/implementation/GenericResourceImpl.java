@@ -8,8 +8,6 @@ package com.microsoft.azure.management.resources.implementation;
 
 import com.microsoft.azure.management.resources.GenericResource;
 import com.microsoft.azure.management.resources.Plan;
-import com.microsoft.azure.management.resources.Provider;
-import com.microsoft.azure.management.resources.Providers;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.arm.models.implementation.GroupableResourceImpl;
 import rx.Observable;
@@ -32,7 +30,7 @@ final class GenericResourceImpl
         GenericResource.Update {
     private final ResourceManagementClientImpl serviceClient;
     private final ResourcesInner resourceClient;
-    private final Providers providersClient;
+    private final ProvidersImpl providersClient;
     private String resourceProviderNamespace;
     private String parentResourcePath;
     private String resourceType;
@@ -41,7 +39,7 @@ final class GenericResourceImpl
     GenericResourceImpl(String key,
                         GenericResourceInner innerModel,
                         ResourcesInner innerCollection,
-                        Providers providerClient,
+                        ProvidersImpl providerClient,
                         final ResourceManagementClientImpl serviceClient,
                         final ResourceManager resourceManager) {
         super(key, innerModel, resourceManager);
@@ -139,24 +137,24 @@ final class GenericResourceImpl
         final GenericResourceImpl self = this;
         Observable<String> observable = Observable.just(apiVersion);
         if (apiVersion == null) {
-            observable = providersClient.getByNameAsync(resourceProviderNamespace)
-                    .map(new Func1<Provider, String>() {
+            String id;
+            if (!isInCreateMode()) {
+                id = inner().id();
+            } else {
+                id = ResourceUtils.constructResourceId(
+                        serviceClient.subscriptionId(),
+                        resourceGroupName(),
+                        resourceProviderNamespace(),
+                        resourceType(),
+                        name(),
+                        parentResourcePath());
+            }
+            observable = providersClient.getApiVersionAsync(id)
+                    .map(new Func1<String, String>() {
                         @Override
-                        public String call(Provider provider) {
-                            String id;
-                            if (!isInCreateMode()) {
-                                id = inner().id();
-                            } else {
-                                id = ResourceUtils.constructResourceId(
-                                        serviceClient.subscriptionId(),
-                                        resourceGroupName(),
-                                        resourceProviderNamespace(),
-                                        resourceType(),
-                                        name(),
-                                        parentResourcePath());
-                            }
-                            self.apiVersion = ResourceUtils.defaultApiVersion(id, provider);
-                            return self.apiVersion;
+                        public String call(String resolved) {
+                            self.apiVersion = resolved;
+                            return resolved;
                         }
                     });
         }
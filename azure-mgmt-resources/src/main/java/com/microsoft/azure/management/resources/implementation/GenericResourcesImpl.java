@@ -6,10 +6,10 @@
 
 package com.microsoft.azure.management.resources.implementation;
 
+import com.microsoft.azure.CloudException;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.resources.GenericResource;
 import com.microsoft.azure.management.resources.GenericResources;
-import com.microsoft.azure.management.resources.Provider;
 import com.microsoft.azure.management.resources.ResourceGroup;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation.GroupableResourcesImpl;
@@ -31,11 +31,16 @@ final class GenericResourcesImpl
         ResourceManager>
     implements GenericResources {
 
+    // Resource listings of a subscription or a resource group commonly run into tens of pages and are read in full,
+    // fetching the pages ahead costs at most this number of extra ARM calls for a caller reading only the first one
+    private static final int LIST_PREFETCH_DEPTH = 2;
+
     private final ResourceManagementClientImpl serviceClient;
 
     GenericResourcesImpl(ResourceManagementClientImpl serviceClient, ResourceManager resourceManager) {
         super(serviceClient.resources(), resourceManager);
         this.serviceClient = serviceClient;
+        withListPrefetchDepth(LIST_PREFETCH_DEPTH);
     }
 
     @Override
@@ -60,7 +65,7 @@ final class GenericResourcesImpl
                 name,
                 new GenericResourceInner(),
                 this.innerCollection,
-                this.myManager.providers(),
+                this.myManager.providersImpl(),
                 serviceClient,
                 super.myManager);
     }
@@ -84,8 +89,7 @@ final class GenericResourcesImpl
 
     @Override
     public GenericResource getById(String id) {
-        Provider provider = myManager.providers().getByName(ResourceUtils.resourceProviderFromResourceId(id));
-        String apiVersion = ResourceUtils.defaultApiVersion(id, provider);
+        String apiVersion = getApiVersionFromId(id).toBlocking().single();
         return wrapModel(this.innerCollection.getById(id, apiVersion)).withApiVersion(apiVersion);
     }
 
@@ -96,15 +100,22 @@ final class GenericResourcesImpl
             String resourceType,
             String name) {
 
-        PagedList<GenericResource> genericResources = this.listByGroup(resourceGroupName);
-        for (GenericResource resource : genericResources) {
-            if (resource.name().equalsIgnoreCase(name)
-                    && resource.resourceProviderNamespace().equalsIgnoreCase(providerNamespace)
-                    && resource.resourceType().equalsIgnoreCase(resourceType)) {
-                return resource;
+        String id = ResourceUtils.constructResourceId(
+                serviceClient.subscriptionId(),
+                resourceGroupName,
+                providerNamespace,
+                resourceType,
+                name,
+                "");
+        String apiVersion = getApiVersionFromId(id).toBlocking().single();
+        try {
+            return this.get(resourceGroupName, providerNamespace, "", resourceType, name, apiVersion);
+        } catch (CloudException e) {
+            if (e.getResponse() != null && e.getResponse().code() == 404) {
+                return null;
             }
+            throw e;
         }
-        return null;
     }
 
     @Override
@@ -132,7 +143,7 @@ final class GenericResourcesImpl
                 resourceName,
                 inner,
                 this.innerCollection,
-                this.myManager.providers(),
+                this.myManager.providersImpl(),
                 serviceClient,
                 this.myManager);
 
@@ -162,7 +173,7 @@ final class GenericResourcesImpl
                 id,
                 new GenericResourceInner(),
                 this.innerCollection,
-                this.myManager.providers(),
+                this.myManager.providersImpl(),
                 this.serviceClient,
                 this.myManager)
                 .withExistingResourceGroup(ResourceUtils.groupFromResourceId(id))
@@ -180,7 +191,7 @@ final class GenericResourcesImpl
                 inner.id(),
                 inner,
                 this.innerCollection,
-                this.myManager.providers(),
+                this.myManager.providersImpl(),
                 this.serviceClient,
                 this.myManager)
                 .withExistingResourceGroup(ResourceUtils.groupFromResourceId(inner.id()))
@@ -213,12 +224,6 @@ final class GenericResourcesImpl
     }
 
     private Observable<String> getApiVersionFromId(final String id) {
-        return myManager.providers().getByNameAsync(ResourceUtils.resourceProviderFromResourceId(id))
-                .map(new Func1<Provider, String>() {
-                    @Override
-                    public String call(Provider provider) {
-                        return ResourceUtils.defaultApiVersion(id, provider);
-                    }
-                });
+        return myManager.providersImpl().getApiVersionAsync(id);
     }
 }
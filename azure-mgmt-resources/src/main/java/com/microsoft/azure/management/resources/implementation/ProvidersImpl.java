@@ -9,10 +9,16 @@ package com.microsoft.azure.management.resources.implementation;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.resources.Provider;
 import com.microsoft.azure.management.resources.Providers;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceId;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation.ReadableWrappersImpl;
 import rx.Observable;
 import rx.functions.Func1;
 
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * The implementation for {@link Providers}.
  */
@@ -20,6 +26,8 @@ final class ProvidersImpl
         extends ReadableWrappersImpl<Provider, ProviderImpl, ProviderInner>
         implements Providers {
     private final ProvidersInner client;
+    // Default API versions resolved so far, keyed by lower-cased full resource type (e.g. microsoft.web/sites/config)
+    private final ConcurrentMap<String, String> apiVersions = new ConcurrentHashMap<>();
 
     ProvidersImpl(final ProvidersInner client) {
         this.client = client;
@@ -56,6 +64,30 @@ final class ProvidersImpl
         return wrapModel(client.get(resourceProviderNamespace));
     }
 
+    /**
+     * Resolves the default API version to use for a resource. The resource provider is only
+     * queried the first time a resource type is seen by this manager.
+     *
+     * @param id the resource ID
+     * @return an observable of the API version
+     */
+    Observable<String> getApiVersionAsync(final String id) {
+        final String key = ResourceId.parseResourceId(id).fullResourceType().toLowerCase(Locale.ROOT);
+        String apiVersion = apiVersions.get(key);
+        if (apiVersion != null) {
+            return Observable.just(apiVersion);
+        }
+        return getByNameAsync(ResourceUtils.resourceProviderFromResourceId(id))
+                .map(new Func1<Provider, String>() {
+                    @Override
+                    public String call(Provider provider) {
+                        String resolved = ResourceUtils.defaultApiVersion(id, provider);
+                        apiVersions.putIfAbsent(key, resolved);
+                        return resolved;
+                    }
+                });
+    }
+
     @Override
     protected ProviderImpl wrapModel(ProviderInner inner) {
         if (inner == null) {
@@ -34,7 +34,7 @@ public final class ResourceManager extends ManagerBase {
     private GenericResources genericResources;
     private Deployments deployments;
     private Features features;
-    private Providers providers;
+    private ProvidersImpl providers;
     private PolicyDefinitions policyDefinitions;
     private PolicyAssignments policyAssignments;
 
@@ -207,6 +207,13 @@ public final class ResourceManager extends ManagerBase {
      * @return the resource provider management API entry point
      */
     public Providers providers() {
+        return providersImpl();
+    }
+
+    /**
+     * @return the resource provider implementation, which also caches default API versions per resource type
+     */
+    ProvidersImpl providersImpl() {
         if (providers == null) {
             providers = new ProvidersImpl(resourceManagementClient.providers());
         }
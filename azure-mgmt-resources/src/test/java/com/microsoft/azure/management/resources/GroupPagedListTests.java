@@ -14,6 +14,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GroupPagedListTests {
     @Test
@@ -103,6 +104,95 @@ public class GroupPagedListTests {
         };
     }
 
+    @Test
+    public void canListGroupsConcurrently() {
+        final List<ResourceGroup> groups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            groups.add(resourceGroup("RG" + i));
+        }
+        PageImpl<ResourceGroup> page = new PageImpl<>();
+        page.setItems(groups);
+        PagedList<ResourceGroup> pagedResourceList = new PagedList<ResourceGroup>(page) {
+            @Override
+            public Page<ResourceGroup> nextPage(String nextLink) {
+                return null;
+            }
+        };
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        GroupPagedList<String> groupedResourceList = new GroupPagedList<String>(pagedResourceList, 4) {
+            @Override
+            public List<String> listNextGroup(String s) {
+                int now = running.incrementAndGet();
+                int max = maxRunning.get();
+                while (now > max && !maxRunning.compareAndSet(max, now)) {
+                    max = maxRunning.get();
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                // Every third group is empty
+                if (s.hashCode() % 3 == 0) {
+                    return new ArrayList<>();
+                }
+                return Arrays.asList(s + "Vm1", s + "Vm2");
+            }
+        };
+
+        // The items come in the order of the groups
+        List<String> expected = new ArrayList<>();
+        for (ResourceGroup group : groups) {
+            if (group.name().hashCode() % 3 != 0) {
+                expected.add(group.name() + "Vm1");
+                expected.add(group.name() + "Vm2");
+            }
+        }
+        Assert.assertEquals(expected, new ArrayList<>(groupedResourceList));
+        Assert.assertTrue(maxRunning.get() <= 4);
+        Assert.assertTrue(maxRunning.get() > 1);
+    }
+
+    @Test
+    public void stopsListingGroupsWhenAbandoned() throws InterruptedException {
+        final List<ResourceGroup> groups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            groups.add(resourceGroup("RG" + i));
+        }
+        PageImpl<ResourceGroup> page = new PageImpl<>();
+        page.setItems(groups);
+        PagedList<ResourceGroup> pagedResourceList = new PagedList<ResourceGroup>(page) {
+            @Override
+            public Page<ResourceGroup> nextPage(String nextLink) {
+                return null;
+            }
+        };
+
+        final AtomicInteger started = new AtomicInteger();
+        GroupPagedList<String> groupedResourceList = new GroupPagedList<String>(pagedResourceList, 4) {
+            @Override
+            public List<String> listNextGroup(String s) {
+                started.incrementAndGet();
+                return Arrays.asList(s + "Vm1", s + "Vm2");
+            }
+        };
+
+        Iterator<String> itr = groupedResourceList.iterator();
+        Assert.assertEquals("RG0Vm1", itr.next());
+
+        // The paged list holds the next page, and the groups following it are listed ahead
+        Thread.sleep(100);
+        int startedAhead = started.get();
+        Assert.assertTrue(String.valueOf(startedAhead), startedAhead <= 2 + 3);
+
+        // Nothing more is listed while the list is not iterated
+        Thread.sleep(200);
+        Assert.assertEquals(startedAhead, started.get());
+    }
+
     private static ResourceGroup resourceGroup(final String name) {
         return new ResourceGroup() {
             @Override
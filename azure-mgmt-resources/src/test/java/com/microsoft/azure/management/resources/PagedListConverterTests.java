@@ -0,0 +1,120 @@
+package com.microsoft.azure.management.resources;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.PagedList;
+import com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation.ReadableWrappersImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.PagedListConverter;
+import com.microsoft.azure.management.resources.implementation.PageImpl;
+import org.junit.Assert;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PagedListConverterTests {
+    @Test
+    public void canPrefetchPages() throws Exception {
+        final int pageCount = 10;
+        final AtomicInteger fetchedPages = new AtomicInteger();
+        PagedList<Integer> source = new PagedList<Integer>(page(0, pageCount)) {
+            @Override
+            public Page<Integer> nextPage(String nextLink) {
+                fetchedPages.incrementAndGet();
+                return page(Integer.parseInt(nextLink), pageCount);
+            }
+        };
+        fetchedPages.set(0);
+
+        // Fetches run as soon as they are scheduled, so the pages fetched ahead are known when convert returns
+        PagedList<String> converted = new PagedListConverter<Integer, String>() {
+            @Override
+            public String typeConvert(Integer integer) {
+                return "item" + integer;
+            }
+        }.withPrefetchDepth(2).withPrefetchScheduler(Schedulers.immediate()).convert(source);
+
+        // The list holds the next page and at most two more pages are fetched ahead
+        Assert.assertEquals(3, fetchedPages.get());
+
+        List<String> items = new ArrayList<>();
+        for (String item : converted) {
+            items.add(item);
+            // Pages are fetched as the consumer advances, never more than two ahead of the held one
+            Assert.assertTrue(fetchedPages.get() <= Math.min(pageCount - 1, items.size() / 3 + 3));
+        }
+        Assert.assertEquals(pageCount * 3, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Assert.assertEquals("item" + i, items.get(i));
+        }
+        Assert.assertEquals(pageCount - 1, fetchedPages.get());
+    }
+
+    @Test
+    public void doesNotPrefetchByDefault() throws Exception {
+        final int pageCount = 10;
+        final AtomicInteger fetchedPages = new AtomicInteger();
+        PagedList<Integer> source = new PagedList<Integer>(page(0, pageCount)) {
+            @Override
+            public Page<Integer> nextPage(String nextLink) {
+                fetchedPages.incrementAndGet();
+                return page(Integer.parseInt(nextLink), pageCount);
+            }
+        };
+        fetchedPages.set(0);
+
+        PagedList<String> converted = new PagedListConverter<Integer, String>() {
+            @Override
+            public String typeConvert(Integer integer) {
+                return "item" + integer;
+            }
+        }.convert(source);
+
+        // Only the page the list holds after the first one
+        Assert.assertEquals(1, fetchedPages.get());
+        Assert.assertEquals("item0", converted.get(0));
+        Assert.assertEquals(1, fetchedPages.get());
+    }
+
+    @Test
+    public void wrappedCollectionsPrefetchOnePageByDefault() throws Exception {
+        final int pageCount = 10;
+        final AtomicInteger fetchedPages = new AtomicInteger();
+        PagedList<Integer> source = new PagedList<Integer>(page(0, pageCount)) {
+            @Override
+            public Page<Integer> nextPage(String nextLink) {
+                fetchedPages.incrementAndGet();
+                return page(Integer.parseInt(nextLink), pageCount);
+            }
+        };
+        fetchedPages.set(0);
+
+        PagedList<String> wrapped = new ReadableWrappersImpl<String, String, Integer>() {
+            @Override
+            protected String wrapModel(Integer inner) {
+                return "item" + inner;
+            }
+
+            PagedList<String> list(PagedList<Integer> pagedList) {
+                return wrapList(pagedList);
+            }
+        }.list(source);
+
+        // The page the list holds after the first one, and one more fetched in the background
+        for (int i = 0; i < 100 && fetchedPages.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(2, fetchedPages.get());
+        Assert.assertEquals("item0", wrapped.get(0));
+    }
+
+    private static Page<Integer> page(int index, int pageCount) {
+        PageImpl<Integer> page = new PageImpl<>();
+        page.setItems(Arrays.asList(index * 3, index * 3 + 1, index * 3 + 2));
+        page.setNextPageLink(index + 1 < pageCount ? String.valueOf(index + 1) : null);
+        return page;
+    }
+}
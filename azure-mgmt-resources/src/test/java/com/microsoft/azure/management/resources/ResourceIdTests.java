@@ -75,4 +75,30 @@ public class ResourceIdTests {
         Assert.assertEquals(resourceId.parent().parent().resourceType(), "applicationGateways");
         Assert.assertEquals(resourceId.parent().parent().fullResourceType(), "Microsoft.Network/applicationGateways");
     }
+
+    @Test
+    public void ResourceIdSharesParsedParents() {
+        String parentId = "/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/resourceGroupName/providers/Microsoft.Network/virtualNetworks/vnet";
+        ResourceId subnet1 = ResourceId.parseResourceId(parentId + "/subnets/subnet1");
+        ResourceId subnet2 = ResourceId.parseResourceId(parentId + "/subnets/subnet2");
+
+        Assert.assertSame(subnet1, ResourceId.parseResourceId(parentId + "/subnets/subnet1"));
+        Assert.assertSame(subnet1.parent(), subnet2.parent());
+        Assert.assertSame(subnet1.parent(), ResourceId.parseResourceId(parentId));
+        Assert.assertEquals(parentId, subnet2.parent().id());
+        Assert.assertEquals("subnet2", subnet2.name());
+        Assert.assertEquals("Microsoft.Network/virtualNetworks/subnets", subnet2.fullResourceType());
+    }
+
+    @Test
+    public void ResourceIdForResourceGroupWorksFine() {
+        ResourceId resourceId = ResourceId.parseResourceId("/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/resourceGroupName");
+
+        Assert.assertEquals(resourceId.name(), "resourceGroupName");
+        Assert.assertEquals(resourceId.subscriptionId(), "9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef");
+        Assert.assertEquals(resourceId.resourceGroupName(), "resourceGroupName");
+        Assert.assertNull(resourceId.providerNamespace());
+        Assert.assertNull(resourceId.resourceType());
+        Assert.assertNull(resourceId.parent());
+    }
 }
@@ -7,6 +7,9 @@ import org.junit.Test;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 public class ResourceUtilsTests {
     @Test
     public void canExtractGroupFromId() throws Exception {
@@ -35,4 +38,17 @@ public class ResourceUtilsTests {
         String contentString = new String(content);
         Assert.assertNotNull(contentString);
     }
+
+    @Test
+    public void canStreamFile() throws Exception {
+        Retrofit retrofit = new Retrofit.Builder().baseUrl("http://microsoft.com").addCallAdapterFactory(RxJavaCallAdapterFactory.create()).build();
+        byte[] content = Utils.downloadFileAsync("http://google.com/humans.txt", retrofit).toBlocking().single();
+        List<ByteBuffer> chunks = Utils.streamFileAsync("http://google.com/humans.txt", retrofit, 16).toList().toBlocking().single();
+        int length = 0;
+        for (ByteBuffer chunk : chunks) {
+            Assert.assertTrue(chunk.remaining() <= 16);
+            length += chunk.remaining();
+        }
+        Assert.assertEquals(content.length, length);
+    }
 }
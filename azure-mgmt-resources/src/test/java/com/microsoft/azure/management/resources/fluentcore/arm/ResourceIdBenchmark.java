@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.arm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.InvalidParameterException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ResourceId#parseResourceId(String)} with the previous implementation, which split
+ * the id and re-parsed a substring for every parent level, on deeply nested child resource ids.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.management.resources.fluentcore.arm.ResourceIdBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceIdBenchmark {
+
+    private static final String GATEWAY_ID = "/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/resourceGroupName"
+            + "/providers/Microsoft.Network/applicationGateways/gateway";
+
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setup() {
+        // Siblings nested four levels deep under the same gateway, as seen when walking its child resources
+        ids = new String[64];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = GATEWAY_ID + "/backendAddressPools/pool" + (i % 4) + "/backendIPConfigurations/ipconfig" + (i % 8)
+                    + "/loadBalancerRules/rule" + i;
+        }
+        for (String id : ids) {
+            ResourceId parsed = ResourceId.parseResourceId(id);
+            LegacyResourceId legacy = legacyParseResourceId(id);
+            if (!parsed.fullResourceType().equals(legacy.fullResourceType())
+                    || !parsed.parent().id().equals(legacy.parent().id())
+                    || !parsed.name().equals(legacy.name())) {
+                throw new IllegalStateException("Parsed ids differ for " + id);
+            }
+        }
+    }
+
+    private String nextId() {
+        String id = ids[next];
+        next = (next + 1) % ids.length;
+        return id;
+    }
+
+    @Benchmark
+    public ResourceId parse() {
+        return ResourceId.parseResourceId(nextId());
+    }
+
+    @Benchmark
+    public Object parseLegacy() {
+        return legacyParseResourceId(nextId());
+    }
+
+    @Benchmark
+    public void walkParentAndName(Blackhole blackhole) {
+        String id = nextId();
+        blackhole.consume(ResourceUtils.groupFromResourceId(id));
+        blackhole.consume(ResourceUtils.nameFromResourceId(id));
+        blackhole.consume(ResourceUtils.parentResourceIdFromResourceId(id));
+    }
+
+    @Benchmark
+    public void walkParentAndNameLegacy(Blackhole blackhole) {
+        String id = nextId();
+        blackhole.consume(legacyParseResourceId(id).resourceGroupName());
+        blackhole.consume(legacyParseResourceId(id).name());
+        if (legacyParseResourceId(id).parent() != null) {
+            blackhole.consume(legacyParseResourceId(id).parent().id());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ResourceIdBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    // The parsing code as it was before the single pass parser and the cache, kept as the baseline
+    private static LegacyResourceId legacyParseResourceId(String id) {
+        String[] splits = id.substring(1).split("/");
+
+        if (splits.length % 2 == 1) {
+            throw new InvalidParameterException();
+        }
+        LegacyResourceId resourceId = new LegacyResourceId();
+
+        resourceId.id = id;
+        resourceId.subscriptionId = splits[1];
+        resourceId.resourceGroupName = splits[3];
+
+        if (splits.length == 4) {
+            resourceId.name = resourceId.resourceGroupName;
+            return resourceId;
+        }
+
+        resourceId.providerNamespace = splits[5];
+
+        resourceId.name = splits[splits.length - 1];
+        resourceId.resourceType = splits[splits.length - 2];
+
+        int numberOfParents = splits.length / 2 - 4;
+        if (numberOfParents == 0) {
+            return resourceId;
+        }
+
+        String resourceType = splits[splits.length - 2];
+
+        resourceId.parent = legacyParseResourceId(id.substring(0, id.length() - ("/" + resourceType + "/" + resourceId.name).length()));
+
+        return resourceId;
+    }
+
+    private static final class LegacyResourceId {
+        private String subscriptionId;
+        private String resourceGroupName;
+        private String name;
+        private LegacyResourceId parent;
+        private String providerNamespace;
+        private String resourceType;
+        private String id;
+
+        String resourceGroupName() {
+            return resourceGroupName;
+        }
+
+        String name() {
+            return name;
+        }
+
+        String id() {
+            return id;
+        }
+
+        LegacyResourceId parent() {
+            return parent;
+        }
+
+        String fullResourceType() {
+            if (this.parent == null) {
+                return this.providerNamespace + "/" + this.resourceType;
+            }
+            return this.parent.fullResourceType() + "/" + this.resourceType;
+        }
+    }
+}
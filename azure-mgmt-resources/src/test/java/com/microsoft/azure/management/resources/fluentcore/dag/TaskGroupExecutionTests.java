@@ -0,0 +1,166 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.dag;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskGroupExecutionTests {
+    @Test
+    public void canLimitConcurrency() {
+        // Ten independent tasks that the root task depends on
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        StringTaskGroup root = new StringTaskGroup("root", running, maxRunning, started);
+        for (int i = 0; i < 10; i++) {
+            new StringTaskGroup("task" + i, running, maxRunning, started).merge(root);
+        }
+
+        root.withMaxConcurrency(3);
+        root.prepare();
+        List<String> results = root.executeAsync().toList().toBlocking().single();
+
+        Assert.assertEquals(11, results.size());
+        Assert.assertEquals("root", results.get(results.size() - 1));
+        Assert.assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    public void canStartCriticalPathFirst() {
+        /**
+         *  [root]----->[A]----->[X]----->[Y]
+         *    |
+         *    |-------->[B]
+         *    |
+         *    |-------->[C]
+         */
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        StringTaskGroup root = new StringTaskGroup("root", running, maxRunning, started);
+        StringTaskGroup groupY = new StringTaskGroup("Y", running, maxRunning, started);
+        StringTaskGroup groupX = new StringTaskGroup("X", running, maxRunning, started);
+        groupY.merge(groupX);
+        StringTaskGroup groupA = new StringTaskGroup("A", running, maxRunning, started);
+        groupX.merge(groupA);
+        new StringTaskGroup("B", running, maxRunning, started).merge(root);
+        new StringTaskGroup("C", running, maxRunning, started).merge(root);
+        groupA.merge(root);
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        root.withMaxConcurrency(1).withExecutionListener(new TaskExecutionListener() {
+            @Override
+            public void onTaskStarted(String key) {
+                events.add("start:" + key);
+            }
+
+            @Override
+            public void onTaskFinished(String key, long elapsedMillis, Throwable error) {
+                Assert.assertNull(error);
+                events.add("finish:" + key);
+            }
+        });
+        root.prepare();
+        root.executeAsync().toBlocking().last();
+
+        Assert.assertEquals(1, maxRunning.get());
+        Assert.assertEquals("Y", started.get(0));
+        Assert.assertEquals("root", started.get(started.size() - 1));
+        Assert.assertEquals(12, events.size());
+        for (int i = 0; i < events.size(); i += 2) {
+            Assert.assertEquals(events.get(i).replace("start:", "finish:"), events.get(i + 1));
+        }
+    }
+
+    @Test
+    public void canPropagateError() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        StringTaskGroup root = new StringTaskGroup("root", running, maxRunning, started);
+        new StringTaskGroup("fail", running, maxRunning, started).merge(root);
+
+        root.prepare();
+        try {
+            root.executeAsync().toBlocking().last();
+            Assert.fail("Expected the task error to be propagated");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+        Assert.assertFalse(started.contains("root"));
+    }
+
+    private static class StringTaskGroup extends TaskGroupBase<String, StringTask> {
+        StringTaskGroup(String key, AtomicInteger running, AtomicInteger maxRunning, List<String> started) {
+            super(key, new StringTask(key, running, maxRunning, started));
+        }
+    }
+
+    private static class StringTask implements TaskItem<String> {
+        private final String key;
+        private final AtomicInteger running;
+        private final AtomicInteger maxRunning;
+        private final List<String> started;
+        private String result;
+
+        StringTask(String key, AtomicInteger running, AtomicInteger maxRunning, List<String> started) {
+            this.key = key;
+            this.running = running;
+            this.maxRunning = maxRunning;
+            this.started = started;
+        }
+
+        @Override
+        public String result() {
+            return result;
+        }
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public Observable<String> executeAsync() {
+            return Observable.defer(new Func0<Observable<String>>() {
+                @Override
+                public Observable<String> call() {
+                    started.add(key);
+                    int now = running.incrementAndGet();
+                    int max = maxRunning.get();
+                    while (now > max && !maxRunning.compareAndSet(max, now)) {
+                        max = maxRunning.get();
+                    }
+                    if (key.equals("fail")) {
+                        running.decrementAndGet();
+                        return Observable.error(new IllegalStateException(key));
+                    }
+                    result = key;
+                    return Observable.just(key)
+                            .delay(50, TimeUnit.MILLISECONDS)
+                            .doOnTerminate(new Action0() {
+                                @Override
+                                public void call() {
+                                    running.decrementAndGet();
+                                }
+                            });
+                }
+            }).subscribeOn(Schedulers.io());
+        }
+    }
+}